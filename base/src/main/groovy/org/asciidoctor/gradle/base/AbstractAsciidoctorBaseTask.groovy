@@ -18,6 +18,7 @@ package org.asciidoctor.gradle.base
 import groovy.transform.CompileDynamic
 import groovy.transform.CompileStatic
 import org.asciidoctor.gradle.base.internal.DefaultAsciidoctorBaseDirConfiguration
+import org.asciidoctor.gradle.base.internal.OutputStaging
 import org.asciidoctor.gradle.base.internal.Workspace
 import org.gradle.api.Action
 import org.gradle.api.DefaultTask
@@ -38,6 +39,7 @@ import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.Nested
 import org.gradle.api.tasks.OutputDirectories
 import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.OutputFile
 import org.gradle.api.tasks.util.PatternFilterable
 import org.gradle.api.tasks.util.PatternSet
 import org.ysb33r.grolifant.api.core.ProjectOperations
@@ -47,7 +49,10 @@ import java.nio.file.Path
 import static org.asciidoctor.gradle.base.AsciidoctorUtils.UNDERSCORE_LED_FILES
 import static org.asciidoctor.gradle.base.AsciidoctorUtils.createDirectoryProperty
 import static org.asciidoctor.gradle.base.AsciidoctorUtils.executeDelegatingClosure
-import static org.asciidoctor.gradle.base.AsciidoctorUtils.mapToDirectoryProvider
+import static org.asciidoctor.gradle.base.AsciidoctorUtils.mapToFileProvider
+import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.resolveAsRelocatable
+import static org.asciidoctor.gradle.base.internal.ReproducibleAttributes.defaultAttributesFor
+import static org.asciidoctor.gradle.base.internal.ReproducibleAttributes.trackSourceDateEpoch
 import static org.gradle.api.tasks.PathSensitivity.RELATIVE
 import static org.ysb33r.grolifant.api.core.TaskInputFileOptions.IGNORE_EMPTY_DIRECTORIES
 import static org.ysb33r.grolifant.api.core.TaskInputFileOptions.SKIP_WHEN_EMPTY
@@ -82,6 +87,10 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
     private final Provider<String> defaultRevNumber
     private final Provider<File> intermediateWorkDirProvider
     private final Property<PatternSet> intermediateArtifactPattern
+    private final File projectDir
+    private final File rootDir
+    private final Provider<String> sourceDateEpoch
+    private final OutputStaging outputStaging
 
     /** Logs documents as they are converted
      *
@@ -89,12 +98,22 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
     @Console
     boolean logDocuments = false
 
+    /** Produce byte-identical output for identical sources.
+     *
+     * When set, all time-derived attributes are pinned to the value of {@code SOURCE_DATE_EPOCH}, or to the
+     * newest modification time of the sources if that environment variable is not set.
+     *
+     * @since 4.0
+     */
+    @Input
+    boolean reproducible = false
+
     /** Sets the new Asciidoctor parent source directory.
      *
      * @param f Any object convertible with {@code project.file}.
      */
     void setSourceDir(Object f) {
-        this.srcDir.set(mapToDirectoryProvider(project, f))
+        this.srcDir.fileProvider(mapToFileProvider(projectOperations, f))
     }
 
     /** Sets the new Asciidoctor parent source directory in a declarative style.
@@ -104,7 +123,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
      * @since 3.0
      */
     void sourceDir(Object f) {
-        this.srcDir.set(mapToDirectoryProvider(project, f))
+        this.srcDir.fileProvider(mapToFileProvider(projectOperations, f))
     }
 
     /** Returns the parent directory for Asciidoctor source.
@@ -135,7 +154,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
      * @param f An object convertible via {@code project.file}
      */
     void setOutputDir(Object f) {
-        this.outDir.set(project.file(f))
+        this.outDir.set(projectOperations.fsOperations.file(f))
     }
 
     /**
@@ -270,7 +289,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
      */
     void resources(Closure cfg) {
         if (this.resourceCopy == null) {
-            this.resourceCopy = project.copySpec(cfg)
+            this.resourceCopy = copySpecFrom(cfg)
         } else {
             Closure configuration = (Closure) cfg.clone()
             configuration.delegate = this.resourceCopy
@@ -285,7 +304,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
      */
     void resources(Action<? super CopySpec> cfg) {
         if (this.resourceCopy == null) {
-            this.resourceCopy = project.copySpec(cfg)
+            this.resourceCopy = projectOperations.copySpec(cfg)
         } else {
             cfg.execute(this.resourceCopy)
         }
@@ -302,7 +321,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
      */
     void resources(final String lang, Closure cfg) {
         if (this.languageResources[lang] == null) {
-            this.languageResources[lang] = project.copySpec(cfg)
+            this.languageResources[lang] = copySpecFrom(cfg)
         } else {
             Closure configuration = (Closure) cfg.clone()
             configuration.delegate = this.languageResources[lang]
@@ -321,7 +340,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
      */
     void resources(final String lang, Action<? super CopySpec> cfg) {
         if (this.languageResources[lang] == null) {
-            this.languageResources[lang] = project.copySpec(cfg)
+            this.languageResources[lang] = projectOperations.copySpec(cfg)
         } else {
             cfg.execute(this.languageResources[lang])
         }
@@ -474,6 +493,18 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
         }
     }
 
+    /** Manifest of output files which were added, changed or removed by the last conversion.
+     *
+     * @return Location of manifest or {@code null} if {@link OutputOptions#getWriteOnlyChangedOutputs} is not set.
+     *
+     * @since 4.0
+     */
+    @OutputFile
+    @org.gradle.api.tasks.Optional
+    File getOutputManifest() {
+        configuredOutputOptions.writeOnlyChangedOutputs ? outputStaging.manifest : null
+    }
+
     /** Obtain List of languages the sources documents are written in.
      *
      * @return List of languages. Can be empty, but never {@code null}.
@@ -538,11 +569,11 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
      */
     @CompileDynamic
     CopySpec getDefaultResourceCopySpec(Optional<String> lang) {
-        project.copySpec {
-            from(lang.present ? new File(sourceDir, lang.get()) : sourceDir) {
+        projectOperations.copySpec({ CopySpec cs ->
+            cs.from(lang.present ? new File(sourceDir, lang.get()) : sourceDir) {
                 include 'images/**'
             }
-        }
+        } as Action<CopySpec>)
     }
 
     /**
@@ -567,6 +598,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
             attrs.put('revnumber', revNumber)
         }
 
+        attrs.putAll(defaultAttributesFor(reproducible, sourceDateEpoch, sourceFileTree + secondarySourceFileTree))
         attrs
     }
 
@@ -622,9 +654,23 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
      *
      * @return Access to attributes hashmap
      */
-    @Input
+    @Internal
     abstract Map<String, Object> getAttributes()
 
+    /** Returns the attributes in a form which is independent of the location of the project.
+     *
+     * Files and absolute paths which are located inside the root project are expressed relative to the
+     * project directory, so that the same build in different workspaces will yield the same cache key.
+     *
+     * @return Attributes suitable for input tracking.
+     *
+     * @since 4.0
+     */
+    @Input
+    Map<String, Object> getRelocatableAttributes() {
+        resolveAsRelocatable(attributes, projectDir, rootDir, projectOperations)
+    }
+
     /** Shortcut method to apply a new set of Asciidoctor attributes, clearing any attributes previously set.
      *
      * In most implementations this will just access the {@code setAttributes} method
@@ -665,10 +711,10 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
     @SuppressWarnings('ThisReferenceEscapesConstructor')
     protected AbstractAsciidoctorBaseTask() {
         super()
-        notCompatibleWithConfigurationCache(
-                'Asciidoctor Gradle 4.x is not compatible with CC. Wait for the 5.x release'
-        )
         this.projectOperations = ProjectOperations.find(project)
+        this.projectDir = project.projectDir
+        this.rootDir = project.rootDir
+        this.sourceDateEpoch = trackSourceDateEpoch(this) { -> owner.reproducible }
         this.intermediateArtifactPattern = project.objects.property(PatternSet)
         this.srcDir = createDirectoryProperty(project)
         this.outDir = createDirectoryProperty(project)
@@ -676,6 +722,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
         this.intermediateWorkDirProvider = projectOperations.buildDirDescendant(
                 "/tmp/${projectOperations.fsOperations.toSafeFileName(this.name)}.intermediate"
         )
+        this.outputStaging = new OutputStaging(projectOperations, this.name)
 
         projectOperations.tasks.inputFiles(
                 inputs,
@@ -773,7 +820,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
      */
     protected FileTree getSecondarySourceFileTreeFrom(File dir) {
         Spec<FileTreeElement> primarySourceSpec = (this.sourceDocumentPattern ?: defaultSourceDocumentPattern).asSpec
-        project.fileTree(dir)
+        projectOperations.fileTree(dir)
                 .matching(this.secondarySourceDocumentPattern ?: defaultSecondarySourceDocumentPattern)
                 .matching { PatternFilterable target ->
                     target.exclude(primarySourceSpec)
@@ -847,7 +894,7 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
 
         CopySpec langSpec = includeLang.present ? languageResources[includeLang.get()] : null
 
-        project.copy(new Action<CopySpec>() {
+        projectOperations.copy(new Action<CopySpec>() {
             @Override
             void execute(CopySpec copySpec) {
                 copySpec.with {
@@ -924,6 +971,43 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
         checkForIncompatiblePathRoots()
     }
 
+    /**
+     * Prepares the staging area if only changed outputs should be written.
+     *
+     * Call this before anything is written to the output directories. Calling it again before
+     * {@link #commitStagedOutputs} has no effect.
+     *
+     * @since 4.0
+     */
+    protected void prepareOutputStaging() {
+        if (configuredOutputOptions.writeOnlyChangedOutputs) {
+            outputStaging.prepare(outputDir)
+        }
+    }
+
+    /**
+     * The directory to which a converter should write.
+     *
+     * @param finalOutputDir Final output directory.
+     * @return Staging directory if a staging area has been prepared, otherwise the final output directory.
+     *
+     * @since 4.0
+     */
+    protected File getConversionDirFor(File finalOutputDir) {
+        outputStaging.getConversionDirFor(finalOutputDir)
+    }
+
+    /**
+     * Commits all staged files to the backend output directories and writes the manifest.
+     *
+     * Does nothing if no staging area has been prepared.
+     *
+     * @since 4.0
+     */
+    protected void commitStagedOutputs() {
+        outputStaging.commit(backendOutputDirectories)
+    }
+
     /** Get the output directory for a specific backend.
      *
      * @param backendName Name of backend
@@ -1096,17 +1180,26 @@ abstract class AbstractAsciidoctorBaseTask extends DefaultTask implements Asciid
             tmpDir.deleteDir()
         }
         tmpDir.mkdirs()
-        project.copy { CopySpec cs ->
-            cs.with {
-                into tmpDir
-                from mainSourceTree
-                from secondarySourceTree
-                with resourceTree
-                if (langResourcesTree.present) {
-                    with langResourcesTree.get()
+        projectOperations.copy(new Action<CopySpec>() {
+            @Override
+            void execute(CopySpec cs) {
+                cs.with {
+                    into tmpDir
+                    from mainSourceTree
+                    from secondarySourceTree
+                    with resourceTree
+                    if (langResourcesTree.present) {
+                        with langResourcesTree.get()
+                    }
                 }
             }
-        }
+        })
+    }
+
+    private CopySpec copySpecFrom(Closure cfg) {
+        projectOperations.copySpec({ CopySpec cs ->
+            executeDelegatingClosure(cs, cfg)
+        } as Action<CopySpec>)
     }
 
     private PatternSet getAsciidocPatterns() {
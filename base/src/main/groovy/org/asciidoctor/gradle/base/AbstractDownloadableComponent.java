@@ -17,20 +17,32 @@ package org.asciidoctor.gradle.base;
 
 import groovy.lang.Closure;
 import groovy.lang.DelegatesTo;
+import org.asciidoctor.gradle.base.internal.CloudArchiveCache;
+import org.asciidoctor.gradle.base.internal.CloudArchiveRefreshes;
 import org.gradle.api.Action;
+import org.gradle.api.GradleException;
 import org.gradle.api.Project;
 import org.gradle.api.UnknownDomainObjectException;
-import org.gradle.api.provider.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.ysb33r.grolifant.api.core.ClosureUtils;
 import org.ysb33r.grolifant.api.core.ProjectOperations;
 import org.ysb33r.grolifant.api.core.git.AbstractCloudGit;
 import org.ysb33r.grolifant.api.core.git.GitLabArchive;
-import org.ysb33r.grolifant.api.core.git.GitRepoArchiveDownloader;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Base class for building extension which can allows styles and themes to be added to various
@@ -42,11 +54,19 @@ import java.util.concurrent.Callable;
  */
 public abstract class AbstractDownloadableComponent<ComponentSrc, ResolvedComponent> {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AbstractDownloadableComponent.class);
+
     protected final ProjectOperations projectOperations;
     private final Map<String, Callable<ResolvedComponent>> components =
             new LinkedHashMap<>();
 
-    private final Provider<File> downloadRootProvider;
+    private final Map<String, Callable<File>> cloudArchives = new LinkedHashMap<>();
+    private final Map<String, File> fetchedArchives = new ConcurrentHashMap<>();
+    private final Set<String> failedPrefetches = new HashSet<>();
+    private final boolean offline;
+    private final CloudArchiveRefreshes archiveRefreshes;
+    private final int maxParallelDownloads;
+    private Object archiveCacheDirectory;
 
     /**
      * Adds a component source that is available on the local filesystem.
@@ -121,24 +141,66 @@ public abstract class AbstractDownloadableComponent<ComponentSrc, ResolvedCompon
         throw new UnknownDomainObjectException("Theme with name '" + name + "' was not registered");
     }
 
+    /**
+     * The directory of the archive cache which is shared by all projects and builds.
+     * <p>
+     * GitHub and GitLab archives are downloaded once into the cache and verified when they are unpacked.
+     * If Gradle runs offline, archives are only served from the cache.
+     *
+     * @return Cache directory. Defaults to a directory inside the Gradle user home.
+     * @since 4.0
+     */
+    public File getArchiveCacheDirectory() {
+        return projectOperations.getFsOperations().file(this.archiveCacheDirectory);
+    }
+
+    /**
+     * Sets the directory of the archive cache.
+     *
+     * @param dir Anything that can be converted to a file.
+     * @since 4.0
+     */
+    public void setArchiveCacheDirectory(Object dir) {
+        this.archiveCacheDirectory = dir;
+    }
+
     protected AbstractDownloadableComponent(Project project) {
         this.projectOperations = ProjectOperations.find(project);
-        this.downloadRootProvider = projectOperations.buildDirDescendant("cloud-archives");
+        this.offline = project.getGradle().getStartParameter().isOffline();
+        this.archiveRefreshes = project.getGradle().getStartParameter().isRefreshDependencies()
+                ? CloudArchiveRefreshes.forBuild(project.getGradle())
+                : null;
+        this.maxParallelDownloads = project.getGradle().getStartParameter().getMaxWorkerCount();
+        this.archiveCacheDirectory = new File(
+                project.getGradle().getGradleUserHomeDir(),
+                "caches/asciidoctor-gradle/cloud-archives"
+        );
     }
 
     /**
      * Creates a closure that can convert from a GitLab/GitHub repository to a local cached file.
+     * <p>
+     * The first time that any of the cloud archives is needed, all declared cloud archives are fetched
+     * into the archive cache in parallel. Fetching the other archives is best-effort: a failure is logged and
+     * only fails the build once that archive is needed itself.
      *
      * @param name      Name or componenet
      * @param component Details of component in remote repository.
      * @return Closure that will resolve an archive from a remote repository and store it locally.
      */
     protected Callable<ResolvedComponent> convertible(final String name, AbstractCloudGit component) {
-        final GitRepoArchiveDownloader downloader = new GitRepoArchiveDownloader(component, projectOperations);
         final String relativePath = getRelativePathInsideArchive(component);
+        final Object expectedSha256 = component.getProperty("sha256");
+        this.cloudArchives.put(name, () -> new CloudArchiveCache(getArchiveCacheDirectory(), offline, archiveRefreshes)
+                .archiveRoot(
+                        name,
+                        component.getArchiveUri(),
+                        expectedSha256 != null ? projectOperations.getStringTools().stringize(expectedSha256) : null
+                )
+        );
         return () -> {
-            downloader.setDownloadRoot(downloadRootProvider.get());
-            File root = downloader.getArchiveRoot();
+            prefetchArchives(name);
+            File root = fetchedArchives.get(name);
             return instantiateResolvedComponent(name, relativePath != null ? new File(root, relativePath) : root);
         };
     }
@@ -186,6 +248,60 @@ public abstract class AbstractDownloadableComponent<ComponentSrc, ResolvedCompon
         this.components.put(name, convertible(name, archive));
     }
 
+    private synchronized void prefetchArchives(String requested) throws Exception {
+        final List<String> pending = new ArrayList<>(cloudArchives.keySet());
+        pending.removeAll(fetchedArchives.keySet());
+        pending.removeAll(failedPrefetches);
+        if (!fetchedArchives.containsKey(requested) && !pending.contains(requested)) {
+            pending.add(requested);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(maxParallelDownloads, pending.size()))
+        );
+        Exception requestedFailure = null;
+        try {
+            final Map<String, Future<File>> downloads = new LinkedHashMap<>();
+            for (String name : pending) {
+                downloads.put(name, executor.submit(cloudArchives.get(name)));
+            }
+            for (Map.Entry<String, Future<File>> download : downloads.entrySet()) {
+                final String name = download.getKey();
+                try {
+                    fetchedArchives.put(name, awaitArchive(name, download.getValue()));
+                    failedPrefetches.remove(name);
+                } catch (Exception e) {
+                    if (name.equals(requested)) {
+                        requestedFailure = e;
+                    } else {
+                        failedPrefetches.add(name);
+                        LOG.warn("Could not fetch archive for '{}' in advance: {}", name, e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (requestedFailure != null) {
+            throw requestedFailure;
+        }
+    }
+
+    private static File awaitArchive(String name, Future<File> download) throws Exception {
+        try {
+            return download.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw new GradleException("Cannot fetch archive for " + name, e.getCause());
+        }
+    }
+
     private String getRelativePathInsideArchive(AbstractCloudGit theme) {
         return ((String) (theme.getProperty("relativePath")));
     }
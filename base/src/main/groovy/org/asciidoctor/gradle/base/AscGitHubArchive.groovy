@@ -30,6 +30,14 @@ class AscGitHubArchive extends GitHubArchive {
      */
     Object relativePath
 
+    /** Expected SHA-256 checksum of the downloaded archive.
+     *
+     * If set, a download with a different checksum is rejected and never enters the archive cache.
+     *
+     * @since 4.0
+     */
+    Object sha256
+
     /**
      * Create a downloadable Github reference.
      *
@@ -64,6 +64,29 @@ public interface AsciidoctorTaskFileOperations {
      */
     void setLogDocuments(boolean mode);
 
+    /**
+     * Whether conversions should produce byte-identical output for identical sources.
+     *
+     * When set, all time-derived attributes are pinned to the value of {@code SOURCE_DATE_EPOCH}, or to the
+     * newest modification time of the sources if that environment variable is not set.
+     * The {@code reproducible} attribute is also set, which removes timestamps from the document metadata.
+     *
+     * @return {@code true} if conversions are reproducible.
+     *
+     * @since 4.0
+     */
+    @Input
+    boolean getReproducible();
+
+    /**
+     * Whether conversions should produce byte-identical output for identical sources.
+     *
+     * @param mode Set {@code true} for reproducible output.
+     *
+     * @since 4.0
+     */
+    void setReproducible(boolean mode);
+
 
     /**
      * Sets the new Asciidoctor parent source directory.
@@ -353,7 +376,7 @@ public interface AsciidoctorTaskFileOperations {
      * A task may add some default attributes.
      * If the user specifies any of these attributes, then those attributes will not be utilised.
      * The default implementation will add {@code includedir}, {@code revnumber}, {@code gradle-project-group},
-     * {@code gradle-project-name}
+     * {@code gradle-project-name}. In reproducible mode the time-derived attributes are added as well.
      *
      * @param workingSourceDir Directory where source files are located.
      *
@@ -18,6 +18,7 @@ package org.asciidoctor.gradle.base;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.OutputDirectories;
+import org.gradle.api.tasks.OutputFile;
 
 import java.io.File;
 import java.util.List;
@@ -118,4 +119,15 @@ public interface AsciidoctorTaskOutputOptions {
      */
     @Nested
     OutputOptions getOutputOptions();
+
+    /**
+     * Manifest of output files which were added, changed or removed by the last conversion.
+     *
+     * @return Location of manifest or {@code null} if {@link OutputOptions#getWriteOnlyChangedOutputs} is not set.
+     *
+     * @since 4.0
+     */
+    @OutputFile
+    @org.gradle.api.tasks.Optional
+    File getOutputManifest();
 }
@@ -31,6 +31,7 @@ import org.ysb33r.grolifant.api.core.OperatingSystem
 import org.ysb33r.grolifant.api.core.ProjectOperations
 
 import java.nio.file.Path
+import java.util.concurrent.Callable
 
 import static groovy.lang.Closure.DELEGATE_FIRST
 
@@ -207,6 +208,20 @@ class AsciidoctorUtils {
         }
     }
 
+    /** Maps a file object to a file provider without keeping a reference to the project.
+     *
+     * This is safe to use with the configuration cache.
+     *
+     * @param po Project operations for the project context
+     * @param value Anything convertible with {@code project.file}
+     * @return {@link Provider} of a {@link File}.
+     *
+     * @since 4.0
+     */
+    static Provider<File> mapToFileProvider(ProjectOperations po, Object value) {
+        po.provider({ -> po.fsOperations.file(value) } as Callable<File>)
+    }
+
     /** Creates a {@link DirectoryProperty} instance in a way that is backwards-comaptible to
      * Gradle 4.3.
      *
@@ -17,6 +17,9 @@ package org.asciidoctor.gradle.base
 
 import groovy.transform.CompileStatic
 
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+
 /** Loads the versions of Asciidoctor modules that are required for a specific plugin.
  *
  * @author Schalk W. Cronjé
@@ -26,12 +29,28 @@ import groovy.transform.CompileStatic
 @CompileStatic
 class ModuleVersionLoader {
 
+    private static final ConcurrentMap<String, Map<String, String>> LOADED = new ConcurrentHashMap<>()
+
     /** Loads the versions
+     *
+     * The resource is only read once per plugin classloader, as the same versions are requested for every
+     * project that applies a plugin.
      *
      * @param name Name of group
      * @return Map of versions
      */
     static Map<String, String> load(final String name) {
+        final Map<String, String> versions = LOADED[name]
+        if (versions == null) {
+            final Map<String, String> loaded = loadResource(name)
+            LOADED.putIfAbsent(name, loaded)
+            loaded
+        } else {
+            versions
+        }
+    }
+
+    private static Map<String, String> loadResource(final String name) {
         final String resourcePath = "/META-INF/asciidoctor.gradle/${name}.properties"
         InputStream stream = ModuleVersionLoader.getResourceAsStream(resourcePath)
 
@@ -47,6 +47,14 @@ class OutputOptions {
         this.separateOutputDirPerBackend = v
     }
 
+    /** If set to true, conversions are written to a staging area first and only output files with changed content
+     * are replaced. A manifest of added, changed and removed files is written after every conversion.
+     *
+     * @since 4.0
+     */
+    @Input
+    boolean writeOnlyChangedOutputs = false
+
     /** Returns the set of backends that was configured for this task
      *
      * @return Set of backends.
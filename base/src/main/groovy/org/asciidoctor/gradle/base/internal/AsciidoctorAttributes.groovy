@@ -47,6 +47,53 @@ class AsciidoctorAttributes {
         resolveMapRecursive(attrs, po)
     }
 
+    /**
+     * Resolves attributes in the same way as {@link #resolveAsCacheable}, but also replaces any file, path or
+     * absolute path string that is located within the root project with a path relative to the project directory.
+     *
+     * <p>
+     *   This is used to track attributes as task inputs in a manner that does not depend on the location of the
+     *   checkout, which keeps build cache keys stable across different workspaces.
+     * </p>
+     *
+     * @param attrs Attributes
+     * @param projectDir Project directory.
+     * @param rootDir Root project directory.
+     * @param po {@link ProjectOperations} instance
+     * @return Map which is suitable for use as a relocatable task input.
+     *
+     * @since 4.0
+     */
+    static Map<String, Object> resolveAsRelocatable(
+            Map<String, Object> attrs,
+            File projectDir,
+            File rootDir,
+            ProjectOperations po
+    ) {
+        relocateMapRecursive(resolveMapRecursive(attrs, po), projectDir.toPath(), rootDir.toPath())
+    }
+
+    /**
+     * Converts a path into a path relative to the project directory if it lies within the root project.
+     *
+     * @param path Path to relocate.
+     * @param projectDir Project directory.
+     * @param rootDir Root project directory.
+     * @return Relative path using forward slashes or the absolute path if the path lies outside the root project.
+     *
+     * @since 4.0
+     */
+    static String relocatablePath(Path path, Path projectDir, Path rootDir) {
+        final Path target = path.toAbsolutePath().normalize()
+        final Path root = rootDir.toAbsolutePath().normalize()
+        if (target.startsWith(root)) {
+            final String relative = projectDir.toAbsolutePath().normalize().relativize(target).toString()
+            relative.empty ? '.' : relative.replace(File.separatorChar, '/' as char)
+        } else {
+            target.toString()
+        }
+    }
+
     /**
      * Recursively resolves all content recursively into string, booleans, containers of string & boolean,
      * and providers of string & boolean.
@@ -227,6 +274,42 @@ class AsciidoctorAttributes {
         resolvedAs
     }
 
+    private static Map<String, Object> relocateMapRecursive(Map<String, Object> attrs, Path projectDir, Path rootDir) {
+        final Map<String, Object> relocated = [:] as TreeMap<String, Object>
+        attrs.forEach { String key, Object value ->
+            relocated[key] = relocateItem(value, projectDir, rootDir)
+        }
+        relocated
+    }
+
+    private static Object relocateItem(Object value, Path projectDir, Path rootDir) {
+        switch (value) {
+            case Map:
+                return relocateMapRecursive(value as Map<String, Object>, projectDir, rootDir)
+            case Collection:
+                final Collection<Object> relocated = value instanceof Set ? [].toSet() : []
+                ((Collection<Object>) value).forEach { Object item ->
+                    relocated.add(relocateItem(item, projectDir, rootDir))
+                }
+                return relocated
+            case Provider:
+                return ((Provider<Object>) value).map { Object item -> relocateItem(item, projectDir, rootDir) }
+            case File:
+                return relocatablePath(((File) value).toPath(), projectDir, rootDir)
+            case Path:
+                return relocatablePath((Path) value, projectDir, rootDir)
+            case String:
+                return relocateString((String) value, projectDir, rootDir)
+            default:
+                return value
+        }
+    }
+
+    private static String relocateString(String value, Path projectDir, Path rootDir) {
+        final File candidate = new File(value)
+        candidate.absolute ? relocatablePath(candidate.toPath(), projectDir, rootDir) : value
+    }
+
     private static Object resolveSingleItem(Object value, ProjectOperations po) {
         switch (value) {
             case Map:
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.gradle.api.GradleException
+
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+
+/** A cache of unpacked GitHub and GitLab archives which is shared between projects and builds.
+ *
+ * <p>
+ *   Every archive is kept in an entry that is keyed by its URI. A downloaded archive is verified against any
+ *   expected checksum and then unpacked into a directory that is named after its checksum. Only once the archive
+ *   has been unpacked completely, the checksum is recorded in a completion marker. Later uses only check the
+ *   marker and the expected checksum, so that the archive is not read again.
+ * </p>
+ * <p>
+ *   When Gradle runs offline, archives are only served from the cache. When dependencies are refreshed,
+ *   every archive is downloaded again once per build. An archive with new content is unpacked next to the
+ *   existing one, which therefore stays intact for any build that is still using it.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+class CloudArchiveCache {
+
+    private static final String PARTIAL_ARCHIVE = 'archive.zip.part'
+    private static final String UNPACKED = 'unpacked'
+    private static final String COMPLETE_MARKER = '.complete'
+    private static final int HASH_LENGTH = 16
+    private static final int BUFFER_SIZE = 65536
+    private static final int MAX_REDIRECTS = 5
+    private static final List<Integer> REDIRECTS = [301, 302, 303, 307, 308].asImmutable()
+    private static final int TIMEOUT_MS = 60000
+
+    private final File cacheRoot
+    private final boolean offline
+    private final CloudArchiveRefreshes refreshes
+
+    /** Creates a cache.
+     *
+     * @param cacheRoot Directory in which all entries are kept.
+     * @param offline Whether archives may only be served from the cache.
+     * @param refreshes Refreshes of the current build if cached archives should be downloaded again.
+     *   Can be {@code null}.
+     */
+    CloudArchiveCache(File cacheRoot, boolean offline, CloudArchiveRefreshes refreshes) {
+        this.cacheRoot = cacheRoot
+        this.offline = offline
+        this.refreshes = refreshes
+    }
+
+    /** Returns the root directory of an unpacked archive, downloading the archive if required.
+     *
+     * @param name Name of the component which is used for the entry name and in messages.
+     * @param uri Location of the archive.
+     * @param expectedSha256 Expected checksum. Can be {@code null}.
+     * @return Root directory inside the unpacked archive.
+     */
+    File archiveRoot(String name, URI uri, String expectedSha256) {
+        final File entry = entryFor(name, uri)
+        final String checksum = EntryLocks.withLock(entry, 'archive cache entry') { ->
+            final String recorded = usableChecksum(entry, name, uri, expectedSha256)
+            if (recorded != null) {
+                recorded
+            } else if (offline) {
+                throw new GradleException(
+                        "Archive for '${name}' (${uri}) is not available in ${cacheRoot} and Gradle is offline"
+                )
+            } else {
+                download(entry, name, uri, expectedSha256)
+            }
+        }
+        rootOf(unpackedDir(entry, checksum))
+    }
+
+    private File entryFor(String name, URI uri) {
+        final String safeName = name.replaceAll(~/[^A-Za-z0-9._-]/, '_')
+        new File(cacheRoot, "${safeName}-${sha256(uri.toString()).substring(0, HASH_LENGTH)}")
+    }
+
+    private String usableChecksum(File entry, String name, URI uri, String expectedSha256) {
+        final File marker = new File(entry, COMPLETE_MARKER)
+        final String recorded = marker.exists() ? marker.text.trim() : ''
+        if (!recorded || !unpackedDir(entry, recorded).directory) {
+            null
+        } else if (refreshes != null && !offline && refreshes.claim(entry)) {
+            null
+        } else if (expectedSha256 && !expectedSha256.equalsIgnoreCase(recorded)) {
+            log.warn("Cached archive for '${name}' (${uri}) does not have the expected checksum and will be " +
+                    'downloaded again')
+            null
+        } else {
+            recorded
+        }
+    }
+
+    private String download(File entry, String name, URI uri, String expectedSha256) {
+        entry.mkdirs()
+
+        log.info("Downloading archive for '${name}' from ${uri}")
+        final File partial = new File(entry, PARTIAL_ARCHIVE)
+        try {
+            fetch(uri, partial)
+
+            final String actual = digest(partial)
+            if (expectedSha256 && !expectedSha256.equalsIgnoreCase(actual)) {
+                throw new GradleException(
+                        "Archive for '${name}' (${uri}) has checksum ${actual}, but ${expectedSha256} was expected"
+                )
+            }
+
+            final File unpacked = unpackedDir(entry, actual)
+            if (!unpacked.directory) {
+                final File staging = new File(entry, "${unpacked.name}.tmp")
+                if (staging.exists()) {
+                    staging.deleteDir()
+                }
+                unzip(partial, staging)
+                Files.move(staging.toPath(), unpacked.toPath(), StandardCopyOption.ATOMIC_MOVE)
+            }
+            recordComplete(entry, actual)
+            actual
+        } finally {
+            partial.delete()
+        }
+    }
+
+    private static void recordComplete(File entry, String checksum) {
+        final File marker = new File(entry, COMPLETE_MARKER)
+        final File staging = new File(entry, "${COMPLETE_MARKER}.tmp")
+        staging.text = checksum
+        Files.move(
+                staging.toPath(),
+                marker.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+        )
+    }
+
+    private static File unpackedDir(File entry, String checksum) {
+        new File(entry, "${UNPACKED}-${checksum.substring(0, HASH_LENGTH)}")
+    }
+
+    private static void fetch(URI uri, File target) {
+        final URLConnection connection = uri.toURL().openConnection()
+        try {
+            if (connection instanceof HttpURLConnection) {
+                fetchHttp(uri, (HttpURLConnection) connection, target)
+            } else {
+                connection.inputStream.withStream { InputStream input ->
+                    Files.copy(input, target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+                }
+            }
+        } catch (IOException e) {
+            throw new GradleException("Cannot download ${uri}", e)
+        }
+    }
+
+    private static void fetchHttp(URI uri, HttpURLConnection initial, File target) {
+        HttpURLConnection connection = configure(initial)
+        try {
+            int redirects = 0
+            while (connection.responseCode in REDIRECTS && redirects < MAX_REDIRECTS) {
+                final URL location = new URL(connection.URL, connection.getHeaderField('Location'))
+                connection.disconnect()
+                connection = configure((HttpURLConnection) location.openConnection())
+                redirects++
+            }
+            if (connection.responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                throw new GradleException("Cannot download ${uri}: HTTP ${connection.responseCode}")
+            }
+            connection.inputStream.withStream { InputStream input ->
+                Files.copy(input, target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+            }
+        } finally {
+            connection.disconnect()
+        }
+    }
+
+    private static HttpURLConnection configure(HttpURLConnection connection) {
+        connection.instanceFollowRedirects = false
+        connection.connectTimeout = TIMEOUT_MS
+        connection.readTimeout = TIMEOUT_MS
+        connection
+    }
+
+    private static void unzip(File archive, File destination) {
+        final String root = destination.canonicalPath + File.separator
+        new ZipFile(archive).withCloseable { ZipFile zip ->
+            for (ZipEntry it : Collections.list(zip.entries())) {
+                final File target = new File(destination, it.name).canonicalFile
+                if (!target.path.startsWith(root)) {
+                    throw new GradleException("${archive} contains an entry outside of the archive: ${it.name}")
+                }
+                if (it.directory) {
+                    target.mkdirs()
+                } else {
+                    target.parentFile.mkdirs()
+                    zip.getInputStream(it).withStream { InputStream input ->
+                        Files.copy(input, target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+                    }
+                }
+            }
+        }
+    }
+
+    private static File rootOf(File unpacked) {
+        final File[] content = unpacked.listFiles() ?: new File[0]
+        content.size() == 1 && content[0].directory ? content[0] : unpacked
+    }
+
+    private static String digest(File file) {
+        final MessageDigest md = MessageDigest.getInstance('SHA-256')
+        final byte[] buffer = new byte[BUFFER_SIZE]
+        file.withInputStream { InputStream input ->
+            int read
+            while ((read = input.read(buffer)) > 0) {
+                md.update(buffer, 0, read)
+            }
+        }
+        md.digest().encodeHex().toString()
+    }
+
+    private static String sha256(String text) {
+        MessageDigest.getInstance('SHA-256').digest(text.getBytes('UTF-8')).encodeHex().toString()
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import groovy.transform.CompileStatic
+import org.gradle.api.invocation.Gradle
+import org.gradle.api.services.BuildService
+import org.gradle.api.services.BuildServiceParameters
+
+import java.util.concurrent.ConcurrentHashMap
+
+/** Keeps track of the cloud archives which have already been refreshed during a build.
+ *
+ * <p>
+ *   When dependencies are refreshed, every archive in the {@link CloudArchiveCache} is downloaded again, but only
+ *   once per build, no matter how many projects or tasks use it.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+abstract class CloudArchiveRefreshes implements BuildService<BuildServiceParameters.None> {
+
+    public static final String NAME = 'asciidoctorCloudArchiveRefreshes'
+
+    private final Set<String> refreshed = ConcurrentHashMap.newKeySet()
+
+    /** Returns the refreshes of the current build.
+     *
+     * <p>
+     *   The service is obtained straight away so that it can be used outside of tasks that declare it.
+     * </p>
+     *
+     * @param gradle Current build.
+     * @return Refreshes of the build.
+     */
+    static CloudArchiveRefreshes forBuild(Gradle gradle) {
+        gradle.sharedServices.registerIfAbsent(NAME, CloudArchiveRefreshes) { }.get()
+    }
+
+    /** Claims the refresh of a cache entry.
+     *
+     * @param entry Cache entry.
+     * @return {@code true} if the entry has not been refreshed during this build yet.
+     */
+    boolean claim(File entry) {
+        refreshed.add(entry.absolutePath)
+    }
+}
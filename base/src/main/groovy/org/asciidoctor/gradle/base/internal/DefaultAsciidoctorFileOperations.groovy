@@ -46,7 +46,9 @@ import java.nio.file.Path
 import static org.asciidoctor.gradle.base.AsciidoctorUtils.UNDERSCORE_LED_FILES
 import static org.asciidoctor.gradle.base.AsciidoctorUtils.createDirectoryProperty
 import static org.asciidoctor.gradle.base.AsciidoctorUtils.executeDelegatingClosure
-import static org.asciidoctor.gradle.base.AsciidoctorUtils.mapToDirectoryProvider
+import static org.asciidoctor.gradle.base.AsciidoctorUtils.mapToFileProvider
+import static org.asciidoctor.gradle.base.internal.ReproducibleAttributes.defaultAttributesFor
+import static org.asciidoctor.gradle.base.internal.ReproducibleAttributes.trackSourceDateEpoch
 import static org.ysb33r.grolifant.api.core.TaskInputFileOptions.IGNORE_EMPTY_DIRECTORIES
 import static org.ysb33r.grolifant.api.core.TaskInputFileOptions.SKIP_WHEN_EMPTY
 
@@ -65,7 +67,6 @@ import static org.ysb33r.grolifant.api.core.TaskInputFileOptions.SKIP_WHEN_EMPTY
 @SuppressWarnings('MethodCount')
 class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations, AsciidoctorTaskTreeOperations {
 
-    private final Task task
     private final String projectName
     private final DirectoryProperty srcDir
     private final DirectoryProperty outDir
@@ -76,6 +77,7 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
     private final Provider<File> intermediateWorkDirProvider
     private final String taskName
     private final Property<PatternSet> intermediateArtifactPattern
+    private final Provider<String> sourceDateEpoch
 
     private PatternSet sourceDocumentPattern
     private PatternSet secondarySourceDocumentPattern
@@ -83,12 +85,13 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
     private boolean withIntermediateWorkDir = false
 
     DefaultAsciidoctorFileOperations(Task task, String engineName) {
-        this.task = task
+        final Project project = task.project
         this.taskName = task.name
-        this.projectName = task.project.name
+        this.projectName = project.name
         this.engineName = engineName
         this.projectOperations = ProjectOperations.find(project)
-        this.intermediateArtifactPattern = task.project.objects.property(PatternSet)
+        this.intermediateArtifactPattern = project.objects.property(PatternSet)
+        this.sourceDateEpoch = trackSourceDateEpoch(task) { -> owner.reproducible }
 
         this.srcDir = createDirectoryProperty(project)
         this.outDir = createDirectoryProperty(project)
@@ -124,6 +127,11 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
      */
     boolean logDocuments = false
 
+    /** Produce byte-identical output for identical sources.
+     *
+     */
+    boolean reproducible = false
+
     /**
      * The default pattern set for secondary sources.
      *
@@ -259,7 +267,7 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
      */
     @Override
     void setSourceDir(Object f) {
-        this.srcDir.set(mapToDirectoryProvider(project, f))
+        this.srcDir.fileProvider(mapToFileProvider(projectOperations, f))
     }
 
     /** Sets the new Asciidoctor parent source directory in a declarative style.
@@ -270,7 +278,7 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
      */
     @Override
     void sourceDir(Object f) {
-        this.srcDir.set(mapToDirectoryProvider(project, f))
+        this.srcDir.fileProvider(mapToFileProvider(projectOperations, f))
     }
 
     /**
@@ -295,7 +303,7 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
      */
     @Override
     void setOutputDir(Object f) {
-        this.outDir.set(project.file(f))
+        this.outDir.set(projectOperations.fsOperations.file(f))
     }
 
     /**
@@ -437,7 +445,7 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
     @Override
     void resources(Closure cfg) {
         if (this.resourceCopy == null) {
-            this.resourceCopy = project.copySpec(cfg)
+            this.resourceCopy = copySpecFrom(cfg)
         } else {
             Closure configuration = (Closure) cfg.clone()
             configuration.delegate = this.resourceCopy
@@ -453,7 +461,7 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
     @Override
     void resources(Action<? super CopySpec> cfg) {
         if (this.resourceCopy == null) {
-            this.resourceCopy = project.copySpec(cfg)
+            this.resourceCopy = projectOperations.copySpec(cfg)
         } else {
             cfg.execute(this.resourceCopy)
         }
@@ -471,7 +479,7 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
     @Override
     void resources(final String lang, Closure cfg) {
         if (this.languageResources[lang] == null) {
-            this.languageResources[lang] = project.copySpec(cfg)
+            this.languageResources[lang] = copySpecFrom(cfg)
         } else {
             Closure configuration = (Closure) cfg.clone()
             configuration.delegate = this.languageResources[lang]
@@ -491,7 +499,7 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
     @Override
     void resources(final String lang, Action<? super CopySpec> cfg) {
         if (this.languageResources[lang] == null) {
-            this.languageResources[lang] = project.copySpec(cfg)
+            this.languageResources[lang] = projectOperations.copySpec(cfg)
         } else {
             cfg.execute(this.languageResources[lang])
         }
@@ -670,7 +678,7 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
      * A task may add some default attributes.
      * If the user specifies any of these attributes, then those attributes will not be utilised.
      * The default implementation will add {@code includedir}, {@code revnumber}, {@code gradle-project-group},
-     * {@code gradle-project-name}
+     * {@code gradle-project-name}. In reproducible mode the time-derived attributes are added as well.
      *
      * @param workingSourceDir Directory where source files are located.
      *
@@ -680,13 +688,16 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
     Map<String, ?> getTaskSpecificDefaultAttributes(File workingSourceDir) {
         Provider<String> group = projectOperations.projectTools.groupProvider.orElse('')
         Provider<String> revnumber = projectOperations.projectTools.versionProvider.orElse(Project.DEFAULT_VERSION)
-        [
+        Map<String, Object> attrs = [
                 includedir              : workingSourceDir.absolutePath,
                 'gradle-project-name'   : projectName,
                 'gradle-project-group'  : group,
                 'gradle-project-version': revnumber,
                 revnumber               : revnumber
-        ]
+        ] as Map<String, Object>
+
+        attrs.putAll(defaultAttributesFor(reproducible, sourceDateEpoch, sourceFileTree + secondarySourceFileTree))
+        attrs
     }
 
     /** Get the output directory for a specific backend.
@@ -721,8 +732,10 @@ class DefaultAsciidoctorFileOperations implements AsciidoctorTaskFileOperations,
                 new File(outputDir, language)
     }
 
-    private Project getProject() {
-        task.project
+    private CopySpec copySpecFrom(Closure cfg) {
+        projectOperations.copySpec({ CopySpec cs ->
+            executeDelegatingClosure(cs, cfg)
+        } as Action<CopySpec>)
     }
 
     private PatternSet asciidocPatterns(String... excluding) {
@@ -46,6 +46,7 @@ class DefaultAsciidoctorOutputOptions implements AsciidoctorTaskOutputOptions {
     private final ProjectOperations po
     private final String taskName
     private List<String> copyResourcesForBackendsList = []
+    private final OutputStaging outputStaging
 
     DefaultAsciidoctorOutputOptions(
             ProjectOperations po,
@@ -55,6 +56,7 @@ class DefaultAsciidoctorOutputOptions implements AsciidoctorTaskOutputOptions {
         this.po = po
         this.fileOperations = atfo
         this.taskName = taskName
+        this.outputStaging = new OutputStaging(po, taskName)
     }
 
     /**
@@ -230,6 +232,47 @@ class DefaultAsciidoctorOutputOptions implements AsciidoctorTaskOutputOptions {
                 new File(fileOperations.outputDir, language)
     }
 
+    /**
+     * Manifest of output files which were added, changed or removed by the last conversion.
+     *
+     * @return Location of manifest or {@code null} if {@link OutputOptions#getWriteOnlyChangedOutputs} is not set.
+     */
+    @Override
+    File getOutputManifest() {
+        configuredOutputOptions.writeOnlyChangedOutputs ? outputStaging.manifest : null
+    }
+
+    /**
+     * Prepares the staging area if only changed outputs should be written.
+     *
+     * Call this before anything is written to the output directories. Calling it again before
+     * {@link #commitStagedOutputs} has no effect.
+     */
+    void prepareOutputStaging() {
+        if (configuredOutputOptions.writeOnlyChangedOutputs) {
+            outputStaging.prepare(fileOperations.outputDir)
+        }
+    }
+
+    /**
+     * The directory to which a converter should write.
+     *
+     * @param outputDir Final output directory.
+     * @return Staging directory if a staging area has been prepared, otherwise the final output directory.
+     */
+    File getConversionDirFor(File outputDir) {
+        outputStaging.getConversionDirFor(outputDir)
+    }
+
+    /**
+     * Commits all staged files to the backend output directories and writes the manifest.
+     *
+     * Does nothing if no staging area has been prepared.
+     */
+    void commitStagedOutputs() {
+        outputStaging.commit(backendOutputDirectories)
+    }
+
     /**
      * Access to the underlying {@link OutputOptions}.
      *
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import groovy.transform.CompileStatic
+import org.gradle.api.GradleException
+
+import java.nio.channels.FileChannel
+import java.nio.channels.FileLock
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+
+/** Locks entries of caches and stores which are shared between threads, builds and Gradle daemons.
+ *
+ * <p>
+ *   An entry is locked by the threads of this JVM via an in-memory lock and by other processes via a file lock
+ *   on a {@code .lock} file next to the entry.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class EntryLocks {
+
+    private static final ConcurrentMap<String, Object> JVM_LOCKS = new ConcurrentHashMap<>()
+
+    /** Runs an action while holding the lock of an entry.
+     *
+     * @param entry Entry directory. It does not need to exist.
+     * @param description Description of the entry for error messages.
+     * @param action Action to run.
+     * @return Result of the action.
+     */
+    static <T> T withLock(File entry, String description, Closure<T> action) {
+        final Object jvmLock = JVM_LOCKS.computeIfAbsent(entry.absolutePath) { new Object() }
+        synchronized (jvmLock) {
+            entry.parentFile.mkdirs()
+            final File lockFile = new File(entry.parentFile, "${entry.name}.lock")
+            FileChannel channel = FileChannel.open(
+                    lockFile.toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE
+            )
+            try {
+                final FileLock lock = lockChannel(channel, entry, description)
+                try {
+                    action.call()
+                } finally {
+                    lock.release()
+                }
+            } finally {
+                channel.close()
+            }
+        }
+    }
+
+    private static FileLock lockChannel(FileChannel channel, File entry, String description) {
+        try {
+            channel.lock()
+        } catch (IOException e) {
+            throw new GradleException("Cannot lock ${description} ${entry}", e)
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import groovy.transform.CompileStatic
+
+/**
+ * Describes the changes that an output commit made to the output directories.
+ *
+ * <p>
+ *   The manifest is a plain text file with one entry per line. Every entry consists of a status character
+ *   followed by a path relative to the top-level output directory. The status characters are {@code A} for added,
+ *   {@code M} for modified, {@code U} for unchanged and {@code D} for deleted files. The next commit only removes
+ *   files which the manifest lists as added, modified or unchanged.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class OutputChanges {
+    private static final List<Character> PRODUCED = ['A' as char, 'M' as char, 'U' as char]
+
+    final List<String> added = []
+    final List<String> changed = []
+    final List<String> removed = []
+    final List<String> unchanged = []
+
+    /**
+     * Writes the manifest.
+     *
+     * @param manifest File to write to.
+     */
+    void writeTo(File manifest) {
+        manifest.parentFile.mkdirs()
+        manifest.withWriter('UTF-8') { Writer w ->
+            added.toSorted().each { w.write("A ${it}\n") }
+            changed.toSorted().each { w.write("M ${it}\n") }
+            unchanged.toSorted().each { w.write("U ${it}\n") }
+            removed.toSorted().each { w.write("D ${it}\n") }
+        }
+    }
+
+    /**
+     * Reads the paths of all files which a manifest lists as produced.
+     *
+     * @param manifest Manifest file. It does not need to exist.
+     * @return Paths relative to the top-level output directory of added, modified and unchanged files.
+     */
+    static Set<String> readProduced(File manifest) {
+        final Set<String> produced = [] as Set<String>
+        if (manifest.exists()) {
+            manifest.eachLine('UTF-8') { String line ->
+                if (line.length() > 2 && line.charAt(0) in PRODUCED) {
+                    produced.add(line.substring(2))
+                }
+            }
+        }
+        produced
+    }
+}
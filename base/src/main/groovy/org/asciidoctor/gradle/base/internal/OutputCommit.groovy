@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.gradle.api.GradleException
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.stream.Collectors
+import java.util.stream.Stream
+
+/**
+ * Commits converted documents from a staging area to the final output directories.
+ *
+ * Only files whose content differ are replaced, which leaves the modification time of unchanged files intact.
+ * Files which were produced by the previous commit, but are no longer produced, are removed. Any other files in the
+ * output directories are left alone.
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+class OutputCommit {
+
+    private static final int BUFFER_SIZE = 65536
+
+    private final File outputRoot
+    private final File stagingRoot
+
+    /**
+     * Creates a commit area.
+     *
+     * @param outputRoot Top-level output directory of the task.
+     * @param stagingRoot Staging directory which mirrors the top-level output directory.
+     */
+    OutputCommit(File outputRoot, File stagingRoot) {
+        this.outputRoot = outputRoot
+        this.stagingRoot = stagingRoot
+    }
+
+    /**
+     * Removes any content left over from a previous run in the staging area.
+     */
+    void prepare() {
+        if (stagingRoot.exists()) {
+            stagingRoot.deleteDir()
+        }
+        stagingRoot.mkdirs()
+    }
+
+    /**
+     * Maps an output directory to its equivalent in the staging area.
+     *
+     * @param outputDir Output directory which is located in the top-level output directory.
+     * @return Staging directory.
+     */
+    File stagingDirFor(File outputDir) {
+        final Path relative = outputRoot.toPath().relativize(outputDir.toPath())
+        if (relative.startsWith('..')) {
+            throw new GradleException("${outputDir} is not located inside ${outputRoot}")
+        }
+        relative.toString().empty ? stagingRoot : new File(stagingRoot, relative.toString())
+    }
+
+    /**
+     * Moves changed and new files from the staging area into the output directories, and removes previously
+     * produced files which are not present in the staging area.
+     *
+     * @param outputDirs Output directories to commit.
+     * @param previouslyProduced Paths relative to the top-level output directory of all the files which were
+     *   produced by the previous commit.
+     * @return Summary of all changes.
+     */
+    OutputChanges commit(Iterable<File> outputDirs, Set<String> previouslyProduced) {
+        final OutputChanges changes = new OutputChanges()
+        for (File outputDir : outputDirs.toSet()) {
+            commitDirectory(stagingDirFor(outputDir), outputDir, previouslyProduced, changes)
+        }
+        stagingRoot.deleteDir()
+        log.info("Committed outputs to ${outputRoot}: ${changes.added.size()} added, " +
+                "${changes.changed.size()} changed, ${changes.removed.size()} removed, " +
+                "${changes.unchanged.size()} unchanged")
+        changes
+    }
+
+    /**
+     * Compares the content of two files without reading either of them fully into memory.
+     *
+     * @param first First file.
+     * @param second Second file.
+     * @return {@code true} if both files have the same length and SHA-256 digest.
+     */
+    static boolean sameContent(File first, File second) {
+        first.length() == second.length() && MessageDigest.isEqual(digest(first), digest(second))
+    }
+
+    private void commitDirectory(
+            File staging,
+            File target,
+            Set<String> previouslyProduced,
+            OutputChanges changes
+    ) {
+        final Set<String> staged = staging.exists() ? relativeFiles(staging) : ([] as Set<String>)
+        final Set<String> existing = target.exists() ? relativeFiles(target) : ([] as Set<String>)
+
+        for (String path : staged) {
+            final File source = new File(staging, path)
+            final File destination = new File(target, path)
+            final String name = relativeToOutputRoot(destination)
+            if (!destination.exists()) {
+                move(source, destination)
+                changes.added.add(name)
+            } else if (sameContent(source, destination)) {
+                changes.unchanged.add(name)
+            } else {
+                move(source, destination)
+                changes.changed.add(name)
+            }
+        }
+
+        for (String path : (existing - staged)) {
+            final File obsolete = new File(target, path)
+            final String name = relativeToOutputRoot(obsolete)
+            if (name in previouslyProduced) {
+                obsolete.delete()
+                removeEmptyParents(obsolete.parentFile, target)
+                changes.removed.add(name)
+            }
+        }
+    }
+
+    private String relativeToOutputRoot(File file) {
+        outputRoot.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/' as char)
+    }
+
+    private static Set<String> relativeFiles(File dir) {
+        final Path root = dir.toPath()
+        Stream<Path> walker = Files.walk(root)
+        try {
+            walker.filter { Path p -> Files.isRegularFile(p) }
+                    .map { Path p -> root.relativize(p).toString() }
+                    .collect(Collectors.toCollection { -> new TreeSet<String>() }) as Set<String>
+        } finally {
+            walker.close()
+        }
+    }
+
+    private static void move(File source, File destination) {
+        destination.parentFile.mkdirs()
+        Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING)
+    }
+
+    private static byte[] digest(File file) {
+        final MessageDigest md = MessageDigest.getInstance('SHA-256')
+        final byte[] buffer = new byte[BUFFER_SIZE]
+        file.withInputStream { InputStream input ->
+            int read
+            while ((read = input.read(buffer)) > 0) {
+                md.update(buffer, 0, read)
+            }
+        }
+        md.digest()
+    }
+
+    private static void removeEmptyParents(File dir, File stopAt) {
+        File current = dir
+        while (current != null && current != stopAt && current.list()?.length == 0) {
+            current.delete()
+            current = current.parentFile
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import groovy.transform.CompileStatic
+import org.gradle.api.provider.Provider
+import org.ysb33r.grolifant.api.core.ProjectOperations
+
+/**
+ * Stages the outputs of a task, so that only changed outputs are written to the output directories.
+ *
+ * <p>
+ *   Tasks and output options which support {@link org.asciidoctor.gradle.base.OutputOptions#getWriteOnlyChangedOutputs}
+ *   delegate to an instance of this class.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class OutputStaging {
+
+    private final Provider<File> stagingDirProvider
+    private final Provider<File> manifestProvider
+    private OutputCommit outputCommit
+
+    /**
+     * Creates the staging support for a task.
+     *
+     * @param po {@link ProjectOperations} instance to locate the staging area and manifest with.
+     * @param taskName Name of the task.
+     */
+    OutputStaging(ProjectOperations po, String taskName) {
+        final String safeName = po.fsOperations.toSafeFileName(taskName)
+        this.stagingDirProvider = po.buildDirDescendant("/tmp/${safeName}.staging")
+        this.manifestProvider = po.buildDirDescendant("/asciidoctor-manifests/${safeName}.txt")
+    }
+
+    /**
+     * Location of the manifest of output files.
+     *
+     * @return Manifest file.
+     */
+    File getManifest() {
+        manifestProvider.get()
+    }
+
+    /**
+     * Prepares the staging area. Calling it again before {@link #commit} has no effect.
+     *
+     * @param outputRoot Top-level output directory of the task.
+     */
+    void prepare(File outputRoot) {
+        if (outputCommit == null) {
+            outputCommit = new OutputCommit(outputRoot, stagingDirProvider.get())
+            outputCommit.prepare()
+        }
+    }
+
+    /**
+     * The directory to which a converter should write.
+     *
+     * @param outputDir Final output directory.
+     * @return Staging directory if a staging area has been prepared, otherwise the final output directory.
+     */
+    File getConversionDirFor(File outputDir) {
+        outputCommit ? outputCommit.stagingDirFor(outputDir) : outputDir
+    }
+
+    /**
+     * Commits all staged files to the output directories and writes the manifest.
+     *
+     * Only files that the previous manifest lists as produced are removed when they are no longer staged.
+     * Does nothing if no staging area has been prepared.
+     *
+     * @param outputDirs Output directories to commit.
+     */
+    void commit(Iterable<File> outputDirs) {
+        if (outputCommit) {
+            final File manifest = manifestProvider.get()
+            outputCommit.commit(outputDirs, OutputChanges.readProduced(manifest)).writeTo(manifest)
+            outputCommit = null
+        }
+    }
+}
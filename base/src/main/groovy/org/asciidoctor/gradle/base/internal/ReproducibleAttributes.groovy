@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import groovy.transform.CompileStatic
+import org.gradle.api.InvalidUserDataException
+import org.gradle.api.Task
+import org.gradle.api.provider.Provider
+
+import java.time.Instant
+import java.time.ZoneOffset
+import java.time.ZonedDateTime
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.Callable
+
+/**
+ * Calculates the attributes that pin all time-derived values in a document to a fixed point in time.
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class ReproducibleAttributes {
+
+    /**
+     * Environment variable that is used by reproducible build tooling to specify the epoch.
+     */
+    public static final String SOURCE_DATE_EPOCH = 'SOURCE_DATE_EPOCH'
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern('yyyy-MM-dd')
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern('HH:mm:ss Z')
+    private static final DateTimeFormatter YEAR = DateTimeFormatter.ofPattern('yyyy')
+
+    /**
+     * Tracks {@code SOURCE_DATE_EPOCH} as an input of a task while the task is in reproducible mode.
+     *
+     * @param task Conversion task.
+     * @param reproducible Whether the task is in reproducible mode.
+     * @return Provider of {@code SOURCE_DATE_EPOCH}.
+     */
+    static Provider<String> trackSourceDateEpoch(Task task, Callable<Boolean> reproducible) {
+        final Provider<String> sourceDateEpoch = task.project.providers.environmentVariable(SOURCE_DATE_EPOCH)
+        task.inputs.property('source-date-epoch', { -> reproducible.call() ? sourceDateEpoch.orNull : null })
+                .optional(true)
+        sourceDateEpoch
+    }
+
+    /**
+     * Creates the default attributes that a task adds for reproducible mode.
+     *
+     * @param reproducible Whether the task is in reproducible mode.
+     * @param sourceDateEpoch Provider of {@code SOURCE_DATE_EPOCH} as returned by {@link #trackSourceDateEpoch}.
+     * @param sources Source files of the task.
+     * @return Time-derived attributes, or an empty map if the task is not in reproducible mode.
+     */
+    static Map<String, Object> defaultAttributesFor(
+            boolean reproducible,
+            Provider<String> sourceDateEpoch,
+            Iterable<File> sources
+    ) {
+        reproducible ? attributesFor(epochFor(sourceDateEpoch.orNull, sources)) : [:] as Map<String, Object>
+    }
+
+    /**
+     * Determines the epoch to use for a reproducible conversion.
+     *
+     * @param sourceDateEpoch Value of {@code SOURCE_DATE_EPOCH}. Can be {@code null}.
+     * @param sources Source files which will be used to find the newest modification time if
+     *   {@code SOURCE_DATE_EPOCH} is not set.
+     * @return Epoch.
+     */
+    static Instant epochFor(String sourceDateEpoch, Iterable<File> sources) {
+        if (sourceDateEpoch) {
+            try {
+                Instant.ofEpochSecond(Long.parseLong(sourceDateEpoch.trim()))
+            } catch (NumberFormatException e) {
+                throw new InvalidUserDataException(
+                        "${SOURCE_DATE_EPOCH} must be a number of seconds since the Unix epoch: ${sourceDateEpoch}",
+                        e
+                )
+            }
+        } else {
+            long newest = 0
+            for (File source in sources) {
+                newest = Math.max(newest, source.lastModified())
+            }
+            Instant.ofEpochSecond(newest.intdiv(1000).longValue())
+        }
+    }
+
+    /**
+     * Creates the attributes which Asciidoctor would otherwise derive from the clock or from the
+     * modification time of the document.
+     *
+     * The {@code reproducible} attribute is also set, which instructs the HTML converter to omit the
+     * last updated time and Asciidoctor PDF to omit the creation and modification dates from the document
+     * metadata.
+     *
+     * @param epoch Point in time to use.
+     * @return Attributes
+     */
+    static Map<String, Object> attributesFor(Instant epoch) {
+        final ZonedDateTime dt = epoch.atZone(ZoneOffset.UTC)
+        final String date = DATE.format(dt)
+        final String time = TIME.format(dt)
+        final String year = YEAR.format(dt)
+        [
+                reproducible : '',
+                docdate      : date,
+                doctime      : time,
+                docdatetime  : "${date} ${time}".toString(),
+                docyear      : year,
+                localdate    : date,
+                localtime    : time,
+                localdatetime: "${date} ${time}".toString(),
+                localyear    : year
+        ] as Map<String, Object>
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import org.gradle.api.Project
+import org.gradle.api.provider.Provider
+import org.gradle.testfixtures.ProjectBuilder
+import org.ysb33r.grolifant.api.core.ProjectOperations
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.relocatablePath
+import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.resolveAsRelocatable
+
+class AsciidoctorAttributesSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    void 'Paths inside the root project are made relative to the project directory'() {
+        given:
+        final root = new File(tmpDir, 'root')
+        final project = new File(root, 'sub')
+
+        expect:
+        relocatablePath(new File(project, 'src/docs').toPath(), project.toPath(), root.toPath()) == 'src/docs'
+        relocatablePath(new File(root, 'shared').toPath(), project.toPath(), root.toPath()) == '../shared'
+        relocatablePath(project.toPath(), project.toPath(), root.toPath()) == '.'
+        relocatablePath(new File(tmpDir, 'other').toPath(), project.toPath(), root.toPath()) ==
+                new File(tmpDir, 'other').absolutePath
+    }
+
+    void 'Attributes are resolved into relocatable values'() {
+        given:
+        Project project = ProjectBuilder.builder().withProjectDir(new File(tmpDir, 'root')).build()
+        ProjectOperations.maybeCreateExtension(project)
+        final po = ProjectOperations.find(project)
+
+        when:
+        final attrs = resolveAsRelocatable(
+                [
+                        'a-file'  : project.file('src/docs'),
+                        'a-string': project.file('images').absolutePath,
+                        'a-list'  : [project.file('one'), 'two'],
+                        'a-prov'  : project.provider { -> project.file('three') },
+                        'a-value' : 'plain'
+                ] as Map<String, Object>,
+                project.projectDir,
+                project.rootDir,
+                po
+        )
+
+        then:
+        attrs['a-file'] == 'src/docs'
+        attrs['a-string'] == 'images'
+        attrs['a-list'] == ['one', 'two']
+        ((Provider) attrs['a-prov']).get() == 'three'
+        attrs['a-value'] == 'plain'
+    }
+}
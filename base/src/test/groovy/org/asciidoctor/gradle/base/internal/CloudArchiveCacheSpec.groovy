@@ -0,0 +1,198 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.gradle.api.GradleException
+import org.gradle.api.services.BuildServiceParameters
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class CloudArchiveCacheSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    HttpServer server
+    AtomicInteger requests = new AtomicInteger(0)
+    byte[] archive
+    URI archiveUri
+
+    void setup() {
+        archive = zip('theme-1.0/themes/basic-theme.yml': 'base: {}')
+        server = HttpServer.create(new InetSocketAddress(InetAddress.loopbackAddress, 0), 0)
+        server.createContext('/') { HttpExchange exchange ->
+            requests.incrementAndGet()
+            if (exchange.requestURI.path == '/moved.zip') {
+                exchange.responseHeaders.add('Location', '/theme.zip')
+                exchange.sendResponseHeaders(302, -1)
+            } else {
+                exchange.sendResponseHeaders(200, archive.length)
+                exchange.responseBody.write(archive)
+            }
+            exchange.close()
+        }
+        server.start()
+        archiveUri = "http://localhost:${server.address.port}/theme.zip".toURI()
+    }
+
+    void cleanup() {
+        server.stop(0)
+    }
+
+    void 'An archive is downloaded once and shared by all users of the cache'() {
+        given:
+        final File cacheDir = new File(tmpDir, 'cache')
+
+        when:
+        final File first = new CloudArchiveCache(cacheDir, false, null).archiveRoot('theme', archiveUri, null)
+        final File second = new CloudArchiveCache(cacheDir, false, null).archiveRoot('theme', archiveUri, null)
+
+        then:
+        first == second
+        first.name == 'theme-1.0'
+        new File(first, 'themes/basic-theme.yml').text == 'base: {}'
+        requests.get() == 1
+    }
+
+    void 'Redirects are followed'() {
+        when:
+        final File root = new CloudArchiveCache(new File(tmpDir, 'cache'), false, null)
+                .archiveRoot('theme', "http://localhost:${server.address.port}/moved.zip".toURI(), null)
+
+        then:
+        new File(root, 'themes/basic-theme.yml').exists()
+        requests.get() == 2
+    }
+
+    void 'A download with an unexpected checksum is rejected'() {
+        given:
+        final File cacheDir = new File(tmpDir, 'cache')
+
+        when:
+        new CloudArchiveCache(cacheDir, false, null).archiveRoot('theme', archiveUri, '0' * 64)
+
+        then:
+        thrown(GradleException)
+
+        when:
+        final File root = new CloudArchiveCache(cacheDir, false, null)
+                .archiveRoot('theme', archiveUri, sha256(archive))
+
+        then:
+        root.exists()
+    }
+
+    void 'A cache entry without unpacked content is downloaded again'() {
+        given:
+        final File cacheDir = new File(tmpDir, 'cache')
+        new CloudArchiveCache(cacheDir, false, null).archiveRoot('theme', archiveUri, null).parentFile.deleteDir()
+
+        when:
+        new CloudArchiveCache(cacheDir, false, null).archiveRoot('theme', archiveUri, null)
+
+        then:
+        requests.get() == 2
+    }
+
+    void 'Offline mode only serves from the cache'() {
+        given:
+        final File cacheDir = new File(tmpDir, 'cache')
+
+        when:
+        new CloudArchiveCache(cacheDir, true, null).archiveRoot('theme', archiveUri, null)
+
+        then:
+        thrown(GradleException)
+        requests.get() == 0
+
+        when:
+        new CloudArchiveCache(cacheDir, false, null).archiveRoot('theme', archiveUri, null)
+        final File root = new CloudArchiveCache(cacheDir, true, newRefreshes()).archiveRoot('theme', archiveUri, null)
+
+        then:
+        new File(root, 'themes/basic-theme.yml').exists()
+        requests.get() == 1
+    }
+
+    void 'Refreshing downloads every archive again once per build'() {
+        given:
+        final File cacheDir = new File(tmpDir, 'cache')
+        final CloudArchiveRefreshes refreshes = newRefreshes()
+
+        when:
+        new CloudArchiveCache(cacheDir, false, null).archiveRoot('theme', archiveUri, null)
+        new CloudArchiveCache(cacheDir, false, refreshes).archiveRoot('theme', archiveUri, null)
+        new CloudArchiveCache(cacheDir, false, refreshes).archiveRoot('theme', archiveUri, null)
+
+        then:
+        requests.get() == 2
+
+        when:
+        new CloudArchiveCache(cacheDir, false, newRefreshes()).archiveRoot('theme', archiveUri, null)
+
+        then:
+        requests.get() == 3
+    }
+
+    void 'Refreshing an archive with new content leaves the content in use intact'() {
+        given:
+        final File cacheDir = new File(tmpDir, 'cache')
+        final File before = new CloudArchiveCache(cacheDir, false, null).archiveRoot('theme', archiveUri, null)
+        archive = zip('theme-1.1/themes/basic-theme.yml': 'base: { font_size: 12 }')
+
+        when:
+        final File after = new CloudArchiveCache(cacheDir, false, newRefreshes())
+                .archiveRoot('theme', archiveUri, null)
+
+        then:
+        after != before
+        new File(after, 'themes/basic-theme.yml').text == 'base: { font_size: 12 }'
+        new File(before, 'themes/basic-theme.yml').text == 'base: {}'
+        new CloudArchiveCache(cacheDir, true, null).archiveRoot('theme', archiveUri, null) == after
+    }
+
+    private static CloudArchiveRefreshes newRefreshes() {
+        new CloudArchiveRefreshes() {
+            @Override
+            BuildServiceParameters.None getParameters() {
+                null
+            }
+        }
+    }
+
+    private static byte[] zip(Map<String, String> content) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+        new ZipOutputStream(bytes).withCloseable { ZipOutputStream zip ->
+            content.each { String name, String text ->
+                zip.putNextEntry(new ZipEntry(name))
+                zip.write(text.bytes)
+                zip.closeEntry()
+            }
+        }
+        bytes.toByteArray()
+    }
+
+    private static String sha256(byte[] bytes) {
+        MessageDigest.getInstance('SHA-256').digest(bytes).encodeHex().toString()
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class OutputCommitSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    void 'Only changed files are replaced and previously produced files are removed'() {
+        given:
+        final outputRoot = new File(tmpDir, 'out')
+        final backendDir = new File(outputRoot, 'html5')
+        final commit = new OutputCommit(outputRoot, new File(tmpDir, 'staging'))
+        final unchanged = new File(backendDir, 'same.html')
+        final changed = new File(backendDir, 'changed.html')
+        final obsolete = new File(backendDir, 'old/gone.html')
+        final manifest = new File(tmpDir, 'manifest.txt')
+
+        backendDir.mkdirs()
+        obsolete.parentFile.mkdirs()
+        unchanged.text = 'same'
+        changed.text = 'before'
+        obsolete.text = 'gone'
+        unchanged.lastModified = 1000000000000L
+
+        when:
+        commit.prepare()
+        final staging = commit.stagingDirFor(backendDir)
+        staging.mkdirs()
+        new File(staging, 'same.html').text = 'same'
+        new File(staging, 'changed.html').text = 'after'
+        new File(staging, 'new.html').text = 'new'
+        final changes = commit.commit([backendDir], ['html5/same.html', 'html5/old/gone.html'] as Set)
+        changes.writeTo(manifest)
+
+        then:
+        unchanged.lastModified() == 1000000000000L
+        changed.text == 'after'
+        new File(backendDir, 'new.html').text == 'new'
+        !obsolete.exists()
+        !obsolete.parentFile.exists()
+        changes.unchanged == ['html5/same.html']
+        manifest.readLines() == [
+                'A html5/new.html',
+                'M html5/changed.html',
+                'U html5/same.html',
+                'D html5/old/gone.html'
+        ]
+        OutputChanges.readProduced(manifest) == ['html5/new.html', 'html5/changed.html', 'html5/same.html'] as Set
+    }
+
+    void 'Files which were not produced by the previous commit are left alone'() {
+        given:
+        final outputRoot = new File(tmpDir, 'out')
+        final backendDir = new File(outputRoot, 'html5')
+        final commit = new OutputCommit(outputRoot, new File(tmpDir, 'staging'))
+        final foreign = new File(backendDir, 'copied-by-another-task.html')
+
+        backendDir.mkdirs()
+        foreign.text = 'foreign'
+
+        when:
+        commit.prepare()
+        final staging = commit.stagingDirFor(backendDir)
+        staging.mkdirs()
+        new File(staging, 'index.html').text = 'index'
+        final changes = commit.commit([backendDir], OutputChanges.readProduced(new File(tmpDir, 'no-manifest.txt')))
+
+        then:
+        foreign.text == 'foreign'
+        new File(backendDir, 'index.html').text == 'index'
+        changes.removed.empty
+    }
+}
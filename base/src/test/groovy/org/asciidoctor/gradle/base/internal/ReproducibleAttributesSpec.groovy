@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.base.internal
+
+import org.gradle.api.InvalidUserDataException
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.time.Instant
+
+import static org.asciidoctor.gradle.base.internal.ReproducibleAttributes.attributesFor
+import static org.asciidoctor.gradle.base.internal.ReproducibleAttributes.epochFor
+
+class ReproducibleAttributesSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    void 'SOURCE_DATE_EPOCH takes precedence over source modification times'() {
+        given:
+        final src = new File(tmpDir, 'index.adoc')
+        src.text = '= Title'
+
+        expect:
+        epochFor('1700000000', [src]) == Instant.ofEpochSecond(1700000000L)
+    }
+
+    void 'Newest source modification time is used when SOURCE_DATE_EPOCH is not set'() {
+        given:
+        final older = new File(tmpDir, 'a.adoc')
+        final newer = new File(tmpDir, 'b.adoc')
+        older.text = 'a'
+        newer.text = 'b'
+        older.lastModified = 1000000000000L
+        newer.lastModified = 1600000000000L
+
+        expect:
+        epochFor(null, [older, newer]) == Instant.ofEpochSecond(1600000000L)
+    }
+
+    void 'Invalid SOURCE_DATE_EPOCH is rejected'() {
+        when:
+        epochFor('yesterday', [])
+
+        then:
+        thrown(InvalidUserDataException)
+    }
+
+    void 'Time-derived attributes are pinned to the epoch in UTC'() {
+        when:
+        final attrs = attributesFor(Instant.ofEpochSecond(1700000000L))
+
+        then:
+        attrs.reproducible == ''
+        attrs.docdate == '2023-11-14'
+        attrs.doctime == '22:13:20 +0000'
+        attrs.docdatetime == '2023-11-14 22:13:20 +0000'
+        attrs.localdatetime == attrs.docdatetime
+        attrs.docyear == '2023'
+        attrs.localyear == '2023'
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.jvm.gems
+
+import org.asciidoctor.gradle.jvm.gems.internal.FunctionalSpecification
+import spock.lang.Timeout
+
+class AsciidoctorGemPrecompileFunctionalSpec extends FunctionalSpecification {
+
+    private static final String GEM_NAME = 'asciidoctor-revealjs'
+    private static final String GEM_VERSION = '2.0.0'
+    private static final String GEM_DIR = "build/.asciidoctorGems/gems/${GEM_NAME}-${GEM_VERSION}"
+
+    @Timeout(300)
+    void 'A document is converted with a precompiled GEM'() {
+        given:
+        writeGroovyBuildFile(['org.asciidoctor.jvm.convert', 'org.asciidoctor.jvm.gems'], """
+            repositories {
+                ruby {
+                    gems()
+                }
+            }
+
+            dependencies {
+                asciidoctorGems("rubygems:${GEM_NAME}:${GEM_VERSION}") {
+                    exclude module: 'asciidoctor'
+                }
+            }
+
+            asciidoctorGemsPrepare {
+                precompile = true
+                useGemCache = false
+            }
+
+            asciidoctorj {
+                requires '${GEM_NAME}'
+            }
+
+            asciidoctor {
+                withGemJar 'asciidoctorGemsJar'
+                outputOptions {
+                    backends 'revealjs'
+                }
+            }
+        """)
+        final File source = new File(projectDir, 'src/docs/asciidoc/deck.adoc')
+        source.parentFile.mkdirs()
+        source.text = '''= Deck
+
+== First slide
+
+Content
+'''
+
+        when:
+        getGradleRunner(['asciidoctor', '-s']).build()
+
+        then:
+        new File(projectDir, "${GEM_DIR}/lib/${GEM_NAME}.rb").exists()
+        new File(projectDir, "${GEM_DIR}/lib/${GEM_NAME}.class").exists()
+        new File(projectDir, 'build/docs/asciidoc/deck.html').text.contains('class="reveal"')
+    }
+}
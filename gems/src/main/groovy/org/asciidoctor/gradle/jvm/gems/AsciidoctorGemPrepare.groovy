@@ -17,9 +17,26 @@ package org.asciidoctor.gradle.jvm.gems
 
 import groovy.transform.CompileStatic
 import org.asciidoctor.gradle.jvm.AsciidoctorJExtension
+import org.asciidoctor.gradle.jvm.gems.internal.PreparedGemCache
+import org.gradle.api.Action
+import org.gradle.api.GradleException
+import org.gradle.api.Task
+import org.gradle.api.plugins.JavaPluginExtension
+import org.gradle.api.provider.Property
+import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.Nested
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.StopExecutionException
+import org.gradle.jvm.toolchain.JavaLauncher
+import org.gradle.jvm.toolchain.JavaToolchainService
+import org.gradle.process.ExecResult
+import org.gradle.process.ExecSpec
 import org.gradle.workers.WorkerExecutor
 import org.ysb33r.gradle.jruby.api.tasks.AbstractGemPrepareTask
+import org.ysb33r.grolifant.api.core.ProjectOperations
 
 import javax.inject.Inject
 import java.util.concurrent.Callable
@@ -27,22 +44,182 @@ import java.util.concurrent.Callable
 /**
  * Prepare additional GEMs for AsciidoctorJ.
  *
+ * Prepared GEM trees are kept in a cache that is shared between projects and builds, so that the same set of
+ * GEMs is only unpacked once for a given JRuby version.
+ *
  * @since 2.0
  */
 @CacheableTask
 @CompileStatic
 class AsciidoctorGemPrepare extends AbstractGemPrepareTask {
 
-//    private final Provider<File> jrubyJarLocationProvider
-    private final AsciidoctorJExtension jruby
+    private final Provider<File> jrubyJar
+    private final Property<JavaLauncher> javaLauncher
+    private final ProjectOperations projectOperations
+    private Object gemCacheDirectory
+    private boolean useGemCache = true
+    private boolean precompile = false
+    private String cacheKey
 
     @Inject
     @SuppressWarnings('UnnecessarySetter')
     AsciidoctorGemPrepare(WorkerExecutor we) {
         super(we)
-        this.jruby = project.extensions.getByType(AsciidoctorJExtension)
-        setJrubyJarProvider(project.provider({ AsciidoctorJExtension jruby ->
+        final AsciidoctorJExtension asciidoctorj = project.extensions.getByType(AsciidoctorJExtension)
+        this.projectOperations = ProjectOperations.find(project)
+        this.jrubyJar = project.provider({ AsciidoctorJExtension jruby ->
             jruby.configuration.files.find { it.name.startsWith(JRUBY_COMPLETE_NAME) }
-        }.curry(jruby) as Callable<File>))
+        }.curry(asciidoctorj) as Callable<File>)
+        this.gemCacheDirectory = new File(project.gradle.gradleUserHomeDir, 'caches/asciidoctor-gradle/gems')
+        this.javaLauncher = project.objects.property(JavaLauncher)
+        final JavaPluginExtension java = project.extensions.findByType(JavaPluginExtension)
+        final JavaToolchainService toolchains = project.extensions.findByType(JavaToolchainService)
+        if (java != null && toolchains != null) {
+            this.javaLauncher.convention(toolchains.launcherFor(java.toolchain))
+        }
+        setJrubyJarProvider(this.jrubyJar)
+
+        doFirst(new Action<Task>() {
+            @Override
+            void execute(Task task) {
+                ((AsciidoctorGemPrepare) task).restoreFromCache()
+            }
+        })
+        doLast(new Action<Task>() {
+            @Override
+            void execute(Task task) {
+                ((AsciidoctorGemPrepare) task).finishPreparation()
+            }
+        })
+    }
+
+    /** Whether prepared GEMs are shared via {@link #getGemCacheDirectory}.
+     *
+     * @return {@code true} if the cache is used. The default is {@code true}.
+     *
+     * @since 4.0
+     */
+    @Internal
+    boolean isUseGemCache() {
+        this.useGemCache
+    }
+
+    /** Whether prepared GEMs are shared via {@link #getGemCacheDirectory}.
+     *
+     * @param flag {@code false} to unpack GEMs in every project.
+     *
+     * @since 4.0
+     */
+    void setUseGemCache(boolean flag) {
+        this.useGemCache = flag
+    }
+
+    /** The directory of the cache of prepared GEMs.
+     *
+     * @return Cache directory. Defaults to a directory inside the Gradle user home.
+     *
+     * @since 4.0
+     */
+    @Internal
+    File getGemCacheDirectory() {
+        projectOperations.fsOperations.file(this.gemCacheDirectory)
+    }
+
+    /** Sets the directory of the cache of prepared GEMs.
+     *
+     * @param dir Anything that can be converted to a file.
+     *
+     * @since 4.0
+     */
+    void setGemCacheDirectory(Object dir) {
+        this.gemCacheDirectory = dir
+    }
+
+    /** Whether the Ruby sources of the GEMs are compiled ahead of time to JRuby class files.
+     *
+     * @return {@code true} if sources are compiled. The default is {@code false}.
+     *
+     * @since 4.0
+     */
+    @Input
+    boolean isPrecompile() {
+        this.precompile
+    }
+
+    /** Compiles the Ruby sources of the GEMs ahead of time with {@code jrubyc}.
+     *
+     * Class files are written next to the Ruby sources, which are kept, as some GEMs read their own sources.
+     * This applies to all execution modes, as the prepared GEMs are always loaded from the GEM JAR.
+     * The compiled files are only usable with the same JRuby version.
+     *
+     * @param flag {@code true} to compile sources.
+     *
+     * @since 4.0
+     */
+    void setPrecompile(boolean flag) {
+        this.precompile = flag
+    }
+
+    /** The JVM which runs {@code jrubyc} when the GEMs are precompiled.
+     *
+     * @return Java launcher. Defaults to the toolchain of the {@code java} plugin if that is applied. If no
+     *   launcher is set, the JVM which runs Gradle is used.
+     *
+     * @since 4.0
+     */
+    @Nested
+    @Optional
+    Property<JavaLauncher> getJavaLauncher() {
+        this.javaLauncher
+    }
+
+    /** Restores prepared GEMs from the cache and stops the task if they were found.
+     *
+     * @since 4.0
+     */
+    protected void restoreFromCache() {
+        this.cacheKey = null
+        if (useGemCache) {
+            final File jar = jrubyJar.get()
+            final List<File> gems = inputs.files.files.findAll { File it -> it != jar && it.file }.toList()
+            this.cacheKey = PreparedGemCache.keyFor(gems, jar.name, precompile)
+            if (new PreparedGemCache(gemCacheDirectory).restore(cacheKey, outputDir.get())) {
+                throw new StopExecutionException('Prepared GEMs were restored from the GEM cache')
+            }
+        }
+    }
+
+    /** Compiles the prepared GEMs if required and adds them to the cache.
+     *
+     * @since 4.0
+     */
+    protected void finishPreparation() {
+        if (precompile) {
+            compileRubySources()
+        }
+        if (cacheKey) {
+            new PreparedGemCache(gemCacheDirectory).store(cacheKey, outputDir.get())
+        }
+    }
+
+    private void compileRubySources() {
+        final File prepared = outputDir.get()
+        final File gemsDir = new File(prepared, 'gems')
+        if (gemsDir.directory) {
+            final File java = javaLauncher.present ? javaLauncher.get().executablePath.asFile :
+                    new File(System.getProperty('java.home'), 'bin/java')
+            final String classpath = jrubyJar.get().absolutePath
+            final ExecResult result = projectOperations.exec { ExecSpec spec ->
+                spec.with {
+                    executable java
+                    workingDir prepared
+                    args '-cp', classpath, 'org.jruby.Main', '-S', 'jrubyc', '-t', '.', 'gems'
+                    ignoreExitValue = true
+                }
+            }
+            if (result.exitValue != 0) {
+                throw new GradleException("jrubyc failed to compile the GEMs in ${gemsDir}")
+            }
+        }
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.jvm.gems.internal
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.FileAlreadyExistsException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.stream.Stream
+
+/** A content-addressed cache of prepared GEM trees which is shared between projects and builds.
+ *
+ * <p>
+ *   An entry is keyed by the names and content of the GEMs, the JRuby version and whether the Ruby sources
+ *   were precompiled. Entries are never modified once they are in the cache. They are written to a temporary
+ *   directory first and then moved into place, so concurrent builds never observe a partial entry.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+class PreparedGemCache {
+
+    private static final int BUFFER_SIZE = 65536
+
+    // Changes whenever the layout of prepared GEM trees changes, so that older entries are no longer used.
+    private static final int LAYOUT_VERSION = 2
+
+    private final File cacheRoot
+
+    /** Creates a cache.
+     *
+     * @param cacheRoot Directory in which all entries are kept.
+     */
+    PreparedGemCache(File cacheRoot) {
+        this.cacheRoot = cacheRoot
+    }
+
+    /** Calculates the key of a set of GEMs.
+     *
+     * @param gems GEM files.
+     * @param jrubyVersion Identifies the JRuby version, for instance the name of the JRuby JAR.
+     * @param precompiled Whether Ruby sources are compiled ahead of time.
+     * @return Cache key.
+     */
+    static String keyFor(Iterable<File> gems, String jrubyVersion, boolean precompiled) {
+        final MessageDigest md = MessageDigest.getInstance('SHA-256')
+        md.update(
+                "layout=${LAYOUT_VERSION}\njruby=${jrubyVersion}\nprecompiled=${precompiled}\n".toString()
+                        .getBytes('UTF-8')
+        )
+        gems.toList().sort { File it -> it.name }.each { File gem ->
+            md.update("${gem.name}=${digest(gem)}\n".toString().getBytes('UTF-8'))
+        }
+        md.digest().encodeHex().toString()
+    }
+
+    /** Copies a cached entry into a directory.
+     *
+     * @param key Cache key.
+     * @param outputDir Directory which will be replaced by the content of the entry.
+     * @return {@code true} if the entry was found.
+     */
+    boolean restore(String key, File outputDir) {
+        final File entry = new File(cacheRoot, key)
+        if (entry.directory) {
+            log.info("Restoring prepared GEMs from ${entry}")
+            if (outputDir.exists()) {
+                outputDir.deleteDir()
+            }
+            copyTree(entry.toPath(), outputDir.toPath())
+            true
+        } else {
+            false
+        }
+    }
+
+    /** Adds a prepared tree to the cache, unless an entry already exists for the key.
+     *
+     * @param key Cache key.
+     * @param preparedDir Directory which contains prepared GEMs.
+     */
+    void store(String key, File preparedDir) {
+        final File entry = new File(cacheRoot, key)
+        if (!entry.exists()) {
+            cacheRoot.mkdirs()
+            final Path staging = Files.createTempDirectory(cacheRoot.toPath(), "${key}.")
+            try {
+                copyTree(preparedDir.toPath(), staging)
+                Files.move(staging, entry.toPath(), StandardCopyOption.ATOMIC_MOVE)
+                log.info("Added prepared GEMs to ${entry}")
+            } catch (FileAlreadyExistsException | AtomicMoveNotSupportedException e) {
+                log.debug("Not adding prepared GEMs to ${entry}", e)
+            } catch (IOException e) {
+                if (!entry.exists()) {
+                    throw e
+                }
+            } finally {
+                if (Files.exists(staging)) {
+                    staging.toFile().deleteDir()
+                }
+            }
+        }
+    }
+
+    private static void copyTree(Path source, Path target) {
+        Stream<Path> walker = Files.walk(source)
+        try {
+            walker.forEach { Path p ->
+                final Path dest = target.resolve(source.relativize(p).toString())
+                if (Files.isDirectory(p)) {
+                    Files.createDirectories(dest)
+                } else {
+                    Files.copy(p, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES)
+                }
+            }
+        } finally {
+            walker.close()
+        }
+    }
+
+    private static String digest(File file) {
+        final MessageDigest md = MessageDigest.getInstance('SHA-256')
+        final byte[] buffer = new byte[BUFFER_SIZE]
+        file.withInputStream { InputStream input ->
+            int read
+            while ((read = input.read(buffer)) > 0) {
+                md.update(buffer, 0, read)
+            }
+        }
+        md.digest().encodeHex().toString()
+    }
+}
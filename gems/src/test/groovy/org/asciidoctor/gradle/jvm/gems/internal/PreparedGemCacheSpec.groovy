@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.jvm.gems.internal
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class PreparedGemCacheSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    void 'Keys depend on GEM content, JRuby version and precompilation'() {
+        given:
+        final File gem = new File(tmpDir, 'asciidoctor-bibtex-0.8.0.gem')
+        gem.text = 'v1'
+        final String key = PreparedGemCache.keyFor([gem], 'jruby-complete-9.4.5.0.jar', false)
+
+        expect:
+        PreparedGemCache.keyFor([gem], 'jruby-complete-9.4.5.0.jar', false) == key
+        PreparedGemCache.keyFor([gem], 'jruby-complete-9.4.6.0.jar', false) != key
+        PreparedGemCache.keyFor([gem], 'jruby-complete-9.4.5.0.jar', true) != key
+
+        when:
+        gem.text = 'v2'
+
+        then:
+        PreparedGemCache.keyFor([gem], 'jruby-complete-9.4.5.0.jar', false) != key
+    }
+
+    void 'Prepared trees are stored once and restored into other projects'() {
+        given:
+        final PreparedGemCache cache = new PreparedGemCache(new File(tmpDir, 'cache'))
+        final File prepared = new File(tmpDir, 'project1/.asciidoctorGems')
+        final File restored = new File(tmpDir, 'project2/.asciidoctorGems')
+        new File(prepared, 'gems/bibtex-0.8.0/lib').mkdirs()
+        new File(prepared, 'gems/bibtex-0.8.0/lib/bibtex.rb').text = 'module BibTeX; end'
+        new File(restored, 'stale').mkdirs()
+
+        expect:
+        !cache.restore('abc', restored)
+
+        when:
+        cache.store('abc', prepared)
+        new File(prepared, 'gems/bibtex-0.8.0/lib/bibtex.rb').text = 'changed'
+        cache.store('abc', prepared)
+
+        then:
+        cache.restore('abc', restored)
+        new File(restored, 'gems/bibtex-0.8.0/lib/bibtex.rb').text == 'module BibTeX; end'
+        !new File(restored, 'stale').exists()
+    }
+}
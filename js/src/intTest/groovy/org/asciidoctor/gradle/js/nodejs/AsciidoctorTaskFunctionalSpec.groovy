@@ -17,6 +17,7 @@ package org.asciidoctor.gradle.js.nodejs
 
 import org.asciidoctor.gradle.js.nodejs.internal.FunctionalSpecification
 import org.asciidoctor.gradle.testfixtures.generators.AsciidoctorjsVersionGenerator
+import org.gradle.testkit.runner.BuildResult
 import spock.lang.Unroll
 
 @SuppressWarnings('MethodName')
@@ -47,6 +48,31 @@ class AsciidoctorTaskFunctionalSpec extends FunctionalSpecification {
         new File(projectDir, 'build/docs/asciidoc/subdir/sample2.html').exists()
     }
 
+    void 'Directory groups are converted by a bounded number of conversion servers'() {
+        given:
+        getBuildFile('''
+            asciidoctor {
+                outputOptions {
+                    backends 'html5'
+                }
+                sourceDir 'src/docs/asciidoc'
+                logDocuments = true
+                maxParallelConversions = 2
+            }
+        ''')
+
+        when:
+        BuildResult result = getGroovyGradleRunner(DEFAULT_ARGS).build()
+
+        then:
+        verifyAll {
+            result.output.count('Running Asciidoctor.js with up to 2 conversion server(s).') == 1
+            result.output.contains('Converting sample.asciidoc')
+            result.output.contains('Converting sample2.ad')
+            new File(projectDir, 'build/docs/asciidoc/subdir/sample2.html').exists()
+        }
+    }
+
     @Unroll
     @SuppressWarnings('LineLength')
     void 'Built-in HTML backend + added DOCBOOK backend (asciidoctor.js=#versions.version, docbook=#versions.docbookVersion)'() {
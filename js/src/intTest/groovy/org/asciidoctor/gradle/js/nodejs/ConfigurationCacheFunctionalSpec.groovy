@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.js.nodejs
+
+import org.asciidoctor.gradle.js.nodejs.internal.FunctionalSpecification
+import org.gradle.testkit.runner.BuildResult
+
+@SuppressWarnings('MethodName')
+class ConfigurationCacheFunctionalSpec extends FunctionalSpecification {
+
+    static final List<String> DEFAULT_ARGS = ['asciidoctor', '--configuration-cache', '-s']
+
+    void setup() {
+        createTestProject()
+    }
+
+    void 'Conversion reuses the configuration cache'() {
+        given:
+        getJsConvertGroovyBuildFile('''
+            asciidoctor {
+                outputOptions {
+                    backends 'html5'
+                }
+                sourceDir 'src/docs/asciidoc'
+            }
+        ''')
+        final File output = new File(projectDir, 'build/docs/asciidoc/sample.html')
+
+        when:
+        BuildResult first = getGroovyGradleRunner(DEFAULT_ARGS).build()
+        output.delete()
+        BuildResult second = getGroovyGradleRunner(DEFAULT_ARGS).build()
+
+        then:
+        verifyAll {
+            first.output.contains('Configuration cache entry stored')
+            reusedConfigurationCache(second)
+            output.exists()
+            new File(projectDir, 'build/docs/asciidoc/subdir/sample2.html').exists()
+        }
+    }
+
+    boolean reusedConfigurationCache(BuildResult result) {
+        result.output.contains('Reusing configuration cache') ||
+                result.output.contains('Configuration cache entry reused')
+    }
+}
@@ -22,12 +22,18 @@ import org.asciidoctor.gradle.base.internal.Workspace
 import org.asciidoctor.gradle.js.base.AbstractAsciidoctorTask
 import org.asciidoctor.gradle.js.nodejs.core.AsciidoctorJSNodeExtension
 import org.asciidoctor.gradle.js.nodejs.core.AsciidoctorJSNpmExtension
-import org.asciidoctor.gradle.js.nodejs.internal.AsciidoctorJSRunner
+import org.asciidoctor.gradle.js.nodejs.internal.AsciidoctorJSConversionPool
+import org.asciidoctor.gradle.js.nodejs.internal.AsciidoctorJSConversionServer
+import org.gradle.api.InvalidUserDataException
 import org.gradle.api.artifacts.Configuration
-import org.gradle.api.tasks.Input
+import org.gradle.api.file.FileCollection
+import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.TaskAction
 import org.gradle.workers.WorkerExecutor
+import org.ysb33r.grolifant.api.core.ProjectOperations
+
+import java.util.concurrent.Callable
 
 import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.resolveAsCacheable
 import static org.asciidoctor.gradle.js.nodejs.core.AsciidoctorNodeJSBasePlugin.NPM_EXTENSION_NAME
@@ -44,9 +50,10 @@ class AbstractAsciidoctorNodeJSTask extends AbstractAsciidoctorTask {
 
     private final WorkerExecutor worker
     private final AsciidoctorJSExtension asciidoctorjs
-    private final AsciidoctorJSNodeExtension nodejs
-    private final AsciidoctorJSNpmExtension npm
-    private final String projectAlias
+    private final Provider<File> npmHome
+    private final Provider<File> nodeExecutable
+    private final FileCollection toolingDependencies
+    private int maxParallelConversions
 
     final String engineName = 'Asciidoctor.js'
 
@@ -54,8 +61,9 @@ class AbstractAsciidoctorNodeJSTask extends AbstractAsciidoctorTask {
      *
      * This is equivalent of using {@code asciidoctorjs.getAttributes}
      *
+     * Attributes are tracked as task inputs via {@link #getRelocatableAttributes}.
      */
-    @Input
+    @Internal
     Map<String, Object> getAttributes() {
         resolveAsCacheable(asciidoctorjs.attributes, projectOperations)
     }
@@ -103,14 +111,56 @@ class AbstractAsciidoctorNodeJSTask extends AbstractAsciidoctorTask {
         [asciidoctorjs.configuration].toSet()
     }
 
+    /** The maximum number of Asciidoctor.js processes which may convert documents at the same time.
+     *
+     * Independent directory groups, backends and languages are converted in parallel up to this limit.
+     * Defaults to the maximum number of Gradle workers.
+     *
+     * @return Maximum number of concurrent conversions.
+     *
+     * @since 4.0
+     */
+    @Internal
+    int getMaxParallelConversions() {
+        this.maxParallelConversions
+    }
+
+    /** Sets the maximum number of Asciidoctor.js processes which may convert documents at the same time.
+     *
+     * @param max Maximum number of concurrent conversions. Use {@code 1} to convert sequentially.
+     *
+     * @since 4.0
+     */
+    void setMaxParallelConversions(int max) {
+        if (max < 1) {
+            throw new InvalidUserDataException('maxParallelConversions must be at least 1')
+        }
+        this.maxParallelConversions = max
+    }
+
     @TaskAction
     void processAsciidocSources() {
         validateConditions()
+        prepareOutputStaging()
 
-        languagesAsOptionals.each { Optional<String> lang ->
-            Workspace workspace = lang.present ? prepareWorkspace(lang.get()) : prepareWorkspace()
-            runWithSubprocess(workspace.workingSourceDir, lang)
+        final Map<Optional<String>, File> workingSourceDirs = [:]
+        final AsciidoctorJSConversionPool pool = createConversionPool()
+        try {
+            languagesAsOptionals.each { Optional<String> lang ->
+                Workspace workspace = lang.present ? prepareWorkspace(lang.get()) : prepareWorkspace()
+                workingSourceDirs[lang] = workspace.workingSourceDir
+                submitConversions(pool, workspace.workingSourceDir, lang)
+            }
+            pool.await()
+        } finally {
+            pool.close()
+        }
+
+        workingSourceDirs.each { Optional<String> lang, File workingSourceDir ->
+            copyResources(workingSourceDir, lang)
         }
+
+        commitStagedOutputs()
     }
 
     /** Initialises the core an Asciidoctor task
@@ -121,10 +171,29 @@ class AbstractAsciidoctorNodeJSTask extends AbstractAsciidoctorTask {
     @SuppressWarnings('ThisReferenceEscapesConstructor')
     protected AbstractAsciidoctorNodeJSTask(WorkerExecutor we) {
         this.worker = we
-        this.nodejs = this.extensions.create(AsciidoctorJSNodeExtension.NAME, AsciidoctorJSNodeExtension, this)
-        this.npm = this.extensions.create(NPM_EXTENSION_NAME, AsciidoctorJSNpmExtension, this)
+        final AsciidoctorJSNodeExtension nodejs = this.extensions.create(
+                AsciidoctorJSNodeExtension.NAME,
+                AsciidoctorJSNodeExtension,
+                this
+        )
+        final AsciidoctorJSNpmExtension npm = this.extensions.create(
+                NPM_EXTENSION_NAME,
+                AsciidoctorJSNpmExtension,
+                this
+        )
         this.asciidoctorjs = this.extensions.create(AsciidoctorJSExtension.NAME, AsciidoctorJSExtension, this)
-        this.projectAlias = "${project.name}-${name}"
+        this.npmHome = asciidoctorjs.toolingWorkDir
+        this.nodeExecutable = nodejs.executable
+        this.maxParallelConversions = project.gradle.startParameter.maxWorkerCount
+
+        final ProjectOperations po = projectOperations
+        final AsciidoctorJSExtension asciidoctorjsExt = this.asciidoctorjs
+        final Provider<File> home = this.npmHome
+        final String projectAlias = "${project.name}-${name}"
+        this.toolingDependencies = po.fsOperations.files({ ->
+            initPackageJson(home.get(), projectAlias, po, nodejs, npm)
+            asciidoctorjsExt.configuration
+        } as Callable<FileCollection>)
     }
 
     @CompileDynamic
@@ -138,65 +207,62 @@ class AbstractAsciidoctorNodeJSTask extends AbstractAsciidoctorTask {
         ))
     }
 
+    private AsciidoctorJSConversionPool createConversionPool() {
+        final File home = npmHome.get()
+
+        // Resolving the dependencies initialises the package and installs asciidoctor.js
+        toolingDependencies.files
+
+        final File node = nodeExecutable.get()
+        final File script = AsciidoctorJSConversionServer.installScript(home)
+        final boolean logEachDocument = logDocuments
+        logger.info "Running Asciidoctor.js with up to ${maxParallelConversions} conversion server(s)."
+        final Callable<AsciidoctorJSConversionServer> serverFactory = { ->
+            new AsciidoctorJSConversionServer(node, script, home, logEachDocument)
+        } as Callable<AsciidoctorJSConversionServer>
+        new AsciidoctorJSConversionPool(maxParallelConversions, serverFactory)
+    }
+
     @SuppressWarnings('UnnecessaryGetter')
-    private AsciidoctorJSRunner getAsciidoctorJSRunnerFor(
-            final AsciidoctorJSRunner.FileLocations asciidoctorjsExe,
-            final String backend,
-            final Map<String, String> attributes,
+    private void submitConversions(
+            AsciidoctorJSConversionPool pool,
+            final File workingSourceDir,
             Optional<String> lang
     ) {
-        new AsciidoctorJSRunner(
-                nodejs.executable.get(),
-                projectOperations,
-                asciidoctorjsExe,
-                backend,
+        final String profile = lang.present ? lang.get() : ''
+        final File baseDir = lang.present ? getBaseDir(lang.get()) : getBaseDir()
+
+        pool.profile(
+                profile,
                 asciidoctorjs.safeMode,
-                lang.present ? getBaseDir(lang.get()) : getBaseDir(),
-                lang.present ? getOutputDirFor(backend, lang.get()) : getOutputDirFor(backend),
-                attributes,
-                asciidoctorjs.requires,
-                Optional.empty(),
-                logDocuments
+                prepareAttributesForSerialisation(workingSourceDir, lang),
+                asciidoctorjs.requires
         )
-    }
 
-    private AsciidoctorJSRunner.FileLocations resolveAsciidoctorjsEnvironment() {
-        File home = asciidoctorjs.toolingWorkDir.get()
-        initPackageJson(
-                home,
-                projectAlias,
-                projectOperations,
-                nodejs,
-                npm
-        )
-        asciidoctorjs.configuration.resolve()
-        new AsciidoctorJSRunner.FileLocations(
-                executable: new File(home, 'node_modules/@asciidoctor/cli/bin/asciidoctor'),
-                workingDir: home
-        )
+        for (String backend : configuredOutputOptions.backends) {
+            final File destinationDir = getConversionDirFor(
+                    lang.present ? getOutputDirFor(backend, lang.get()) : getOutputDirFor(backend)
+            )
+            sourceFileGroupedByRelativePath.each { String relativePath, List<File> sourceGroup ->
+                pool.submit(
+                        [backend, lang.orElse(null), relativePath ?: null].findAll().join(' '),
+                        profile,
+                        backend,
+                        baseDir,
+                        relativePath.empty ? destinationDir : new File(destinationDir, relativePath),
+                        sourceGroup.toSet()
+                )
+            }
+        }
     }
 
     @SuppressWarnings('UnnecessaryGetter')
-    private void runWithSubprocess(final File workingSourceDir, Optional<String> lang) {
-        logger.info 'Running Asciidoctor.js with subprocess.'
-
-        Map<String, List<File>> conversionGroups = sourceFileGroupedByRelativePath
-        Map<String, String> finalAttributes = prepareAttributesForSerialisation(workingSourceDir, lang)
-        AsciidoctorJSRunner.FileLocations asciidoctorjsEnv = resolveAsciidoctorjsEnvironment()
+    private void copyResources(final File workingSourceDir, Optional<String> lang) {
         Optional<List<String>> copyResources = getCopyResourcesForBackends()
-
         for (String backend : configuredOutputOptions.backends) {
-            conversionGroups.each { String relativePath, List<File> sourceGroup ->
-                getAsciidoctorJSRunnerFor(
-                        asciidoctorjsEnv,
-                        backend,
-                        finalAttributes,
-                        lang
-                ).convert(sourceGroup.toSet(), relativePath)
-            }
             if (copyResources.present && (copyResources.get().empty || backend in copyResources.get())) {
-                copyResourcesByBackend(backend, workingSourceDir, getOutputDirFor(backend), lang)
+                copyResourcesByBackend(backend, workingSourceDir, getConversionDirFor(getOutputDirFor(backend)), lang)
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -52,7 +52,7 @@ class AsciidoctorJSExtension extends AbstractAsciidoctorJSExtension {
     private boolean onlyTaskRequires = false
     private final AsciidoctorJSNodeExtension nodejs
     private final AsciidoctorJSNpmExtension npm
-    private final NodeJSDependencyFactory dependencyFactory
+    private final transient NodeJSDependencyFactory dependencyFactory
     private final Configuration publicConfiguration
     private final Configuration privateConfiguration
 
@@ -28,9 +28,14 @@ import org.ysb33r.gradle.nodejs.BaseNpmExtension
 @CompileStatic
 class AsciidoctorJSNpmExtension extends BaseNpmExtension<AsciidoctorJSNodeExtension, AsciidoctorJSNpmExtension> {
 
+    private final AsciidoctorJSNpmExtension projectNpm
+    private Object packageStoreDirectory
+
     AsciidoctorJSNpmExtension(Project project) {
         super(project, project.extensions.getByType(AsciidoctorJSNodeExtension))
         homeDirectory = projectOperations.buildDirDescendant(".asciidoctor-npm/${project.name}")
+        this.projectNpm = null
+        this.packageStoreDirectory = new File(project.gradle.gradleUserHomeDir, 'caches/asciidoctor-gradle/npm-store')
     }
 
     AsciidoctorJSNpmExtension(AbstractAsciidoctorNodeJSTask task) {
@@ -39,6 +44,34 @@ class AsciidoctorJSNpmExtension extends BaseNpmExtension<AsciidoctorJSNodeExtens
                 task.project.extensions.getByType(AsciidoctorJSNodeExtension),
                 task.project.extensions.getByType(AsciidoctorJSNpmExtension)
         )
+        this.projectNpm = task.project.extensions.getByType(AsciidoctorJSNpmExtension)
+    }
+
+    /** The directory of the package store which is shared by all tasks and builds.
+     *
+     * Packages are installed once into the store and linked into the NPM home directories.
+     * If set on a task, it overrides the project setting.
+     *
+     * @return Store directory. Defaults to a directory inside the Gradle user home.
+     *
+     * @since 4.0
+     */
+    File getPackageStoreDirectory() {
+        if (this.packageStoreDirectory == null && projectNpm != null) {
+            projectNpm.packageStoreDirectory
+        } else {
+            projectOperations.fsOperations.file(this.packageStoreDirectory)
+        }
+    }
+
+    /** Sets the directory of the package store.
+     *
+     * @param dir Anything that can be converted to a file.
+     *
+     * @since 4.0
+     */
+    void setPackageStoreDirectory(Object dir) {
+        this.packageStoreDirectory = dir
     }
 
     @Override
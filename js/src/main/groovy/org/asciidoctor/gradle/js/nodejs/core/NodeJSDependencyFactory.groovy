@@ -16,6 +16,7 @@
 package org.asciidoctor.gradle.js.nodejs.core
 
 import groovy.transform.CompileStatic
+import org.asciidoctor.gradle.js.nodejs.internal.NpmPackageStore
 import org.asciidoctor.gradle.js.nodejs.internal.PackageDescriptor
 import org.gradle.api.artifacts.Dependency
 import org.gradle.api.artifacts.dsl.DependencyFactory
@@ -43,6 +44,7 @@ import java.util.concurrent.Callable
 abstract class NodeJSDependencyFactory {
     private final ProjectOperations projectOperations
     private final NpmExecutor npmExecutor
+    private final AsciidoctorJSNpmExtension npm
 
     /** Create a NPM-based dependency.
      *
@@ -113,6 +115,7 @@ abstract class NodeJSDependencyFactory {
     ) {
         this.projectOperations = po
         this.npmExecutor = new NpmExecutor(po, nodejs, npm)
+        this.npm = npm
     }
 
     @Inject
@@ -124,15 +127,30 @@ abstract class NodeJSDependencyFactory {
     ) {
         File installDir = npmExecutor.getPackageInstallationFolder(descriptor)
         FileTree allFiles = projectOperations.fileTree(installDir)
+        final File nodeModules = descriptor.scope ? installDir.parentFile.parentFile : installDir.parentFile
 
-        if (allFiles.isEmpty()) {
-            installPackage(withPaths, descriptor)
+        if (!NpmPackageStore.isPinned(descriptor.tagName)) {
+            // Tags can move to another version, so such packages are installed into the NPM home directly.
+            if (allFiles.isEmpty()) {
+                installPackage(withPaths, descriptor, nodeModules.parentFile)
+            }
+        } else {
+            final NpmPackageStore store = new NpmPackageStore(npm.packageStoreDirectory)
+            final File entry = store.entryFor(descriptor.scope, descriptor.packageName, descriptor.tagName)
+
+            // A link to another store entry is left behind when the version of a package changes.
+            if (allFiles.isEmpty() || store.isLinkedElsewhere(entry, nodeModules, installDir)) {
+                store.populate(entry) { File prefix ->
+                    owner.installPackage(withPaths, descriptor, prefix)
+                }
+                store.linkInto(entry, nodeModules, installDir)
+            }
         }
 
         allFiles
     }
 
-    private void installPackage(Set<File> withPaths, NpmPackageDescriptor descriptor) {
+    private void installPackage(Set<File> withPaths, NpmPackageDescriptor descriptor, File prefix) {
         Map<String, Object> env = [:]
         if (withPaths) {
             String path = projectOperations.fsOperations.files(withPaths).asPath
@@ -142,9 +160,11 @@ abstract class NodeJSDependencyFactory {
         List<String> installArgs = projectOperations.stringTools.stringize([
                 '--no-bin-links',
                 '--no-package-lock',
-                '--loglevel=error']
-        )
-        npmExecutor.installNpmPackage(descriptor, NpmDependencyGroup.DEVELOPMENT, installArgs, env).files
+                '--loglevel=error',
+                '--prefix',
+                prefix.absolutePath
+        ])
+        npmExecutor.installNpmPackage(descriptor, NpmDependencyGroup.DEVELOPMENT, installArgs, env)
     }
 
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.js.nodejs.internal
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.asciidoctor.gradle.base.SafeMode
+import org.gradle.api.GradleException
+
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/** Runs independent Asciidoctor.js conversions concurrently on a bounded number of conversion servers.
+ *
+ * Servers are only started when there is work for them. Once a conversion fails, no further conversions are
+ * started, but conversions which are already running are allowed to finish. Messages and failures are reported
+ * per conversion group.
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+class AsciidoctorJSConversionPool implements Closeable {
+
+    private final Callable<AsciidoctorJSConversionServer> serverFactory
+    private final ExecutorService executor
+    private final BlockingQueue<ServerState> idleServers = new LinkedBlockingQueue<>()
+    private final List<ServerState> startedServers = new CopyOnWriteArrayList<>()
+    private final Map<String, Profile> profiles = new ConcurrentHashMap<>()
+    private final List<Future<?>> pending = []
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>()
+    private final AtomicBoolean failed = new AtomicBoolean(false)
+    private final AtomicInteger skipped = new AtomicInteger(0)
+
+    /** Creates a pool.
+     *
+     * @param maxParallel Maximum number of conversions that may run at the same time.
+     * @param serverFactory Starts a new conversion server.
+     */
+    AsciidoctorJSConversionPool(int maxParallel, Callable<AsciidoctorJSConversionServer> serverFactory) {
+        this.serverFactory = serverFactory
+        this.executor = Executors.newFixedThreadPool(Math.max(1, maxParallel))
+    }
+
+    /** Defines a named set of options that conversions can refer to.
+     *
+     * @param name Name of the profile.
+     * @param safeMode Asciidoctor safe mode.
+     * @param attributes Asciidoctor attributes.
+     * @param requires NPM packages which need to be loaded.
+     */
+    void profile(String name, SafeMode safeMode, Map<String, String> attributes, Set<String> requires) {
+        profiles[name] = new Profile(safeMode: safeMode, attributes: attributes, requires: requires)
+    }
+
+    /** Schedules the conversion of a group of source files.
+     *
+     * @param description Description of the group which is used in log messages and failures.
+     * @param profile Name of a profile which was defined via {@link #profile}.
+     * @param backend Asciidoctor backend.
+     * @param baseDir Base directory for the conversion.
+     * @param destinationDir Directory to which the documents should be written.
+     * @param sources Source documents.
+     */
+    @SuppressWarnings('ParameterCount')
+    void submit(
+            String description,
+            String profile,
+            String backend,
+            File baseDir,
+            File destinationDir,
+            Set<File> sources
+    ) {
+        pending.add(executor.submit({ ->
+            owner.convert(description, profile, backend, baseDir, destinationDir, sources)
+        } as Runnable))
+    }
+
+    /** Waits for all scheduled conversions to complete.
+     *
+     * @throws GradleException if any of the conversions failed.
+     */
+    void await() {
+        for (Future<?> job : pending) {
+            job.get()
+        }
+        pending.clear()
+
+        if (!failures.empty) {
+            final String notConverted = skipped.get() ? "\n${skipped.get()} remaining group(s) were not converted." : ''
+            throw new GradleException(
+                    "Asciidoctor.js failed to convert ${failures.size()} group(s):\n" +
+                            failures.join('\n') +
+                            notConverted
+            )
+        }
+    }
+
+    /** Stops all conversion servers.
+     *
+     */
+    @Override
+    void close() {
+        executor.shutdownNow()
+        GradleException closeFailure = null
+        for (ServerState state : startedServers) {
+            try {
+                state.server.close()
+            } catch (GradleException e) {
+                closeFailure = closeFailure ?: e
+            }
+        }
+        if (closeFailure && !failed.get()) {
+            throw closeFailure
+        }
+    }
+
+    @SuppressWarnings(['ParameterCount', 'CatchException'])
+    private void convert(
+            String description,
+            String profile,
+            String backend,
+            File baseDir,
+            File destinationDir,
+            Set<File> sources
+    ) {
+        if (failed.get()) {
+            skipped.incrementAndGet()
+        } else {
+            ServerState state = null
+            try {
+                state = leaseServer()
+                if (!state.profiles.contains(profile)) {
+                    final Profile options = profiles[profile]
+                    state.server.configure(profile, options.safeMode, options.attributes, options.requires)
+                    state.profiles.add(profile)
+                }
+                final List<String> messages = state.server.convert(
+                        profile,
+                        backend,
+                        baseDir,
+                        destinationDir,
+                        sources
+                )
+                if (messages) {
+                    log.warn("${description}:\n  ${messages.join('\n  ')}")
+                }
+            } catch (Exception e) {
+                failed.set(true)
+                failures.add("${description}: ${e.message}".toString())
+            } finally {
+                if (state != null) {
+                    idleServers.add(state)
+                }
+            }
+        }
+    }
+
+    private ServerState leaseServer() {
+        ServerState state = idleServers.poll()
+        if (state == null) {
+            state = new ServerState(server: serverFactory.call())
+            startedServers.add(state)
+        }
+        state
+    }
+
+    private static class Profile {
+        SafeMode safeMode
+        Map<String, String> attributes
+        Set<String> requires
+    }
+
+    private static class ServerState {
+        AsciidoctorJSConversionServer server
+        final Set<String> profiles = []
+    }
+}
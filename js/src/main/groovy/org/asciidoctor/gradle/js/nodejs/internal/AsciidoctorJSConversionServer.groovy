@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.js.nodejs.internal
+
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.asciidoctor.gradle.base.SafeMode
+import org.asciidoctor.gradle.base.Transform
+import org.gradle.api.GradleException
+import org.ysb33r.gradle.nodejs.utils.NodeJSExecutor
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING
+
+/** A long-lived Asciidoctor.js process which converts documents on request.
+ *
+ * Node.js and {@code @asciidoctor/core} are only loaded once. Attributes, requires and the safe mode are sent
+ * once per named profile, after which any number of conversion requests can refer to that profile.
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+class AsciidoctorJSConversionServer implements Closeable {
+
+    public static final String SCRIPT_NAME = 'asciidoctor-gradle-conversion-server.js'
+
+    private static final String REPLY_PREFIX = '@@asciidoctor-gradle@@ '
+
+    private final Process process
+    private final BufferedReader replies
+    private final Writer requests
+    private final Thread errorPump
+    private final boolean logDocuments
+
+    /** Starts a conversion server.
+     *
+     * @param nodejs Location of the {@code node} executable.
+     * @param script Server script as written by {@link #installScript}.
+     * @param workingDir NPM home directory in which {@code @asciidoctor/core} has been installed.
+     * @param logDocuments Whether the name of every converted document should be logged.
+     */
+    AsciidoctorJSConversionServer(File nodejs, File script, File workingDir, boolean logDocuments) {
+        this.logDocuments = logDocuments
+
+        final ProcessBuilder pb = new ProcessBuilder(nodejs.absolutePath, script.absolutePath)
+                .directory(workingDir)
+        pb.environment().putAll(NodeJSExecutor.defaultEnvironment)
+
+        this.process = pb.start()
+        this.requests = new OutputStreamWriter(process.outputStream, StandardCharsets.UTF_8)
+        this.replies = new BufferedReader(new InputStreamReader(process.inputStream, StandardCharsets.UTF_8))
+        this.errorPump = Thread.start('asciidoctorjs-stderr') { ->
+            process.errorStream.withReader(StandardCharsets.UTF_8.name()) { Reader reader ->
+                reader.eachLine { String line -> log.warn(line) }
+            }
+        }
+    }
+
+    /** Writes the server script into an NPM home directory unless it is already up to date.
+     *
+     * <p>
+     *   This is called once before any server is started. As builds may share an NPM home, a Node.js process of
+     *   another build could still be reading the script. The script is therefore written to a temporary file
+     *   and moved into place, and it is left alone if its content has not changed.
+     * </p>
+     *
+     * @param workingDir NPM home directory.
+     * @return Location of the script.
+     */
+    static File installScript(File workingDir) {
+        final byte[] content = AsciidoctorJSConversionServer.getResourceAsStream('conversion-server.js').bytes
+        final File script = new File(workingDir, SCRIPT_NAME)
+        if (!script.file || !Arrays.equals(script.bytes, content)) {
+            final File tmp = File.createTempFile(SCRIPT_NAME, '.tmp', workingDir)
+            tmp.bytes = content
+            Files.move(tmp.toPath(), script.toPath(), REPLACE_EXISTING, ATOMIC_MOVE)
+        }
+        script
+    }
+
+    /** Defines a named set of options which conversions can refer to.
+     *
+     * @param profile Name of the profile.
+     * @param safeMode Asciidoctor safe mode.
+     * @param attributes Asciidoctor attributes.
+     * @param requires NPM packages which need to be loaded.
+     */
+    void configure(String profile, SafeMode safeMode, Map<String, String> attributes, Set<String> requires) {
+        send([
+                type      : 'configure',
+                profile   : profile,
+                safe      : safeMode.toString().toLowerCase(Locale.US),
+                attributes: attributes,
+                requires  : requires.toList()
+        ])
+    }
+
+    /** Converts a group of source files that share an output directory.
+     *
+     * @param profile Name of a profile which was previously sent via {@link #configure}.
+     * @param backend Asciidoctor backend.
+     * @param baseDir Base directory for the conversion.
+     * @param destinationDir Directory to which the documents should be written.
+     * @param sources Source documents.
+     * @return Messages which were logged by Asciidoctor during the conversion.
+     */
+    List<String> convert(String profile, String backend, File baseDir, File destinationDir, Set<File> sources) {
+        if (logDocuments) {
+            log.info("Converting ${sources*.name.join(', ')}")
+        }
+
+        send([
+                type   : 'convert',
+                profile: profile,
+                backend: backend,
+                baseDir: baseDir.absolutePath,
+                toDir  : destinationDir.absolutePath,
+                sources: Transform.toList(sources) { File it -> it.absolutePath }
+        ])
+    }
+
+    /** Stops the server and waits for it to terminate.
+     *
+     */
+    @Override
+    void close() {
+        requests.close()
+        final int exitValue = process.waitFor()
+        errorPump.join()
+        if (exitValue != 0) {
+            throw new GradleException("Asciidoctor.js conversion server exited with ${exitValue}")
+        }
+    }
+
+    private List<String> send(Map<String, Object> request) {
+        requests.write(JsonOutput.toJson(request))
+        requests.write('\n')
+        requests.flush()
+
+        final Map<String, Object> reply = readReply()
+        if (!reply.ok) {
+            throw new GradleException("Asciidoctor.js failed to process a ${request.type} request: ${reply.error}")
+        }
+        (List<String>) reply.messages
+    }
+
+    private Map<String, Object> readReply() {
+        String line = replies.readLine()
+        while (line != null && !line.startsWith(REPLY_PREFIX)) {
+            log.info(line)
+            line = replies.readLine()
+        }
+
+        if (line == null) {
+            throw new GradleException('Asciidoctor.js conversion server terminated unexpectedly')
+        }
+
+        (Map<String, Object>) new JsonSlurper().parseText(line.substring(REPLY_PREFIX.length()))
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.js.nodejs.internal
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.asciidoctor.gradle.base.internal.EntryLocks
+import org.gradle.api.Action
+
+import java.nio.file.Files
+import java.nio.file.LinkOption
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.regex.Pattern
+import java.util.stream.Stream
+
+/** A store of installed NPM packages which is shared between tasks, projects and builds.
+ *
+ * <p>
+ *   Every package is installed once into an entry which is keyed by the package descriptor and version.
+ *   NPM homes are populated by linking the top-level content of an entry's {@code node_modules} directory.
+ *   As Node.js resolves modules relative to the real location of a package, the transitive dependencies of
+ *   a package are always found inside its own store entry.
+ * </p>
+ * <p>
+ *   Once an entry is complete, no further network access is required to use the package.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+class NpmPackageStore {
+
+    private static final String NODE_MODULES = 'node_modules'
+    private static final String COMPLETE_MARKER = '.complete'
+    private static final String COPY_MARKER = '.asciidoctor-gradle-store-entry'
+    private static final Pattern PINNED_VERSION = ~/^\d+\.\d+\.\d+(?:[-+][0-9A-Za-z.+-]+)?$/
+    private static final int HASH_LENGTH = 16
+
+    private final File storeRoot
+
+    /** Creates a store.
+     *
+     * @param storeRoot Directory in which all entries are kept.
+     */
+    NpmPackageStore(File storeRoot) {
+        this.storeRoot = storeRoot
+    }
+
+    /** Returns the directory of a store entry.
+     *
+     * @param scope Package scope. Can be {@code null}.
+     * @param name Package name.
+     * @param version Package version or tag.
+     * @return Entry directory. It might not exist yet.
+     */
+    File entryFor(String scope, String name, String version) {
+        final String coordinates = scope ? "@${scope}/${name}@${version}" : "${name}@${version}"
+        final String safeName = (scope ? "${scope}-${name}" : name).replaceAll(~/[^A-Za-z0-9._-]/, '_')
+        new File(storeRoot, "${safeName}-${sha256(coordinates).substring(0, HASH_LENGTH)}")
+    }
+
+    /** Whether a version can be kept in the store.
+     *
+     * Tags such as {@code latest} and version ranges can refer to another version at any time, so only exact
+     * versions are kept.
+     *
+     * @param version Package version or tag.
+     * @return {@code true} if the version is an exact version.
+     */
+    static boolean isPinned(String version) {
+        version != null && version ==~ PINNED_VERSION
+    }
+
+    /** Ensures that a package is available in the store.
+     *
+     * @param entry Entry directory as returned by {@link #entryFor}.
+     * @param installer Installs the package into a given directory. The package is expected to end up in
+     *   the {@code node_modules} folder of that directory. It is only called if the entry is not complete.
+     */
+    void populate(File entry, Action<File> installer) {
+        EntryLocks.withLock(entry, 'NPM store entry') { ->
+            if (!new File(entry, COMPLETE_MARKER).exists()) {
+                if (entry.exists()) {
+                    entry.deleteDir()
+                }
+                entry.mkdirs()
+                log.info("Installing NPM package into store entry ${entry}")
+                installer.execute(entry)
+                new File(entry, COMPLETE_MARKER).text = ''
+            }
+        }
+    }
+
+    /** Links all top-level modules of a store entry into a {@code node_modules} directory.
+     *
+     * <p>
+     *   The requested package replaces a link or a copy that comes from another entry, such as an entry of
+     *   another version. Other modules of the entry are only linked if they are missing, so that a module which
+     *   is hoisted from the entry of one package never replaces a package which was requested itself. Modules
+     *   which were not put in place by the store are left as they are.
+     * </p>
+     * <p>
+     *   If symbolic links cannot be created, the modules are copied instead.
+     * </p>
+     *
+     * @param entry Entry directory as returned by {@link #entryFor}.
+     * @param nodeModules Target {@code node_modules} directory.
+     * @param requested Location of the requested package inside {@code nodeModules}.
+     */
+    void linkInto(File entry, File nodeModules, File requested) {
+        final File source = new File(entry, NODE_MODULES)
+        if (source.exists()) {
+            for (File module : topLevelModules(source)) {
+                final File target = new File(nodeModules, source.toPath().relativize(module.toPath()).toString())
+                if (!Files.exists(target.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                    target.parentFile.mkdirs()
+                    link(module.toPath(), target.toPath())
+                } else if (target.absoluteFile == requested.absoluteFile &&
+                        isFromOtherEntry(target.toPath(), module.toPath())) {
+                    log.info("Replacing ${target}, which comes from another store entry, with ${module}")
+                    if (Files.isSymbolicLink(target.toPath())) {
+                        Files.delete(target.toPath())
+                    } else {
+                        target.deleteDir()
+                    }
+                    link(module.toPath(), target.toPath())
+                }
+            }
+        }
+    }
+
+    /** Whether a module in a {@code node_modules} directory was put in place from another store entry.
+     *
+     * @param entry Entry directory as returned by {@link #entryFor}.
+     * @param nodeModules {@code node_modules} directory into which the entry is linked.
+     * @param module Module inside {@code nodeModules}.
+     * @return {@code true} if the module is a link or a copy of something other than the same module in the entry.
+     */
+    boolean isLinkedElsewhere(File entry, File nodeModules, File module) {
+        final String relativePath = nodeModules.toPath().relativize(module.toPath()).toString()
+        isFromOtherEntry(module.toPath(), new File(entry, "${NODE_MODULES}/${relativePath}").toPath())
+    }
+
+    private static boolean isFromOtherEntry(Path target, Path expected) {
+        final Path marker = target.resolve(COPY_MARKER)
+        if (Files.isSymbolicLink(target)) {
+            final Path actual = target.parent.resolve(Files.readSymbolicLink(target)).toAbsolutePath().normalize()
+            actual != expected.toAbsolutePath().normalize()
+        } else if (Files.isRegularFile(marker)) {
+            new String(Files.readAllBytes(marker), 'UTF-8') != expected.toAbsolutePath().normalize().toString()
+        } else {
+            false
+        }
+    }
+
+    private static List<File> topLevelModules(File nodeModules) {
+        final List<File> modules = []
+        nodeModules.listFiles().each { File it ->
+            if (it.name.startsWith('@')) {
+                modules.addAll(it.listFiles().toList())
+            } else if (!it.name.startsWith('.')) {
+                modules.add(it)
+            }
+        }
+        modules
+    }
+
+    private static void link(Path source, Path target) {
+        try {
+            Files.createSymbolicLink(target, source)
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("Cannot link ${target} to the NPM store. Copying instead.", e)
+            copyTree(source, target)
+            // Records where the copy comes from, so that it can be replaced when another version is requested.
+            Files.write(target.resolve(COPY_MARKER), source.toAbsolutePath().normalize().toString().getBytes('UTF-8'))
+        }
+    }
+
+    private static void copyTree(Path source, Path target) {
+        Stream<Path> walker = Files.walk(source)
+        try {
+            walker.forEach { Path p ->
+                final Path dest = target.resolve(source.relativize(p).toString())
+                if (Files.isDirectory(p)) {
+                    Files.createDirectories(dest)
+                } else {
+                    Files.copy(p, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES)
+                }
+            }
+        } finally {
+            walker.close()
+        }
+    }
+
+
+    private static String sha256(String text) {
+        MessageDigest.getInstance('SHA-256').digest(text.getBytes('UTF-8')).encodeHex().toString()
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Long-lived Asciidoctor.js conversion server used by the Asciidoctor Gradle plugin.
+//
+// Requests are read from stdin as one JSON document per line. Every request is answered with exactly one line
+// on stdout which starts with the reply prefix. Any other output written by extensions is sent to stderr so
+// that it cannot be confused with a reply. Messages logged by Asciidoctor during a conversion are returned as
+// part of the reply.
+'use strict'
+
+const readline = require('readline')
+
+const REPLY_PREFIX = '@@asciidoctor-gradle@@ '
+const asciidoctor = require('@asciidoctor/core')()
+const reply = process.stdout.write.bind(process.stdout)
+
+console.log = console.error
+console.info = console.error
+
+const profiles = {}
+const loadedRequires = new Set()
+
+function loadRequire (name) {
+  if (loadedRequires.has(name)) {
+    return
+  }
+  const ext = require(name)
+  if (ext && typeof ext.register === 'function') {
+    ext.register(asciidoctor.Extensions)
+  }
+  loadedRequires.add(name)
+}
+
+function configure (request) {
+  (request.requires || []).forEach(loadRequire)
+  profiles[request.profile] = {
+    safe: request.safe,
+    attributes: request.attributes || {}
+  }
+  return []
+}
+
+function convert (request) {
+  const profile = profiles[request.profile]
+  if (!profile) {
+    throw new Error('Unknown profile: ' + request.profile)
+  }
+  const conversionOptions = Object.assign({}, profile, {
+    backend: request.backend,
+    base_dir: request.baseDir,
+    to_dir: request.toDir,
+    mkdirs: true
+  })
+  const logger = asciidoctor.MemoryLogger.create()
+  asciidoctor.LoggerManager.setLogger(logger)
+  request.sources.forEach((source) => asciidoctor.convertFile(source, conversionOptions))
+  return logger.getMessages().map((message) => message.getSeverity() + ': ' + message.getText())
+}
+
+readline.createInterface({ input: process.stdin, terminal: false }).on('line', (line) => {
+  if (line.trim().length === 0) {
+    return
+  }
+
+  let result
+  try {
+    const request = JSON.parse(line)
+    switch (request.type) {
+      case 'configure':
+        result = { ok: true, messages: configure(request) }
+        break
+      case 'convert':
+        result = { ok: true, messages: convert(request) }
+        break
+      default:
+        throw new Error('Unknown request type: ' + request.type)
+    }
+  } catch (e) {
+    result = { ok: false, error: e.message }
+  }
+  reply(REPLY_PREFIX + JSON.stringify(result) + '\n')
+})
@@ -15,6 +15,7 @@
  */
 package org.asciidoctor.gradle.js.nodejs
 
+import org.gradle.api.InvalidUserDataException
 import org.gradle.api.Project
 import org.gradle.api.file.FileCollection
 import org.gradle.testfixtures.ProjectBuilder
@@ -52,6 +53,26 @@ class AsciidoctorTaskSpec extends Specification {
         asciidoctor.logDocuments == true
     }
 
+    void 'Maximum number of parallel conversions can be configured'() {
+        when:
+        AsciidoctorTask asciidoctor = asciidoctorTask {
+            maxParallelConversions = 3
+        }
+
+        then:
+        asciidoctor.maxParallelConversions == 3
+    }
+
+    void 'Maximum number of parallel conversions must be positive'() {
+        when:
+        asciidoctorTask {
+            maxParallelConversions = 0
+        }
+
+        then:
+        thrown(InvalidUserDataException)
+    }
+
     void "Allow setting of attributes via method (Map variant)"() {
         when:
         AsciidoctorTask task = asciidoctorTask {
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.js.nodejs.internal
+
+import org.gradle.api.Action
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class NpmPackageStoreSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    void 'Entries are keyed by scope, name and version'() {
+        given:
+        final store = new NpmPackageStore(new File(tmpDir, 'store'))
+
+        expect:
+        store.entryFor('asciidoctor', 'cli', '3.5.0') == store.entryFor('asciidoctor', 'cli', '3.5.0')
+        store.entryFor('asciidoctor', 'cli', '3.5.0') != store.entryFor('asciidoctor', 'cli', '3.4.0')
+        store.entryFor('asciidoctor', 'cli', '3.5.0') != store.entryFor(null, 'cli', '3.5.0')
+    }
+
+    void 'A package is only installed once and is linked into every home'() {
+        given:
+        final store = new NpmPackageStore(new File(tmpDir, 'store'))
+        final entry = store.entryFor('asciidoctor', 'cli', '3.5.0')
+        final firstHome = new File(tmpDir, 'home1/node_modules')
+        final secondHome = new File(tmpDir, 'home2/node_modules')
+        int installs = 0
+        final Action<File> installer = { File prefix ->
+            installs++
+            new File(prefix, 'node_modules/@asciidoctor/cli').mkdirs()
+            new File(prefix, 'node_modules/@asciidoctor/cli/package.json').text = '{}'
+            new File(prefix, 'node_modules/yargs').mkdirs()
+            new File(prefix, 'node_modules/yargs/index.js').text = ''
+        } as Action<File>
+
+        when:
+        store.populate(entry, installer)
+        store.linkInto(entry, firstHome, new File(firstHome, '@asciidoctor/cli'))
+        store.populate(entry, installer)
+        store.linkInto(entry, secondHome, new File(secondHome, '@asciidoctor/cli'))
+
+        then:
+        installs == 1
+        new File(firstHome, '@asciidoctor/cli/package.json').exists()
+        new File(firstHome, 'yargs/index.js').exists()
+        new File(secondHome, '@asciidoctor/cli/package.json').exists()
+        new File(secondHome, 'yargs/index.js').exists()
+    }
+
+    void 'Links to the entry of another version are replaced'() {
+        given:
+        final store = new NpmPackageStore(new File(tmpDir, 'store'))
+        final oldEntry = store.entryFor(null, 'decktape', '2.0.0')
+        final newEntry = store.entryFor(null, 'decktape', '3.0.0')
+        final home = new File(tmpDir, 'home/node_modules')
+        final Closure<Action<File>> installer = { String version ->
+            { File prefix ->
+                new File(prefix, 'node_modules/decktape').mkdirs()
+                new File(prefix, 'node_modules/decktape/package.json').text = version
+            } as Action<File>
+        }
+        new File(home, 'local').mkdirs()
+        new File(home, 'local/package.json').text = 'local'
+
+        when:
+        store.populate(oldEntry, installer.call('2.0.0'))
+        store.linkInto(oldEntry, home, new File(home, 'decktape'))
+
+        then:
+        store.isLinkedElsewhere(newEntry, home, new File(home, 'decktape'))
+        !store.isLinkedElsewhere(oldEntry, home, new File(home, 'decktape'))
+
+        when:
+        store.populate(newEntry, installer.call('3.0.0'))
+        store.linkInto(newEntry, home, new File(home, 'decktape'))
+
+        then:
+        new File(home, 'decktape/package.json').text == '3.0.0'
+        !store.isLinkedElsewhere(newEntry, home, new File(home, 'decktape'))
+        !store.isLinkedElsewhere(newEntry, home, new File(home, 'local'))
+        new File(home, 'local/package.json').text == 'local'
+    }
+
+    void 'A module hoisted from another package never replaces a requested package'() {
+        given:
+        final store = new NpmPackageStore(new File(tmpDir, 'store'))
+        final requestedEntry = store.entryFor(null, 'yargs', '17.0.0')
+        final otherEntry = store.entryFor('asciidoctor', 'cli', '3.5.0')
+        final home = new File(tmpDir, 'home/node_modules')
+
+        when:
+        store.populate(requestedEntry, { File prefix ->
+            new File(prefix, 'node_modules/yargs').mkdirs()
+            new File(prefix, 'node_modules/yargs/package.json').text = '17.0.0'
+        } as Action<File>)
+        store.populate(otherEntry, { File prefix ->
+            new File(prefix, 'node_modules/@asciidoctor/cli').mkdirs()
+            new File(prefix, 'node_modules/yargs').mkdirs()
+            new File(prefix, 'node_modules/yargs/package.json').text = '16.0.0'
+        } as Action<File>)
+        store.linkInto(requestedEntry, home, new File(home, 'yargs'))
+        store.linkInto(otherEntry, home, new File(home, '@asciidoctor/cli'))
+
+        then:
+        new File(home, 'yargs/package.json').text == '17.0.0'
+        new File(home, '@asciidoctor/cli').exists()
+    }
+
+    void 'Only exact versions are kept in the store'() {
+        expect:
+        NpmPackageStore.isPinned(version) == pinned
+
+        where:
+        version         | pinned
+        '3.5.0'         | true
+        '1.0.0-beta.1'  | true
+        'latest'        | false
+        '^3.5.0'        | false
+        '3.x'           | false
+        null            | false
+    }
+
+    void 'An incomplete entry is installed again'() {
+        given:
+        final store = new NpmPackageStore(new File(tmpDir, 'store'))
+        final entry = store.entryFor(null, 'decktape', '3.0.0')
+        entry.mkdirs()
+        new File(entry, 'leftover').text = ''
+        int installs = 0
+
+        when:
+        store.populate(entry, { File prefix -> installs++ } as Action<File>)
+
+        then:
+        installs == 1
+        !new File(entry, 'leftover').exists()
+    }
+}
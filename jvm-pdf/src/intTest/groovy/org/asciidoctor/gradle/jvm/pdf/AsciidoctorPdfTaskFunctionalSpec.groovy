@@ -141,6 +141,36 @@ asciidoctorPdf {
         }
     }
 
+    void 'Custom theme for PDF with the configuration cache'() {
+        given:
+        getBuildFile("""
+        pdfThemes {
+            local 'basic', {
+                themeDir = 'src/docs/asciidoc/pdf-theme'
+            }
+        }
+
+        asciidoctorPdf {
+            theme 'basic'
+            sourceDir 'src/docs/asciidoc'
+            fontsDirs 'src/docs/asciidoc/pdf-theme'
+        }
+        """)
+        final List<String> args = [DEFAULT_TASK, '--configuration-cache', '-s']
+
+        when:
+        getGradleRunner(args).build()
+        new File(projectDir, DEFAULT_OUTPUT_FILE).delete()
+        BuildResult result = getGradleRunner(args).build()
+
+        then:
+        verifyAll {
+            result.output.contains('Reusing configuration cache') ||
+                    result.output.contains('Configuration cache entry reused')
+            new File(projectDir, DEFAULT_OUTPUT_FILE).exists()
+        }
+    }
+
     @Issue('https://github.com/asciidoctor/asciidoctor-gradle-plugin/issues/561')
     void 'multiple directories for pdf fonts can be specified'() {
         given:
@@ -16,16 +16,19 @@
 package org.asciidoctor.gradle.jvm.pdf
 
 import groovy.transform.CompileStatic
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
 import org.asciidoctor.gradle.jvm.AbstractAsciidoctorTask
 import org.gradle.api.Project
 import org.gradle.api.UnknownDomainObjectException
 import org.gradle.api.file.FileCollection
+import org.gradle.api.provider.Provider
 @java.lang.SuppressWarnings('NoWildcardImports')
 import org.gradle.api.tasks.*
 import org.gradle.api.tasks.util.PatternSet
 import org.gradle.workers.WorkerExecutor
 
 import javax.inject.Inject
+import java.util.concurrent.Callable
 
 import static org.ysb33r.grolifant.api.core.TaskInputFileOptions.IGNORE_EMPTY_DIRECTORIES
 import static org.ysb33r.grolifant.api.core.TaskInputFileOptions.OPTIONAL
@@ -42,8 +45,19 @@ import static org.ysb33r.grolifant.api.core.TaskInputFileOptions.OPTIONAL
 @CompileStatic
 class AsciidoctorPdfTask extends AbstractAsciidoctorTask {
 
+    /** Default JPEG quality for optimised images.
+     *
+     * @since 4.0
+     */
+    public static final float DEFAULT_IMAGE_QUALITY = 0.85f
+
     private String theme
+    private int imageDpi = 0
+    private float imageQuality = DEFAULT_IMAGE_QUALITY
+    private Object imageCacheDir
+    private boolean cacheThemesAndFonts = true
     private final List<Object> pdfFontDirs = []
+    private final Provider<AsciidoctorPdfThemesExtension.PdfThemeDescriptor> themeDescriptorProvider
 
     @Inject
     AsciidoctorPdfTask(WorkerExecutor we) {
@@ -51,12 +65,18 @@ class AsciidoctorPdfTask extends AbstractAsciidoctorTask {
 
         outputOptions.backends = ['pdf']
         copyNoResources()
+        this.imageCacheDir = new File(project.gradle.gradleUserHomeDir, 'caches/asciidoctor-gradle/pdf-images')
         projectOperations.tasks.inputFiles(
                 inputs,
                 { -> pdfFontDirs },
                 PathSensitivity.RELATIVE,
                 IGNORE_EMPTY_DIRECTORIES, OPTIONAL
         )
+
+        final AsciidoctorPdfThemesExtension pdfThemes = project.extensions.findByType(AsciidoctorPdfThemesExtension)
+        this.themeDescriptorProvider = projectOperations.provider({ ->
+            owner.theme ? findThemeDescriptor(pdfThemes, owner.theme) : null
+        } as Callable<AsciidoctorPdfThemesExtension.PdfThemeDescriptor>)
     }
 
     /** Returns the directories or single directory for the fonts
@@ -119,6 +139,92 @@ class AsciidoctorPdfTask extends AbstractAsciidoctorTask {
         themeDescriptor?.themeName
     }
 
+    /** The resolution to which raster images are reduced before they are embedded.
+     *
+     * @return Resolution in dots per inch. {@code 0} means that images are embedded as they are.
+     *
+     * @since 4.0
+     */
+    @Input
+    int getImageDpi() {
+        this.imageDpi
+    }
+
+    /** Reduces PNG and JPEG block images to a resolution that suits the page size before they are embedded.
+     *
+     * Optimised copies are cached by the hash of the original image. This requires the {@code UNSAFE} safe mode.
+     *
+     * @param dpi Resolution in dots per inch. Use {@code 0} to embed images as they are.
+     *
+     * @since 4.0
+     */
+    void setImageDpi(int dpi) {
+        this.imageDpi = dpi
+    }
+
+    /** The compression quality of optimised JPEG images.
+     *
+     * @return Quality between {@code 0} and {@code 1}.
+     *
+     * @since 4.0
+     */
+    @Input
+    float getImageQuality() {
+        this.imageQuality
+    }
+
+    /** Sets the compression quality of optimised JPEG images.
+     *
+     * @param quality Quality between {@code 0} and {@code 1}.
+     *
+     * @since 4.0
+     */
+    void setImageQuality(float quality) {
+        this.imageQuality = quality
+    }
+
+    /** The directory in which optimised images are cached.
+     *
+     * @return Cache directory. By default, this is a directory inside the Gradle user home.
+     *
+     * @since 4.0
+     */
+    @Internal
+    File getImageCacheDir() {
+        projectOperations.fsOperations.file(this.imageCacheDir)
+    }
+
+    /** Sets the directory in which optimised images are cached.
+     *
+     * @param dir Anything convertible to a file.
+     *
+     * @since 4.0
+     */
+    void setImageCacheDir(Object dir) {
+        this.imageCacheDir = dir
+    }
+
+    /** Whether parsed themes and loaded fonts are shared between the documents that a runtime converts.
+     *
+     * @return {@code true} if themes and fonts are cached. The default is {@code true}.
+     *
+     * @since 4.0
+     */
+    @Internal
+    boolean getCacheThemesAndFonts() {
+        this.cacheThemesAndFonts
+    }
+
+    /** Whether parsed themes and loaded fonts are shared between the documents that a runtime converts.
+     *
+     * @param flag {@code false} to load the theme and fonts for every document.
+     *
+     * @since 4.0
+     */
+    void setCacheThemesAndFonts(boolean flag) {
+        this.cacheThemesAndFonts = flag
+    }
+
 //    /** Selects a final process mode of PDF processing.
 //     *
 //     * If the system is running on Windows with a Gradle version which still has classpath leakage problems
@@ -173,13 +279,52 @@ class AsciidoctorPdfTask extends AbstractAsciidoctorTask {
         attrs
     }
 
-//    @CompileDynamic
+    /** Adds the image optimisation and theme caching settings to the executor configuration.
+     *
+     * @param backendName Name of backend that will be run.
+     * @param workingSourceDir Source directory that will used for work.
+     * @param sourceFiles The top-level source files.
+     * @param lang Language for which to create the executor configuration.
+     * @return Executor configuration
+     *
+     * @since 4.0
+     */
+    @Override
+    @SuppressWarnings('UnnecessaryGetter')
+    protected ExecutorConfiguration getExecutorConfigurationFor(
+            final String backendName,
+            final File workingSourceDir,
+            final Set<File> sourceFiles,
+            java.util.Optional<String> lang
+    ) {
+        final ExecutorConfiguration ec = super.getExecutorConfigurationFor(
+                backendName,
+                workingSourceDir,
+                sourceFiles,
+                lang
+        )
+        if (imageDpi > 0) {
+            ec.pdfImageCacheDir = getImageCacheDir()
+            ec.pdfImageDpi = imageDpi
+            ec.pdfImageQuality = imageQuality
+        }
+        ec.pdfResourceCache = cacheThemesAndFonts
+        ec
+    }
+
     private AsciidoctorPdfThemesExtension.PdfThemeDescriptor getThemeDescriptor() {
-        if (this.theme) {
-            AsciidoctorPdfThemesExtension pdfThemes = project.extensions.getByType(AsciidoctorPdfThemesExtension)
-            (AsciidoctorPdfThemesExtension.PdfThemeDescriptor) (pdfThemes.getByName(this.theme))
-        } else {
-            null
+        themeDescriptorProvider.orNull
+    }
+
+    private static AsciidoctorPdfThemesExtension.PdfThemeDescriptor findThemeDescriptor(
+            AsciidoctorPdfThemesExtension pdfThemes,
+            String themeName
+    ) {
+        if (pdfThemes == null) {
+            throw new UnknownDomainObjectException(
+                    "Theme '${themeName}' was specified, but no ${AsciidoctorPdfThemesExtension.simpleName} is available"
+            )
         }
+        (AsciidoctorPdfThemesExtension.PdfThemeDescriptor) (pdfThemes.getByName(themeName))
     }
 }
@@ -44,6 +44,7 @@ class AsciidoctorPdfThemeExtensionSpec extends Specification {
                 AsciidoctorPdfThemesExtension,
                 project
         )
+        pdfThemes.archiveCacheDirectory = archiveCacheDir
     }
 
     void 'Unregistered theme throws exception'() {
@@ -83,7 +84,7 @@ class AsciidoctorPdfThemeExtensionSpec extends Specification {
 
         then:
         theme.themeName == 'basic'
-        theme.themeDir == new File(determineUnpackedDir('github-cache', 'master'), 'bar-master/some/path')
+        isCachedArchivePath(theme.themeDir, 'bar-master/some/path')
     }
 
     void 'Configure GitLab theme'() {
@@ -101,12 +102,37 @@ class AsciidoctorPdfThemeExtensionSpec extends Specification {
 
         then:
         theme.themeName == 'basic'
-        theme.themeDir == new File(determineUnpackedDir('gitlab-cache', 'bar-master'), 'bar-master/some/path')
+        isCachedArchivePath(theme.themeDir, 'bar-master/some/path')
     }
 
-    File determineUnpackedDir(String cacheSubDir, String pattern) {
-        File baseDir = project.file("${project.buildDir}/cloud-archives/${cacheSubDir}/foo/bar/${pattern}")
-        final x = projectOperations.fsOperations.listDirs(baseDir)[0]
-        x
+    void 'Cloud archives are fetched into the archive cache'() {
+        given:
+        pdfThemes.github 'basic', {
+            baseUri = new File(TEST_THEMES_DIR, 'github').toURI()
+            organisation = 'foo'
+            repository = 'bar'
+            branch = 'master'
+        }
+        pdfThemes.gitlab 'other', {
+            baseUri = new File(TEST_THEMES_DIR, 'gitlab').toURI()
+            organisation = 'foo'
+            repository = 'bar'
+            branch = 'master'
+        }
+
+        when:
+        pdfThemes.getByName('basic')
+
+        then: 'all declared archives are prefetched'
+        archiveCacheDir.listFiles().findAll { it.directory }.size() == 2
+    }
+
+    File getArchiveCacheDir() {
+        project.file("${project.buildDir}/archive-cache")
+    }
+
+    boolean isCachedArchivePath(File themeDir, String pathInArchive) {
+        themeDir.toPath().startsWith(archiveCacheDir.toPath()) &&
+                themeDir.toPath().endsWith("unpacked/${pathInArchive}")
     }
 }
\ No newline at end of file
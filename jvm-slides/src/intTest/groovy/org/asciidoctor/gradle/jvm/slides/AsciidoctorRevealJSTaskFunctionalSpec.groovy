@@ -108,6 +108,30 @@ class AsciidoctorRevealJSTaskFunctionalSpec extends FunctionalSpecification {
         }
     }
 
+    void 'Run a RevealJS generator with the configuration cache'() {
+        given:
+        getBuildFile('''
+        asciidoctorRevealJs {
+            toggleBuiltinPlugin 'search', true
+        }
+        ''')
+        final List<String> args = ['asciidoctorRevealJs', '--configuration-cache', '-s']
+
+        when:
+        getGradleRunner(args).build()
+        new File(projectDir, 'build/docs/asciidocRevealJs').deleteDir()
+        BuildResult result = getGradleRunner(args).build()
+
+        then:
+        verifyAll {
+            result.output.contains('Reusing configuration cache') ||
+                    result.output.contains('Configuration cache entry reused')
+            new File(projectDir, 'build/docs/asciidocRevealJs/revealjs.html').exists()
+            new File(projectDir, "${DEFAULT_REVEALJS_PATH}/dist").exists()
+            new File(projectDir, "${DEFAULT_REVEALJS_PATH}/plugin").exists()
+        }
+    }
+
     BuildResult build() {
         getGradleRunner(['asciidoctorRevealJs', '-s']).build()
     }
@@ -22,8 +22,10 @@ import org.asciidoctor.gradle.base.slides.Profile
 import org.asciidoctor.gradle.base.slides.SlidesToExportAware
 import org.asciidoctor.gradle.jvm.AbstractAsciidoctorTask
 import org.asciidoctor.gradle.jvm.gems.AsciidoctorGemPrepare
+import org.asciidoctor.gradle.jvm.slides.internal.RevealJSTemplateStore
 import org.gradle.api.Action
 import org.gradle.api.file.CopySpec
+import org.gradle.api.provider.Provider
 
 @java.lang.SuppressWarnings('NoWildcardImports')
 import org.gradle.api.tasks.*
@@ -31,6 +33,7 @@ import org.gradle.workers.WorkerExecutor
 import org.ysb33r.grolifant.api.core.Version
 
 import javax.inject.Inject
+import java.util.concurrent.Callable
 
 import static org.asciidoctor.gradle.jvm.gems.AsciidoctorGemSupportPlugin.GEMPREP_TASK
 import static org.asciidoctor.gradle.jvm.gems.AsciidoctorGemSupportPlugin.JAR_TASK
@@ -52,6 +55,11 @@ class AsciidoctorJRevealJSTask extends AbstractAsciidoctorTask implements Slides
     private String theme = 'white'
     private final Map<String, Boolean> builtinPlugins = [:]
     private final List<Object> requiredPlugins = []
+    private final Provider<File> templateSourceDirProvider
+    private final Provider<String> revealjsVersionProvider
+    private final Provider<Map<String, File>> pluginLocationsProvider
+    private final Provider<File> templateStoreProvider
+    private boolean linkTemplate = false
 
     /** Injection constructor.
      *
@@ -61,20 +69,32 @@ class AsciidoctorJRevealJSTask extends AbstractAsciidoctorTask implements Slides
     @SuppressWarnings('ClosureAsLastMethodParameter')
     AsciidoctorJRevealJSTask(WorkerExecutor we) {
         super(we)
-        this.revealjsOptions = new RevealJSOptions(project)
+        this.revealjsOptions = new RevealJSOptions(projectOperations)
         outputOptions.backends = [BACKEND_NAME]
         copyAllResources()
-        AsciidoctorGemPrepare gemPrepare = project.tasks.named(GEMPREP_TASK, AsciidoctorGemPrepare).get()
+        dependsOn(project.tasks.named(GEMPREP_TASK, AsciidoctorGemPrepare))
 
         asciidoctorj.with {
             requires(REVEALJS_GEM)
-            dependsOn(gemPrepare)
             withGemJar(JAR_TASK)
         }
 
         inputs.file( { RevealJSOptions opt -> opt.highlightJsThemeIfFile }.curry(this.revealjsOptions) ).optional()
         inputs.file( { RevealJSOptions opt -> opt.parallaxBackgroundImageIfFile }.
                 curry(this.revealjsOptions) ).optional()
+
+        final RevealJSExtension revealjs = project.extensions.getByType(RevealJSExtension)
+        final RevealJSPluginExtension revealjsPlugins = project.extensions.getByType(RevealJSPluginExtension)
+        this.templateSourceDirProvider = projectOperations.provider(
+                { -> revealjs.templateProvider.get() } as Callable<File>
+        )
+        this.revealjsVersionProvider = projectOperations.provider({ -> revealjs.version } as Callable<String>)
+        this.pluginLocationsProvider = projectOperations.provider(
+                { -> owner.resolvePluginLocations(revealjsPlugins) } as Callable<Map<String, File>>
+        )
+        this.templateStoreProvider = projectOperations.provider(
+                { -> revealjs.templateStoreDirectory } as Callable<File>
+        )
     }
 
     /** Options for Reveal.JS slides.
@@ -106,7 +126,7 @@ class AsciidoctorJRevealJSTask extends AbstractAsciidoctorTask implements Slides
     @InputDirectory
     @PathSensitive(RELATIVE)
     File getTemplateSourceDir() {
-        revealjsExtension.templateProvider.get()
+        templateSourceDirProvider.get()
     }
 
     /** Sets the location of the final template directory relative to the output directory.
@@ -137,7 +157,33 @@ class AsciidoctorJRevealJSTask extends AbstractAsciidoctorTask implements Slides
      */
     @OutputDirectory
     File getTemplateDir() {
-        project.file("${getOutputDirFor(BACKEND_NAME)}/${getTemplateRelativeDir()}")
+        new File(getOutputDirFor(BACKEND_NAME), getTemplateRelativeDir())
+    }
+
+    /** Whether the template and plugins are linked from a shared store instead of being copied.
+     *
+     * @return {@code true} if the template is linked. The default is {@code false}.
+     *
+     * @since 4.0
+     */
+    @Internal
+    boolean isLinkTemplate() {
+        this.linkTemplate
+    }
+
+    /** Link the template and plugins from a shared store instead of copying them.
+     *
+     * The template and its plugins are materialised once per version into
+     * {@link RevealJSExtension#getTemplateStoreDirectory}. Every file in {@link #getTemplateDir} is then a
+     * link into the store and only links which are missing or outdated are replaced. Other files in the
+     * template directory are left alone, unless an earlier run of the task linked them.
+     *
+     * @param link {@code true} to link the template.
+     *
+     * @since 4.0
+     */
+    void setLinkTemplate(boolean link) {
+        this.linkTemplate = link
     }
 
     /** Get the reveal.js theme.
@@ -223,6 +269,7 @@ class AsciidoctorJRevealJSTask extends AbstractAsciidoctorTask implements Slides
     @Override
     void exec() {
         checkRevealJsVersion()
+        prepareOutputStaging()
         processTemplateResources()
         super.exec()
     }
@@ -279,15 +326,33 @@ class AsciidoctorJRevealJSTask extends AbstractAsciidoctorTask implements Slides
 
     /** Processes the RevealJS template.
      *
-     * Copies from {@link #getTemplateSourceDir} to {@link #getTemplateDir}.
+     * Copies or links from {@link #getTemplateSourceDir} to {@link #getTemplateDir}.
      *
      */
     protected void processTemplateResources() {
         final File fromSource = templateSourceDir
-        final File target = templateDir
-        final Set<ResolvedRevealJSPlugin> fromPlugins = resolvedPlugins
+        final File target = getConversionDirFor(templateDir)
+        final Map<String, File> fromPlugins = pluginLocationsProvider.get()
 
-        project.copy(new Action<CopySpec>() {
+        if (linkTemplate) {
+            linkTemplateResources(fromSource, target, fromPlugins)
+        } else {
+            copyTemplateResources(fromSource, target, fromPlugins)
+        }
+    }
+
+    private void linkTemplateResources(File fromSource, File target, Map<String, File> fromPlugins) {
+        final File entry = new RevealJSTemplateStore(templateStoreProvider.get()).materialise(fromSource, fromPlugins)
+        final int changed = RevealJSTemplateStore.syncInto(
+                entry,
+                target,
+                new File(temporaryDir, 'revealjs-template.files')
+        )
+        logger.info("Linked reveal.js template from ${entry} into ${target}: ${changed} file(s) updated")
+    }
+
+    private void copyTemplateResources(File fromSource, File target, Map<String, File> fromPlugins) {
+        projectOperations.copy(new Action<CopySpec>() {
             @Override
             void execute(CopySpec copySpec) {
                 copySpec.into target
@@ -296,34 +361,24 @@ class AsciidoctorJRevealJSTask extends AbstractAsciidoctorTask implements Slides
                     cs.include 'js/**', 'css/**', 'dist/**', 'lib/**', 'plugin/**'
                 }
 
-                fromPlugins.each { ResolvedRevealJSPlugin plugin ->
-                    copySpec.from plugin.location, { CopySpec cs ->
-                        cs.into "plugin/${plugin.name}"
+                fromPlugins.each { String pluginName, File location ->
+                    copySpec.from location, { CopySpec cs ->
+                        cs.into "plugin/${pluginName}"
                     }
                 }
             }
         })
     }
 
-    @Internal
-    protected RevealJSExtension getRevealjsExtension() {
-        project.extensions.getByType(RevealJSExtension)
-    }
-
-    @Internal
-    protected RevealJSPluginExtension getRevealjsPluginExtension() {
-        project.extensions.getByType(RevealJSPluginExtension)
-    }
-
     private void checkRevealJsVersion() {
         if (!pluginSupportAvailable) {
-            project.logger.warn("You are using Reveal.Js converter version ${revealjsExtension.version}, " +
+            logger.warn("You are using Reveal.Js converter version ${revealjsVersionProvider.get()}, " +
                 'which does not support plugins. Any plugin settings will be ignored.')
         }
     }
 
     private boolean isPluginSupportAvailable() {
-        Version.of(revealjsExtension.version) >= FIRST_VERSION_WITH_PLUGIN_SUPPORT
+        Version.of(revealjsVersionProvider.get()) >= FIRST_VERSION_WITH_PLUGIN_SUPPORT
     }
 
     private Set<String> getPluginBundles() {
@@ -332,14 +387,14 @@ class AsciidoctorJRevealJSTask extends AbstractAsciidoctorTask implements Slides
         }
     }
 
-    private Set<ResolvedRevealJSPlugin> getResolvedPlugins() {
+    private Map<String, File> resolvePluginLocations(RevealJSPluginExtension pluginExtension) {
         if (pluginSupportAvailable) {
-            final RevealJSPluginExtension pluginExtension = revealjsPluginExtension
-            Transform.toSet(pluginBundles) {
-                pluginExtension.getByName(it)
-            }
+            pluginBundles.collectEntries { String bundle ->
+                final ResolvedRevealJSPlugin plugin = pluginExtension.getByName(bundle)
+                [plugin.name, plugin.location]
+            } as Map<String, File>
         } else {
-            [].toSet() as Set<ResolvedRevealJSPlugin>
+            [:]
         }
     }
 }
@@ -17,12 +17,13 @@ package org.asciidoctor.gradle.jvm.slides
 
 import groovy.transform.CompileStatic
 import org.asciidoctor.gradle.base.ModuleVersionLoader
+import org.asciidoctor.gradle.base.internal.CloudArchiveCache
+import org.asciidoctor.gradle.base.internal.CloudArchiveRefreshes
 import org.gradle.api.Action
 import org.gradle.api.Project
 import org.gradle.api.provider.Provider
 import org.ysb33r.grolifant.api.core.ProjectOperations
 import org.ysb33r.grolifant.api.core.Version
-import org.ysb33r.grolifant.api.core.git.GitRepoArchiveDownloader
 import org.ysb33r.grolifant.api.core.git.GitHubArchive
 
 import static org.asciidoctor.gradle.base.AsciidoctorUtils.executeDelegatingClosure
@@ -39,6 +40,7 @@ class RevealJSExtension {
 
     private String version
     private Provider<File> resolveRevealJs
+    private Object templateStoreDirectory
     private final Project project
 
     RevealJSExtension(Project project) {
@@ -46,6 +48,10 @@ class RevealJSExtension {
 
         Map<String,String> versionMap = ModuleVersionLoader.load('revealjs-extension')
         this.version = versionMap['revealjs.gem']
+        this.templateStoreDirectory = new File(
+                project.gradle.gradleUserHomeDir,
+                'caches/asciidoctor-gradle/revealjs-templates'
+        )
 
         templateGitHub {
             organisation = 'hakimel'
@@ -100,14 +106,41 @@ class RevealJSExtension {
         this.resolveRevealJs
     }
 
+    /** The directory of the store which is shared by all tasks and builds that link the template.
+     *
+     * The template and its plugins are materialised once per version into the store.
+     *
+     * @return Store directory. Defaults to a directory inside the Gradle user home.
+     *
+     * @since 4.0
+     */
+    File getTemplateStoreDirectory() {
+        project.file(this.templateStoreDirectory)
+    }
+
+    /** Sets the directory of the template store.
+     *
+     * @param dir Anything that can be converted to a file.
+     *
+     * @since 4.0
+     */
+    void setTemplateStoreDirectory(Object dir) {
+        this.templateStoreDirectory = dir
+    }
+
     private void resolveViaGitHub(final GitHubArchive archive) {
-        final GitRepoArchiveDownloader downloader = new GitRepoArchiveDownloader(archive,
-            ProjectOperations.create(project))
+        final RevealJSPluginExtension plugins = project.extensions.findByType(RevealJSPluginExtension)
+        final File defaultCacheDir = new File(
+                project.gradle.gradleUserHomeDir,
+                'caches/asciidoctor-gradle/cloud-archives'
+        )
+        final boolean offline = project.gradle.startParameter.offline
+        final CloudArchiveRefreshes refreshes = project.gradle.startParameter.refreshDependencies ?
+                CloudArchiveRefreshes.forBuild(project.gradle) : null
 
         resolveRevealJs = { ->
-            downloader.downloadRoot = project.buildDir
-            final File root = downloader.archiveRoot
-            root
+            final File cacheDir = plugins ? plugins.archiveCacheDirectory : defaultCacheDir
+            new CloudArchiveCache(cacheDir, offline, refreshes).archiveRoot('reveal.js', archive.archiveUri, null)
         } as Provider<File>
     }
 }
@@ -71,7 +71,7 @@ class RevealJSOptions {
     private Object customTheme
     private Object customThemeRelativePath = 'style'
 
-    final private Project project
+    final private ProjectOperations projectOperations
     final private StringTools stringTools
 
     @SuppressWarnings('ClassName')
@@ -141,8 +141,18 @@ class RevealJSOptions {
     }
 
     RevealJSOptions(Project project) {
-        this.project = project
-        this.stringTools = ProjectOperations.create(project).stringTools
+        this(ProjectOperations.create(project))
+    }
+
+    /** Creates options without keeping a reference to the project.
+     *
+     * @param po Project operations for the project context.
+     *
+     * @since 4.0
+     */
+    RevealJSOptions(ProjectOperations po) {
+        this.projectOperations = po
+        this.stringTools = po.stringTools
     }
 
     /** Display controls in the bottom right corner.
@@ -600,7 +610,7 @@ class RevealJSOptions {
      */
     private void copyActionFor(CopySpec copySpec, File src, String relativePath) {
         if (src != null) {
-            CopySpec child = project.copySpec(new Action<CopySpec>() {
+            CopySpec child = projectOperations.copySpec(new Action<CopySpec>() {
                 @Override
                 void execute(CopySpec cs) {
                     cs.from src.absoluteFile
@@ -652,7 +662,9 @@ class RevealJSOptions {
                 }
                 break
             case String:
-                (((String) candidate) =~ /^(?i:https?):.+/) ? ((String) candidate).toURI() : project.file(candidate)
+                (((String) candidate) =~ /^(?i:https?):.+/) ?
+                        ((String) candidate).toURI() :
+                        projectOperations.fsOperations.file(candidate)
                 break
             default:
                 asFileOrWebUri(stringTools.stringize(candidate))
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.jvm.slides.internal
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.asciidoctor.gradle.base.internal.EntryLocks
+
+import java.nio.file.Files
+import java.nio.file.LinkOption
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.BasicFileAttributes
+import java.security.MessageDigest
+import java.util.stream.Collectors
+import java.util.stream.Stream
+
+/** A store of materialised reveal.js templates which is shared between tasks, projects and builds.
+ *
+ * <p>
+ *   A template is materialised together with its plugins into an entry, which is keyed by the layout and
+ *   the content of the template and plugin files. Every version of a template therefore ends up in its own
+ *   entry and is only materialised once, no matter when or where its files were unpacked.
+ * </p>
+ * <p>
+ *   Output directories are populated by linking every file of an entry. Only links that are missing or
+ *   point elsewhere are replaced. If symbolic links cannot be created, files are copied instead. The files
+ *   that were synchronised are recorded in a manifest, so that a later synchronisation only removes files
+ *   which an earlier one created.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+class RevealJSTemplateStore {
+
+    /** Top-level folders of a template that are materialised.
+     */
+    public static final List<String> TEMPLATE_FOLDERS = ['js', 'css', 'dist', 'lib', 'plugin'].asImmutable()
+
+    private static final String COMPLETE_MARKER = '.complete'
+    private static final int HASH_LENGTH = 16
+    private static final int BUFFER_SIZE = 65536
+
+    private final File storeRoot
+
+    /** Creates a store.
+     *
+     * @param storeRoot Directory in which all entries are kept.
+     */
+    RevealJSTemplateStore(File storeRoot) {
+        this.storeRoot = storeRoot
+    }
+
+    /** Ensures that a template and its plugins are available in the store.
+     *
+     * @param template Root directory of the reveal.js template.
+     * @param plugins Plugin locations keyed by plugin name.
+     * @return Entry directory with the same layout as the template directory in an output directory.
+     */
+    File materialise(File template, Map<String, File> plugins) {
+        final Map<String, File> sources = sourceLayout(template, plugins)
+        final File entry = new File(storeRoot, "${template.name}-${key(sources)}")
+        EntryLocks.withLock(entry, 'reveal.js template store entry') { ->
+            if (!new File(entry, COMPLETE_MARKER).exists()) {
+                if (entry.exists()) {
+                    entry.deleteDir()
+                }
+                log.info("Materialising reveal.js template into store entry ${entry}")
+                sources.each { String path, File source ->
+                    final File target = new File(entry, path)
+                    target.parentFile.mkdirs()
+                    Files.copy(source.toPath(), target.toPath(), StandardCopyOption.COPY_ATTRIBUTES)
+                }
+                new File(entry, COMPLETE_MARKER).text = ''
+            }
+        }
+        entry
+    }
+
+    /** Synchronises a directory with a store entry.
+     *
+     * <p>
+     *   Files in the directory which are not part of the entry are only removed if an earlier synchronisation
+     *   recorded them in the manifest.
+     * </p>
+     *
+     * @param entry Entry directory as returned by {@link #materialise}.
+     * @param target Directory which should end up with the content of the entry.
+     * @param manifest File in which the synchronised files are recorded. It should be kept outside of
+     *   {@code target}.
+     * @return Number of files that were linked, copied or removed.
+     */
+    static int syncInto(File entry, File target, File manifest) {
+        final Set<String> expected = relativeFiles(entry) - [COMPLETE_MARKER]
+        final Set<String> previous = manifest.exists() ?
+                (manifest.readLines('UTF-8').findAll { String it -> it } as Set<String>) : ([] as Set<String>)
+        int changed = 0
+
+        // Anything this synchronisation might create is recorded before it is created.
+        writeManifest(manifest, previous + expected)
+
+        for (String path : expected) {
+            final Path source = new File(entry, path).toPath()
+            final Path destination = new File(target, path).toPath()
+            if (!isCurrent(source, destination)) {
+                Files.deleteIfExists(destination)
+                Files.createDirectories(destination.parent)
+                link(source, destination)
+                changed++
+            }
+        }
+
+        for (String path : (previous - expected)) {
+            if (Files.deleteIfExists(new File(target, path).toPath())) {
+                changed++
+            }
+        }
+        writeManifest(manifest, expected)
+        changed
+    }
+
+    private static void writeManifest(File manifest, Set<String> paths) {
+        manifest.parentFile.mkdirs()
+        manifest.setText(paths.join('\n'), 'UTF-8')
+    }
+
+    private static Map<String, File> sourceLayout(File template, Map<String, File> plugins) {
+        final Map<String, File> layout = new TreeMap<String, File>()
+        for (String folder : TEMPLATE_FOLDERS) {
+            final File dir = new File(template, folder)
+            if (dir.directory) {
+                relativeFiles(dir).each { String path -> layout["${folder}/${path}".toString()] = new File(dir, path) }
+            }
+        }
+        plugins.each { String name, File location ->
+            if (location.directory) {
+                relativeFiles(location).each { String path ->
+                    layout["plugin/${name}/${path}".toString()] = new File(location, path)
+                }
+            } else {
+                layout["plugin/${name}/${location.name}".toString()] = location
+            }
+        }
+        layout
+    }
+
+    private static String key(Map<String, File> sources) {
+        final MessageDigest md = MessageDigest.getInstance('SHA-256')
+        final byte[] buffer = new byte[BUFFER_SIZE]
+        sources.each { String path, File source ->
+            md.update("${path}:${source.length()}\n".toString().getBytes('UTF-8'))
+            source.withInputStream { InputStream input ->
+                int read
+                while ((read = input.read(buffer)) > 0) {
+                    md.update(buffer, 0, read)
+                }
+            }
+        }
+        md.digest().encodeHex().toString().substring(0, HASH_LENGTH)
+    }
+
+    private static boolean isCurrent(Path source, Path destination) {
+        if (Files.isSymbolicLink(destination)) {
+            Files.readSymbolicLink(destination) == source
+        } else if (Files.isRegularFile(destination)) {
+            final BasicFileAttributes src = Files.readAttributes(source, BasicFileAttributes)
+            final BasicFileAttributes dest = Files.readAttributes(destination, BasicFileAttributes)
+            src.size() == dest.size() && src.lastModifiedTime() == dest.lastModifiedTime()
+        } else {
+            false
+        }
+    }
+
+    private static void link(Path source, Path destination) {
+        try {
+            Files.createSymbolicLink(destination, source)
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("Cannot link ${destination} to the template store. Copying instead.", e)
+            Files.copy(source, destination, StandardCopyOption.COPY_ATTRIBUTES)
+        }
+    }
+
+    private static Set<String> relativeFiles(File dir) {
+        final Path root = dir.toPath()
+        Stream<Path> walker = Files.walk(root)
+        try {
+            walker.filter { Path p -> Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS) || Files.isSymbolicLink(p) }
+                    .map { Path p -> root.relativize(p).toString().replace(File.separatorChar, '/' as char) }
+                    .collect(Collectors.toCollection { -> new TreeSet<String>() }) as Set<String>
+        } finally {
+            walker.close()
+        }
+    }
+}
@@ -57,4 +57,21 @@ class AsciidoctorRevealJSTaskSpec extends Specification {
             revealjsTask.revealjsOptions.asAttributeMap.revealjs_slideNumber == 'c'
         }
     }
+
+    void 'Template is copied unless linking is enabled'() {
+        given:
+        project.apply plugin: 'org.asciidoctor.jvm.revealjs'
+        AsciidoctorJRevealJSTask revealjsTask = project.tasks.register('foo', AsciidoctorJRevealJSTask).get()
+
+        expect:
+        !revealjsTask.linkTemplate
+
+        when:
+        revealjsTask.linkTemplate = true
+        project.extensions.getByType(RevealJSExtension).templateStoreDirectory = 'build/store'
+
+        then:
+        revealjsTask.linkTemplate
+        project.extensions.getByType(RevealJSExtension).templateStoreDirectory == project.file('build/store')
+    }
 }
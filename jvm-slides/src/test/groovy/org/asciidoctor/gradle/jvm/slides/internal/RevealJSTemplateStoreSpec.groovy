@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.jvm.slides.internal
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class RevealJSTemplateStoreSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    File template
+    File plugin
+    RevealJSTemplateStore store
+
+    void setup() {
+        template = new File(tmpDir, 'reveal.js-4.1.2')
+        plugin = new File(tmpDir, 'rajgoel-chart')
+        new File(template, 'dist/theme').mkdirs()
+        new File(template, 'test').mkdirs()
+        new File(template, 'dist/reveal.js').text = 'reveal'
+        new File(template, 'dist/theme/white.css').text = 'white'
+        new File(template, 'test/index.html').text = 'not part of the template'
+        plugin.mkdirs()
+        new File(plugin, 'chart.js').text = 'chart'
+        store = new RevealJSTemplateStore(new File(tmpDir, 'store'))
+    }
+
+    void 'A template and its plugins are materialised once'() {
+        when:
+        final File entry = store.materialise(template, [chart: plugin])
+        final File same = store.materialise(template, [chart: plugin])
+
+        then:
+        entry == same
+        new File(entry, 'dist/reveal.js').text == 'reveal'
+        new File(entry, 'plugin/chart/chart.js').text == 'chart'
+        !new File(entry, 'test/index.html').exists()
+
+        when:
+        new File(template, 'dist/reveal.js').text = 'another version of reveal'
+        final File other = store.materialise(template, [chart: plugin])
+
+        then:
+        other != entry
+        new File(other, 'dist/reveal.js').text == 'another version of reveal'
+    }
+
+    void 'Entries are keyed by content rather than by modification times'() {
+        given:
+        final File entry = store.materialise(template, [chart: plugin])
+
+        when:
+        new File(template, 'dist/reveal.js').lastModified = 1000L
+
+        then:
+        store.materialise(template, [chart: plugin]) == entry
+
+        when:
+        new File(template, 'dist/reveal.js').text = 'REVEAL'
+        new File(template, 'dist/reveal.js').lastModified = 1000L
+
+        then:
+        store.materialise(template, [chart: plugin]) != entry
+    }
+
+    void 'Only outdated files are synchronised into an output directory'() {
+        given:
+        final File entry = store.materialise(template, [chart: plugin])
+        final File output = new File(tmpDir, 'output/reveal.js')
+        final File manifest = new File(tmpDir, 'tmp/revealjs-template.files')
+
+        when:
+        final int first = RevealJSTemplateStore.syncInto(entry, output, manifest)
+        final int second = RevealJSTemplateStore.syncInto(entry, output, manifest)
+
+        then:
+        first == 3
+        second == 0
+        new File(output, 'dist/theme/white.css').text == 'white'
+        new File(output, 'plugin/chart/chart.js').text == 'chart'
+        !new File(output, '.complete').exists()
+    }
+
+    void 'Only files from an earlier synchronisation are removed'() {
+        given:
+        final File output = new File(tmpDir, 'output/reveal.js')
+        final File manifest = new File(tmpDir, 'tmp/revealjs-template.files')
+        new File(output, 'dist').mkdirs()
+        new File(output, 'dist/custom.js').text = 'custom'
+
+        when:
+        RevealJSTemplateStore.syncInto(store.materialise(template, [chart: plugin]), output, manifest)
+        final int changed = RevealJSTemplateStore.syncInto(store.materialise(template, [:]), output, manifest)
+
+        then:
+        changed == 3
+        !new File(output, 'plugin/chart/chart.js').exists()
+        new File(output, 'dist/reveal.js').text == 'reveal'
+        new File(output, 'dist/custom.js').text == 'custom'
+    }
+}
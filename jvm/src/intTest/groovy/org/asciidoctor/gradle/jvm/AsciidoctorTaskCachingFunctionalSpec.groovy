@@ -15,6 +15,7 @@
  */
 package org.asciidoctor.gradle.jvm
 
+import org.apache.commons.io.FileUtils
 import org.asciidoctor.gradle.internal.FunctionalSpecification
 import org.asciidoctor.gradle.testfixtures.BuildScanFixture
 import org.asciidoctor.gradle.testfixtures.CachingTestFixture
@@ -71,6 +72,32 @@ class AsciidoctorTaskCachingFunctionalSpec extends FunctionalSpecification
         fileInRelocatedDirectory(DOCBOOK_OUTPUT_FILE).exists()
     }
 
+    void "asciidoctor task is loaded from a shared remote cache when attributes contain project paths"() {
+        given:
+        useSharedRemoteCache()
+        getBuildFile("""
+            asciidoctor {
+                sourceDir 'src/docs/asciidoc'
+
+                attributes 'local-dir': file('src/docs/asciidoc'),
+                    'root-dir': "\${rootDir}/src/docs"
+            }
+        """)
+
+        when:
+        assertDefaultTaskExecutes()
+
+        then:
+        outputFile.exists()
+
+        when:
+        FileUtils.copyDirectory(projectDir, alternateProjectDir)
+        assertDefaultTaskIsCachedInRelocatedDirectory()
+
+        then:
+        outputFileInRelocatedDirectory.exists()
+    }
+
 //    @Issue('https://github.com/asciidoctor/asciidoctor-gradle-plugin/issues/671')
 //    void "asciidoctor task is cacheable and relocatable when gemPaths is configured"() {
 //        given:
@@ -277,6 +304,23 @@ class AsciidoctorTaskCachingFunctionalSpec extends FunctionalSpecification
         assertDefaultTaskIsCachedAndRelocatable()
     }
 
+    void useSharedRemoteCache() {
+        final String cacheDir = new File(testProjectDir, 'shared-build-cache').absolutePath.replace('\\', '/')
+        settingsFile.text = """
+            rootProject.name = 'test'
+
+            buildCache {
+                local {
+                    enabled = false
+                }
+                remote(DirectoryBuildCache) {
+                    directory = '${cacheDir}'
+                    push = true
+                }
+            }
+        """.stripIndent()
+    }
+
     @Override
     File getOutputFile() {
         file(DEFAULT_OUTPUT_FILE)
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.jvm
+
+import org.asciidoctor.gradle.internal.FunctionalSpecification
+import org.gradle.testkit.runner.BuildResult
+import spock.lang.Unroll
+
+import static org.asciidoctor.gradle.testfixtures.JRubyTestVersions.AJ20_SAFE_MAXIMUM
+
+class ConfigurationCacheFunctionalSpec extends FunctionalSpecification {
+
+    static final List<String> DEFAULT_ARGS = ['asciidoctor', '--configuration-cache', '-s']
+
+    void setup() {
+        createTestProject()
+    }
+
+    @Unroll
+    void 'Conversion reuses the configuration cache (executionMode=#mode)'() {
+        given:
+        getBuildFile("""
+        asciidoctor {
+            sourceDir 'src/docs/asciidoc'
+            executionMode = ${mode}
+
+            resources {
+                from(sourceDir) {
+                    include 'images/**'
+                }
+            }
+        }
+        """)
+        final File output = new File(buildDir, 'docs/asciidoc/sample.html')
+
+        when:
+        BuildResult first = getGradleRunner(DEFAULT_ARGS).build()
+        output.delete()
+        BuildResult second = getGradleRunner(DEFAULT_ARGS).build()
+
+        then:
+        verifyAll {
+            first.output.contains('Configuration cache entry stored')
+            reusedConfigurationCache(second)
+            output.exists()
+        }
+
+        where:
+        mode << ['IN_PROCESS', 'OUT_OF_PROCESS', 'JAVA_EXEC']
+    }
+
+    boolean reusedConfigurationCache(BuildResult result) {
+        result.output.contains('Reusing configuration cache') ||
+                result.output.contains('Configuration cache entry reused')
+    }
+
+    File getBuildFile(String extraContent) {
+        getJvmConvertGroovyBuildFile("""
+asciidoctorj {
+    jrubyVersion = '${AJ20_SAFE_MAXIMUM}'
+}
+
+${extraContent}
+""")
+    }
+}
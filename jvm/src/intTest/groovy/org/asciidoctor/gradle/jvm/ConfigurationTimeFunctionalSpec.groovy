@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.jvm
+
+import org.asciidoctor.gradle.internal.FunctionalSpecification
+import org.gradle.testkit.runner.BuildResult
+import spock.lang.Timeout
+
+/**
+ * Measures the configuration time of a large multi-project build and checks that nothing is realised or
+ * resolved for Asciidoctor tasks which are not in the task graph.
+ */
+class ConfigurationTimeFunctionalSpec extends FunctionalSpecification {
+
+    static final int SUBPROJECTS = Integer.getInteger('asciidoctor.benchmark.subprojects', 500)
+    static final int MAX_CONFIGURATION_MS = Integer.getInteger('asciidoctor.benchmark.maxConfigurationMs', 120000)
+
+    void setup() {
+        settingsFile.text = """
+        rootProject.name = 'benchmark'
+        gradle.ext.configurationStart = System.nanoTime()
+        (1..${SUBPROJECTS}).each { include "sub\${it}" }
+        """
+        (1..SUBPROJECTS).each { new File(projectDir, "sub${it}").mkdirs() }
+        buildFile.text = """
+        plugins {
+            id 'org.asciidoctor.jvm.convert' apply false
+        }
+
+        def realised = new java.util.concurrent.atomic.AtomicInteger()
+
+        subprojects {
+            apply plugin: 'org.asciidoctor.jvm.convert'
+
+            ${offlineRepositories}
+
+            tasks.withType(org.asciidoctor.gradle.jvm.AbstractAsciidoctorTask).configureEach {
+                realised.incrementAndGet()
+            }
+
+            configurations.configureEach { c ->
+                c.incoming.beforeResolve {
+                    throw new GradleException("\${c.name} in \${project.path} should not have been resolved")
+                }
+            }
+        }
+
+        gradle.projectsEvaluated {
+            final long elapsed = (System.nanoTime() - gradle.ext.configurationStart).intdiv(1000000)
+            println "Configuration took: \${elapsed} ms"
+        }
+
+        tasks.named('help') {
+            doLast {
+                println "Realised conversion tasks: \${realised.get()}"
+            }
+        }
+        """
+    }
+
+    @Timeout(600)
+    void 'Configure a large multi-project build in bounded time without realising conversion tasks'() {
+        when:
+        BuildResult result = getGradleRunner(['help', '-s']).build()
+
+        then:
+        result.output.contains('Realised conversion tasks: 0')
+        configurationTime(result) < MAX_CONFIGURATION_MS
+    }
+
+    private long configurationTime(BuildResult result) {
+        (result.output =~ /Configuration took: (\d+) ms/)[0][1].toString().toLong()
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.jvm
+
+import org.asciidoctor.gradle.internal.FunctionalSpecification
+import org.gradle.testkit.runner.GradleRunner
+import spock.lang.Timeout
+
+class ReproducibleFunctionalSpec extends FunctionalSpecification {
+
+    static final List<String> DEFAULT_ARGS = ['asciidoctor', '--rerun-tasks', '-s']
+
+    File source
+    File output
+
+    void setup() {
+        getJvmConvertGroovyBuildFile('''
+            asciidoctor {
+                reproducible = true
+            }
+        ''')
+        source = new File(projectDir, 'src/docs/asciidoc/index.adoc')
+        source.parentFile.mkdirs()
+        source.text = '''= Reproducible
+
+Converted at {localdatetime} in {localyear} from a document dated {docdatetime}.
+'''
+        output = new File(buildDir, 'docs/asciidoc/index.html')
+    }
+
+    @Timeout(value = 300)
+    void 'A conversion at a later time produces the same bytes'() {
+        when:
+        getGradleRunner(DEFAULT_ARGS).build()
+        final byte[] first = output.bytes
+        sleep(2000)
+        getGradleRunner(DEFAULT_ARGS).build()
+
+        then:
+        output.bytes == first
+    }
+
+    @Timeout(value = 300)
+    void 'SOURCE_DATE_EPOCH makes the output independent of file modification times'() {
+        when:
+        runnerWithEpoch('1700000000').build()
+        final byte[] first = output.bytes
+        source.lastModified = source.lastModified() - 86400000L
+        runnerWithEpoch('1700000000').build()
+
+        then:
+        output.bytes == first
+        output.text.contains('2023-11-14 22:13:20 +0000')
+    }
+
+    private GradleRunner runnerWithEpoch(String epoch) {
+        getGradleRunner(DEFAULT_ARGS)
+                .withDebug(false)
+                .withEnvironment(System.getenv() + [SOURCE_DATE_EPOCH: epoch])
+    }
+}
@@ -37,6 +37,18 @@ class AsciidoctorWorkerParameters implements SerializableWorkerAppParameters {
     /**
      * Map of executor configuration keyed by language.
      * If there are no languages defined, the key of only entry will be an empty string.
+     *
+     * The configurations are serialised as a {@link WorkManifest}.
      */
-    Map<String,List<ExecutorConfiguration>> asciidoctorConfigurations
+    transient Map<String,List<ExecutorConfiguration>> asciidoctorConfigurations
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject()
+        WorkManifest.write(out, asciidoctorConfigurations ?: [:])
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject()
+        asciidoctorConfigurations = WorkManifest.read(input)
+    }
 }
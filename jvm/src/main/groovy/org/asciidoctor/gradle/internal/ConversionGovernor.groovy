@@ -0,0 +1,239 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.gradle.api.Project
+import org.gradle.api.provider.Property
+import org.gradle.api.provider.Provider
+import org.gradle.api.provider.ProviderFactory
+import org.gradle.api.services.BuildService
+import org.gradle.api.services.BuildServiceParameters
+import org.gradle.api.services.BuildServiceSpec
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.locks.Condition
+import java.util.concurrent.locks.ReentrantLock
+
+/** Build-wide admission control for conversions that run inside the Gradle daemon.
+ *
+ * <p>
+ *   Every conversion is assigned an estimated memory cost, made up of the baseline cost of a JRuby runtime with
+ *   Asciidoctor and a multiple of the size of the largest source document. A conversion is only admitted while
+ *   the estimates of all running conversions fit into a fraction of the maximum heap and the heap actually has
+ *   that much headroom. A conversion is always admitted if no other conversion is running.
+ * </p>
+ * <p>
+ *   Only the largest document is counted, as the documents of a task are converted one after the other by the
+ *   same runtime, and the memory of a converted document can be reclaimed before the next one is loaded.
+ * </p>
+ * <p>
+ *   A waiting task keeps its Gradle worker lease. If all leases are taken by waiting tasks, the work of the
+ *   running conversions cannot be scheduled. A conversion is therefore admitted regardless of the heap once it
+ *   has waited for a bounded time.
+ * </p>
+ * <p>
+ *   The governor can be tuned with the following Gradle properties:
+ *   <ul>
+ *     <li>{@code org.asciidoctor.gradle.governor.enabled}: Set to {@code false} to disable admission control.</li>
+ *     <li>{@code org.asciidoctor.gradle.governor.heapFraction}: Fraction of the maximum heap that conversions
+ *       may use. Default is {@code 0.75}.</li>
+ *     <li>{@code org.asciidoctor.gradle.governor.runtimeBaseline}: Estimated cost of a runtime in MB.
+ *       Default is {@code 96}.</li>
+ *     <li>{@code org.asciidoctor.gradle.governor.documentFactor}: Estimated cost of a document as a multiple
+ *       of its size. Default is {@code 40}.</li>
+ *     <li>{@code org.asciidoctor.gradle.governor.maxWait}: Maximum number of seconds that a conversion waits
+ *       for heap. Default is {@code 60}.</li>
+ *   </ul>
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+abstract class ConversionGovernor implements BuildService<Params> {
+
+    public static final String NAME = 'asciidoctorConversionGovernor'
+
+    private static final String PREFIX = 'org.asciidoctor.gradle.governor.'
+    private static final long MB = 1024L * 1024L
+    private static final long RECHECK_MS = 250
+
+    private final ReentrantLock lock = new ReentrantLock()
+    private final Condition released = lock.newCondition()
+    private long reserved = 0
+    private int running = 0
+
+    /** Parameters for the governor.
+     */
+    static interface Params extends BuildServiceParameters {
+        Property<Boolean> getEnabled()
+
+        Property<Double> getHeapFraction()
+
+        Property<Long> getRuntimeBaseline()
+
+        Property<Integer> getDocumentFactor()
+
+        Property<Integer> getMaxWait()
+    }
+
+    /** A reservation of heap for a conversion.
+     */
+    static class Permit implements AutoCloseable {
+        private final ConversionGovernor governor
+        private final long cost
+        private final AtomicBoolean closed = new AtomicBoolean(false)
+
+        private Permit(ConversionGovernor governor, long cost) {
+            this.governor = governor
+            this.cost = cost
+        }
+
+        /** Returns the reserved heap to the governor.
+         */
+        @Override
+        void close() {
+            if (governor != null && closed.compareAndSet(false, true)) {
+                governor.release(cost)
+            }
+        }
+    }
+
+    /** Registers the governor for a build if it has not been registered yet.
+     *
+     * @param project Project from which the build is accessed.
+     * @return Provider of the governor.
+     */
+    static Provider<ConversionGovernor> register(Project project) {
+        final ProviderFactory providers = project.providers
+        project.gradle.sharedServices.registerIfAbsent(NAME, ConversionGovernor) { BuildServiceSpec<Params> spec ->
+            spec.parameters.with {
+                enabled.set(gradleProperty(providers, 'enabled').map { String it -> it.toBoolean() }.orElse(true))
+                heapFraction.set(gradleProperty(providers, 'heapFraction').map { String it -> it.toDouble() }
+                        .orElse(0.75d))
+                runtimeBaseline.set(gradleProperty(providers, 'runtimeBaseline').map { String it -> it.toLong() }
+                        .orElse(96L))
+                documentFactor.set(gradleProperty(providers, 'documentFactor').map { String it -> it.toInteger() }
+                        .orElse(40))
+                maxWait.set(gradleProperty(providers, 'maxWait').map { String it -> it.toInteger() }.orElse(60))
+            }
+        }
+    }
+
+    /** Estimates the heap that a conversion requires.
+     *
+     * @param sources Documents to be converted.
+     * @return Estimated cost in bytes.
+     */
+    long estimate(Collection<File> sources) {
+        final long largest = sources.collect { File it -> it.length() }.max() ?: 0L
+        parameters.runtimeBaseline.get() * MB + largest * parameters.documentFactor.get()
+    }
+
+    /** Waits until a conversion can be admitted.
+     *
+     * @param name Name of the conversion for logging purposes.
+     * @param cost Estimated cost in bytes.
+     * @return A permit which has to be closed once the conversion has completed.
+     */
+    Permit admit(String name, long cost) {
+        if (parameters.enabled.get()) {
+            reserve(name, cost)
+            new Permit(this, cost)
+        } else {
+            new Permit(null, 0)
+        }
+    }
+
+    /** Amount of heap currently reserved by running conversions.
+     *
+     * @return Reserved bytes.
+     */
+    long getReserved() {
+        lock.lock()
+        try {
+            this.reserved
+        } finally {
+            lock.unlock()
+        }
+    }
+
+    /** The heap that conversions may use.
+     *
+     * @return Budget in bytes.
+     */
+    protected long getBudget() {
+        (long) (Runtime.runtime.maxMemory() * parameters.heapFraction.get())
+    }
+
+    /** The heap that is currently not in use.
+     *
+     * @return Headroom in bytes.
+     */
+    long getHeadroom() {
+        final Runtime runtime = Runtime.runtime
+        runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())
+    }
+
+    protected void reserve(String name, long cost) {
+        lock.lockInterruptibly()
+        try {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(parameters.maxWait.get())
+            boolean logged = false
+            while (running > 0 && !fits(cost)) {
+                if (System.nanoTime() - deadline >= 0) {
+                    log.warn("${name} starts without heap headroom after waiting ${parameters.maxWait.get()}s " +
+                            "for ${running} running conversion(s)")
+                    break
+                }
+                if (!logged) {
+                    log.info("${name} waits for heap headroom (estimated ${cost.intdiv(MB)}MB, " +
+                            "${reserved.intdiv(MB)}MB reserved by ${running} running conversion(s))")
+                    logged = true
+                }
+                released.await(RECHECK_MS, TimeUnit.MILLISECONDS)
+            }
+            reserved += cost
+            running++
+        } finally {
+            lock.unlock()
+        }
+    }
+
+    protected void release(long cost) {
+        lock.lock()
+        try {
+            reserved -= cost
+            running--
+            released.signalAll()
+        } finally {
+            lock.unlock()
+        }
+    }
+
+    private boolean fits(long cost) {
+        reserved + cost <= budget && cost <= headroom
+    }
+
+    private static Provider<String> gradleProperty(ProviderFactory providers, String name) {
+        providers.gradleProperty("${PREFIX}${name}".toString())
+    }
+}
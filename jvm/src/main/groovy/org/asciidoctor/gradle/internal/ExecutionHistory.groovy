@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import groovy.transform.CompileStatic
+import groovy.transform.TupleConstructor
+import org.ysb33r.grolifant.api.core.jvm.ExecutionMode
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING
+
+/** Persisted outcomes of previous conversions of a task, kept per execution mode.
+ *
+ * <p>
+ *   Every line of the history file holds one sample: the execution mode, the number of documents, the duration
+ *   in milliseconds, the outcome and the occupancy of the heap afterwards. Only the most recent samples of
+ *   every mode are kept. Lines which cannot be parsed are ignored.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class ExecutionHistory {
+
+    public static final int MAX_SAMPLES_PER_MODE = 10
+
+    private final File historyFile
+    private final Map<ExecutionMode, List<Sample>> samples = new EnumMap<ExecutionMode, List<Sample>>(ExecutionMode)
+
+    /** Outcome of a conversion.
+     */
+    static enum Outcome {
+        SUCCESS,
+        FAILURE,
+        OUT_OF_MEMORY
+    }
+
+    /** A single recorded conversion.
+     */
+    @TupleConstructor
+    static class Sample {
+        int documents
+        long duration
+        Outcome outcome
+        double heapOccupancy
+    }
+
+    /** Loads the history from a file.
+     *
+     * @param historyFile History file. It does not have to exist.
+     * @return History.
+     */
+    static ExecutionHistory load(File historyFile) {
+        final ExecutionHistory history = new ExecutionHistory(historyFile)
+        if (historyFile.exists()) {
+            historyFile.readLines(StandardCharsets.UTF_8.name()).each { String line ->
+                history.parse(line)
+            }
+        }
+        history
+    }
+
+    private ExecutionHistory(File historyFile) {
+        this.historyFile = historyFile
+    }
+
+    /** Recorded samples for a mode, oldest first.
+     *
+     * @param mode Execution mode.
+     * @return Samples. Can be empty.
+     */
+    List<Sample> samplesFor(ExecutionMode mode) {
+        samples[mode] ?: []
+    }
+
+    /** Records a conversion.
+     *
+     * @param mode Execution mode.
+     * @param sample Outcome of the conversion.
+     */
+    void record(ExecutionMode mode, Sample sample) {
+        List<Sample> list = samples[mode]
+        if (list == null) {
+            list = []
+            samples.put(mode, list)
+        }
+        list.add(sample)
+        while (list.size() > MAX_SAMPLES_PER_MODE) {
+            list.remove(0)
+        }
+    }
+
+    /** Writes the history back to its file.
+     */
+    void save() {
+        historyFile.parentFile.mkdirs()
+        final File tmp = new File(historyFile.parentFile, "${historyFile.name}.tmp")
+        tmp.withWriter(StandardCharsets.UTF_8.name()) { Writer writer ->
+            samples.each { ExecutionMode mode, List<Sample> list ->
+                list.each { Sample it ->
+                    writer.write("${mode} ${it.documents} ${it.duration} ${it.outcome} ${it.heapOccupancy}\n")
+                }
+            }
+        }
+        Files.move(tmp.toPath(), historyFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE)
+    }
+
+    private void parse(String line) {
+        final String[] fields = line.trim().split(/\s+/)
+        if (fields.length == 5) {
+            try {
+                record(ExecutionMode.valueOf(fields[0]), new Sample(
+                        fields[1].toInteger(),
+                        fields[2].toLong(),
+                        Outcome.valueOf(fields[3]),
+                        fields[4].toDouble()
+                ))
+            } catch (IllegalArgumentException ignored) {
+                // A line written by another version of the plugin.
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import groovy.transform.CompileStatic
+import org.ysb33r.grolifant.api.core.jvm.ExecutionMode
+
+import static org.asciidoctor.gradle.internal.ExecutionHistory.Outcome.OUT_OF_MEMORY
+import static org.asciidoctor.gradle.internal.ExecutionHistory.Outcome.SUCCESS
+import static org.ysb33r.grolifant.api.core.jvm.ExecutionMode.CLASSPATH
+import static org.ysb33r.grolifant.api.core.jvm.ExecutionMode.JAVA_EXEC
+import static org.ysb33r.grolifant.api.core.jvm.ExecutionMode.OUT_OF_PROCESS
+
+/** Picks the execution mode which is expected to convert a set of documents fastest without risking the heap.
+ *
+ * <p>
+ *   A mode is unsafe if it previously ran out of memory on as many or fewer documents. Running on the classpath
+ *   is also unsafe if the estimated cost of the conversion exceeds the free heap of the daemon, or if a previous
+ *   conversion on the classpath left the heap nearly full. {@code JAVA_EXEC} is always considered safe.
+ * </p>
+ * <p>
+ *   Safe modes which have not been tried often enough yet are tried first. Thereafter the mode with the shortest
+ *   predicted duration is chosen. Durations are predicted from a least-squares fit of duration against
+ *   document count of the successful samples of a mode.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class ExecutionModeAdvisor {
+
+    public static final int MIN_SAMPLES = 2
+    public static final double MAX_HEAP_OCCUPANCY = 0.9d
+
+    private static final List<ExecutionMode> CANDIDATES = [JAVA_EXEC, CLASSPATH, OUT_OF_PROCESS]
+    private static final long MB = 1024L * 1024L
+
+    /** The chosen mode and the reasons for choosing it.
+     */
+    static class Decision {
+        final ExecutionMode mode
+        final List<String> reasons
+
+        Decision(ExecutionMode mode, List<String> reasons) {
+            this.mode = mode
+            this.reasons = reasons
+        }
+    }
+
+    private final ExecutionHistory history
+
+    ExecutionModeAdvisor(ExecutionHistory history) {
+        this.history = history
+    }
+
+    /** Chooses an execution mode.
+     *
+     * @param documents Number of documents to convert.
+     * @param estimatedCost Estimated heap required by a conversion on the classpath, in bytes.
+     * @param headroom Free heap of the daemon in bytes.
+     * @return Decision.
+     */
+    Decision advise(int documents, long estimatedCost, long headroom) {
+        final List<String> reasons = []
+        final List<ExecutionMode> safe = CANDIDATES.findAll { ExecutionMode mode ->
+            final String risk = riskOf(mode, documents, estimatedCost, headroom)
+            if (risk) {
+                reasons.add("${mode} is unsafe as ${risk}".toString())
+            }
+            !risk
+        }
+
+        final ExecutionMode untried = safe.find { ExecutionMode it -> successes(it).size() < MIN_SAMPLES }
+        if (untried != null) {
+            reasons.add("${untried} has fewer than ${MIN_SAMPLES} successful conversions on record".toString())
+            new Decision(untried, reasons)
+        } else {
+            final Map<ExecutionMode, Long> predictions = safe.collectEntries { ExecutionMode it ->
+                [it, predict(successes(it), documents)]
+            }
+            predictions.each { ExecutionMode mode, Long ms ->
+                reasons.add("${mode} is predicted to take ${ms}ms for ${documents} document(s)".toString())
+            }
+            new Decision(predictions.min { Map.Entry<ExecutionMode, Long> it -> it.value }.key, reasons)
+        }
+    }
+
+    /** Predicts the duration of a conversion.
+     *
+     * @param samples Successful samples.
+     * @param documents Number of documents.
+     * @return Predicted duration in milliseconds.
+     */
+    static long predict(List<ExecutionHistory.Sample> samples, int documents) {
+        double meanX = 0
+        double meanY = 0
+        samples.each { ExecutionHistory.Sample it ->
+            meanX += it.documents / (double) samples.size()
+            meanY += it.duration / (double) samples.size()
+        }
+        double covariance = 0
+        double variance = 0
+        samples.each { ExecutionHistory.Sample it ->
+            covariance += (it.documents - meanX) * (it.duration - meanY)
+            variance += (it.documents - meanX) * (it.documents - meanX)
+        }
+        final double slope = variance > 0 ? Math.max(0d, covariance / variance) : 0d
+        Math.max(0L, Math.round(meanY + slope * (documents - meanX)))
+    }
+
+    private String riskOf(ExecutionMode mode, int documents, long estimatedCost, long headroom) {
+        final List<ExecutionHistory.Sample> samples = history.samplesFor(mode)
+        final ExecutionHistory.Sample oom = samples.find { ExecutionHistory.Sample it ->
+            it.outcome == OUT_OF_MEMORY && it.documents <= documents
+        }
+        if (mode == JAVA_EXEC) {
+            null
+        } else if (oom) {
+            "it ran out of memory converting ${oom.documents} document(s)"
+        } else if (mode == CLASSPATH && estimatedCost > headroom) {
+            "the estimated ${estimatedCost.intdiv(MB)}MB exceed the free heap of ${headroom.intdiv(MB)}MB"
+        } else if (mode == CLASSPATH && samples && samples.last().heapOccupancy > MAX_HEAP_OCCUPANCY) {
+            "the last conversion left ${Math.round(samples.last().heapOccupancy * 100)}% of the heap occupied"
+        } else {
+            null
+        }
+    }
+
+    private List<ExecutionHistory.Sample> successes(ExecutionMode mode) {
+        history.samplesFor(mode).findAll { ExecutionHistory.Sample it -> it.outcome == SUCCESS }
+    }
+}
@@ -21,6 +21,9 @@ import groovy.transform.TupleConstructor
 import java.util.regex.Pattern
 
 /** Configuration for running Asciidoctor
+ *
+ * Source trees, attributes, options, requires and extensions are usually shared between configurations and
+ * are therefore not serialised with a configuration, but via {@link WorkManifest}.
  *
  * @author Schalk W. Cronjé
  * @since 2.0.0
@@ -35,7 +38,7 @@ class ExecutorConfiguration implements Serializable, Cloneable {
     File projectDir
     File rootDir
     File baseDir
-    Set<File> sourceTree
+    transient Set<File> sourceTree
     List<Pattern> fatalMessagePatterns
 
     String backendName
@@ -46,15 +49,28 @@ class ExecutorConfiguration implements Serializable, Cloneable {
 
     int safeModeLevel
 
-    List<String> requires
-    Map<String, Object> options
-    Map<String, Object> attributes
+    transient List<String> requires
+    transient Map<String, Object> options
+    transient Map<String, Object> attributes
 
-    List<Object> asciidoctorExtensions
+    transient List<Object> asciidoctorExtensions
 
     ExecutorLogLevel executorLogLevel
     int failureLevel
 
+    File diagramCacheDir
+    long diagramCacheMaxSize
+
+    long includeCacheMaxSize
+
+    int maxDocumentsPerRuntime
+    double maxHeapOccupancy
+
+    File pdfImageCacheDir
+    int pdfImageDpi
+    float pdfImageQuality
+    boolean pdfResourceCache
+
     String toString() {
         """backend(s) = ${backendName}
 
@@ -73,6 +89,7 @@ Asciidoctor:
   ${attributes.size()} attributes
   ${asciidoctorExtensions?.size() ?: 0} docExtensions
   logDocuments = ${logDocuments}, copyResources = ${copyResources}, safeMode = ${safeModeLevel}
+  diagramCacheDir = ${diagramCacheDir}
 """
     }
 }
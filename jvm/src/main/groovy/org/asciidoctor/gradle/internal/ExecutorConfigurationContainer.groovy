@@ -20,6 +20,8 @@ import groovy.transform.CompileStatic
 /**
  * Contains a number of executor configurations.
  *
+ * The configurations are serialised as a {@link WorkManifest}.
+ *
  * @since 2.0.0
  *
  * @author Schalk W. Cronjé
@@ -27,7 +29,8 @@ import groovy.transform.CompileStatic
 @CompileStatic
 class ExecutorConfigurationContainer implements Serializable {
     private static final long serialVersionUID = -2024L
-    final List<ExecutorConfiguration> configurations
+    private static final String SINGLE_GROUP = ''
+    private transient List<ExecutorConfiguration> configurations
 
     ExecutorConfigurationContainer(Iterable<ExecutorConfiguration> list) {
         this.configurations = list as List<ExecutorConfiguration>
@@ -37,6 +40,14 @@ class ExecutorConfigurationContainer implements Serializable {
         this.configurations = [single]
     }
 
+    /** The executor configurations.
+     *
+     * @return Configurations.
+     */
+    List<ExecutorConfiguration> getConfigurations() {
+        this.configurations
+    }
+
     /** Writes a collection of {@link ExecutorConfiguration} to a file.
      *
      * @param destinationFile File to serialise exec-tor configurations.
@@ -51,5 +62,14 @@ class ExecutorConfigurationContainer implements Serializable {
             }
         }
     }
-}
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject()
+        WorkManifest.write(out, [(SINGLE_GROUP): configurations])
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject()
+        this.configurations = WorkManifest.read(input)[SINGLE_GROUP]
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import groovy.transform.CompileStatic
+import org.gradle.api.Project
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.ExternalModuleDependency
+import org.gradle.api.artifacts.dsl.RepositoryHandler
+import org.gradle.api.artifacts.repositories.ArtifactRepository
+import org.gradle.api.artifacts.repositories.UrlArtifactRepository
+import org.gradle.api.provider.Provider
+import org.gradle.api.services.BuildService
+import org.gradle.api.services.BuildServiceParameters
+
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+
+/** Daemon-wide cache of resolved extension classpaths.
+ *
+ * <p>
+ *   Resolving extension dependencies requires a detached configuration and a resolution strategy. As long as the
+ *   dependencies are external modules with fixed versions, the outcome only changes if the files disappear from
+ *   the Gradle cache. Resolved classpaths are therefore kept by a hash of the dependency set and the context in
+ *   which it was resolved, including the repositories it was resolved from. Keeping the file order stable also
+ *   allows Gradle to reuse the isolated classloaders which it builds from the classpath.
+ * </p>
+ * <p>
+ *   Classpaths are shared by all builds which run in the same daemon. Every entry records the length and
+ *   modification time of its files and it is only reused if all of them are still the same, so that files which
+ *   were deleted or replaced in the Gradle cache between builds are resolved again. The build service only
+ *   provides access to the cache.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+abstract class ExtensionClasspathCache implements BuildService<BuildServiceParameters.None> {
+
+    public static final String NAME = 'asciidoctorExtensionClasspathCache'
+
+    private static final List<String> DYNAMIC_VERSION_MARKERS = ['+', 'latest.', '[', ']', '(', ')', 'SNAPSHOT']
+
+    private static final ConcurrentMap<String, Entry> CLASSPATHS = new ConcurrentHashMap<String, Entry>()
+
+    /** Registers the cache for a build if it has not been registered yet.
+     *
+     * @param project Project from which the build is accessed.
+     * @return Provider of the cache.
+     */
+    static Provider<ExtensionClasspathCache> register(Project project) {
+        project.gradle.sharedServices.registerIfAbsent(NAME, ExtensionClasspathCache) { }
+    }
+
+    /** Calculates the key of a set of dependencies.
+     *
+     * @param dependencies Extension dependencies.
+     * @param context Additional values which influence resolution, such as the JRuby version and the repositories.
+     * @return Key or {@code null} if the dependencies cannot be cached.
+     */
+    @SuppressWarnings('Instanceof')
+    static String keyOf(Collection<Dependency> dependencies, List<String> context) {
+        final boolean cacheable = dependencies.every { Dependency it ->
+            it instanceof ExternalModuleDependency && it.version &&
+                    !DYNAMIC_VERSION_MARKERS.any { String marker -> it.version.contains(marker) } &&
+                    !((ExternalModuleDependency) it).changing
+        }
+        if (cacheable) {
+            final List<String> coordinates = dependencies.collect { Dependency it ->
+                final List<String> classifiers = ((ExternalModuleDependency) it).artifacts*.classifier
+                "${it.group}:${it.name}:${it.version}:${classifiers}".toString()
+            }.sort()
+            final MessageDigest digest = MessageDigest.getInstance('SHA-256')
+            (coordinates + context).each { String it ->
+                digest.update(it.getBytes(StandardCharsets.UTF_8))
+                digest.update((byte) 0)
+            }
+            digest.digest().encodeHex().toString()
+        } else {
+            null
+        }
+    }
+
+    /** Describes the repositories from which extension dependencies are resolved.
+     *
+     * @param repositories Repositories of the project.
+     * @return One entry per repository, in declaration order.
+     */
+    @SuppressWarnings('Instanceof')
+    static List<String> describe(RepositoryHandler repositories) {
+        repositories.collect { ArtifactRepository it ->
+            it instanceof UrlArtifactRepository ?
+                    "${it.name}:${((UrlArtifactRepository) it).url}".toString() :
+                    it.name
+        }
+    }
+
+    /** Returns a cached classpath, or resolves and caches it.
+     *
+     * @param key Key as calculated by {@link #keyOf}.
+     * @param resolver Resolves the classpath if it is not cached or if a cached file has disappeared.
+     * @return Resolved classpath.
+     */
+    List<File> resolve(String key, Closure<Collection<File>> resolver) {
+        final Entry cached = CLASSPATHS[key]
+        if (cached != null && cached.unchanged) {
+            cached.files
+        } else {
+            final Entry resolved = new Entry(resolver.call())
+            CLASSPATHS.put(key, resolved)
+            resolved.files
+        }
+    }
+
+    /** Removes all cached classpaths.
+     */
+    void clear() {
+        CLASSPATHS.clear()
+    }
+
+    private static class Entry {
+        final List<File> files
+        final List<List<Long>> fingerprints
+
+        Entry(Collection<File> resolved) {
+            this.files = Collections.unmodifiableList(resolved.toList())
+            this.fingerprints = files.collect { File it -> fingerprintOf(it) }
+        }
+
+        boolean isUnchanged() {
+            files.withIndex().every { File file, int index ->
+                fingerprints[index] != null && fingerprintOf(file) == fingerprints[index]
+            }
+        }
+
+        private static List<Long> fingerprintOf(File file) {
+            file.exists() ? [file.length(), file.lastModified()] : null
+        }
+    }
+}
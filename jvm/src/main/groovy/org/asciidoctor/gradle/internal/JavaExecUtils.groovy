@@ -24,6 +24,8 @@ import org.gradle.api.Task
 import org.gradle.api.file.FileCollection
 import org.ysb33r.grolifant.api.core.ProjectOperations
 
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
 import java.util.regex.Pattern
 
 import static org.asciidoctor.gradle.base.AsciidoctorUtils.getClassLocation
@@ -43,6 +45,8 @@ class JavaExecUtils {
      */
     public static final String JRUBY_COMPLETE_DEPENDENCY = 'org.jruby:jruby-complete'
 
+    private static final ConcurrentMap<String, File> GRADLE_LIBRARIES = new ConcurrentHashMap<String, File>()
+
     /** Get the classpath that needs to be passed to the external Java process.
      *
      * @param project Current Gradle project
@@ -139,7 +143,22 @@ class JavaExecUtils {
         getClassLocation(GroovyObject)
     }
 
+    /** Locates a library inside the Gradle distribution.
+     *
+     * Locations are cached for the lifetime of the daemon, as a distribution does not change.
+     *
+     * @param po Project operations.
+     * @param libraryPattern Pattern which matches the name of the library.
+     * @return Location of the library.
+     */
     static File getInternalGradleLibraryLocation(ProjectOperations po, final Pattern libraryPattern) {
+        final File libDir = new File(po.gradleHomeDir.get(), 'lib')
+        GRADLE_LIBRARIES.computeIfAbsent("${libDir}|${libraryPattern}".toString()) { String key ->
+            findInternalGradleLibrary(libDir, libraryPattern)
+        }
+    }
+
+    private static File findInternalGradleLibrary(File libDir, final Pattern libraryPattern) {
         final filter = new FilenameFilter() {
             @Override
             boolean accept(File dir, String name) {
@@ -147,7 +166,7 @@ class JavaExecUtils {
             }
         }
 
-        File[] files = new File(po.gradleHomeDir.get(), 'lib').listFiles(filter)
+        File[] files = libDir.listFiles(filter)
 
         if (!files) {
             throw new InternalGradleLibraryLocationException(
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+
+import javax.imageio.IIOImage
+import javax.imageio.ImageIO
+import javax.imageio.ImageWriteParam
+import javax.imageio.ImageWriter
+import javax.imageio.stream.ImageOutputStream
+import java.awt.Color
+import java.awt.Graphics2D
+import java.awt.RenderingHints
+import java.awt.image.BufferedImage
+import java.nio.charset.StandardCharsets
+
+/** Helpers for the PNG and JPEG images which are resized and recompressed by the plugin.
+ *
+ * <p>
+ *   They are shared by the optimisation of images for PDF output and the responsive image variants of HTML
+ *   output. Decoding and encoding via ImageIO loses the EXIF orientation and any embedded colour profile of an image.
+ *   Such images are therefore detected up front, so that callers can leave them untouched.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+class RasterImages {
+
+    private static final int JPEG_MARKER = 0xFF
+    private static final int JPEG_START_OF_IMAGE = 0xD8
+    private static final int JPEG_START_OF_SCAN = 0xDA
+    private static final int JPEG_END_OF_IMAGE = 0xD9
+    private static final int JPEG_APP1 = 0xE1
+    private static final int JPEG_APP2 = 0xE2
+    private static final int EXIF_ORIENTATION = 0x0112
+    private static final int TIFF_HEADER_OFFSET = 6
+    private static final int TIFF_HEADER_LENGTH = 8
+    private static final byte TIFF_LITTLE_ENDIAN = 0x49 as byte
+    private static final int IFD_ENTRY_SIZE = 12
+    private static final byte[] EXIF_HEADER = "Exif\u0000\u0000".getBytes(StandardCharsets.ISO_8859_1)
+    private static final byte[] ICC_HEADER = "ICC_PROFILE\u0000".getBytes(StandardCharsets.ISO_8859_1)
+    private static final int PNG_SIGNATURE_LENGTH = 8
+    private static final int PNG_CRC_LENGTH = 4
+
+    /** Decodes an image.
+     *
+     * @param image Image file.
+     * @return Decoded image or {@code null} if ImageIO cannot decode it, as is the case for CMYK and YCCK JPEGs.
+     */
+    static BufferedImage read(File image) {
+        try {
+            ImageIO.read(image)
+        } catch (IOException e) {
+            log.debug("Cannot decode ${image}. It will be used as it is.", e)
+            null
+        }
+    }
+
+    /** Whether an image has an EXIF orientation or an embedded colour profile.
+     *
+     * <p>
+     *   Both would be lost when the image is encoded again, which would turn or discolour it. Images which cannot
+     *   be inspected are also reported, so that they are left alone.
+     * </p>
+     *
+     * @param image PNG or JPEG image file.
+     * @return {@code true} if the image should not be encoded again.
+     */
+    static boolean hasOrientationOrColourProfile(File image) {
+        final String name = image.name.toLowerCase(Locale.US)
+        try {
+            if (name.endsWith('.png')) {
+                image.withDataInputStream { DataInputStream input -> pngHasColourProfile(input) }
+            } else if (name.endsWith('.jpg') || name.endsWith('.jpeg')) {
+                image.withDataInputStream { DataInputStream input -> jpegHasOrientationOrColourProfile(input) }
+            } else {
+                false
+            }
+        } catch (IOException e) {
+            log.debug("Cannot read the metadata of ${image}. It will be used as it is.", e)
+            true
+        }
+    }
+
+    /** Resizes an image.
+     *
+     * Halving first and finishing with bicubic interpolation keeps fine detail such as text in screenshots.
+     *
+     * @param original Image to resize.
+     * @param scale Factor by which the image is reduced.
+     * @param alpha Whether transparency should be kept.
+     * @return Resized image.
+     */
+    static BufferedImage resize(BufferedImage original, double scale, boolean alpha) {
+        final int targetWidth = Math.max(1, (int) Math.round(original.width * scale))
+        final int targetHeight = Math.max(1, (int) Math.round(original.height * scale))
+        final int type = alpha && original.colorModel.hasAlpha() ? BufferedImage.TYPE_INT_ARGB :
+                BufferedImage.TYPE_INT_RGB
+        BufferedImage current = original
+        int width = original.width
+        int height = original.height
+        while (width != targetWidth || height != targetHeight) {
+            width = Math.max(targetWidth, width.intdiv(2).intValue())
+            height = Math.max(targetHeight, height.intdiv(2).intValue())
+            final BufferedImage next = new BufferedImage(width, height, type)
+            final Graphics2D g = next.createGraphics()
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC)
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY)
+                g.drawImage(current, 0, 0, width, height, null)
+            } finally {
+                g.dispose()
+            }
+            current = next
+        }
+        current
+    }
+
+    private static BufferedImage withoutAlpha(BufferedImage image) {
+        final BufferedImage rgb = new BufferedImage(image.width, image.height, BufferedImage.TYPE_INT_RGB)
+        final Graphics2D g = rgb.createGraphics()
+        try {
+            g.drawImage(image, 0, 0, Color.WHITE, null)
+        } finally {
+            g.dispose()
+        }
+        rgb
+    }
+
+    /** Writes an image.
+     *
+     * @param image Image to write.
+     * @param format Image format. JPEG images are written with the given quality, transparent areas of JPEG images
+     *   become white. Any other format is written with the default settings of its writer.
+     * @param quality JPEG compression quality between {@code 0} and {@code 1}.
+     * @param target File to write to.
+     */
+    static void write(BufferedImage image, String format, float quality, File target) {
+        if (format != 'jpg' && format != 'jpeg') {
+            ImageIO.write(image, format, target)
+        } else {
+            final BufferedImage rgb = image.colorModel.hasAlpha() ? withoutAlpha(image) : image
+            final ImageWriter writer = ImageIO.getImageWritersByFormatName('jpeg').next()
+            final ImageWriteParam param = writer.defaultWriteParam
+            param.compressionMode = ImageWriteParam.MODE_EXPLICIT
+            param.compressionQuality = quality
+            final ImageOutputStream output = ImageIO.createImageOutputStream(target)
+            try {
+                writer.output = output
+                writer.write(null, new IIOImage(rgb, null, null), param)
+            } finally {
+                output.close()
+                writer.dispose()
+            }
+        }
+    }
+
+    private static boolean pngHasColourProfile(DataInputStream input) {
+        input.skipBytes(PNG_SIGNATURE_LENGTH)
+        boolean found = false
+        boolean done = false
+        while (!found && !done) {
+            final int length = input.readInt()
+            final byte[] type = new byte[4]
+            input.readFully(type)
+            final String chunk = new String(type, StandardCharsets.ISO_8859_1)
+            found = chunk == 'iCCP'
+            // The colour profile has to come before the image data.
+            done = chunk == 'IDAT' || chunk == 'IEND'
+            if (!found && !done) {
+                skipFully(input, length + PNG_CRC_LENGTH)
+            }
+        }
+        found
+    }
+
+    private static boolean jpegHasOrientationOrColourProfile(DataInputStream input) {
+        if (input.readUnsignedByte() != JPEG_MARKER || input.readUnsignedByte() != JPEG_START_OF_IMAGE) {
+            throw new IOException('Not a JPEG image')
+        }
+        boolean found = false
+        int marker = nextMarker(input)
+        while (!found && marker != JPEG_START_OF_SCAN && marker != JPEG_END_OF_IMAGE) {
+            if (!isStandalone(marker)) {
+                final int length = input.readUnsignedShort() - 2
+                if (length < 0) {
+                    throw new IOException('Invalid JPEG segment')
+                }
+                final byte[] segment = new byte[length]
+                input.readFully(segment)
+                if (marker == JPEG_APP2) {
+                    found = startsWith(segment, ICC_HEADER)
+                } else if (marker == JPEG_APP1 && startsWith(segment, EXIF_HEADER)) {
+                    found = exifOrientation(segment) > 1
+                }
+            }
+            marker = nextMarker(input)
+        }
+        found
+    }
+
+    private static int nextMarker(DataInputStream input) {
+        int value = input.readUnsignedByte()
+        while (value != JPEG_MARKER) {
+            value = input.readUnsignedByte()
+        }
+        while (value == JPEG_MARKER) {
+            value = input.readUnsignedByte()
+        }
+        value
+    }
+
+    @SuppressWarnings('MagicNumber')
+    private static boolean isStandalone(int marker) {
+        marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)
+    }
+
+    private static int exifOrientation(byte[] segment) {
+        final int tiff = TIFF_HEADER_OFFSET
+        int orientation = 1
+        if (segment.length >= tiff + TIFF_HEADER_LENGTH) {
+            final boolean littleEndian = segment[tiff] == TIFF_LITTLE_ENDIAN
+            final int ifd = tiff + unsigned(segment, tiff + 4, 4, littleEndian)
+            if (ifd > tiff && ifd + 2 <= segment.length) {
+                final int entries = unsigned(segment, ifd, 2, littleEndian)
+                for (int i = 0; i < entries; i++) {
+                    final int entry = ifd + 2 + i * IFD_ENTRY_SIZE
+                    if (entry + IFD_ENTRY_SIZE <= segment.length &&
+                            unsigned(segment, entry, 2, littleEndian) == EXIF_ORIENTATION) {
+                        orientation = unsigned(segment, entry + 8, 2, littleEndian)
+                    }
+                }
+            }
+        }
+        orientation
+    }
+
+    @SuppressWarnings('MagicNumber')
+    private static int unsigned(byte[] bytes, int offset, int length, boolean littleEndian) {
+        int value = 0
+        for (int i = 0; i < length; i++) {
+            final int b = bytes[littleEndian ? offset + length - 1 - i : offset + i] & 0xFF
+            value = (value << 8) | b
+        }
+        value
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        bytes.length >= prefix.length && Arrays.equals(Arrays.copyOf(bytes, prefix.length), prefix)
+    }
+
+    private static void skipFully(DataInputStream input, int length) {
+        int remaining = length
+        while (remaining > 0) {
+            final int skipped = input.skipBytes(remaining)
+            if (skipped <= 0) {
+                throw new EOFException()
+            }
+            remaining -= skipped
+        }
+    }
+}
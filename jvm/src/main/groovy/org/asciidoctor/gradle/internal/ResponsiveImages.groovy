@@ -0,0 +1,357 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import groovy.io.FileType
+import groovy.transform.CompileStatic
+import groovy.transform.TupleConstructor
+
+import javax.imageio.ImageIO
+import javax.imageio.ImageReader
+import javax.imageio.stream.ImageInputStream
+import java.awt.image.BufferedImage
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.security.MessageDigest
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING
+
+/** Adds responsive image variants and lazy loading to converted HTML pages.
+ *
+ * <p>
+ *   For every local PNG or JPEG image that a page refers to, narrower copies are written next to the image and
+ *   the {@code img} tag is given {@code srcset}, {@code sizes}, {@code loading="lazy"} and explicit dimensions.
+ *   If an ImageIO writer for WebP is available, WebP copies are written as well and offered through a
+ *   {@code picture} element. Copies are cached by the hash of the original image, so that they are only
+ *   created once across builds.
+ * </p>
+ * <p>
+ *   Only images inside the output directory are considered. Tags which already have a {@code srcset} are left
+ *   alone, which means that pages can safely be processed more than once. Tags of images which cannot be decoded
+ *   or which have an EXIF orientation or a colour profile are left alone as well.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class ResponsiveImages {
+
+    public static final List<String> FORMATS = ['png', 'jpg', 'jpeg']
+
+    private static final String WEBP = 'webp'
+    private static final String PARTIAL_SUFFIX = '.part'
+    private static final Pattern IMG_TAG = ~/(?i)<img\s[^>]*>/
+    private static final Pattern ATTRIBUTE = ~/([\w-]+)\s*=\s*"([^"]*)"/
+    private static final Pattern URI_TARGET = ~/^\p{Alpha}[\p{Alnum}.+-]*:.*/
+    private static final Pattern PIXELS = ~/\d+/
+
+    private final File cacheDir
+    private final List<Integer> widths
+    private final String sizes
+    private final float quality
+    private final boolean webp
+    private final Map<File, Candidate> candidates = [:]
+
+    /** Creates a processor.
+     *
+     * @param cacheDir Persistent cache directory.
+     * @param widths Widths in pixels of the variants that are created for every image.
+     * @param sizes Value of the {@code sizes} attribute for images which do not have an explicit width.
+     * @param quality JPEG compression quality between {@code 0} and {@code 1}.
+     */
+    ResponsiveImages(File cacheDir, List<Integer> widths, String sizes, float quality) {
+        this(cacheDir, widths, sizes, quality, ImageIO.getImageWritersByFormatName(WEBP).hasNext())
+    }
+
+    /** Creates a processor.
+     *
+     * @param cacheDir Persistent cache directory.
+     * @param widths Widths in pixels of the variants that are created for every image.
+     * @param sizes Value of the {@code sizes} attribute for images which do not have an explicit width.
+     * @param quality JPEG compression quality between {@code 0} and {@code 1}.
+     * @param webp Whether WebP variants should be created.
+     */
+    ResponsiveImages(File cacheDir, List<Integer> widths, String sizes, float quality, boolean webp) {
+        this.cacheDir = cacheDir
+        this.widths = widths.toUnique().sort()
+        this.sizes = sizes
+        this.quality = quality
+        this.webp = webp
+    }
+
+    /** Processes all HTML pages in a directory.
+     *
+     * @param outputDir Directory to which HTML pages and their images have been written.
+     * @return Number of pages that were rewritten.
+     */
+    int process(File outputDir) {
+        final List<File> pages = []
+        if (outputDir.directory) {
+            outputDir.eachFileRecurse(FileType.FILES) { File it ->
+                if (it.name.endsWith('.html')) {
+                    pages.add(it)
+                }
+            }
+        }
+        final File root = outputDir.canonicalFile
+        pages.count { File it -> owner.rewrite(root, it) }.intValue()
+    }
+
+    private boolean rewrite(File root, File page) {
+        final String html = page.getText(StandardCharsets.UTF_8.name())
+        final String result = html.replaceAll(IMG_TAG) { String tag -> owner.rewriteTag(root, page.parentFile, tag) }
+        if (result == html) {
+            false
+        } else {
+            page.setText(result, StandardCharsets.UTF_8.name())
+            true
+        }
+    }
+
+    private String rewriteTag(File root, File dir, String tag) {
+        final Map<String, String> attributes = attributesOf(tag)
+        final String src = attributes['src']?.replaceFirst(/[?#].*$/, '')
+        if (!src || attributes.containsKey('srcset') || src ==~ URI_TARGET || src.startsWith('/')) {
+            tag
+        } else {
+            final File image = resolve(root, dir, src)
+            final Candidate candidate = image ? candidateFor(image) : null
+            candidate ? decorate(tag, attributes, src, candidate) : tag
+        }
+    }
+
+    private String decorate(String tag, Map<String, String> attributes, String src, Candidate candidate) {
+        final String width = attributes['width']
+        final String height = attributes['height']
+        final StringBuilder extra = new StringBuilder()
+        if (width == null && height == null) {
+            extra.append(" width=\"${candidate.width}\" height=\"${candidate.height}\"")
+        } else if (height == null && isPixels(width)) {
+            extra.append(" height=\"${Math.round(width.toLong() * candidate.height / (double) candidate.width)}\"")
+        } else if (width == null && isPixels(height)) {
+            extra.append(" width=\"${Math.round(height.toLong() * candidate.width / (double) candidate.height)}\"")
+        }
+
+        final String sizesValue = isPixels(width) ? "(max-width: ${width}px) 100vw, ${width}px" : sizes
+        final String base = src.substring(0, src.lastIndexOf('.'))
+        final String srcset = (candidate.variants.findAll { Variant it -> it.format == candidate.format }
+                .collect { Variant it -> "${base}-${it.width}w.${it.format} ${it.width}w".toString() } +
+                ["${src} ${candidate.width}w".toString()]).join(', ')
+        extra.append(" srcset=\"${srcset}\" sizes=\"${sizesValue}\"")
+        if (!attributes.containsKey('loading')) {
+            extra.append(' loading="lazy"')
+        }
+
+        final Matcher end = tag =~ /\s*\/?>$/
+        end.find()
+        final String img = tag.substring(0, end.start()) + extra + tag.substring(end.start())
+        final List<Variant> webpVariants = candidate.variants.findAll { Variant it -> it.format == WEBP }
+        if (webpVariants.empty) {
+            img
+        } else {
+            final String webpSrcset = webpVariants.collect { Variant it ->
+                "${base}-${it.width}w.${WEBP} ${it.width}w".toString()
+            }.join(', ')
+            "<picture><source type=\"image/${WEBP}\" srcset=\"${webpSrcset}\" sizes=\"${sizesValue}\">${img}</picture>"
+        }
+    }
+
+    private Candidate candidateFor(File image) {
+        if (!candidates.containsKey(image)) {
+            candidates.put(image, createCandidate(image))
+        }
+        candidates.get(image)
+    }
+
+    private Candidate createCandidate(File image) {
+        // Variants would lose the orientation and colour profile of the image, so such images are left alone.
+        final int[] dimensions = RasterImages.hasOrientationOrColourProfile(image) ? null : dimensionsOf(image)
+        if (dimensions == null) {
+            null
+        } else {
+            final String format = extensionOf(image)
+            final String digest = hash(image)
+            final List<Variant> variants = []
+            BufferedImage decoded = null
+            boolean undecodable = false
+            final Closure<BufferedImage> original = { ->
+                if (decoded == null && !undecodable) {
+                    decoded = RasterImages.read(image)
+                    undecodable = decoded == null
+                }
+                decoded
+            }
+            final List<Integer> smaller = widths.findAll { Integer it -> it < dimensions[0] }
+            for (int width : smaller) {
+                variants.add(variant(image, digest, original, format, width, dimensions))
+            }
+            if (webp) {
+                for (int width : smaller + [dimensions[0]]) {
+                    variants.add(variant(image, digest, original, WEBP, width, dimensions))
+                }
+            }
+            // An image which cannot be decoded, such as a CMYK JPEG, keeps its tag as it is.
+            undecodable ? null : new Candidate(format, dimensions[0], dimensions[1], variants.findAll())
+        }
+    }
+
+    private Variant variant(
+            File image,
+            String digest,
+            Closure<BufferedImage> original,
+            String format,
+            int width,
+            int[] dimensions
+    ) {
+        final File cached = cachedVariant(digest, original, format, width, dimensions[0])
+        if (cached == null) {
+            null
+        } else {
+            final String name = image.name
+            final File target = new File(
+                    image.parentFile,
+                    "${name.substring(0, name.lastIndexOf('.'))}-${width}w.${format}"
+            )
+            if (!target.exists() || target.length() != cached.length()) {
+                Files.copy(cached.toPath(), target.toPath(), REPLACE_EXISTING)
+            }
+            new Variant(format, width)
+        }
+    }
+
+    private File cachedVariant(
+            String digest,
+            Closure<BufferedImage> original,
+            String format,
+            int width,
+            int originalWidth
+    ) {
+        final String key = sha256("${digest}|${width}|${format}|${quality}")
+        final File cached = new File(cacheDir, "${key.substring(0, 2)}/${key}.${format}")
+        if (cached.exists()) {
+            cached.lastModified = System.currentTimeMillis()
+            cached
+        } else {
+            final BufferedImage source = original.call()
+            if (source == null) {
+                null
+            } else {
+                cached.parentFile.mkdirs()
+                final File partial = new File(
+                        cached.parentFile,
+                        "${cached.name}.${UUID.randomUUID()}${PARTIAL_SUFFIX}"
+                )
+                try {
+                    final BufferedImage resized = width < originalWidth ?
+                            RasterImages.resize(source, width / (double) originalWidth, !isJpeg(format)) :
+                            source
+                    RasterImages.write(resized, format, quality, partial)
+                    if (partial.exists()) {
+                        Files.move(partial.toPath(), cached.toPath(), REPLACE_EXISTING, ATOMIC_MOVE)
+                        cached
+                    } else {
+                        null
+                    }
+                } finally {
+                    partial.delete()
+                }
+            }
+        }
+    }
+
+    private static File resolve(File root, File dir, String src) {
+        final File file = new File(dir, URLDecoder.decode(src.replace('+', '%2B'), StandardCharsets.UTF_8.name()))
+                .canonicalFile
+        file.path.startsWith(root.path + File.separator) && file.file && extensionOf(file) in FORMATS ? file : null
+    }
+
+    private static int[] dimensionsOf(File image) {
+        final ImageInputStream input = ImageIO.createImageInputStream(image)
+        if (input == null) {
+            null
+        } else {
+            try {
+                final Iterator<ImageReader> readers = ImageIO.getImageReaders(input)
+                if (readers.hasNext()) {
+                    final ImageReader reader = readers.next()
+                    try {
+                        reader.input = input
+                        [reader.getWidth(0), reader.getHeight(0)] as int[]
+                    } catch (IOException e) {
+                        null
+                    } finally {
+                        reader.dispose()
+                    }
+                } else {
+                    null
+                }
+            } finally {
+                input.close()
+            }
+        }
+    }
+
+    private static boolean isJpeg(String format) {
+        format == 'jpg' || format == 'jpeg'
+    }
+
+    private static boolean isPixels(String value) {
+        value != null && value ==~ PIXELS
+    }
+
+    private static Map<String, String> attributesOf(String tag) {
+        final Map<String, String> attributes = [:]
+        final Matcher matcher = tag =~ ATTRIBUTE
+        while (matcher.find()) {
+            attributes.put(matcher.group(1).toLowerCase(Locale.US), matcher.group(2))
+        }
+        attributes
+    }
+
+    private static String extensionOf(File image) {
+        final String name = image.name.toLowerCase(Locale.US)
+        name.substring(name.lastIndexOf('.') + 1)
+    }
+
+    private static String hash(File image) {
+        final MessageDigest digest = MessageDigest.getInstance('SHA-256')
+        image.eachByte(65536) { byte[] buffer, int length -> digest.update(buffer, 0, length) }
+        digest.digest().encodeHex().toString()
+    }
+
+    private static String sha256(String text) {
+        MessageDigest.getInstance('SHA-256').digest(text.getBytes(StandardCharsets.UTF_8)).encodeHex().toString()
+    }
+
+    @TupleConstructor
+    private static class Candidate {
+        String format
+        int width
+        int height
+        List<Variant> variants
+    }
+
+    @TupleConstructor
+    private static class Variant {
+        String format
+        int width
+    }
+}
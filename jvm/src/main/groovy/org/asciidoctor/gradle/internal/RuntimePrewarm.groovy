@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import groovy.transform.CompileStatic
+
+/** Hand-over between a task and a Java process which was started before its work was known.
+ *
+ * <p>
+ *   The process boots Asciidoctor and then waits until the task has either written the execution data file and
+ *   marked it as ready, or has given up. Both states are signalled by marker files next to the data file.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class RuntimePrewarm {
+
+    /** Argument which tells the Java process that it has been started ahead of its work.
+     * It is followed by the libraries to be required whilst waiting.
+     */
+    public static final String FLAG = '--prewarm'
+
+    private static final long POLL_MS = 10
+
+    /** Removes markers that were left by a previous run.
+     *
+     * @param dataFile Execution data file.
+     */
+    static void reset(File dataFile) {
+        readyMarker(dataFile).delete()
+        abortMarker(dataFile).delete()
+    }
+
+    /** Signals that the execution data file is complete.
+     *
+     * @param dataFile Execution data file.
+     */
+    static void ready(File dataFile) {
+        readyMarker(dataFile).createNewFile()
+    }
+
+    /** Signals that no work will follow.
+     *
+     * @param dataFile Execution data file.
+     */
+    static void abort(File dataFile) {
+        dataFile.parentFile.mkdirs()
+        abortMarker(dataFile).createNewFile()
+    }
+
+    /** Waits until the task has signalled either state.
+     *
+     * @param dataFile Execution data file.
+     * @param timeout Maximum time to wait in milliseconds.
+     * @return {@code true} if the execution data file can be read. {@code false} if the task gave up or
+     *   did not signal in time.
+     */
+    static boolean await(File dataFile, long timeout) {
+        final File ready = readyMarker(dataFile)
+        final File abort = abortMarker(dataFile)
+        final long deadline = System.currentTimeMillis() + timeout
+        while (!ready.exists() && !abort.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(POLL_MS)
+        }
+        ready.exists() && !abort.exists()
+    }
+
+    private static File readyMarker(File dataFile) {
+        new File(dataFile.parentFile, "${dataFile.name}.ready")
+    }
+
+    private static File abortMarker(File dataFile) {
+        new File(dataFile.parentFile, "${dataFile.name}.abort")
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import groovy.transform.CompileStatic
+
+/** Compact serialised form of a group of {@link ExecutorConfiguration} instances.
+ *
+ * <p>
+ *   Executor configurations are created per backend and language and therefore mostly share the same source
+ *   trees, attributes, options, requires and extensions. The manifest writes every distinct value only once
+ *   and lets configurations refer to it by its position. Source trees are written as front-coded paths
+ *   instead of as {@link File} instances.
+ * </p>
+ * <p>
+ *   The manifest is written to and read from an object stream, which means that it can be embedded in any
+ *   serialisable object.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class WorkManifest {
+
+    private static final int FORMAT_VERSION = 1
+    private static final int NONE = -1
+
+    /** Writes executor configurations to a stream.
+     *
+     * @param out Stream to write to.
+     * @param configurations Executor configurations grouped by an arbitrary key, such as the language.
+     */
+    static void write(ObjectOutputStream out, Map<String, List<ExecutorConfiguration>> configurations)
+            throws IOException {
+        final Map<Object, Integer> sourceTrees = new LinkedHashMap<Object, Integer>()
+        final Map<Object, Integer> values = new LinkedHashMap<Object, Integer>()
+        final Map<ExecutorConfiguration, int[]> references = new IdentityHashMap<ExecutorConfiguration, int[]>()
+
+        configurations.values().each { List<ExecutorConfiguration> group ->
+            group.each { ExecutorConfiguration it ->
+                references.put(it, [
+                        idOf(sourceTrees, it.sourceTree),
+                        idOf(values, it.attributes),
+                        idOf(values, it.options),
+                        idOf(values, it.requires),
+                        idOf(values, it.asciidoctorExtensions)
+                ] as int[])
+            }
+        }
+
+        out.writeInt(FORMAT_VERSION)
+        out.writeInt(sourceTrees.size())
+        sourceTrees.keySet().each { Object tree -> writeSourceTree(out, (Set<File>) tree) }
+        out.writeInt(values.size())
+        values.keySet().each { Object value -> out.writeObject(value) }
+
+        out.writeInt(configurations.size())
+        configurations.each { String key, List<ExecutorConfiguration> group ->
+            out.writeUTF(key)
+            out.writeInt(group.size())
+            group.each { ExecutorConfiguration it ->
+                out.writeObject(it)
+                for (int id : references[it]) {
+                    out.writeInt(id)
+                }
+            }
+        }
+    }
+
+    /** Reads executor configurations from a stream.
+     *
+     * @param input Stream to read from.
+     * @return Executor configurations grouped by the key that was used to write them.
+     */
+    static Map<String, List<ExecutorConfiguration>> read(ObjectInputStream input)
+            throws IOException, ClassNotFoundException {
+        final int version = input.readInt()
+        if (version != FORMAT_VERSION) {
+            throw new InvalidObjectException("Unsupported work manifest format ${version}")
+        }
+
+        final List<Set<File>> sourceTrees = []
+        final int treeCount = input.readInt()
+        for (int i = 0; i < treeCount; i++) {
+            sourceTrees.add(readSourceTree(input))
+        }
+
+        final List<Object> values = []
+        final int valueCount = input.readInt()
+        for (int i = 0; i < valueCount; i++) {
+            values.add(input.readObject())
+        }
+
+        final Map<String, List<ExecutorConfiguration>> configurations = [:]
+        final int groupCount = input.readInt()
+        for (int i = 0; i < groupCount; i++) {
+            final String key = input.readUTF()
+            final List<ExecutorConfiguration> group = []
+            final int configCount = input.readInt()
+            for (int j = 0; j < configCount; j++) {
+                final ExecutorConfiguration config = (ExecutorConfiguration) input.readObject()
+                config.sourceTree = (Set<File>) lookup(sourceTrees, input.readInt())
+                config.attributes = copyOf((Map<String, Object>) lookup(values, input.readInt()))
+                config.options = copyOf((Map<String, Object>) lookup(values, input.readInt()))
+                config.requires = (List<String>) lookup(values, input.readInt())
+                config.asciidoctorExtensions = (List<Object>) lookup(values, input.readInt())
+                group.add(config)
+            }
+            configurations.put(key, group)
+        }
+        configurations
+    }
+
+    private static int idOf(Map<Object, Integer> pool, Object value) {
+        if (value == null) {
+            NONE
+        } else {
+            final Integer existing = pool.get(value)
+            if (existing != null) {
+                existing
+            } else {
+                final int id = pool.size()
+                pool.put(value, id)
+                id
+            }
+        }
+    }
+
+    private static Object lookup(List<?> pool, int id) {
+        id == NONE ? null : pool.get(id)
+    }
+
+    // Executors modify options whilst converting, so shared maps are not handed out as-is.
+    private static Map<String, Object> copyOf(Map<String, Object> map) {
+        map == null ? null : new LinkedHashMap<String, Object>(map)
+    }
+
+    private static void writeSourceTree(ObjectOutputStream out, Set<File> tree) {
+        out.writeInt(tree.size())
+        String previous = ''
+        for (File file : tree) {
+            final String path = file.path
+            final int common = commonPrefixLength(previous, path)
+            out.writeInt(common)
+            out.writeUTF(path.substring(common))
+            previous = path
+        }
+    }
+
+    private static Set<File> readSourceTree(ObjectInputStream input) {
+        final int size = input.readInt()
+        final Set<File> tree = new LinkedHashSet<File>(size)
+        String previous = ''
+        for (int i = 0; i < size; i++) {
+            final int common = input.readInt()
+            final String path = previous.substring(0, common) + input.readUTF()
+            tree.add(new File(path))
+            previous = path
+        }
+        tree
+    }
+
+    private static int commonPrefixLength(String first, String second) {
+        final int max = Math.min(first.length(), second.length())
+        int length = 0
+        while (length < max && first.charAt(length) == second.charAt(length)) {
+            length++
+        }
+        length
+    }
+}
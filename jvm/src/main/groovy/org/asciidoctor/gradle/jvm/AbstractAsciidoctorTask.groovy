@@ -33,14 +33,21 @@ import org.asciidoctor.gradle.base.process.ProcessMode
 import org.asciidoctor.gradle.internal.AsciidoctorExecutorFactory
 import org.asciidoctor.gradle.internal.AsciidoctorWorkerParameterFactory
 import org.asciidoctor.gradle.internal.AsciidoctorWorkerParameters
+import org.asciidoctor.gradle.internal.ConversionGovernor
+import org.asciidoctor.gradle.internal.ExecutionHistory
+import org.asciidoctor.gradle.internal.ExecutionModeAdvisor
 import org.asciidoctor.gradle.internal.ExecutorConfiguration
 import org.asciidoctor.gradle.internal.ExecutorUtils
+import org.asciidoctor.gradle.internal.ExtensionClasspathCache
 import org.asciidoctor.gradle.internal.JavaExecUtils
+import org.asciidoctor.gradle.internal.RuntimePrewarm
 import org.asciidoctor.gradle.remote.AsciidoctorJavaExec
+import org.asciidoctor.gradle.remote.RuntimeRecycler
 import org.gradle.api.Action
 import org.gradle.api.artifacts.Configuration
 import org.gradle.api.artifacts.ConfigurationContainer
 import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.dsl.RepositoryHandler
 import org.gradle.api.file.FileCollection
 import org.gradle.api.provider.Property
 import org.gradle.api.provider.Provider
@@ -51,6 +58,7 @@ import org.gradle.api.tasks.Nested
 import org.gradle.api.tasks.TaskProvider
 import org.gradle.api.tasks.bundling.Jar
 import org.gradle.process.JavaForkOptions
+import org.gradle.util.GradleVersion
 import org.gradle.workers.WorkerExecutor
 import org.ysb33r.grolifant.api.core.LegacyLevel
 import org.ysb33r.grolifant.api.core.jvm.ExecutionMode
@@ -59,12 +67,18 @@ import org.ysb33r.grolifant.api.core.jvm.worker.WorkerAppParameterFactory
 import org.ysb33r.grolifant.api.core.runnable.AbstractJvmModelExecTask
 import org.ysb33r.grolifant.api.remote.worker.WorkerAppExecutorFactory
 
-import java.util.function.Function
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 
 import static org.asciidoctor.gradle.base.AsciidoctorUtils.getClassLocation
 import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.evaluateProviders
 import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.prepareAttributes
+import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.relocatablePath
 import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.resolveAsCacheable
+import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.resolveAsRelocatable
 import static org.asciidoctor.gradle.base.internal.AsciidoctorAttributes.resolveAsSerializable
 import static org.asciidoctor.gradle.internal.JavaExecUtils.getExecConfigurationDataFile
 import static org.asciidoctor.gradle.internal.JavaExecUtils.getInternalGradleLibraryLocation
@@ -88,6 +102,13 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
     public final static ExecutionMode OUT_OF_PROCESS = ExecutionMode.OUT_OF_PROCESS
     public final static ExecutionMode JAVA_EXEC = ExecutionMode.JAVA_EXEC
 
+    /** Chooses {@link #IN_PROCESS}, {@link #OUT_OF_PROCESS} or {@link #JAVA_EXEC} from the recorded history of
+     * the task.
+     *
+     * @since 4.0
+     */
+    public final static String AUTO = 'AUTO'
+
     public final static Severity FATAL = Severity.FATAL
     public final static Severity ERROR = Severity.ERROR
     public final static Severity WARN = Severity.WARN
@@ -95,14 +116,20 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
 
     protected final AsciidoctorJExtension asciidoctorj
     private ExecutionMode inProcess
+    private boolean autoExecutionMode = false
     private Severity failureLevel = Severity.FATAL
     private final List<Object> asciidocConfigurations = []
     private final File rootDir
     private final File projectDir
     private final File execConfigurationDataFile
-    private final Function<List<Dependency>, Configuration> detachedConfigurationCreator
+    private final File executionHistoryFile
+    private final FileCollection extensionDependencies
     private final Property<FileCollection> jvmClasspath
     private final List<Provider<File>> gemJarProviders = []
+    private final WorkerExecutor worker
+    private final Provider<ConversionGovernor> conversionGovernor
+    private final Provider<ExtensionClasspathCache> extensionClasspathCache
+    private final boolean refreshDependencies
 
     @Delegate
     private final DefaultAsciidoctorFileOperations asciidoctorTaskFileOperations
@@ -253,12 +280,27 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
      *
      * This is equivalent of using {@code asciidoctorj.getAttributes}
      *
+     * Attributes are tracked as task inputs via {@link #getRelocatableAttributes}.
      */
-    @Input
+    @Internal
     Map<String, Object> getAttributes() {
         resolveAsCacheable(asciidoctorj.attributes, projectOperations)
     }
 
+    /** Returns the attributes in a form which is independent of the location of the project.
+     *
+     * Files and absolute paths which are located inside the root project are expressed relative to the
+     * project directory, so that the same build in different workspaces will yield the same cache key.
+     *
+     * @return Attributes suitable for input tracking.
+     *
+     * @since 4.0
+     */
+    @Input
+    Map<String, Object> getRelocatableAttributes() {
+        resolveAsRelocatable(asciidoctorj.attributes, projectDir, rootDir, projectOperations)
+    }
+
     /** Apply a new set of Asciidoctor options, clearing any options previously set.
      *
      * If set here all global Asciidoctor options are ignored within this task.
@@ -304,13 +346,11 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
     @Classpath
     @SuppressWarnings('Instanceof')
     FileCollection getConfigurations() {
-        final precompiledExtensions = findDependenciesInExtensions()
         FileCollection fc = this.asciidocConfigurations.inject(asciidoctorj.configuration) {
             FileCollection seed, Object it ->
                 seed + projectOperations.configurations.asConfiguration(it)
         }
-        final gjp = projectOperations.fsOperations.files([gemJarProviders, fc])
-        precompiledExtensions ? gjp + precompiledExtensions : gjp
+        projectOperations.fsOperations.files([gemJarProviders, fc]) + extensionDependencies
     }
 
     /** Override any existing configurations except the ones available via the {@code asciidoctorj} task extension.
@@ -405,45 +445,109 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
      */
     @Override
     void setExecutionMode(ExecutionMode em) {
-        super.setExecutionMode(em)
-        inProcess = em
-
-        if (em == JAVA_EXEC) {
-            runnerSpec {
-                setArgs([getExecConfigurationDataFile(this).absolutePath])
-            }
-        }
+        this.autoExecutionMode = false
+        applyExecutionMode(em)
     }
 
+    /**
+     * Sets the execution mode.
+     *
+     * @param s Case-insensitive string form of {@link #IN_PROCESS}, {@link #OUT_OF_PROCESS}, {@link #JAVA_EXEC}
+     *   or {@link #AUTO}.
+     */
     void setExecutionMode(String s) {
-        executionMode = ExecutionMode.valueOf(s.toUpperCase(Locale.US))
+        if (s.equalsIgnoreCase(AUTO)) {
+            this.autoExecutionMode = true
+        } else {
+            executionMode = ExecutionMode.valueOf(s.toUpperCase(Locale.US))
+        }
     }
 
     @Override
     void exec() {
+        if (autoExecutionMode) {
+            execWithAdvisedMode()
+        } else {
+            convert()
+        }
+    }
+
+    /** Whether the execution mode is chosen from the recorded history of the task.
+     *
+     * @return {@code true} if the execution mode is {@link #AUTO}.
+     *
+     * @since 4.0
+     */
+    @Internal
+    protected boolean isAutoExecutionMode() {
+        this.autoExecutionMode
+    }
+
+    private void convert() {
         checkForInvalidSourceDocuments()
         checkForIncompatiblePathRoots(baseDirStrategy)
+        prepareOutputStaging()
 
+        Future<?> prewarmedFork = null
         if (executionMode == JAVA_EXEC) {
-            entrypoint {
-                classpath(JavaExecUtils.getJavaExecClasspath(
-                        projectOperations,
-                        configurations
-                ))
+            if (prewarmingRuntime) {
+                prewarmedFork = startPrewarmedFork()
+            } else {
+                entrypoint {
+                    classpath(JavaExecUtils.getJavaExecClasspath(
+                            projectOperations,
+                            configurations
+                    ))
+                }
             }
 
-            final mapping = prepareWorkspaceAndLoadExecutorConfigurations()
-
-            JavaExecUtils.writeExecConfigurationData(
-                    execConfigurationDataFile,
-                    mapping.values().flatten() as List<ExecutorConfiguration>
-            )
+            boolean prepared = false
+            try {
+                final mapping = prepareWorkspaceAndLoadExecutorConfigurations()
+
+                JavaExecUtils.writeExecConfigurationData(
+                        execConfigurationDataFile,
+                        mapping.values().flatten() as List<ExecutorConfiguration>
+                )
+                prepared = true
+            } finally {
+                if (prewarmedFork != null) {
+                    if (prepared) {
+                        RuntimePrewarm.ready(execConfigurationDataFile)
+                    } else {
+                        // Whatever went wrong, the forked process must not be left waiting for its configuration.
+                        RuntimePrewarm.abort(execConfigurationDataFile)
+                        awaitQuietly(prewarmedFork)
+                    }
+                }
+            }
         } else {
             entrypoint {
                 classpath(configurations)
             }
         }
-        super.exec()
+        final ConversionGovernor.Permit permit = executionMode == CLASSPATH ? admitConversion() : null
+        try {
+            if (prewarmedFork != null) {
+                awaitFork(prewarmedFork)
+            } else {
+                super.exec()
+            }
+
+            if (executionMode != JAVA_EXEC && (outputManifest || permit != null || processingConvertedOutputs)) {
+                worker.await()
+            }
+        } finally {
+            permit?.close()
+        }
+
+        if (processingConvertedOutputs) {
+            processConvertedOutputs()
+        }
+
+        if (outputManifest) {
+            commitStagedOutputs()
+        }
     }
 
     /** Initialises the core an Asciidoctor task
@@ -455,6 +559,7 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
     protected AbstractAsciidoctorTask(WorkerExecutor we) {
         super(we)
 
+        this.worker = we
         this.asciidoctorTaskFileOperations = new DefaultAsciidoctorFileOperations(this, 'AsciidoctorJ')
         this.workspacePreparation = new DefaultAsciidoctorWorkspacePreparation(
                 projectOperations,
@@ -472,12 +577,20 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
         this.rootDir = project.rootDir
         this.jvmClasspath = project.objects.property(FileCollection)
         this.execConfigurationDataFile = getExecConfigurationDataFile(this)
-        this.detachedConfigurationCreator = { ConfigurationContainer c, List<Dependency> deps ->
-            final cfg = c.detachedConfiguration(deps.toArray() as Dependency[])
-            cfg.canBeConsumed = false
-            cfg.canBeResolved = true
-            cfg
-        }.curry(project.configurations) as Function<List<Dependency>, Configuration>
+        this.executionHistoryFile = new File(
+                project.rootDir,
+                ".gradle/asciidoctor-gradle/execution-history/${projectOperations.fsOperations.toSafeFileName(path)}"
+        )
+        this.conversionGovernor = ConversionGovernor.register(project)
+        usesService(this.conversionGovernor)
+        this.extensionClasspathCache = ExtensionClasspathCache.register(project)
+        usesService(this.extensionClasspathCache)
+        this.refreshDependencies = project.gradle.startParameter.refreshDependencies
+        final ConfigurationContainer configurationContainer = project.configurations
+        final RepositoryHandler repositories = project.repositories
+        this.extensionDependencies = projectOperations.fsOperations.files({ ->
+            owner.findDependenciesInExtensions(configurationContainer, repositories)
+        } as Callable<FileCollection>)
 
         inputs.files(this.asciidoctorj.configuration)
             .withPathSensitivity(RELATIVE)
@@ -488,6 +601,9 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
         inputs.property 'backends', { -> backends() }
         inputs.property 'asciidoctorj-version', { -> asciidoctorj.version }
         inputs.property 'jruby-version', { -> asciidoctorj.jrubyVersion ?: '' }
+        inputs.property 'gradle-rootdir', { ->
+            relocatablePath(rootDir.toPath(), projectDir.toPath(), rootDir.toPath())
+        }
         execSpec = new AsciidoctorJvmExecSpec(projectOperations)
         entrypoint {
             mainClass = AsciidoctorJavaExec.canonicalName
@@ -574,10 +690,13 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
             Optional<String> lang
     ) {
         Optional<List<String>> copyResources = getCopyResourcesForBackends()
+        File backendOutputDir = lang.present ?
+                getOutputDirForBackend(backendName, lang.get()) :
+                getOutputDirForBackend(backendName)
         new ExecutorConfiguration(
                 sourceDir: workingSourceDir,
                 sourceTree: sourceFiles,
-                outputDir: lang.present ? getOutputDirForBackend(backendName, lang.get()) : getOutputDirForBackend(backendName),
+                outputDir: getConversionDirFor(backendOutputDir),
                 baseDir: lang.present ? getBaseDir(lang.get()) : getBaseDir(),
                 projectDir: this.projectDir,
                 rootDir: this.rootDir,
@@ -595,7 +714,13 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
                 copyResources: copyResources.present &&
                         (copyResources.get().empty || backendName in copyResources.get()),
                 executorLogLevel: ExecutorUtils.getExecutorLogLevel(asciidoctorj.logLevel),
-                safeModeLevel: asciidoctorj.safeMode.level
+                safeModeLevel: asciidoctorj.safeMode.level,
+                diagramCacheDir: asciidoctorj.useDiagramCache ? asciidoctorj.diagramCacheDirectory : null,
+                diagramCacheMaxSize: asciidoctorj.diagramCacheMaxSize,
+                includeCacheMaxSize: asciidoctorj.includeCacheMaxSize,
+                maxDocumentsPerRuntime: asciidoctorj.maxDocumentsPerRuntime,
+                // In the daemon the occupancy would reflect all of Gradle, not only the runtime.
+                maxHeapOccupancy: executionMode == CLASSPATH ? 0d : asciidoctorj.maxHeapOccupancy
         )
     }
 
@@ -677,6 +802,148 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
         mapping
     }
 
+    private void applyExecutionMode(ExecutionMode em) {
+        super.setExecutionMode(em)
+        inProcess = em
+
+        if (em == JAVA_EXEC) {
+            runnerSpec {
+                setArgs([getExecConfigurationDataFile(this).absolutePath])
+            }
+        }
+    }
+
+    @SuppressWarnings('CatchThrowable')
+    private void execWithAdvisedMode() {
+        final int documents = sourceFileTree.files.size()
+        final ConversionGovernor governor = conversionGovernor.get()
+        final ExecutionHistory history = ExecutionHistory.load(executionHistoryFile)
+        final ExecutionModeAdvisor.Decision decision = new ExecutionModeAdvisor(history).advise(
+                documents,
+                governor.estimate(sourceFileTree.files),
+                governor.headroom
+        )
+        logger.info("${path} runs in ${decision.mode} mode: ${decision.reasons.join('; ')}")
+        applyExecutionMode(decision.mode)
+
+        final long started = System.currentTimeMillis()
+        ExecutionHistory.Outcome outcome = ExecutionHistory.Outcome.FAILURE
+        try {
+            convert()
+            outcome = ExecutionHistory.Outcome.SUCCESS
+        } catch (Throwable e) {
+            if (isCausedByOutOfMemory(e)) {
+                outcome = ExecutionHistory.Outcome.OUT_OF_MEMORY
+            }
+            throw e
+        } finally {
+            // Only conversions in the daemon say something about its heap. Occupancy after the last collection
+            // is used, as the current usage mostly consists of garbage.
+            history.record(decision.mode, new ExecutionHistory.Sample(
+                    documents,
+                    System.currentTimeMillis() - started,
+                    outcome,
+                    decision.mode == CLASSPATH ? RuntimeRecycler.tenuredHeapOccupancy() : 0d
+            ))
+            try {
+                history.save()
+            } catch (IOException e) {
+                logger.warn("Could not save the execution history of ${path}: ${e.message}")
+            }
+        }
+    }
+
+    @SuppressWarnings('Instanceof')
+    private static boolean isCausedByOutOfMemory(Throwable e) {
+        Throwable cause = e
+        while (cause != null && !(cause instanceof OutOfMemoryError)) {
+            cause = cause.cause == cause ? null : cause.cause
+        }
+        cause != null
+    }
+
+    /** Whether the Java process is started before the workspace is prepared.
+     *
+     * @return {@code true} in {@link #JAVA_EXEC} mode if pre-warming has been enabled.
+     *
+     * @since 4.0
+     */
+    @Internal
+    protected boolean isPrewarmingRuntime() {
+        executionMode == JAVA_EXEC && asciidoctorj.prewarmRuntime
+    }
+
+    /** Whether converted outputs are post-processed before they are committed to the output directories.
+     *
+     * @return {@code true} if {@link #processConvertedOutputs} should be called. The default is {@code false}.
+     *
+     * @since 4.0
+     */
+    @Internal
+    protected boolean isProcessingConvertedOutputs() {
+        false
+    }
+
+    /** Post-processes converted outputs.
+     *
+     * This is called once all conversions have completed and before staged outputs are committed. Outputs should
+     * therefore be located via {@link #getConversionDirFor}.
+     *
+     * @since 4.0
+     */
+    protected void processConvertedOutputs() {
+        // Outputs are left as they are by default.
+    }
+
+    // The classpath is resolved here, as the process is started from a thread which Gradle does not manage.
+    // For the same reason, the fork is not attributed to the task in build scans or progress logging, and is
+    // only stopped on cancellation once the task action itself stops waiting for it.
+    private Future<?> startPrewarmedFork() {
+        final Set<File> javaExecClasspath = JavaExecUtils.getJavaExecClasspath(projectOperations, configurations).files
+        RuntimePrewarm.reset(execConfigurationDataFile)
+        entrypoint {
+            classpath(javaExecClasspath)
+        }
+        runnerSpec {
+            setArgs([execConfigurationDataFile.absolutePath, RuntimePrewarm.FLAG] + asciidoctorj.requires)
+        }
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor()
+        try {
+            executor.submit({ -> owner.forkJavaExec() } as Callable<Void>)
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    private Void forkJavaExec() {
+        super.exec()
+        null
+    }
+
+    private static void awaitFork(Future<?> fork) {
+        try {
+            fork.get()
+        } catch (ExecutionException e) {
+            throw e.cause
+        }
+    }
+
+    @SuppressWarnings('CatchException')
+    private static void awaitQuietly(Future<?> fork) {
+        try {
+            fork.get()
+        } catch (Exception ignored) {
+            // The task is already failing for another reason.
+        }
+    }
+
+    // Conversions on the classpath share the heap of the daemon with all other tasks.
+    private ConversionGovernor.Permit admitConversion() {
+        final ConversionGovernor governor = conversionGovernor.get()
+        governor.admit(path, governor.estimate(sourceFileTree.files))
+    }
+
     private List<Optional<String>> getLanguagesAsOptionals() {
         if (this.languages.empty) {
             [Optional.empty() as Optional<String>]
@@ -706,7 +973,10 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
     }
 
     @SuppressWarnings('Instanceof')
-    private FileCollection findDependenciesInExtensions() {
+    private FileCollection findDependenciesInExtensions(
+            ConfigurationContainer configurationContainer,
+            RepositoryHandler repositories
+    ) {
         List<Dependency> deps = asciidoctorj.docExtensions.findAll {
             it instanceof Dependency
         } as List<Dependency>
@@ -723,11 +993,12 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
         if (deps.empty && closurePaths.empty) {
             projectOperations.fsOperations.emptyFileCollection()
         } else if (closurePaths.empty) {
-            jrubyLessConfiguration(deps)
+            jrubyLessConfiguration(configurationContainer, repositories, deps)
         } else if (deps.empty) {
             projectOperations.fsOperations.files(closurePaths)
         } else {
-            jrubyLessConfiguration(deps) + projectOperations.fsOperations.files(closurePaths)
+            jrubyLessConfiguration(configurationContainer, repositories, deps) +
+                    projectOperations.fsOperations.files(closurePaths)
         }
     }
 
@@ -754,9 +1025,33 @@ class AbstractAsciidoctorTask extends AbstractJvmModelExecTask<AsciidoctorJvmExe
         }
     }
 
+    private FileCollection jrubyLessConfiguration(
+            ConfigurationContainer configurationContainer,
+            RepositoryHandler repositories,
+            List<Dependency> deps
+    ) {
+        final String key = ExtensionClasspathCache.keyOf(
+                deps,
+                [asciidoctorj.jrubyVersion ?: '', rootDir.absolutePath, GradleVersion.current().version] +
+                        ExtensionClasspathCache.describe(repositories)
+        )
+        if (key == null || refreshDependencies) {
+            detachedJRubyLessConfiguration(configurationContainer, deps)
+        } else {
+            projectOperations.fsOperations.files(extensionClasspathCache.get().resolve(key) { ->
+                owner.detachedJRubyLessConfiguration(configurationContainer, deps).files
+            })
+        }
+    }
+
     // TODO: Try to do this without a detached configuration
-    private FileCollection jrubyLessConfiguration(List<Dependency> deps) {
-        Configuration cfg = detachedConfigurationCreator.apply(deps)
+    private Configuration detachedJRubyLessConfiguration(
+            ConfigurationContainer configurationContainer,
+            List<Dependency> deps
+    ) {
+        final Configuration cfg = configurationContainer.detachedConfiguration(deps.toArray() as Dependency[])
+        cfg.canBeConsumed = false
+        cfg.canBeResolved = true
         asciidoctorj.loadJRubyResolutionStrategy(cfg)
         cfg
     }
@@ -32,6 +32,7 @@ import org.gradle.api.provider.Provider
 import org.ysb33r.grolifant.api.core.LegacyLevel
 
 import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
 import java.util.function.BiConsumer
 import java.util.function.BiFunction
 import java.util.function.Function
@@ -66,6 +67,8 @@ class AsciidoctorJExtension extends AbstractImplementationEngineExtension {
     private static final String JRUBY_COMPLETE_DEPENDENCY = JavaExecUtils.JRUBY_COMPLETE_DEPENDENCY
     private static final String ASCIIDOCTOR_DEPENDENCY_PROPERTY_NAME = 'asciidoctorj'
     private static final String CONFIGURATION_NAME = "__\$\$${NAME}\$\$__"
+    private static final long DEFAULT_DIAGRAM_CACHE_MAX_SIZE = 256L * 1024L * 1024L
+    private static final long DEFAULT_INCLUDE_CACHE_MAX_SIZE = 64L * 1024L * 1024L
 
     @SuppressWarnings(['SpaceAfterOpeningBrace', 'SpaceBeforeClosingBrace'])
     private static final Closure EMPTY_CONFIGURATOR = {}
@@ -83,14 +86,23 @@ class AsciidoctorJExtension extends AbstractImplementationEngineExtension {
     private final DefaultAsciidoctorJModules modules
     private final Configuration publicConfiguration
     private final Configuration privateConfiguration
-    private final BiFunction<String, Closure, Dependency> dependencyCreator
-    private final Function<Project, Dependency> projectDependency
+    private final Map<String, Callable<String>> versionRules = new ConcurrentHashMap<String, Callable<String>>()
+    // Dependency handlers are only used during configuration and are not kept in the configuration cache.
+    private final transient BiFunction<String, Closure, Dependency> dependencyCreator
+    private final transient Function<Project, Dependency> projectDependency
     private Object version
     private Optional<Object> jrubyVersionProvider
     private boolean onlyTaskOptions = false
     private boolean onlyTaskExtensions = false
     private boolean onlyTaskWarnings = false
     private LogLevel logLevel
+    private Object diagramCacheDirectory
+    private Long diagramCacheMaxSize
+    private Boolean useDiagramCache
+    private Long includeCacheMaxSize
+    private Integer maxDocumentsPerRuntime
+    private Double maxHeapOccupancy
+    private Boolean prewarmRuntime
     private boolean onlyTaskRequires = false
 
     /** Attach extension to a project.
@@ -113,14 +125,20 @@ class AsciidoctorJExtension extends AbstractImplementationEngineExtension {
         this.version = defaultVersionMap[ASCIIDOCTOR_DEPENDENCY_PROPERTY_NAME]
         this.modules = new DefaultAsciidoctorJModules(projectOperations, this, defaultVersionMap)
         this.defaultLogLevel = project.logging.level
+        this.diagramCacheDirectory = new File(project.gradle.gradleUserHomeDir, 'caches/asciidoctor-gradle/diagrams')
+        this.diagramCacheMaxSize = DEFAULT_DIAGRAM_CACHE_MAX_SIZE
+        this.useDiagramCache = true
+        this.includeCacheMaxSize = DEFAULT_INCLUDE_CACHE_MAX_SIZE
+        this.maxDocumentsPerRuntime = 0
+        this.maxHeapOccupancy = 0d
+        this.prewarmRuntime = false
         if (this.version == null) {
             throw new ModuleNotFoundException('Default version for AsciidoctorJ must be defined. ' +
                     'Please report a bug at https://github.com/asciidoctor/asciidoctor-gradle-plugin/issues'
             )
         }
 
-        this.modules.onUpdate { owner.updateConfiguration() }
-        updateConfiguration()
+        loadDependenciesOnResolve()
     }
 
     /** Attach extension to a task.
@@ -145,8 +163,7 @@ class AsciidoctorJExtension extends AbstractImplementationEngineExtension {
         this.dependencyCreator = createDependencyLoader(task.project.dependencies, this.privateConfiguration)
         this.projectDependency = createProjectDependencyLoader(task.project.dependencies)
         this.modules = new DefaultAsciidoctorJModules(projectOperations, this, defaultVersionMap)
-        this.modules.onUpdate { owner.updateConfiguration() }
-        updateConfiguration()
+        loadDependenciesOnResolve()
     }
 
     /* -------------------------
@@ -404,7 +421,6 @@ class AsciidoctorJExtension extends AbstractImplementationEngineExtension {
      */
     void setJrubyVersion(Object v) {
         this.jrubyVersionProvider = Optional.of(v)
-        updateConfiguration()
     }
 
     /* -------------------------
@@ -443,6 +459,214 @@ class AsciidoctorJExtension extends AbstractImplementationEngineExtension {
         this.logLevel = LogLevel.valueOf(logLevel.toUpperCase())
     }
 
+    /* -------------------------
+       tag::extension-property[]
+       useDiagramCache:: Whether images rendered by {asciidoctorj-name} Diagram are kept in a persistent cache.
+         Unchanged diagrams are then served from the cache instead of being rendered again. Default is `true`.
+       diagramCacheDirectory:: Location of the diagram render cache.
+         Default is a directory inside the Gradle user home, which shares the cache between projects.
+       diagramCacheMaxSize:: Maximum size of the diagram render cache in bytes.
+         The least recently used diagrams are removed once the cache grows beyond this size. Default is 256MB.
+       end::extension-property[]
+       ------------------------- */
+
+    /** Whether images rendered by asciidoctor-diagram are kept in a persistent cache.
+     *
+     * @return {@code true} if the cache is used. The default is {@code true}.
+     *
+     * @since 4.0
+     */
+    boolean getUseDiagramCache() {
+        if (task) {
+            this.useDiagramCache == null ? extFromProject.useDiagramCache : this.useDiagramCache
+        } else {
+            this.useDiagramCache
+        }
+    }
+
+    /** Whether images rendered by asciidoctor-diagram are kept in a persistent cache.
+     *
+     * @param flag {@code false} to render diagrams on every conversion.
+     *
+     * @since 4.0
+     */
+    void setUseDiagramCache(boolean flag) {
+        this.useDiagramCache = flag
+    }
+
+    /** The directory of the diagram render cache.
+     *
+     * @return Cache directory.
+     *
+     * @since 4.0
+     */
+    File getDiagramCacheDirectory() {
+        if (task) {
+            this.diagramCacheDirectory == null ? extFromProject.diagramCacheDirectory :
+                    projectOperations.fsOperations.file(this.diagramCacheDirectory)
+        } else {
+            projectOperations.fsOperations.file(this.diagramCacheDirectory)
+        }
+    }
+
+    /** Sets the directory of the diagram render cache.
+     *
+     * @param dir Anything that can be converted to a file.
+     *
+     * @since 4.0
+     */
+    void setDiagramCacheDirectory(Object dir) {
+        this.diagramCacheDirectory = dir
+    }
+
+    /** The maximum size of the diagram render cache.
+     *
+     * @return Size in bytes.
+     *
+     * @since 4.0
+     */
+    long getDiagramCacheMaxSize() {
+        if (task) {
+            this.diagramCacheMaxSize == null ? extFromProject.diagramCacheMaxSize : this.diagramCacheMaxSize
+        } else {
+            this.diagramCacheMaxSize
+        }
+    }
+
+    /** Sets the maximum size of the diagram render cache.
+     *
+     * @param size Size in bytes. Use zero to never remove any entries.
+     *
+     * @since 4.0
+     */
+    void setDiagramCacheMaxSize(long size) {
+        this.diagramCacheMaxSize = size
+    }
+
+    /* -------------------------
+       tag::extension-property[]
+       includeCacheMaxSize:: Maximum amount of memory in bytes used to cache the content of include files.
+         Files which are included by many documents are then only read once per {asciidoctorj-name} runtime, until
+         they change. Asciidoctor still processes every include itself. Set to `0` to disable it. Default is 64MB.
+       end::extension-property[]
+       ------------------------- */
+
+    /** The maximum amount of memory used to cache the content of include files.
+     *
+     * @return Size in bytes.
+     *
+     * @since 4.0
+     */
+    long getIncludeCacheMaxSize() {
+        if (task) {
+            this.includeCacheMaxSize == null ? extFromProject.includeCacheMaxSize : this.includeCacheMaxSize
+        } else {
+            this.includeCacheMaxSize
+        }
+    }
+
+    /** Sets the maximum amount of memory used to cache the content of include files.
+     *
+     * @param size Size in bytes. Use zero to disable the cache.
+     *
+     * @since 4.0
+     */
+    void setIncludeCacheMaxSize(long size) {
+        this.includeCacheMaxSize = size
+    }
+
+    /* -------------------------
+       tag::extension-property[]
+       maxDocumentsPerRuntime:: Number of documents after which the {asciidoctorj-name} runtime is replaced by a
+         fresh one, in order to release memory retained by extensions and Ruby globals. Default is `0`, which means
+         that there is no limit.
+       maxHeapOccupancy:: Fraction of the tenured heap that may still be occupied after a garbage collection
+         before the {asciidoctorj-name} runtime is replaced by a fresh one. Only applies in `JAVA_EXEC` and
+         `OUT_OF_PROCESS` modes. Default is `0`, which disables the check.
+       end::extension-property[]
+       ------------------------- */
+
+    /** The number of documents after which the Asciidoctor runtime is replaced.
+     *
+     * @return Document count. Zero means no limit.
+     *
+     * @since 4.0
+     */
+    int getMaxDocumentsPerRuntime() {
+        if (task) {
+            this.maxDocumentsPerRuntime == null ? extFromProject.maxDocumentsPerRuntime : this.maxDocumentsPerRuntime
+        } else {
+            this.maxDocumentsPerRuntime
+        }
+    }
+
+    /** Sets the number of documents after which the Asciidoctor runtime is replaced.
+     *
+     * @param count Document count. Use zero for no limit.
+     *
+     * @since 4.0
+     */
+    void setMaxDocumentsPerRuntime(int count) {
+        this.maxDocumentsPerRuntime = count
+    }
+
+    /** The heap occupancy after garbage collection at which the Asciidoctor runtime is replaced.
+     *
+     * @return Fraction of the tenured heap. Zero means no limit.
+     *
+     * @since 4.0
+     */
+    double getMaxHeapOccupancy() {
+        if (task) {
+            this.maxHeapOccupancy == null ? extFromProject.maxHeapOccupancy : this.maxHeapOccupancy
+        } else {
+            this.maxHeapOccupancy
+        }
+    }
+
+    /** Sets the heap occupancy after garbage collection at which the Asciidoctor runtime is replaced.
+     *
+     * @param fraction Fraction of the tenured heap. Use zero for no limit.
+     *
+     * @since 4.0
+     */
+    void setMaxHeapOccupancy(double fraction) {
+        this.maxHeapOccupancy = fraction
+    }
+
+    /* -------------------------
+       tag::extension-property[]
+       prewarmRuntime:: Whether the {asciidoctorj-name} process is started in `JAVA_EXEC` mode before the workspace
+         is prepared, so that JRuby boots and loads the `requires` whilst sources and resources are being copied.
+         The process is started from a thread which Gradle does not manage. It is therefore not attributed to the
+         task in build scans and progress logging. Default is `false`.
+       end::extension-property[]
+       ------------------------- */
+
+    /** Whether the Asciidoctor process is started before the workspace is prepared.
+     *
+     * @return {@code true} if the runtime is pre-warmed. The default is {@code false}.
+     *
+     * @since 4.0
+     */
+    boolean getPrewarmRuntime() {
+        if (task) {
+            this.prewarmRuntime == null ? extFromProject.prewarmRuntime : this.prewarmRuntime
+        } else {
+            this.prewarmRuntime
+        }
+    }
+
+    /** Whether the Asciidoctor process is started before the workspace is prepared.
+     *
+     * @param flag {@code true} to start the process before the workspace is prepared.
+     *
+     * @since 4.0
+     */
+    void setPrewarmRuntime(boolean flag) {
+        this.prewarmRuntime = flag
+    }
+
     /* -------------------------
        tag::extension-property[]
         modules:: Configuration for version of specific components and converters that can be used.
@@ -627,7 +851,6 @@ class AsciidoctorJExtension extends AbstractImplementationEngineExtension {
      */
     void setVersion(Object v) {
         this.version = v
-        updateConfiguration()
     }
 
     /**
@@ -725,6 +948,26 @@ class AsciidoctorJExtension extends AbstractImplementationEngineExtension {
         }
     }
 
+    /**
+     * Dependencies are only added once the configuration is about to be resolved. This means that the versions of
+     * all modules are known at that point and that no work is done for tasks which never execute.
+     *
+     * The resolution strategy of the public configuration cannot be changed once its resolution has started, so
+     * a single rule is registered up front, which applies the version rules that are added with the dependencies.
+     */
+    private void loadDependenciesOnResolve() {
+        final Map<String, Callable<String>> rules = this.versionRules
+        this.publicConfiguration.resolutionStrategy.eachDependency { DependencyResolveDetails drd ->
+            final Callable<String> versionResolver = rules["${drd.requested.group}:${drd.requested.name}".toString()]
+            if (versionResolver != null) {
+                DRD_VERSION_RESOLVER.accept(drd, versionResolver)
+            }
+        }
+        this.privateConfiguration.withDependencies { DependencySet ignored ->
+            owner.updateConfiguration()
+        }
+    }
+
     private void updateConfiguration() {
         final String gDslVer = finalGroovyDslVersion
         final String pdfVer = finalPdfVersion
@@ -783,13 +1026,7 @@ class AsciidoctorJExtension extends AbstractImplementationEngineExtension {
         }) {
             final initialVersion = versionResolver.call()
             dependencyCreator.apply("${coords}:${initialVersion}".toString(), configurator)
-            this.publicConfiguration.resolutionStrategy { ResolutionStrategy rs ->
-                rs.eachDependency { drd ->
-                    if (drd.requested.group == parts[0] && drd.requested.name == parts[1]) {
-                        DRD_VERSION_RESOLVER.accept(drd, versionResolver)
-                    }
-                }
-            }
+            versionRules.put(coords, versionResolver)
         }
     }
 
@@ -41,5 +41,14 @@ class AsciidoctorJPlugin implements Plugin<Project> {
         }
 
         project.tasks.register('asciidoctor', AsciidoctorTask, asciidoctorDefaults)
+        project.tasks.register('asciidoctorPreview', AsciidoctorPreviewTask, new Action<AsciidoctorPreviewTask>() {
+            @Override
+            void execute(AsciidoctorPreviewTask previewTask) {
+                previewTask.with {
+                    group = AsciidoctorJBasePlugin.TASK_GROUP
+                    description = 'Serves a live preview of AsciiDoc files which is updated whilst they are edited'
+                }
+            }
+        })
     }
 }
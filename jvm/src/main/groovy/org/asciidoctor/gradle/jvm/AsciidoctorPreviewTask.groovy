@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.jvm
+
+import groovy.transform.CompileStatic
+import org.asciidoctor.gradle.remote.AsciidoctorPreviewServer
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.options.Option
+import org.gradle.workers.WorkerExecutor
+
+import javax.inject.Inject
+
+import static org.asciidoctor.gradle.base.AsciidoctorUtils.setConvention
+import static org.asciidoctor.gradle.internal.JavaExecUtils.getExecConfigurationDataFile
+
+/** Converts documents and keeps on re-converting them whilst they are being edited.
+ *
+ * <p>
+ *   The task starts a long-running Java process which keeps an Asciidoctor runtime warm, watches the source
+ *   directory and only re-converts the documents affected by a change. The HTML output is served on a local
+ *   port and open pages reload themselves as soon as a conversion has completed. The task runs until it is
+ *   interrupted.
+ * </p>
+ * <p>
+ *   The task always runs in {@link #JAVA_EXEC} mode. If it is named {@code asciidoctorPreview}, the default
+ *   source directory is {@code "src/docs/asciidoc"}.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class AsciidoctorPreviewTask extends AsciidoctorTask {
+
+    public static final int DEFAULT_PORT = 8000
+
+    private int port = DEFAULT_PORT
+
+    @Inject
+    AsciidoctorPreviewTask(WorkerExecutor we) {
+        super(we)
+        if (name == 'asciidoctorPreview') {
+            setConvention(project, sourceDirProperty, project.layout.projectDirectory.dir('src/docs/asciidoc'))
+        }
+        entrypoint {
+            mainClass = AsciidoctorPreviewServer.canonicalName
+        }
+        outputs.upToDateWhen { false }
+        outputs.cacheIf { false }
+    }
+
+    /** The local port on which the preview is served.
+     *
+     * @return Port number.
+     */
+    @Internal
+    int getPort() {
+        this.port
+    }
+
+    /** Sets the local port on which the preview is served.
+     *
+     * @param port Port number. Use {@code 0} to let the operating system choose a free port.
+     */
+    void setPort(int port) {
+        this.port = port
+    }
+
+    /** Sets the local port from the command-line.
+     *
+     * @param port Port number.
+     */
+    @Option(option = 'port', description = 'Local port on which the preview is served')
+    void setPort(String port) {
+        this.port = port.toInteger()
+    }
+
+    @Override
+    void exec() {
+        if (executionMode != JAVA_EXEC || autoExecutionMode) {
+            logger.warn("${name} only runs in JAVA_EXEC mode. Ignoring the configured execution mode.")
+            executionMode = JAVA_EXEC
+        }
+        runnerSpec {
+            setArgs([getExecConfigurationDataFile(this).absolutePath, port.toString(), sourceDir.absolutePath])
+        }
+        logger.lifecycle("Starting preview of ${sourceDir} on port ${port}. Interrupt the build to stop it.")
+        super.exec()
+    }
+
+    /** The preview process is long-lived, so it is never started ahead of its work.
+     *
+     * @return {@code false}.
+     */
+    @Override
+    protected boolean isPrewarmingRuntime() {
+        false
+    }
+
+    /** Pages are served as they are converted, so they are never post-processed.
+     *
+     * @return {@code false}.
+     */
+    @Override
+    protected boolean isProcessingConvertedOutputs() {
+        false
+    }
+}
@@ -17,8 +17,11 @@ package org.asciidoctor.gradle.jvm
 
 import groovy.transform.CompileStatic
 import org.asciidoctor.gradle.base.OutputOptions
+import org.asciidoctor.gradle.internal.ResponsiveImages
 import org.gradle.api.Action
 import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.util.PatternSet
 import org.gradle.workers.WorkerExecutor
 import org.ysb33r.grolifant.api.core.ClosureUtils
@@ -56,6 +59,13 @@ import static org.asciidoctor.gradle.base.AsciidoctorUtils.setConvention
 @CacheableTask
 class AsciidoctorTask extends AbstractAsciidoctorTask {
 
+    private static final float RESPONSIVE_IMAGE_QUALITY = 0.85f
+
+    private boolean responsiveImages = false
+    private final List<Integer> responsiveImageWidths = [480, 960, 1440]
+    private String responsiveImageSizes = '100vw'
+    private Object responsiveImageCacheDir
+
     /**
      * Configures output options for this task.
      *
@@ -88,6 +98,10 @@ class AsciidoctorTask extends AbstractAsciidoctorTask {
         final String safeFolderName = projectOperations.fsOperations.toSafeFileName(folderName)
         setConvention(project, sourceDirProperty, project.layout.projectDirectory.dir("src/docs/${folderName}"))
         setConvention(outputDirProperty, project.layout.buildDirectory.dir("docs/${safeFolderName}"))
+        this.responsiveImageCacheDir = new File(
+                project.gradle.gradleUserHomeDir,
+                'caches/asciidoctor-gradle/responsive-images'
+        )
     }
 
     @Override
@@ -101,6 +115,95 @@ class AsciidoctorTask extends AbstractAsciidoctorTask {
         super.exec()
     }
 
+    /** Whether HTML outputs are given responsive image variants and lazy loading.
+     *
+     * @return {@code true} if images are post-processed. The default is {@code false}.
+     *
+     * @since 4.0
+     */
+    @Input
+    boolean getResponsiveImages() {
+        this.responsiveImages
+    }
+
+    /** Adds responsive image variants and lazy loading to HTML outputs.
+     *
+     * Narrower copies of every local PNG and JPEG image are written next to the image and the {@code img} tags
+     * are given {@code srcset}, {@code sizes}, {@code loading="lazy"} and explicit dimensions. WebP copies are
+     * added if an ImageIO writer for WebP is available. Copies are cached by the hash of the original image.
+     *
+     * @param flag {@code true} to post-process images.
+     *
+     * @since 4.0
+     */
+    void setResponsiveImages(boolean flag) {
+        this.responsiveImages = flag
+    }
+
+    /** The widths of the image variants.
+     *
+     * @return Widths in pixels. Variants are only created for widths that are smaller than the original image.
+     *
+     * @since 4.0
+     */
+    @Input
+    List<Integer> getResponsiveImageWidths() {
+        this.responsiveImageWidths
+    }
+
+    /** Replaces the widths of the image variants.
+     *
+     * @param widths Widths in pixels.
+     *
+     * @since 4.0
+     */
+    void setResponsiveImageWidths(Iterable<Integer> widths) {
+        this.responsiveImageWidths.clear()
+        this.responsiveImageWidths.addAll(widths)
+    }
+
+    /** The {@code sizes} attribute for images which do not have an explicit width.
+     *
+     * @return Media conditions and sizes. The default is {@code 100vw}.
+     *
+     * @since 4.0
+     */
+    @Input
+    String getResponsiveImageSizes() {
+        this.responsiveImageSizes
+    }
+
+    /** Sets the {@code sizes} attribute for images which do not have an explicit width.
+     *
+     * @param sizes Media conditions and sizes, for instance {@code (max-width: 60em) 100vw, 60em}.
+     *
+     * @since 4.0
+     */
+    void setResponsiveImageSizes(String sizes) {
+        this.responsiveImageSizes = sizes
+    }
+
+    /** The directory in which image variants are cached.
+     *
+     * @return Cache directory. By default, this is a directory inside the Gradle user home.
+     *
+     * @since 4.0
+     */
+    @Internal
+    File getResponsiveImageCacheDir() {
+        projectOperations.fsOperations.file(this.responsiveImageCacheDir)
+    }
+
+    /** Sets the directory in which image variants are cached.
+     *
+     * @param dir Anything convertible to a file.
+     *
+     * @since 4.0
+     */
+    void setResponsiveImageCacheDir(Object dir) {
+        this.responsiveImageCacheDir = dir
+    }
+
     /** The default pattern set for secondary sources baced upon the configured backends.
      *
      * If the backends contain {@code docbook} then {@code *docbook*.xml} is added.
@@ -121,5 +224,34 @@ class AsciidoctorTask extends AbstractAsciidoctorTask {
 
         ps
     }
+
+    @Override
+    @Internal
+    protected boolean isProcessingConvertedOutputs() {
+        this.responsiveImages && backends().any { String it -> it.startsWith('html') }
+    }
+
+    @Override
+    protected void processConvertedOutputs() {
+        final ResponsiveImages images = new ResponsiveImages(
+                responsiveImageCacheDir,
+                responsiveImageWidths,
+                responsiveImageSizes,
+                RESPONSIVE_IMAGE_QUALITY
+        )
+        final Set<File> dirs = new LinkedHashSet<File>()
+        for (String backend : backends().findAll { String it -> it.startsWith('html') }) {
+            if (languages.empty) {
+                dirs.add(getConversionDirFor(getOutputDirForBackend(backend)))
+            } else {
+                for (String lang : languages) {
+                    dirs.add(getConversionDirFor(getOutputDirForBackend(backend, lang)))
+                }
+            }
+        }
+        for (File dir : dirs) {
+            logger.info("Added responsive images to ${images.process(dir)} page(s) in ${dir}")
+        }
+    }
 }
 
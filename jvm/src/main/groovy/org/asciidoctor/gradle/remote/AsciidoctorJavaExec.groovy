@@ -21,6 +21,7 @@ import org.asciidoctor.Asciidoctor
 import org.asciidoctor.gradle.internal.ExecutorConfiguration
 import org.asciidoctor.gradle.internal.ExecutorConfigurationContainer
 import org.asciidoctor.gradle.internal.ExecutorLogLevel
+import org.asciidoctor.gradle.internal.RuntimePrewarm
 import org.asciidoctor.groovydsl.AsciidoctorExtensions
 import org.asciidoctor.log.LogHandler
 
@@ -34,64 +35,144 @@ import static org.asciidoctor.jruby.AsciidoctorJRuby.Factory.create
 @CompileStatic
 class AsciidoctorJavaExec extends ExecutorBase {
 
+    private static final long PREWARM_TIMEOUT_MS = 600000
+
+    private Asciidoctor prewarmed
+
     static void main(String[] args) {
-        if (args.size() != 1) {
+        if (args.size() < 1) {
             throw new AsciidoctorRemoteExecutionException('No serialised location specified')
         }
 
+        final File dataFile = new File(args[0])
+        Asciidoctor runtime = null
+        if (args.size() > 1 && args[1] == RuntimePrewarm.FLAG) {
+            Thread.currentThread().contextClassLoader = AsciidoctorJavaExec.classLoader
+            runtime = create()
+            runtime.requireLibraries(args.drop(2).toList())
+            if (!RuntimePrewarm.await(dataFile, PREWARM_TIMEOUT_MS)) {
+                runtime.shutdown()
+                throw new AsciidoctorRemoteExecutionException('No work was handed to the pre-warmed runtime')
+            }
+        }
+
         ExecutorConfigurationContainer ecc
-        new File(args[0]).withInputStream { input ->
+        dataFile.withInputStream { input ->
             new ObjectInputStream(input).withCloseable { ois ->
                 ecc = (ExecutorConfigurationContainer) ois.readObject()
             }
         }
 
-        new AsciidoctorJavaExec(ecc).run()
+        new AsciidoctorJavaExec(ecc, runtime).run()
     }
 
     AsciidoctorJavaExec(ExecutorConfigurationContainer ecc) {
+        this(ecc, null)
+    }
+
+    /** Creates an executor which starts with an Asciidoctor instance that has already been booted.
+     *
+     * @param ecc Executor configurations.
+     * @param prewarmed Asciidoctor instance. Can be {@code null}.
+     *
+     * @since 4.0
+     */
+    AsciidoctorJavaExec(ExecutorConfigurationContainer ecc, Asciidoctor prewarmed) {
         super(ecc)
+        this.prewarmed = prewarmed
     }
 
     void run() {
         failureLevel = findHighestFailureLevel(runConfigurations*.failureLevel.toList())
         Thread.currentThread().contextClassLoader = this.class.classLoader
-        Asciidoctor asciidoctor = asciidoctorInstance
+        Asciidoctor asciidoctor = startRuntime()
+
+        try {
+            for (ExecutorConfiguration runConfiguration : runConfigurations) {
+                resetMessagePatternsTo(runConfiguration.fatalMessagePatterns)
+                runConfiguration.outputDir.mkdirs()
+                asciidoctor = convertFiles(asciidoctor, runConfiguration)
+                failOnFailureLevelReachedOrExceeded()
+                failOnWarnings()
+            }
+        } finally {
+            asciidoctor.shutdown()
+        }
+
+        runConfigurations.findAll { it.diagramCacheDir }.unique { it.diagramCacheDir }.each { runConfiguration ->
+            DiagramRenderCache.evict(runConfiguration.diagramCacheDir, runConfiguration.diagramCacheMaxSize)
+        }
+    }
+
+    /** Starts an Asciidoctor runtime with all requires and extensions of all configurations.
+     *
+     * @return Asciidoctor instance.
+     *
+     * @since 4.0
+     */
+    protected Asciidoctor startRuntime() {
+        final Asciidoctor asciidoctor = prewarmed ?: asciidoctorInstance
+        prewarmed = null
         addRequires(asciidoctor)
+        installDiagramCache(asciidoctor)
+        installIncludeCache(asciidoctor)
+        registerImageOptimiser(asciidoctor)
+        installPdfResourceCache(asciidoctor)
 
         runConfigurations.each { runConfiguration ->
             if (runConfiguration.asciidoctorExtensions?.size()) {
                 registerExtensions(asciidoctor, runConfiguration.asciidoctorExtensions)
             }
         }
+        asciidoctor
+    }
 
-        runConfigurations.each { runConfiguration ->
-            LogHandler lh = getLogHandler(runConfiguration.executorLogLevel)
-            asciidoctor.registerLogHandler(lh)
-            resetMessagePatternsTo(runConfiguration.fatalMessagePatterns)
-            runConfiguration.outputDir.mkdirs()
-            convertFiles(asciidoctor, runConfiguration)
-            asciidoctor.unregisterLogHandler(lh)
-            failOnFailureLevelReachedOrExceeded()
-            failOnWarnings()
+    @SuppressWarnings('Println')
+    private Asciidoctor convertFiles(Asciidoctor current, ExecutorConfiguration runConfiguration) {
+        final RuntimeRecycler recycler = RuntimeRecycler.of(runConfiguration)
+        final LogHandler lh = getLogHandler(runConfiguration.executorLogLevel)
+        Asciidoctor asciidoctor = current
+        asciidoctor.registerLogHandler(lh)
+
+        for (File file : runConfiguration.sourceTree) {
+            if (recycler.recycleRequired) {
+                if (runConfiguration.logDocuments) {
+                    println("Restarting Asciidoctor after ${recycler.documents} documents")
+                }
+                asciidoctor.shutdown()
+                asciidoctor = startRuntime()
+                asciidoctor.registerLogHandler(lh)
+                recycler.reset()
+            }
+            convertFile(asciidoctor, file, runConfiguration)
+            recycler.converted()
         }
+
+        asciidoctor.unregisterLogHandler(lh)
+        asciidoctor
     }
 
+    /** Converts a single document.
+     *
+     * @param asciidoctor Asciidoctor instance.
+     * @param file Document to convert.
+     * @param runConfiguration Configuration the document belongs to.
+     *
+     * @since 4.0
+     */
     @SuppressWarnings(['Println', 'CatchThrowable'])
-    private void convertFiles(Asciidoctor asciidoctor, ExecutorConfiguration runConfiguration) {
-        runConfiguration.sourceTree.each { File file ->
-            try {
-                if (runConfiguration.logDocuments) {
-                    println("Converting ${file}")
-                }
-                asciidoctor.convertFile(file, normalisedOptionsFor(file, runConfiguration))
-            } catch (Throwable exception) {
-                throw new AsciidoctorRemoteExecutionException(
-                    "Error running Asciidoctor whilst attempting to process ${file} " +
-                        "using backend ${runConfiguration.backendName}",
-                    exception
-                )
+    protected void convertFile(Asciidoctor asciidoctor, File file, ExecutorConfiguration runConfiguration) {
+        try {
+            if (runConfiguration.logDocuments) {
+                println("Converting ${file}")
             }
+            asciidoctor.convertFile(file, normalisedOptionsFor(file, runConfiguration))
+        } catch (Throwable exception) {
+            throw new AsciidoctorRemoteExecutionException(
+                "Error running Asciidoctor whilst attempting to process ${file} " +
+                    "using backend ${runConfiguration.backendName}",
+                exception
+            )
         }
     }
 
@@ -122,6 +203,28 @@ class AsciidoctorJavaExec extends ExecutorBase {
         }
     }
 
+    private void installDiagramCache(Asciidoctor asciidoctor) {
+        // The hook applies to the whole JRuby runtime, so the first configured cache is used.
+        runConfigurations.find { runConfiguration -> DiagramRenderCache.install(asciidoctor, runConfiguration) }
+    }
+
+    private void installIncludeCache(Asciidoctor asciidoctor) {
+        // The hook applies to the whole JRuby runtime, so the first configured cache is used.
+        runConfigurations.find { runConfiguration -> IncludeCache.install(asciidoctor, runConfiguration) }
+    }
+
+    private void registerImageOptimiser(Asciidoctor asciidoctor) {
+        // The processor applies to all conversions, so the first configuration which asks for it is used.
+        runConfigurations.find { runConfiguration ->
+            OptimisedImageTreeprocessor.register(asciidoctor, runConfiguration)
+        }
+    }
+
+    private void installPdfResourceCache(Asciidoctor asciidoctor) {
+        // The hook applies to the whole JRuby runtime, so it only has to be installed once.
+        runConfigurations.find { runConfiguration -> PdfResourceCache.install(asciidoctor, runConfiguration) }
+    }
+
     private Asciidoctor getAsciidoctorInstance() {
         create()
     }
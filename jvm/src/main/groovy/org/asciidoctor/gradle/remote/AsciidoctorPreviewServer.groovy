@@ -0,0 +1,313 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import groovy.transform.CompileStatic
+import org.asciidoctor.Asciidoctor
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+import org.asciidoctor.gradle.internal.ExecutorConfigurationContainer
+import org.asciidoctor.log.LogHandler
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.FileVisitResult
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.SimpleFileVisitor
+import java.nio.file.WatchEvent
+import java.nio.file.WatchKey
+import java.nio.file.WatchService
+import java.nio.file.attribute.BasicFileAttributes
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW
+
+/** Keeps an Asciidoctor runtime warm, re-converts documents when they change and serves the result.
+ *
+ * <p>
+ *   All documents are converted once at startup. Thereafter the source directory is watched and only the
+ *   documents affected by a change are re-converted, as determined by {@link PreviewPlan}. Pages served by the
+ *   preview server subscribe to an event stream and reload themselves once a conversion has completed.
+ * </p>
+ * <p>
+ *   If the task uses an intermediate working directory, changed files are mirrored to it before conversion.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class AsciidoctorPreviewServer extends AsciidoctorJavaExec {
+
+    public static final String EVENTS_PATH = '/__preview/events'
+
+    private static final long QUIET_PERIOD_MS = 50
+    private static final long HEARTBEAT_MS = 15000
+    private static final String RELOAD_SCRIPT = """<script>
+new EventSource('${EVENTS_PATH}').onmessage = function(e) { if (e.data === 'reload') { location.reload(); } };
+</script>"""
+
+    private final int port
+    private final File sourceDir
+    private final List<OutputStream> listeners = new CopyOnWriteArrayList<OutputStream>()
+    private Asciidoctor asciidoctor
+
+    /** Runs the preview until the process is terminated.
+     *
+     * @param args Location of serialised configurations, port number and the source directory.
+     */
+    static void main(String[] args) {
+        if (args.size() != 3) {
+            throw new AsciidoctorRemoteExecutionException('Expected serialised location, port and source directory')
+        }
+
+        ExecutorConfigurationContainer ecc
+        new File(args[0]).withInputStream { input ->
+            new ObjectInputStream(input).withCloseable { ois ->
+                ecc = (ExecutorConfigurationContainer) ois.readObject()
+            }
+        }
+
+        new AsciidoctorPreviewServer(ecc, args[1].toInteger(), new File(args[2])).run()
+    }
+
+    AsciidoctorPreviewServer(ExecutorConfigurationContainer ecc, int port, File sourceDir) {
+        super(ecc)
+        this.port = port
+        this.sourceDir = sourceDir.absoluteFile
+    }
+
+    @Override
+    @SuppressWarnings('Println')
+    void run() {
+        Thread.currentThread().contextClassLoader = this.class.classLoader
+        asciidoctor = startRuntime()
+        final LogHandler lh = getLogHandler(runConfigurations.first().executorLogLevel)
+        asciidoctor.registerLogHandler(lh)
+
+        try {
+            runConfigurations.each { ExecutorConfiguration it ->
+                it.outputDir.mkdirs()
+                convert(it, it.sourceTree)
+            }
+
+            final HttpServer server = startServer()
+            println("Preview available at http://localhost:${server.address.port}/")
+            try {
+                watch()
+            } finally {
+                server.stop(0)
+            }
+        } finally {
+            asciidoctor.unregisterLogHandler(lh)
+            asciidoctor.shutdown()
+        }
+    }
+
+    /** Applies a set of changes and notifies all open pages.
+     *
+     * @param changes Changed files as paths relative to the source directory.
+     */
+    @SuppressWarnings('Println')
+    protected void apply(Collection<String> changes) {
+        final long start = System.currentTimeMillis()
+        mirror(changes)
+        final PreviewPlan plan = new PreviewPlan(runConfigurations, changes)
+        if (!plan.empty) {
+            plan.documents.each { ExecutorConfiguration runConfiguration, Set<File> files ->
+                convert(runConfiguration, files)
+            }
+            copyResources(plan.resources)
+            notifyListeners()
+            println("Preview updated in ${System.currentTimeMillis() - start}ms")
+        }
+    }
+
+    @SuppressWarnings('Println')
+    private void convert(ExecutorConfiguration runConfiguration, Collection<File> files) {
+        resetMessagePatternsTo(runConfiguration.fatalMessagePatterns)
+        for (File file : files) {
+            try {
+                convertFile(asciidoctor, file, runConfiguration)
+            } catch (AsciidoctorRemoteExecutionException e) {
+                // A broken document must not end the preview.
+                println(e.cause?.message ?: e.message)
+            }
+        }
+    }
+
+    private void mirror(Collection<String> changes) {
+        runConfigurations*.sourceDir.unique().findAll { File it -> it.absoluteFile != sourceDir }.each { File dir ->
+            changes.each { String path -> copyIfExists(new File(sourceDir, path), new File(dir, path)) }
+        }
+    }
+
+    private void copyResources(Collection<String> resources) {
+        runConfigurations*.outputDir.unique().each { File dir ->
+            resources.each { String path ->
+                final File target = new File(dir, path)
+                if (target.exists()) {
+                    copyIfExists(new File(sourceDir, path), target)
+                }
+            }
+        }
+    }
+
+    private HttpServer startServer() {
+        final File root = (runConfigurations.find { it.backendName.startsWith('html') } ?: runConfigurations.first())
+                .outputDir
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.loopbackAddress, port), 0)
+        server.executor = Executors.newCachedThreadPool()
+        server.createContext(EVENTS_PATH) { HttpExchange exchange -> owner.stream(exchange) }
+        server.createContext('/') { HttpExchange exchange -> owner.serve(root, exchange) }
+        server.start()
+        server
+    }
+
+    private void serve(File root, HttpExchange exchange) {
+        try {
+            File file = new File(root, exchange.requestURI.path).canonicalFile
+            if (file.directory) {
+                file = new File(file, 'index.html')
+            }
+            // Compare whole path elements, so that siblings such as 'html-old' do not pass for 'html'.
+            if (!file.toPath().startsWith(root.canonicalFile.toPath()) || !file.file) {
+                exchange.sendResponseHeaders(404, -1)
+            } else {
+                final boolean html = file.name.endsWith('.html')
+                final byte[] content = html ? injectReloadScript(file.getText(StandardCharsets.UTF_8.name())) :
+                        file.bytes
+                exchange.responseHeaders.add('Content-Type', contentType(file, html))
+                exchange.responseHeaders.add('Cache-Control', 'no-store')
+                exchange.sendResponseHeaders(200, content.length)
+                exchange.responseBody.write(content)
+            }
+        } finally {
+            exchange.close()
+        }
+    }
+
+    private void stream(HttpExchange exchange) {
+        try {
+            exchange.responseHeaders.add('Content-Type', 'text/event-stream')
+            exchange.responseHeaders.add('Cache-Control', 'no-store')
+            exchange.sendResponseHeaders(200, 0)
+            final OutputStream out = exchange.responseBody
+            listeners.add(out)
+            try {
+                while (send(out, ': ping\n\n')) {
+                    Thread.sleep(HEARTBEAT_MS)
+                }
+            } finally {
+                listeners.remove(out)
+            }
+        } finally {
+            exchange.close()
+        }
+    }
+
+    private void notifyListeners() {
+        listeners.each { OutputStream it ->
+            if (!send(it, 'data: reload\n\n')) {
+                listeners.remove(it)
+            }
+        }
+    }
+
+    private void watch() {
+        final WatchService watcher = sourceDir.toPath().fileSystem.newWatchService()
+        final Map<WatchKey, Path> keys = [:]
+        register(watcher, sourceDir.toPath(), keys)
+
+        watcher.withCloseable {
+            while (!Thread.currentThread().isInterrupted()) {
+                final Set<String> changes = new TreeSet<String>()
+                WatchKey key = watcher.take()
+                while (key != null) {
+                    collect(watcher, key, keys, changes)
+                    key = watcher.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS)
+                }
+                apply(changes)
+            }
+        }
+    }
+
+    private void collect(WatchService watcher, WatchKey key, Map<WatchKey, Path> keys, Set<String> changes) {
+        final Path dir = keys[key]
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() != OVERFLOW && dir != null) {
+                final Path changed = dir.resolve((Path) event.context())
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+                    register(watcher, changed, keys)
+                } else if (event.kind() != ENTRY_DELETE) {
+                    changes.add(sourceDir.toPath().relativize(changed).toString())
+                }
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key)
+        }
+    }
+
+    private static void register(WatchService watcher, Path start, Map<WatchKey, Path> keys) {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                keys.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir)
+                FileVisitResult.CONTINUE
+            }
+        })
+    }
+
+    private static void copyIfExists(File source, File target) {
+        if (source.file) {
+            target.parentFile.mkdirs()
+            Files.copy(source.toPath(), target.toPath(), REPLACE_EXISTING)
+        }
+    }
+
+    private static byte[] injectReloadScript(String html) {
+        final int end = html.lastIndexOf('</body>')
+        final String page = end < 0 ? html + RELOAD_SCRIPT : html.substring(0, end) + RELOAD_SCRIPT +
+                html.substring(end)
+        page.getBytes(StandardCharsets.UTF_8)
+    }
+
+    private static String contentType(File file, boolean html) {
+        html ? 'text/html; charset=utf-8' : (URLConnection.guessContentTypeFromName(file.name) ?:
+                'application/octet-stream')
+    }
+
+    private static boolean send(OutputStream out, String message) {
+        try {
+            synchronized (out) {
+                out.write(message.getBytes(StandardCharsets.UTF_8))
+                out.flush()
+            }
+            true
+        } catch (IOException e) {
+            false
+        }
+    }
+}
@@ -65,10 +65,51 @@ class AsciidoctorWorkerExecutor implements WorkerAppExecutor<AsciidoctorWorkerPa
 
     @SuppressWarnings('CatchThrowable')
     private void runSingle(ExecutorConfiguration runConfiguration) {
+        final RuntimeRecycler recycler = RuntimeRecycler.of(runConfiguration)
+        Asciidoctor asciidoctor = startRuntime(runConfiguration)
+
+        runConfiguration.outputDir.mkdirs()
+
+        try {
+            for (File file : runConfiguration.sourceTree) {
+                if (recycler.recycleRequired) {
+                    log.info("Restarting Asciidoctor after ${recycler.documents} documents")
+                    asciidoctor.shutdown()
+                    asciidoctor = startRuntime(runConfiguration)
+                    recycler.reset()
+                }
+                try {
+                    if (runConfiguration.logDocuments) {
+                        log.info("Converting ${file}")
+                    }
+                    asciidoctor.convertFile(file, normalisedOptionsFor(file, runConfiguration))
+                } catch (Throwable exception) {
+                    throw new AsciidoctorRemoteExecutionException(
+                            "ERROR: Running Asciidoctor whilst attempting to process ${file} " +
+                                    "using backend ${runConfiguration.backendName}",
+                            exception
+                    )
+                }
+                recycler.converted()
+            }
+        } finally {
+            asciidoctor.shutdown()
+        }
+
+        DiagramRenderCache.evict(runConfiguration.diagramCacheDir, runConfiguration.diagramCacheMaxSize)
+        failOnFailureLevelReachedOrExceeded()
+        failOnWarnings()
+    }
+
+    private Asciidoctor startRuntime(ExecutorConfiguration runConfiguration) {
         Asciidoctor asciidoctor = create()
 
         runConfiguration.with {
             asciidoctor.requireLibraries(runConfiguration.requires)
+            DiagramRenderCache.install(asciidoctor, runConfiguration)
+            IncludeCache.install(asciidoctor, runConfiguration)
+            OptimisedImageTreeprocessor.register(asciidoctor, runConfiguration)
+            PdfResourceCache.install(asciidoctor, runConfiguration)
             if (asciidoctorExtensions?.size()) {
                 registerExtensions(asciidoctor, asciidoctorExtensions)
             }
@@ -76,26 +117,7 @@ class AsciidoctorWorkerExecutor implements WorkerAppExecutor<AsciidoctorWorkerPa
             asciidoctor.registerLogHandler(lh)
             resetMessagePatternsTo(fatalMessagePatterns)
         }
-
-        runConfiguration.outputDir.mkdirs()
-
-        runConfiguration.sourceTree.each { File file ->
-            try {
-                if (runConfiguration.logDocuments) {
-                    log.info("Converting ${file}")
-                }
-                asciidoctor.convertFile(file, normalisedOptionsFor(file, runConfiguration))
-            } catch (Throwable exception) {
-                throw new AsciidoctorRemoteExecutionException(
-                        "ERROR: Running Asciidoctor whilst attempting to process ${file} " +
-                                "using backend ${runConfiguration.backendName}",
-                        exception
-                )
-            }
-        }
-
-        failOnFailureLevelReachedOrExceeded()
-        failOnWarnings()
+        asciidoctor
     }
 
     @CompileDynamic
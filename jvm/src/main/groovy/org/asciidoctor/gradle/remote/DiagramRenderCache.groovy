@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import org.asciidoctor.Asciidoctor
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+
+import java.nio.charset.StandardCharsets
+
+/** A persistent cache of images rendered by asciidoctor-diagram.
+ *
+ * <p>
+ *   The cache is installed into an Asciidoctor instance as a Ruby hook around asciidoctor-diagram. Entries are
+ *   keyed by diagram type, format, source checksum and converter options, which means that they are shared
+ *   between backends, languages and tasks.
+ * </p>
+ * <p>
+ *   Entries are touched whenever they are used. Once the cache exceeds its maximum size, the entries that have
+ *   not been used for the longest time are removed.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class DiagramRenderCache {
+
+    /** Name of the library which has to be required for the cache to be used.
+     */
+    public static final String DIAGRAM_LIBRARY = 'asciidoctor-diagram'
+
+    private static final String HOOK = 'diagram-render-cache.rb'
+    private static final String METADATA_SUFFIX = '.cache'
+    private static final String PARTIAL_SUFFIX = '.part'
+
+    /** Installs the cache into an Asciidoctor instance if it is configured and diagrams are in use.
+     *
+     * Libraries have to be required before the cache is installed.
+     *
+     * @param asciidoctor Asciidoctor instance.
+     * @param runConfiguration Executor configuration which provides the cache directory.
+     * @return {@code true} if the cache was installed.
+     */
+    static boolean install(Asciidoctor asciidoctor, ExecutorConfiguration runConfiguration) {
+        final File cacheDir = runConfiguration.diagramCacheDir
+        if (cacheDir == null || !runConfiguration.requires?.contains(DIAGRAM_LIBRARY)) {
+            false
+        } else {
+            cacheDir.mkdirs()
+            loadRuby(asciidoctor, DiagramRenderCache.getResourceAsStream(HOOK))
+            loadRuby(
+                    asciidoctor,
+                    "Asciidoctor::Diagram::GradleRenderCache.directory = '${rubyEscape(cacheDir.absolutePath)}'\n"
+            )
+            true
+        }
+    }
+
+    /** Removes the least recently used entries until the cache fits into its maximum size.
+     *
+     * @param cacheDir Cache directory.
+     * @param maxSize Maximum size of the cache in bytes. Values of zero or less disable eviction.
+     * @return Number of entries that were removed.
+     */
+    static int evict(File cacheDir, long maxSize) {
+        if (maxSize <= 0 || !cacheDir?.directory) {
+            0
+        } else {
+            final List<File> images = []
+            long total = 0
+            cacheDir.eachFileRecurse { File it ->
+                if (it.file) {
+                    total += it.length()
+                    if (!it.name.endsWith(METADATA_SUFFIX) && !it.name.endsWith(PARTIAL_SUFFIX)) {
+                        images.add(it)
+                    }
+                }
+            }
+
+            int removed = 0
+            if (total > maxSize) {
+                final Map<File, Long> lastUsed = images.collectEntries { File it -> [it, it.lastModified()] }
+                for (File image : images.sort { File it -> lastUsed[it] }) {
+                    if (total <= maxSize) {
+                        break
+                    }
+                    final File metadata = new File(image.parentFile, "${image.name}${METADATA_SUFFIX}")
+                    total -= image.length() + metadata.length()
+                    metadata.delete()
+                    image.delete()
+                    removed++
+                }
+            }
+            removed
+        }
+    }
+
+    private static void loadRuby(Asciidoctor asciidoctor, String script) {
+        loadRuby(asciidoctor, new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)))
+    }
+
+    @PackageScope
+    static void loadRuby(Asciidoctor asciidoctor, InputStream script) {
+        script.withStream { InputStream input ->
+            asciidoctor.rubyExtensionRegistry().loadClass(input)
+        }
+    }
+
+    private static String rubyEscape(String text) {
+        text.replace('\\', '\\\\').replace("'", "\\'")
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import groovy.transform.CompileStatic
+import org.asciidoctor.Asciidoctor
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+
+import java.nio.charset.StandardCharsets
+
+/** Keeps the content of local include files in memory for the lifetime of an Asciidoctor runtime.
+ *
+ * <p>
+ *   Shared partials which are included by many documents are therefore only read and decoded once per runtime,
+ *   until they change on disk. The cache sits below Asciidoctor's own include handling, which still resolves,
+ *   filters and records every include. Only the reading of the resolved file is served from memory.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class IncludeCache {
+
+    private static final String HOOK = 'include-cache.rb'
+
+    /** Installs the cache into an Asciidoctor instance if the configuration allows it.
+     *
+     * @param asciidoctor Asciidoctor instance.
+     * @param runConfiguration Executor configuration which provides the memory cap.
+     * @return {@code true} if the cache was installed.
+     */
+    static boolean install(Asciidoctor asciidoctor, ExecutorConfiguration runConfiguration) {
+        if (runConfiguration.includeCacheMaxSize <= 0) {
+            false
+        } else {
+            DiagramRenderCache.loadRuby(asciidoctor, IncludeCache.getResourceAsStream(HOOK))
+            DiagramRenderCache.loadRuby(
+                    asciidoctor,
+                    new ByteArrayInputStream(
+                            "Asciidoctor::GradleIncludeCache.max_size = ${runConfiguration.includeCacheMaxSize}\n"
+                                    .getBytes(StandardCharsets.UTF_8)
+                    )
+            )
+            true
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import groovy.transform.CompileStatic
+import org.asciidoctor.Asciidoctor
+import org.asciidoctor.ast.Document
+import org.asciidoctor.ast.StructuralNode
+import org.asciidoctor.extension.Treeprocessor
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+/** Points block images in PDF documents at copies which have been optimised by {@link PdfImageOptimiser}.
+ *
+ * <p>
+ *   The largest size at which an image can appear is derived from the {@code pdf-page-size} and
+ *   {@code pdf-page-layout} attributes. The page size can be a named size or explicit dimensions such as
+ *   {@code [8.5in, 11in]}. If the page size is not understood, no images are optimised, as they could end up
+ *   with a lower resolution than intended. Remote images, data URIs and images that are not PNG or JPEG files are
+ *   left alone, as are inline images.
+ * </p>
+ * <p>
+ *   As optimised copies live outside the document directory, the processor is only registered for conversions
+ *   that run in {@code UNSAFE} mode.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class OptimisedImageTreeprocessor extends Treeprocessor {
+
+    private static final Map<String, List<Double>> PAGE_SIZES = [
+            A0       : [33.11d, 46.81d],
+            A1       : [23.39d, 33.11d],
+            A2       : [16.54d, 23.39d],
+            A3       : [11.69d, 16.54d],
+            A4       : [8.27d, 11.69d],
+            A5       : [5.83d, 8.27d],
+            A6       : [4.13d, 5.83d],
+            EXECUTIVE: [7.25d, 10.5d],
+            LEGAL    : [8.5d, 14d],
+            LETTER   : [8.5d, 11d],
+            TABLOID  : [11d, 17d]
+    ]
+
+    // Dimensions without a unit are in PDF points, as in Asciidoctor PDF.
+    private static final Map<String, Double> UNITS = [
+            ''  : 1d / 72d,
+            'pt': 1d / 72d,
+            'px': 0.75d / 72d,
+            'in': 1d,
+            'mm': 1d / 25.4d,
+            'cm': 1d / 2.54d
+    ]
+    private static final Pattern DIMENSION = ~/^\s*(\d+(?:\.\d+)?)\s*(pt|px|in|mm|cm)?\s*$/
+
+    private final PdfImageOptimiser optimiser
+
+    /** Registers the processor if the configuration asks for optimised images.
+     *
+     * @param asciidoctor Asciidoctor instance.
+     * @param runConfiguration Executor configuration which provides the cache and the target resolution.
+     * @return {@code true} if the processor was registered.
+     */
+    static boolean register(Asciidoctor asciidoctor, ExecutorConfiguration runConfiguration) {
+        if (runConfiguration.pdfImageDpi <= 0 || runConfiguration.pdfImageCacheDir == null ||
+                runConfiguration.safeModeLevel != 0) {
+            false
+        } else {
+            asciidoctor.javaExtensionRegistry().treeprocessor(new OptimisedImageTreeprocessor(new PdfImageOptimiser(
+                    runConfiguration.pdfImageCacheDir,
+                    runConfiguration.pdfImageDpi,
+                    runConfiguration.pdfImageQuality
+            )))
+            true
+        }
+    }
+
+    OptimisedImageTreeprocessor(PdfImageOptimiser optimiser) {
+        this.optimiser = optimiser
+    }
+
+    @Override
+    Document process(Document document) {
+        final List<Double> page = document.getAttribute('backend') == 'pdf' ? pageSizeOf(document) : null
+        if (page != null) {
+            document.findBy([context: ':image'] as Map<Object, Object>).each { StructuralNode image ->
+                final File file = resolve(document, image)
+                if (file != null) {
+                    final File optimised = optimiser.optimise(file, page[0], page[1])
+                    if (optimised != file) {
+                        image.setAttribute('target', optimised.absolutePath, true)
+                    }
+                }
+            }
+        }
+        document
+    }
+
+    /** The size of a page in inches.
+     *
+     * @param document Document.
+     * @return Width and height, or {@code null} if the page size is not understood.
+     */
+    static List<Double> pageSizeOf(Document document) {
+        final List<Double> size = parsePageSize(document.getAttribute('pdf-page-size', 'A4').toString().trim())
+        if (size == null) {
+            null
+        } else {
+            document.getAttribute('pdf-page-layout', '').toString() == 'landscape' ? size.reverse() : size
+        }
+    }
+
+    private static List<Double> parsePageSize(String value) {
+        if (value.startsWith('[') && value.endsWith(']')) {
+            final List<String> dimensions = value.substring(1, value.length() - 1).split(',').toList()
+            final List<Double> size = dimensions.size() == 2 ? dimensions.collect { String it ->
+                final Matcher matcher = DIMENSION.matcher(it)
+                matcher.matches() ? matcher.group(1).toDouble() * UNITS[matcher.group(2) ?: ''] : null
+            } : null
+            size == null || size.any { Double it -> !it } ? null : size
+        } else {
+            PAGE_SIZES[value.toUpperCase(Locale.US)]
+        }
+    }
+
+    private static File resolve(Document document, StructuralNode image) {
+        final String target = image.getAttribute('target')?.toString()
+        if (!target || target.startsWith('data:') || target ==~ /^\p{Alpha}[\p{Alnum}.+-]+:\/\/.*/) {
+            null
+        } else {
+            File file = new File(target)
+            if (!file.absolute) {
+                final File docdir = new File(document.getAttribute('docdir', '').toString())
+                final String imagesdir = image.getAttribute('imagesdir', document.getAttribute('imagesdir', ''))
+                        .toString()
+                final File base = !imagesdir ? docdir :
+                        (new File(imagesdir).absolute ? new File(imagesdir) : new File(docdir, imagesdir))
+                file = new File(base, target)
+            }
+            final String name = file.name.toLowerCase(Locale.US)
+            file.file && PdfImageOptimiser.FORMATS.any { String it -> name.endsWith(".${it}") } ? file : null
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import groovy.transform.CompileStatic
+import org.asciidoctor.gradle.internal.RasterImages
+
+import java.awt.image.BufferedImage
+import java.nio.file.Files
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING
+
+/** Downsamples and recompresses raster images for PDF output and keeps the results in a persistent cache.
+ *
+ * <p>
+ *   An image is reduced to the number of pixels that the page can show at the target resolution. JPEG images
+ *   are also recompressed. Results are cached by the hash of the original content and the parameters. If an
+ *   optimised image would not be smaller than the original, a marker is cached instead and the original is used.
+ *   The same happens for images which ImageIO cannot decode, such as CMYK JPEGs, and for images with an EXIF
+ *   orientation or an embedded colour profile, as these would be lost.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class PdfImageOptimiser {
+
+    public static final List<String> FORMATS = ['png', 'jpg', 'jpeg']
+
+    private static final String ORIGINAL_MARKER = '.original'
+    private static final String PARTIAL_SUFFIX = '.part'
+
+    private final File cacheDir
+    private final int dpi
+    private final float quality
+    private final ConcurrentMap<String, File> resolved = new ConcurrentHashMap<String, File>()
+
+    /** Creates an optimiser.
+     *
+     * @param cacheDir Persistent cache directory.
+     * @param dpi Target resolution.
+     * @param quality JPEG compression quality between {@code 0} and {@code 1}.
+     */
+    PdfImageOptimiser(File cacheDir, int dpi, float quality) {
+        this.cacheDir = cacheDir
+        this.dpi = dpi
+        this.quality = quality
+    }
+
+    /** Returns an optimised copy of an image, or the image itself if it cannot be improved.
+     *
+     * @param image Original image.
+     * @param maxWidth Largest width at which the image can appear, in inches.
+     * @param maxHeight Largest height at which the image can appear, in inches.
+     * @return Image to use.
+     */
+    File optimise(File image, double maxWidth, double maxHeight) {
+        final int maxWidthPx = (int) Math.round(maxWidth * dpi)
+        final int maxHeightPx = (int) Math.round(maxHeight * dpi)
+        final String memo = "${image.absolutePath}|${image.lastModified()}|${image.length()}|" +
+                "${maxWidthPx}x${maxHeightPx}"
+        resolved.computeIfAbsent(memo) { String it -> lookup(image, maxWidthPx, maxHeightPx) }
+    }
+
+    private File lookup(File image, int maxWidthPx, int maxHeightPx) {
+        final String ext = extensionOf(image)
+        final String key = hash(image, "${maxWidthPx}x${maxHeightPx}|${ext == 'png' ? 0 : quality}")
+        final File cached = new File(cacheDir, "${key.substring(0, 2)}/${key}.${ext}")
+        final File marker = new File(cached.parentFile, "${key}${ORIGINAL_MARKER}")
+
+        if (cached.exists()) {
+            cached.lastModified = System.currentTimeMillis()
+            cached
+        } else if (marker.exists()) {
+            image
+        } else {
+            cached.parentFile.mkdirs()
+            final File optimised = create(image, ext, maxWidthPx, maxHeightPx, cached)
+            if (optimised == null) {
+                marker.createNewFile()
+                image
+            } else {
+                optimised
+            }
+        }
+    }
+
+    private File create(File image, String ext, int maxWidthPx, int maxHeightPx, File cached) {
+        // Re-encoding would drop the orientation and colour profile, so such images are used as they are.
+        final BufferedImage original = RasterImages.hasOrientationOrColourProfile(image) ? null :
+                RasterImages.read(image)
+        if (original == null) {
+            null
+        } else {
+            final double scale = Math.min(
+                    1d,
+                    Math.min(maxWidthPx / (double) original.width, maxHeightPx / (double) original.height)
+            )
+            if (scale >= 1d && ext == 'png') {
+                null
+            } else {
+                final BufferedImage result = scale < 1d ? RasterImages.resize(original, scale, ext == 'png') : original
+                final File partial = new File(cached.parentFile, "${cached.name}.${UUID.randomUUID()}${PARTIAL_SUFFIX}")
+                try {
+                    RasterImages.write(result, ext, quality, partial)
+                    if (partial.length() < image.length()) {
+                        Files.move(partial.toPath(), cached.toPath(), REPLACE_EXISTING, ATOMIC_MOVE)
+                        cached
+                    } else {
+                        null
+                    }
+                } finally {
+                    partial.delete()
+                }
+            }
+        }
+    }
+
+    private static String extensionOf(File image) {
+        final String name = image.name.toLowerCase(Locale.US)
+        name.substring(name.lastIndexOf('.') + 1)
+    }
+
+    private static String hash(File image, String parameters) {
+        final MessageDigest digest = MessageDigest.getInstance('SHA-256')
+        image.eachByte(65536) { byte[] buffer, int length -> digest.update(buffer, 0, length) }
+        digest.update(parameters.bytes)
+        digest.digest().encodeHex().toString()
+    }
+}
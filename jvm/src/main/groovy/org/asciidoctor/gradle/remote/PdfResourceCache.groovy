@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import groovy.transform.CompileStatic
+import org.asciidoctor.Asciidoctor
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+
+/** Keeps parsed PDF themes and loaded fonts for the lifetime of an Asciidoctor runtime.
+ *
+ * <p>
+ *   Without the cache, asciidoctor-pdf parses the theme and Prawn reads every font file again for each document.
+ *   Entries are keyed by the hash of the theme or font file, so changes to a file are picked up by the next
+ *   document.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class PdfResourceCache {
+
+    private static final String HOOK = 'pdf-resource-cache.rb'
+
+    /** Installs the cache into an Asciidoctor instance if the configuration converts to PDF.
+     *
+     * @param asciidoctor Asciidoctor instance.
+     * @param runConfiguration Executor configuration.
+     * @return {@code true} if the cache was installed.
+     */
+    static boolean install(Asciidoctor asciidoctor, ExecutorConfiguration runConfiguration) {
+        if (runConfiguration.backendName == 'pdf' && runConfiguration.pdfResourceCache) {
+            DiagramRenderCache.loadRuby(asciidoctor, PdfResourceCache.getResourceAsStream(HOOK))
+            true
+        } else {
+            false
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import groovy.transform.CompileStatic
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+
+/** Works out what has to be done after files in a source directory have changed.
+ *
+ * <p>
+ *   A changed document is only re-converted by the configurations which convert it. A changed file which looks
+ *   like AsciiDoc, but which is not converted itself, is assumed to be included by other documents and leads
+ *   to all documents being re-converted. The same applies to docinfo files. All other files are treated as
+ *   resources and are copied to every output directory in which they already exist.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class PreviewPlan {
+
+    private static final List<String> ASCIIDOC_EXTENSIONS = ['.adoc', '.asciidoc', '.ad', '.asc']
+
+    /** Documents to convert, grouped by the configuration which converts them.
+     */
+    final Map<ExecutorConfiguration, Set<File>> documents = [:]
+
+    /** Resources to copy, as paths relative to the source directory.
+     */
+    final Set<String> resources = new TreeSet<String>()
+
+    /** Creates a plan.
+     *
+     * @param runConfigurations Configurations of the preview.
+     * @param changes Changed files as paths relative to the source directory.
+     */
+    PreviewPlan(List<ExecutorConfiguration> runConfigurations, Collection<String> changes) {
+        boolean everything = false
+        for (String path : changes) {
+            boolean converted = false
+            for (ExecutorConfiguration runConfiguration : runConfigurations) {
+                final File document = new File(runConfiguration.sourceDir, path)
+                if (runConfiguration.sourceTree.contains(document)) {
+                    documentsFor(runConfiguration).add(document)
+                    converted = true
+                }
+            }
+            if (!converted) {
+                if (isIncludable(path)) {
+                    everything = true
+                } else {
+                    resources.add(path)
+                }
+            }
+        }
+
+        if (everything) {
+            runConfigurations.each { ExecutorConfiguration it -> documentsFor(it).addAll(it.sourceTree) }
+        }
+    }
+
+    /** Whether nothing has to be done.
+     *
+     * @return {@code true} if there are neither documents nor resources.
+     */
+    boolean isEmpty() {
+        documents.isEmpty() && resources.isEmpty()
+    }
+
+    private Set<File> documentsFor(ExecutorConfiguration runConfiguration) {
+        Set<File> files = documents[runConfiguration]
+        if (files == null) {
+            files = new LinkedHashSet<File>()
+            documents.put(runConfiguration, files)
+        }
+        files
+    }
+
+    private static boolean isIncludable(String path) {
+        final String name = new File(path).name.toLowerCase(Locale.US)
+        name.contains('docinfo') || ASCIIDOC_EXTENSIONS.any { String it -> name.endsWith(it) }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import groovy.transform.CompileStatic
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+
+import java.lang.management.GarbageCollectorMXBean
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryPoolMXBean
+import java.lang.management.MemoryType
+import java.lang.management.MemoryUsage
+
+/** Decides when an Asciidoctor runtime has to be replaced by a fresh one.
+ *
+ * <p>
+ *   Extensions and Ruby globals can retain memory for as long as a runtime exists. A runtime is therefore
+ *   recycled once it has converted a maximum number of documents, or once the occupancy of the tenured heap
+ *   after the last garbage collection exceeds a threshold.
+ * </p>
+ * <p>
+ *   The occupancy after a garbage collection only changes once another collection has happened. It is therefore
+ *   ignored after a runtime has been recycled until the JVM has collected garbage again, as the fresh runtime
+ *   would otherwise be replaced before every document.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class RuntimeRecycler {
+
+    private final int maxDocuments
+    private final double maxHeapOccupancy
+    private int documents = 0
+    private long collectionsAtReset = -1
+
+    /** Creates a recycler for a configuration.
+     *
+     * @param runConfiguration Executor configuration which provides the thresholds.
+     * @return Recycler.
+     */
+    static RuntimeRecycler of(ExecutorConfiguration runConfiguration) {
+        new RuntimeRecycler(runConfiguration.maxDocumentsPerRuntime, runConfiguration.maxHeapOccupancy)
+    }
+
+    /** Creates a recycler.
+     *
+     * @param maxDocuments Number of documents after which a runtime is recycled. Zero or less means no limit.
+     * @param maxHeapOccupancy Fraction of the tenured heap which may still be occupied after a garbage
+     *   collection. Zero or less means no limit.
+     */
+    RuntimeRecycler(int maxDocuments, double maxHeapOccupancy) {
+        this.maxDocuments = maxDocuments
+        this.maxHeapOccupancy = maxHeapOccupancy
+    }
+
+    /** Records that the current runtime converted another document.
+     */
+    void converted() {
+        documents++
+    }
+
+    /** Records that a fresh runtime was started.
+     */
+    void reset() {
+        documents = 0
+        collectionsAtReset = collectionCount
+    }
+
+    /** Number of documents converted by the current runtime.
+     *
+     * @return Document count.
+     */
+    int getDocuments() {
+        this.documents
+    }
+
+    /** Whether the current runtime should be replaced before the next document is converted.
+     *
+     * @return {@code true} if a threshold has been exceeded.
+     */
+    boolean isRecycleRequired() {
+        documents > 0 && (
+                (maxDocuments > 0 && documents >= maxDocuments) ||
+                        (maxHeapOccupancy > 0 && collectionCount != collectionsAtReset &&
+                                heapOccupancy > maxHeapOccupancy)
+        )
+    }
+
+    /** The occupancy of the tenured heap after the most recent garbage collection.
+     *
+     * @return Occupancy as a fraction, or zero if the JVM does not report it.
+     */
+    protected double getHeapOccupancy() {
+        tenuredHeapOccupancy()
+    }
+
+    /** The occupancy of the tenured heap of this JVM after the most recent garbage collection.
+     *
+     * The tenured pool is taken to be the largest heap pool which reports usage after collections.
+     *
+     * @return Occupancy as a fraction, or zero if the JVM does not report it.
+     */
+    static double tenuredHeapOccupancy() {
+        final List<MemoryUsage> usages = ManagementFactory.memoryPoolMXBeans.findAll { MemoryPoolMXBean it ->
+            it.type == MemoryType.HEAP && it.collectionUsage != null && it.collectionUsage.max > 0
+        }*.collectionUsage
+        final MemoryUsage tenured = usages.max { MemoryUsage it -> it.max }
+        tenured ? tenured.used / (double) tenured.max : 0d
+    }
+
+    /** The number of garbage collections that the JVM has performed.
+     *
+     * @return Total of all collectors which report their count.
+     */
+    protected long getCollectionCount() {
+        long count = 0
+        for (GarbageCollectorMXBean it : ManagementFactory.garbageCollectorMXBeans) {
+            count += Math.max(0L, it.collectionCount)
+        }
+        count
+    }
+}
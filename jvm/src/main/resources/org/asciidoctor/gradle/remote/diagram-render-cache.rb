@@ -0,0 +1,92 @@
+#
+# Copyright 2013-2024 the original author or authors.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Serves rendered asciidoctor-diagram images from a persistent cache.
+#
+# Entries are keyed by diagram type, output format, the checksum that asciidoctor-diagram computes for the source
+# and the converter options. Before a block is processed, a cached image and its metadata are placed where
+# asciidoctor-diagram expects them, which makes it skip rendering. After a block has been processed, the image
+# and metadata are added to the cache. Any failure falls back to the normal behaviour of asciidoctor-diagram.
+
+require 'digest'
+require 'fileutils'
+require 'json'
+
+module Asciidoctor
+  module Diagram
+    module GradleRenderCache
+      class << self
+        attr_accessor :directory
+      end
+
+      def create_image_block(parent, source, format, converter)
+        cache = GradleRenderCache.directory
+        return super if cache.nil? || !source.respond_to?(:checksum)
+
+        entry = begin
+          image_name = "#{source.image_name}.#{format}"
+          image_file = parent.normalize_system_path image_name, image_output_dir(parent)
+          metadata_file = parent.normalize_system_path "#{image_name}.cache", cache_dir(source, parent)
+          options = converter.respond_to?(:collect_options) ? converter.collect_options(source) : nil
+          key = Digest::SHA256.hexdigest([source.diagram_type, format, source.checksum, options.to_json].join("\n"))
+          cached = File.join(cache, key[0, 2], "#{key}.#{format}")
+          gradle_restore(cached, image_file, metadata_file)
+          [cached, image_file, metadata_file]
+        rescue StandardError
+          nil
+        end
+
+        block = super
+        gradle_store(*entry) if entry
+        block
+      end
+
+      private
+
+      def gradle_restore(cached, image_file, metadata_file)
+        return unless File.exist?(cached) && File.exist?("#{cached}.cache")
+
+        FileUtils.mkdir_p [File.dirname(image_file), File.dirname(metadata_file)]
+        FileUtils.cp cached, image_file unless File.exist?(image_file) && FileUtils.identical?(cached, image_file)
+        FileUtils.cp "#{cached}.cache", metadata_file
+        now = Time.now
+        File.utime(now, now, cached)
+      end
+
+      def gradle_store(cached, image_file, metadata_file)
+        return if File.exist?(cached) || !File.exist?(image_file) || !File.exist?(metadata_file)
+
+        FileUtils.mkdir_p File.dirname(cached)
+        suffix = ".#{Process.pid}.#{Thread.current.object_id}.part"
+        FileUtils.cp metadata_file, "#{cached}.cache#{suffix}"
+        FileUtils.cp image_file, "#{cached}#{suffix}"
+        File.rename "#{cached}.cache#{suffix}", "#{cached}.cache"
+        File.rename "#{cached}#{suffix}", cached
+      rescue StandardError
+        nil
+      end
+    end
+
+    if const_defined?(:DiagramProcessor)
+      constants.map { |name| const_get(name) }.each do |processor|
+        next unless processor.is_a?(Class) && processor.include?(DiagramProcessor)
+        next if processor.include?(GradleRenderCache)
+
+        processor.prepend GradleRenderCache
+      end
+    end
+  end
+end
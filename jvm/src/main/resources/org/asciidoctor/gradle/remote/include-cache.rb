@@ -0,0 +1,127 @@
+#
+# Copyright 2013-2024 the original author or authors.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Serves the content of local include files from an in-memory cache for the lifetime of the JRuby runtime.
+#
+# Asciidoctor still resolves and processes every include directive itself, so the safe mode, line and tag
+# selection, the includes catalog, line numbers and warnings are unaffected. Only the file that Asciidoctor has
+# resolved for the include directive it is processing is read from the cache. Entries are keyed by the absolute
+# path and read mode of a file and are used for as long as the modification time and size of the file do not
+# change. Once the cached content exceeds the maximum size, the least recently used entries are dropped.
+
+require 'stringio'
+
+module Asciidoctor
+  module GradleIncludeCache
+    RESOLVED_PATH = :gradle_include_cache_path
+
+    @lock = Mutex.new
+    @entries = {}
+    @size = 0
+    @max_size = 0
+    @hits = 0
+
+    class << self
+      attr_reader :max_size, :hits
+
+      def max_size=(size)
+        @lock.synchronize do
+          @max_size = size
+          trim
+        end
+      end
+
+      def size
+        @lock.synchronize { @entries.size }
+      end
+
+      def cacheable?(path, mode = nil, *rest)
+        rest.empty? && path.is_a?(String) && path == Thread.current[RESOLVED_PATH] &&
+          mode.is_a?(String) && mode.start_with?('r') && !mode.include?('+') && File.file?(path)
+      end
+
+      def read(path, mode)
+        stat = File.stat path
+        key = [File.absolute_path(path), mode]
+        @lock.synchronize do
+          entry = @entries.delete key
+          if entry && entry[:mtime] == stat.mtime && entry[:size] == stat.size
+            @entries[key] = entry
+            @hits += 1
+            return entry[:content]
+          end
+          @size -= entry[:content].bytesize if entry
+        end
+
+        content = yield.freeze
+        @lock.synchronize do
+          if content.bytesize <= @max_size
+            previous = @entries.delete key
+            @size -= previous[:content].bytesize if previous
+            @entries[key] = { mtime: stat.mtime, size: stat.size, content: content }
+            @size += content.bytesize
+            trim
+          end
+        end
+        content
+      end
+
+      private
+
+      def trim
+        until @size <= @max_size || @entries.empty?
+          _, entry = @entries.shift
+          @size -= entry[:content].bytesize
+        end
+      end
+    end
+
+    module ReaderHook
+      def preprocess_include_directive(*args)
+        resolved = Thread.current[RESOLVED_PATH]
+        Thread.current[RESOLVED_PATH] = nil
+        super
+      ensure
+        Thread.current[RESOLVED_PATH] = resolved
+      end
+
+      private
+
+      # Include processors have been consulted by the time Asciidoctor resolves the path of a local file, so only
+      # Asciidoctor itself opens the file which is recorded here.
+      def resolve_include_path(*args)
+        result = super
+        Thread.current[RESOLVED_PATH] = result[0] if result.is_a?(Array) && result[1] == :file
+        result
+      end
+    end
+
+    module FileHook
+      def open(*args, &block)
+        return super unless block && GradleIncludeCache.cacheable?(*args)
+
+        path, mode = args
+        block.call StringIO.new(GradleIncludeCache.read(path, mode) { super(path, mode, &:read) })
+      end
+      ruby2_keywords(:open) if respond_to?(:ruby2_keywords, true)
+    end
+  end
+end
+
+unless Asciidoctor::PreprocessorReader.ancestors.include?(Asciidoctor::GradleIncludeCache::ReaderHook)
+  Asciidoctor::PreprocessorReader.prepend Asciidoctor::GradleIncludeCache::ReaderHook
+  File.singleton_class.prepend Asciidoctor::GradleIncludeCache::FileHook
+end
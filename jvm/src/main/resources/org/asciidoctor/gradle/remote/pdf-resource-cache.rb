@@ -0,0 +1,135 @@
+#
+# Copyright 2013-2024 the original author or authors.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Keeps parsed asciidoctor-pdf themes and loaded TrueType fonts for the lifetime of the JRuby runtime.
+#
+# Entries are keyed by the SHA-256 of the theme or font file, so a changed file is loaded again. A cached theme
+# also records the digests of all the themes that it extends and is only used while none of them have changed.
+# Digests are only recalculated when the modification time or size of a file changes. Every document receives its
+# own copy of a cached theme, as the converter adjusts the theme it is given. Fonts are shared, as Prawn only reads
+# from them. Any failure falls back to the normal behaviour of asciidoctor-pdf.
+
+require 'digest'
+
+begin
+  require 'asciidoctor/pdf'
+rescue LoadError
+  nil
+end
+
+module Asciidoctor
+  module PDF
+    module GradleResourceCache
+      @lock = Mutex.new
+      @digests = {}
+      @themes = {}
+      @fonts = {}
+
+      class << self
+        attr_reader :themes, :fonts
+
+        def digest(path)
+          stat = File.stat path
+          key = [path, stat.mtime.to_f, stat.size]
+          @lock.synchronize { @digests[key] ||= Digest::SHA256.file(path).hexdigest }
+        end
+
+        def fetch(cache, key)
+          @lock.synchronize { return cache[key] if cache.key?(key) }
+          store(cache, key, yield)
+        end
+
+        def lookup(cache, key)
+          @lock.synchronize { cache[key] }
+        end
+
+        def store(cache, key, value)
+          @lock.synchronize { cache[key] = value }
+        end
+
+        def unchanged?(files)
+          files.all? { |file, expected| File.file?(file) && digest(file) == expected }
+        end
+      end
+
+      module ThemeLoaderHook
+        LOADED_FILES = :gradle_resource_cache_theme_files
+
+        def load_file(filename, theme_data = nil, theme_dir = nil)
+          # Themes that are extended are loaded through this method as well, whilst the cache records them.
+          loaded_files = Thread.current[LOADED_FILES]
+          if loaded_files
+            loaded_files << filename
+            return super
+          end
+          return super unless theme_data.nil? && File.file?(filename)
+
+          key = [File.absolute_path(filename), theme_dir]
+          entry = GradleResourceCache.lookup(GradleResourceCache.themes, key)
+          unless entry && GradleResourceCache.unchanged?(entry[:files])
+            files = [filename]
+            Thread.current[LOADED_FILES] = files
+            begin
+              theme = super
+            ensure
+              Thread.current[LOADED_FILES] = nil
+            end
+            # Themes which extend anything other than local files, such as a URI, are not cached.
+            return theme unless files.all? { |file| file.is_a?(String) && File.file?(file) }
+
+            paths = files.map { |file| File.absolute_path(file) }
+            entry = { files: paths.map { |path| [path, GradleResourceCache.digest(path)] }, theme: theme }
+            GradleResourceCache.store(GradleResourceCache.themes, key, entry)
+          end
+
+          begin
+            Marshal.load(Marshal.dump(entry[:theme]))
+          rescue TypeError
+            super
+          end
+        end
+      end
+
+      module FontHook
+        private
+
+        def read_ttf_file
+          return super unless @name.is_a?(String) && File.file?(@name)
+
+          key = [self.class.name, GradleResourceCache.digest(File.absolute_path(@name)), (@options || {})[:font]]
+          GradleResourceCache.fetch(GradleResourceCache.fonts, key) { super }
+        end
+      end
+    end
+  end
+end
+
+if defined?(Asciidoctor::PDF::ThemeLoader) &&
+   !Asciidoctor::PDF::ThemeLoader.singleton_class.include?(Asciidoctor::PDF::GradleResourceCache::ThemeLoaderHook)
+  Asciidoctor::PDF::ThemeLoader.singleton_class.prepend Asciidoctor::PDF::GradleResourceCache::ThemeLoaderHook
+end
+
+%w[TTF TTC].each do |name|
+  next unless defined?(Prawn::Fonts) && Prawn::Fonts.const_defined?(name)
+
+  font_class = Prawn::Fonts.const_get(name)
+  next unless font_class.private_method_defined?(:read_ttf_file) || font_class.method_defined?(:read_ttf_file)
+  # TTC overrides the method of TTF, so both classes need their own hook.
+  next if font_class.ancestors.take_while { |mod| mod != font_class }
+                    .include?(Asciidoctor::PDF::GradleResourceCache::FontHook)
+
+  font_class.prepend Asciidoctor::PDF::GradleResourceCache::FontHook
+end
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import org.asciidoctor.gradle.remote.internal.RemoteSpecification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CopyOnWriteArrayList
+
+class AsciidoctorPreviewServerSpec extends RemoteSpecification {
+
+    Map asciidoc
+    File sourceDir
+    int port
+    List<String> applied = new CopyOnWriteArrayList<String>()
+    Thread preview
+    PollingConditions conditions = new PollingConditions(timeout: 60, delay: 0.5)
+
+    void setup() {
+        asciidoc = getProject(projectDir)
+        sourceDir = ((File) asciidoc.src).parentFile
+        port = new ServerSocket(0).withCloseable { it.localPort }
+        final AsciidoctorPreviewServer server = new AsciidoctorPreviewServer(
+                getContainerSingleEntry(asciidoc.src, asciidoc.outputDir),
+                port,
+                sourceDir
+        ) {
+            @Override
+            protected void apply(Collection<String> changes) {
+                super.apply(changes)
+                applied.addAll(changes)
+            }
+        }
+        preview = new Thread({ ->
+            try {
+                server.run()
+            } catch (InterruptedException ignored) {
+                // Stopping the preview interrupts the watch loop.
+            }
+        })
+        preview.start()
+        conditions.eventually {
+            assert statusOf('/index.html') == 200
+        }
+    }
+
+    void cleanup() {
+        preview.interrupt()
+        preview.join(30000)
+    }
+
+    void 'Converted pages are served with the reload script'() {
+        when:
+        String page = new URL("http://${InetAddress.loopbackAddress.hostAddress}:${port}/").getText(StandardCharsets.UTF_8.name())
+
+        then:
+        page.contains('A document')
+        page.contains(AsciidoctorPreviewServer.EVENTS_PATH)
+    }
+
+    void 'Files outside the output directory are not served'() {
+        given:
+        File sibling = new File(((File) asciidoc.outputDir).parentFile, "${asciidoc.outputDir.name}-secret")
+        sibling.mkdirs()
+        new File(sibling, 'secret.html').text = 'secret'
+
+        expect:
+        statusOf("/../${sibling.name}/secret.html") == 404
+        statusOf('/../src/index.adoc') == 404
+    }
+
+    void 'A changed document is converted again'() {
+        given:
+        File output = new File(asciidoc.outputDir, OUTPUT_HTML)
+
+        expect:
+        conditions.eventually {
+            // The watch loop may not be registered yet, so keep changing the document until it is picked up.
+            asciidoc.src.text = "= A document\n\nwith changed text ${System.nanoTime()}\n"
+            assert applied.contains(INPUT_DOC)
+            assert output.text.contains('with changed text')
+        }
+    }
+
+    private int statusOf(String path) {
+        try {
+            new Socket(InetAddress.loopbackAddress, port).withCloseable { Socket socket ->
+                socket.outputStream.write(
+                        "GET ${path} HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                                .getBytes(StandardCharsets.US_ASCII)
+                )
+                socket.outputStream.flush()
+                final String status = new BufferedReader(
+                        new InputStreamReader(socket.inputStream, StandardCharsets.US_ASCII)
+                ).readLine()
+                status ? status.split(' ')[1].toInteger() : -1
+            }
+        } catch (IOException e) {
+            -1
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import org.asciidoctor.Asciidoctor
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+import org.asciidoctor.gradle.internal.ExecutorConfigurationContainer
+import org.asciidoctor.gradle.remote.internal.RemoteSpecification
+import spock.lang.TempDir
+
+class DiagramRenderCacheSpec extends RemoteSpecification {
+
+    @TempDir
+    File cacheDir
+
+    void 'Cache is not installed when diagrams are not required'() {
+        given:
+        Asciidoctor asciidoctor = Mock(Asciidoctor)
+        def config = new ExecutorConfiguration(diagramCacheDir: cacheDir, requires: ['asciidoctor-bibtex'])
+
+        when:
+        boolean installed = DiagramRenderCache.install(asciidoctor, config)
+
+        then:
+        !installed
+        0 * asciidoctor._
+    }
+
+    void 'Cache is not installed when no cache directory is configured'() {
+        given:
+        Asciidoctor asciidoctor = Mock(Asciidoctor)
+        def config = new ExecutorConfiguration(requires: [DiagramRenderCache.DIAGRAM_LIBRARY])
+
+        expect:
+        !DiagramRenderCache.install(asciidoctor, config)
+    }
+
+    void 'A diagram that was rendered before is served from the cache'() {
+        given:
+        File src = new File(projectDir, "src/${INPUT_DOC}")
+        src.parentFile.mkdirs()
+        src.text = '''= Diagrams
+
+[ditaa,box]
+....
++-----+
+| Box |
++-----+
+....
+'''
+        File first = new File(projectDir, 'first')
+        File second = new File(projectDir, 'second')
+
+        when:
+        convert(src, first)
+        List<File> cached = cacheEntries()
+
+        then:
+        new File(first, 'box.png').exists()
+        cached.size() == 1
+
+        when: 'the cached image is replaced with content that rendering cannot produce'
+        cached.first().bytes = [1, 2, 3] as byte[]
+        convert(src, second)
+
+        then: 'the second conversion uses the cached image instead of rendering the diagram'
+        new File(second, 'box.png').bytes == [1, 2, 3] as byte[]
+        cacheEntries() == cached
+    }
+
+    void 'Least recently used entries are evicted first'() {
+        given:
+        File oldest = entry('aa', 1000, 1000L)
+        File middle = entry('bb', 1000, 2000L)
+        File newest = entry('cc', 1000, 3000L)
+
+        when:
+        int removed = DiagramRenderCache.evict(cacheDir, 2100)
+
+        then:
+        removed == 1
+        !oldest.exists()
+        !new File("${oldest}.cache").exists()
+        middle.exists()
+        newest.exists()
+    }
+
+    void 'Nothing is evicted when the cache fits'() {
+        given:
+        entry('aa', 1000, 1000L)
+
+        expect:
+        DiagramRenderCache.evict(cacheDir, 10000) == 0
+        DiagramRenderCache.evict(cacheDir, 0) == 0
+    }
+
+    private void convert(File src, File outputDir) {
+        ExecutorConfiguration config = getExecutorConfiguration(HTML, src, new File(outputDir, OUTPUT_HTML), null)
+        config.sourceTree = [src] as Set
+        config.requires = [DiagramRenderCache.DIAGRAM_LIBRARY]
+        config.diagramCacheDir = cacheDir
+        new AsciidoctorJavaExec(new ExecutorConfigurationContainer(config)).run()
+    }
+
+    private List<File> cacheEntries() {
+        List<File> images = []
+        cacheDir.eachFileRecurse { File it ->
+            if (it.file && !it.name.endsWith('.cache')) {
+                images.add(it)
+            }
+        }
+        images
+    }
+
+    private File entry(String key, int size, long lastUsed) {
+        File image = new File(cacheDir, "${key}/${key}0123.svg")
+        image.parentFile.mkdirs()
+        image.bytes = new byte[size]
+        new File("${image}.cache").text = '{}'
+        image.lastModified = lastUsed
+        image
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import org.asciidoctor.Asciidoctor
+import org.asciidoctor.Options
+import org.asciidoctor.SafeMode
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+import org.asciidoctor.gradle.remote.internal.RemoteSpecification
+import org.asciidoctor.log.LogHandler
+import org.asciidoctor.log.LogRecord
+
+import static org.asciidoctor.jruby.AsciidoctorJRuby.Factory.create
+
+class IncludeCacheSpec extends RemoteSpecification {
+
+    static final String PART = '''// tag::body[]
+[[shared]]
+== Shared section
+
+Shared text.
+// end::other[]
+
+include::_nested.adoc[]
+// end::body[]
+'''
+
+    static final String NESTED = '''Nested text.
+
+==== Out of sequence
+'''
+
+    static final String MAIN = '''= Main document
+
+See xref:_part.adoc#shared[the shared section].
+
+include::_part.adoc[tag=body]
+
+include::_part.adoc[tag=missing]
+
+include::_part.adoc[lines=3..4]
+
+include::_missing.adoc[]
+'''
+
+    File main
+
+    void setup() {
+        main = new File(projectDir, 'main.adoc')
+        main.parentFile.mkdirs()
+        main.text = MAIN
+        new File(projectDir, '_part.adoc').text = PART
+        new File(projectDir, '_nested.adoc').text = NESTED
+    }
+
+    void 'Cache is not installed when it is disabled'() {
+        given:
+        Asciidoctor asciidoctor = create()
+
+        expect:
+        !IncludeCache.install(asciidoctor, new ExecutorConfiguration(includeCacheMaxSize: 0))
+        ruby(asciidoctor, 'defined?(Asciidoctor::GradleIncludeCache).nil?') == 'true'
+
+        cleanup:
+        asciidoctor.shutdown()
+    }
+
+    void 'Includes are processed in the same way with and without the cache'() {
+        given:
+        Asciidoctor plain = create()
+        Asciidoctor cached = create()
+        assert IncludeCache.install(cached, new ExecutorConfiguration(includeCacheMaxSize: 1024 * 1024))
+
+        when:
+        List<String> plainFirst = convert(plain)
+        List<String> cachedFirst = convert(cached)
+        List<String> cachedSecond = convert(cached)
+
+        then: 'the output and the log, including files and line numbers, are unchanged'
+        cachedFirst == plainFirst
+        cachedSecond == plainFirst
+
+        and: 'the includes catalog is recorded, so the inter-document reference is internal'
+        plainFirst[0].contains('href="#shared"')
+
+        and: 'tag and missing file warnings are reported'
+        plainFirst.any { it.contains("tag 'missing' not found") }
+        plainFirst.any { it.contains('mismatched end tag') }
+        plainFirst.any { it.contains('_nested.adoc:3') }
+        plainFirst.any { it.contains('include file not found') }
+
+        and: 'the second conversion is served from the cache'
+        ruby(cached, 'Asciidoctor::GradleIncludeCache.hits').toInteger() > 0
+        ruby(cached, 'Asciidoctor::GradleIncludeCache.size') == '2'
+
+        cleanup:
+        plain.shutdown()
+        cached.shutdown()
+    }
+
+    void 'Changed include files are read again'() {
+        given:
+        Asciidoctor cached = create()
+        assert IncludeCache.install(cached, new ExecutorConfiguration(includeCacheMaxSize: 1024 * 1024))
+        File nested = new File(projectDir, '_nested.adoc')
+
+        when:
+        String before = convert(cached)[0]
+        nested.text = 'Changed nested text.\n'
+        nested.lastModified = nested.lastModified() + 2000
+        String after = convert(cached)[0]
+
+        then:
+        before.contains('Nested text.')
+        after.contains('Changed nested text.')
+
+        cleanup:
+        cached.shutdown()
+    }
+
+    private List<String> convert(Asciidoctor asciidoctor) {
+        final List<String> messages = []
+        final LogHandler handler = { LogRecord record ->
+            messages.add("${record.severity} ${record.cursor?.file}:${record.cursor?.lineNumber} ${record.message}")
+        } as LogHandler
+        asciidoctor.registerLogHandler(handler)
+        try {
+            final String output = asciidoctor.convertFile(
+                    main,
+                    Options.builder().safe(SafeMode.UNSAFE).toFile(false).build()
+            )
+            [output] + messages
+        } finally {
+            asciidoctor.unregisterLogHandler(handler)
+        }
+    }
+
+    private String ruby(Asciidoctor asciidoctor, String script) {
+        asciidoctor.unwrap(Class.forName('org.jruby.Ruby')).evalScriptlet(script).toString()
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import org.asciidoctor.Asciidoctor
+import org.asciidoctor.Options
+import org.asciidoctor.gradle.remote.internal.RemoteSpecification
+
+import static org.asciidoctor.jruby.AsciidoctorJRuby.Factory.create
+
+class OptimisedImageTreeprocessorSpec extends RemoteSpecification {
+
+    Asciidoctor asciidoctor
+
+    void setup() {
+        asciidoctor = create()
+    }
+
+    void cleanup() {
+        asciidoctor.shutdown()
+    }
+
+    void 'Named and explicit page sizes are converted to inches'() {
+        when:
+        List<Double> size = pageSizeOf(pageSize, layout)
+
+        then:
+        size*.round(2) == expected
+
+        where:
+        pageSize         | layout      || expected
+        'A4'             | ''          || [8.27d, 11.69d]
+        'letter'         | 'landscape' || [11d, 8.5d]
+        '[8.5in, 11in]'  | ''          || [8.5d, 11d]
+        '[210mm, 297mm]' | ''          || [8.27d, 11.69d]
+        '[612, 792]'     | 'landscape' || [11d, 8.5d]
+    }
+
+    void 'Unknown page sizes are not guessed'() {
+        expect:
+        pageSizeOf(pageSize, '') == null
+
+        where:
+        pageSize << ['B7', '[8.5in]', '[8.5 furlongs, 11in]', '[0, 792]']
+    }
+
+    private List<Double> pageSizeOf(String pageSize, String layout) {
+        final String header = layout ? ":pdf-page-layout: ${layout}\n" : ''
+        OptimisedImageTreeprocessor.pageSizeOf(asciidoctor.load(
+                "= Document\n:pdf-page-size: ${pageSize}\n${header}\nText",
+                Options.builder().build()
+        ))
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import org.asciidoctor.Asciidoctor
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+import org.asciidoctor.gradle.internal.ExecutorConfigurationContainer
+import org.asciidoctor.gradle.remote.internal.RemoteSpecification
+
+import static org.asciidoctor.jruby.AsciidoctorJRuby.Factory.create
+
+class PdfResourceCacheSpec extends RemoteSpecification {
+
+    static final String PDF = 'pdf'
+
+    Asciidoctor asciidoctor
+
+    void setup() {
+        asciidoctor = create()
+        asciidoctor.requireLibrary('asciidoctor-pdf')
+    }
+
+    void cleanup() {
+        asciidoctor.shutdown()
+    }
+
+    void 'Cache is not installed for other backends or when it is disabled'() {
+        expect:
+        !PdfResourceCache.install(
+                asciidoctor,
+                new ExecutorConfiguration(backendName: backend, pdfResourceCache: enabled)
+        )
+        ruby('defined?(Asciidoctor::PDF::GradleResourceCache).nil?') == 'true'
+
+        where:
+        backend | enabled
+        HTML    | true
+        PDF     | false
+    }
+
+    void 'Themes are loaded once and every caller receives its own copy'() {
+        given:
+        File theme = theme('custom-theme.yml', "base:\n  font_color: '111111'\n")
+        install()
+
+        when:
+        String first = loadThemeColor(theme)
+        ruby('Asciidoctor::PDF::GradleResourceCache.themes.values.first[:theme].base_font_color = "cached"')
+        ruby("Asciidoctor::PDF::ThemeLoader.load_file('${theme.absolutePath}').base_font_color = 'modified'")
+
+        then:
+        first == '111111'
+        loadThemeColor(theme) == 'cached'
+        ruby('Asciidoctor::PDF::GradleResourceCache.themes.size') == '1'
+    }
+
+    void 'Changes to an extended theme are picked up'() {
+        given:
+        File parent = theme('parent-theme.yml', "base:\n  font_color: '111111'\n")
+        File child = theme('child-theme.yml', "extends: ${parent.absolutePath}\nheading:\n  font_color: '222222'\n")
+        install()
+
+        when:
+        String before = loadThemeColor(child)
+        parent.text = "base:\n  font_color: '333333'\n"
+        parent.lastModified = parent.lastModified() + 2000
+
+        then:
+        before == '111111'
+        loadThemeColor(child) == '333333'
+    }
+
+    void 'Fonts are read once across conversions'() {
+        given:
+        Map asciidoc = getProject(projectDir)
+        File output = new File(asciidoc.outputDir, 'index.pdf')
+        ExecutorConfiguration config = getExecutorConfiguration(PDF, asciidoc.src, output, null)
+        config.sourceTree = [asciidoc.src] as Set
+        config.pdfResourceCache = true
+        AsciidoctorJavaExec executor = new AsciidoctorJavaExec(new ExecutorConfigurationContainer(config), asciidoctor)
+
+        when:
+        Asciidoctor runtime = executor.startRuntime()
+        runtime.convertFile(asciidoc.src, executor.normalisedOptionsFor(asciidoc.src, config))
+        String fonts = ruby('Asciidoctor::PDF::GradleResourceCache.fonts.size')
+        String loaded = ruby('Asciidoctor::PDF::GradleResourceCache.fonts.values.map(&:object_id).sort.join(",")')
+        runtime.convertFile(asciidoc.src, executor.normalisedOptionsFor(asciidoc.src, config))
+
+        then:
+        fonts.toInteger() > 0
+        ruby('Asciidoctor::PDF::GradleResourceCache.fonts.size') == fonts
+        ruby('Asciidoctor::PDF::GradleResourceCache.fonts.values.map(&:object_id).sort.join(",")') == loaded
+        output.exists()
+    }
+
+    private void install() {
+        assert PdfResourceCache.install(
+                asciidoctor,
+                new ExecutorConfiguration(backendName: PDF, pdfResourceCache: true)
+        )
+    }
+
+    private String loadThemeColor(File theme) {
+        ruby("Asciidoctor::PDF::ThemeLoader.load_file('${theme.absolutePath}').base_font_color.to_s")
+    }
+
+    private File theme(String name, String content) {
+        File file = new File(projectDir, name)
+        file.parentFile.mkdirs()
+        file.text = content
+        file
+    }
+
+    private String ruby(String script) {
+        asciidoctor.unwrap(Class.forName('org.jruby.Ruby')).evalScriptlet(script).toString()
+    }
+}
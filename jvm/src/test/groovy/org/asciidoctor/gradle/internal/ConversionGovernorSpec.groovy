@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import org.gradle.api.Project
+import org.gradle.testfixtures.ProjectBuilder
+import spock.lang.Specification
+import spock.lang.Timeout
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ConversionGovernorSpec extends Specification {
+
+    static final long MB = 1024L * 1024L
+
+    Project project = ProjectBuilder.builder().build()
+
+    void 'Estimate is based on the runtime baseline and the largest document'() {
+        given:
+        def governor = governor(1000 * MB)
+        File small = File.createTempFile('small', '.adoc')
+        File large = File.createTempFile('large', '.adoc')
+        small.text = 'x' * 10
+        large.text = 'x' * 1000
+
+        expect:
+        governor.estimate([small, large]) == 96 * MB + 1000 * 40
+        governor.estimate([]) == 96 * MB
+
+        cleanup:
+        small.delete()
+        large.delete()
+    }
+
+    void 'A single conversion is always admitted'() {
+        given:
+        def governor = governor(10 * MB)
+
+        when:
+        def permit = governor.admit('single', 100 * MB)
+
+        then:
+        governor.reserved == 100 * MB
+
+        when:
+        permit.close()
+        permit.close()
+
+        then:
+        governor.reserved == 0
+    }
+
+    @Timeout(10)
+    void 'Conversions wait until heap is released'() {
+        given:
+        def governor = governor(150 * MB)
+        def first = governor.admit('first', 100 * MB)
+        def admitted = new CountDownLatch(1)
+
+        when:
+        Thread.start {
+            governor.admit('second', 100 * MB)
+            admitted.countDown()
+        }
+
+        then:
+        !admitted.await(500, TimeUnit.MILLISECONDS)
+
+        when:
+        first.close()
+
+        then:
+        admitted.await(5, TimeUnit.SECONDS)
+        governor.reserved == 100 * MB
+    }
+
+    @Timeout(10)
+    void 'A conversion is admitted without headroom once it has waited too long'() {
+        given:
+        def governor = governor(150 * MB, 1)
+        governor.admit('first', 100 * MB)
+
+        when:
+        def second = governor.admit('second', 100 * MB)
+
+        then:
+        governor.reserved == 200 * MB
+
+        cleanup:
+        second?.close()
+    }
+
+    private ConversionGovernor governor(long budget, int maxWait = 60) {
+        def params = Stub(ConversionGovernor.Params) {
+            getEnabled() >> project.objects.property(Boolean).value(true)
+            getRuntimeBaseline() >> project.objects.property(Long).value(96L)
+            getDocumentFactor() >> project.objects.property(Integer).value(40)
+            getMaxWait() >> project.objects.property(Integer).value(maxWait)
+        }
+        new ConversionGovernor() {
+            @Override
+            ConversionGovernor.Params getParameters() {
+                params
+            }
+
+            @Override
+            protected long getBudget() {
+                budget
+            }
+
+            @Override
+            long getHeadroom() {
+                Long.MAX_VALUE
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import static org.asciidoctor.gradle.internal.ExecutionHistory.Outcome.OUT_OF_MEMORY
+import static org.asciidoctor.gradle.internal.ExecutionHistory.Outcome.SUCCESS
+import static org.ysb33r.grolifant.api.core.jvm.ExecutionMode.CLASSPATH
+import static org.ysb33r.grolifant.api.core.jvm.ExecutionMode.JAVA_EXEC
+
+class ExecutionHistorySpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    void 'Samples survive a round trip through the history file'() {
+        given:
+        def file = new File(tmpDir, 'history/asciidoctor')
+        def history = ExecutionHistory.load(file)
+        history.record(JAVA_EXEC, new ExecutionHistory.Sample(3, 4000, SUCCESS, 0))
+        history.record(CLASSPATH, new ExecutionHistory.Sample(40, 9000, OUT_OF_MEMORY, 0.95))
+
+        when:
+        history.save()
+        def loaded = ExecutionHistory.load(file)
+
+        then:
+        loaded.samplesFor(JAVA_EXEC)*.duration == [4000L]
+        loaded.samplesFor(CLASSPATH)*.outcome == [OUT_OF_MEMORY]
+        loaded.samplesFor(CLASSPATH)*.heapOccupancy == [0.95d]
+    }
+
+    void 'Only the most recent samples are kept'() {
+        given:
+        def history = ExecutionHistory.load(new File(tmpDir, 'asciidoctor'))
+
+        when:
+        (1..ExecutionHistory.MAX_SAMPLES_PER_MODE + 2).each {
+            history.record(JAVA_EXEC, new ExecutionHistory.Sample(it, 1000, SUCCESS, 0))
+        }
+
+        then:
+        history.samplesFor(JAVA_EXEC).size() == ExecutionHistory.MAX_SAMPLES_PER_MODE
+        history.samplesFor(JAVA_EXEC).first().documents == 3
+    }
+
+    void 'Unreadable lines are ignored'() {
+        given:
+        def file = new File(tmpDir, 'asciidoctor')
+        file.text = 'JAVA_EXEC 1 2000 SUCCESS 0.0\nFOO 1 2 SUCCESS 0\nCLASSPATH x 2 SUCCESS 0\ngarbage\n'
+
+        expect:
+        ExecutionHistory.load(file).samplesFor(JAVA_EXEC).size() == 1
+        ExecutionHistory.load(file).samplesFor(CLASSPATH).empty
+    }
+}
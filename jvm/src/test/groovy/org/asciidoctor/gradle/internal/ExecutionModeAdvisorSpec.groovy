@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import org.ysb33r.grolifant.api.core.jvm.ExecutionMode
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import static org.asciidoctor.gradle.internal.ExecutionHistory.Outcome.OUT_OF_MEMORY
+import static org.asciidoctor.gradle.internal.ExecutionHistory.Outcome.SUCCESS
+import static org.ysb33r.grolifant.api.core.jvm.ExecutionMode.CLASSPATH
+import static org.ysb33r.grolifant.api.core.jvm.ExecutionMode.JAVA_EXEC
+import static org.ysb33r.grolifant.api.core.jvm.ExecutionMode.OUT_OF_PROCESS
+
+class ExecutionModeAdvisorSpec extends Specification {
+
+    static final long MB = 1024L * 1024L
+
+    @TempDir
+    File tmpDir
+
+    ExecutionHistory history
+
+    void setup() {
+        history = ExecutionHistory.load(new File(tmpDir, 'asciidoctor'))
+    }
+
+    void 'Modes without enough history are tried first'() {
+        given:
+        record(JAVA_EXEC, [[1, 5000], [1, 5000]])
+
+        when:
+        def decision = new ExecutionModeAdvisor(history).advise(1, 100 * MB, 1000 * MB)
+
+        then:
+        decision.mode == CLASSPATH
+        decision.reasons.find { it.contains('fewer than') }
+    }
+
+    void 'The mode with the shortest predicted duration is chosen'() {
+        given:
+        record(JAVA_EXEC, [[1, 5000], [10, 14000]])
+        record(CLASSPATH, [[1, 2000], [10, 20000]])
+        record(OUT_OF_PROCESS, [[1, 3000], [10, 12000]])
+
+        expect:
+        new ExecutionModeAdvisor(history).advise(documents, 100 * MB, 1000 * MB).mode == mode
+
+        where:
+        documents || mode
+        1         || CLASSPATH
+        10        || OUT_OF_PROCESS
+    }
+
+    void 'The classpath is avoided if the daemon heap is too small'() {
+        when:
+        def decision = new ExecutionModeAdvisor(history).advise(1, 500 * MB, 200 * MB)
+
+        then:
+        decision.mode == JAVA_EXEC
+        decision.reasons.find { it.startsWith('CLASSPATH is unsafe') }
+    }
+
+    void 'A mode which ran out of memory is avoided for as many documents'() {
+        given:
+        record(JAVA_EXEC, [[1, 5000], [10, 14000]])
+        record(CLASSPATH, [[1, 2000], [2, 2500]])
+        history.record(CLASSPATH, new ExecutionHistory.Sample(20, 3000, OUT_OF_MEMORY, 0.99))
+        record(OUT_OF_PROCESS, [[1, 9000], [10, 19000]])
+
+        expect:
+        new ExecutionModeAdvisor(history).advise(documents, 100 * MB, 1000 * MB).mode == mode
+
+        where:
+        documents || mode
+        5         || CLASSPATH
+        25        || JAVA_EXEC
+    }
+
+    void 'Durations are predicted from a linear fit'() {
+        given:
+        def samples = [[1, 1000], [3, 3000]].collect { new ExecutionHistory.Sample(it[0], it[1], SUCCESS, 0) }
+
+        expect:
+        ExecutionModeAdvisor.predict(samples, 5) == 5000
+        ExecutionModeAdvisor.predict(samples.take(1), 5) == 1000
+    }
+
+    private void record(ExecutionMode mode, List<List<Integer>> samples) {
+        samples.each { history.record(mode, new ExecutionHistory.Sample(it[0], it[1], SUCCESS, 0)) }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.ExternalModuleDependency
+import org.gradle.api.artifacts.ProjectDependency
+import org.gradle.api.artifacts.dsl.RepositoryHandler
+import org.gradle.api.artifacts.repositories.FlatDirectoryArtifactRepository
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository
+import org.gradle.api.services.BuildServiceParameters
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class ExtensionClasspathCacheSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    void cleanup() {
+        newCache().clear()
+    }
+
+    void 'Dependencies with fixed versions have a stable key regardless of order'() {
+        given:
+        def first = module('org.example', 'one', '1.0')
+        def second = module('org.example', 'two', '2.0')
+
+        when:
+        def key = ExtensionClasspathCache.keyOf([first, second], ['9.4'])
+
+        then:
+        key == ExtensionClasspathCache.keyOf([second, first], ['9.4'])
+        key != ExtensionClasspathCache.keyOf([first], ['9.4'])
+        key != ExtensionClasspathCache.keyOf([first, second], ['9.3'])
+    }
+
+    void 'Dependencies which can change are not cached'() {
+        given:
+        def fixed = module('org.example', 'one', '1.0')
+        List<Dependency> changing = [
+                module('org.example', 'two', '1.+'),
+                module('org.example', 'two', '1.0-SNAPSHOT'),
+                module('org.example', 'two', null),
+                Stub(ProjectDependency)
+        ]
+
+        expect:
+        changing.every { ExtensionClasspathCache.keyOf([fixed, it], []) == null }
+    }
+
+    void 'A classpath is only resolved again if a file has disappeared'() {
+        given:
+        def cache = newCache()
+        def jar = new File(tmpDir, 'one.jar')
+        jar.text = ''
+        int resolutions = 0
+        def resolver = { -> resolutions++; [jar] }
+
+        when:
+        cache.resolve('key', resolver)
+        def classpath = cache.resolve('key', resolver)
+
+        then:
+        classpath == [jar]
+        resolutions == 1
+
+        when:
+        jar.delete()
+        cache.resolve('key', resolver)
+
+        then:
+        resolutions == 2
+    }
+
+    void 'A classpath is reused by later builds unless a file has been replaced'() {
+        given:
+        def jar = new File(tmpDir, 'one.jar')
+        jar.text = ''
+        int resolutions = 0
+        def resolver = { -> resolutions++; [jar] }
+
+        when:
+        newCache().resolve('key', resolver)
+        newCache().resolve('key', resolver)
+
+        then:
+        resolutions == 1
+
+        when:
+        jar.text = 'replaced'
+        newCache().resolve('key', resolver)
+
+        then:
+        resolutions == 2
+    }
+
+    void 'Repositories are part of the resolution context'() {
+        given:
+        def repositories = Stub(RepositoryHandler) {
+            iterator() >> [
+                    Stub(MavenArtifactRepository) {
+                        getName() >> 'maven'
+                        getUrl() >> new URI('https://repo.example/maven')
+                    },
+                    Stub(FlatDirectoryArtifactRepository) {
+                        getName() >> 'flat'
+                    }
+            ].iterator()
+        }
+
+        expect:
+        ExtensionClasspathCache.describe(repositories) == ['maven:https://repo.example/maven', 'flat']
+    }
+
+    private ExtensionClasspathCache newCache() {
+        new ExtensionClasspathCache() {
+            @Override
+            BuildServiceParameters.None getParameters() {
+                null
+            }
+        }
+    }
+
+    private Dependency module(String group, String name, String version) {
+        Stub(ExternalModuleDependency) {
+            getGroup() >> group
+            getName() >> name
+            getVersion() >> version
+            isChanging() >> false
+            getArtifacts() >> ([] as Set)
+        }
+    }
+}
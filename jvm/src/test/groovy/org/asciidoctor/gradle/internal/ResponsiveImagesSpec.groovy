@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import javax.imageio.IIOImage
+import javax.imageio.ImageIO
+import java.awt.image.BufferedImage
+import java.awt.image.DataBuffer
+import java.awt.image.Raster
+
+class ResponsiveImagesSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    File cacheDir
+    File outputDir
+
+    void setup() {
+        cacheDir = new File(tmpDir, 'cache')
+        outputDir = new File(tmpDir, 'html5')
+    }
+
+    void 'Image tags are given variants, dimensions and lazy loading'() {
+        given:
+        image('images/diagram.png', 1200, 600)
+        def page = page('index.html', '<img src="images/diagram.png" alt="Diagram">')
+
+        when:
+        def rewritten = processor().process(outputDir)
+
+        then:
+        rewritten == 1
+        page.text == '<p><img src="images/diagram.png" alt="Diagram" width="1200" height="600" ' +
+                'srcset="images/diagram-480w.png 480w, images/diagram-960w.png 960w, images/diagram.png 1200w" ' +
+                'sizes="100vw" loading="lazy"></p>'
+        ImageIO.read(new File(outputDir, 'images/diagram-480w.png')).width == 480
+        ImageIO.read(new File(outputDir, 'images/diagram-960w.png')).height == 480
+        !new File(outputDir, 'images/diagram-1440w.png').exists()
+    }
+
+    void 'Explicit widths determine the height and the sizes attribute'() {
+        given:
+        image('images/photo.jpg', 1000, 500)
+        def page = page('index.html', '<img src="images/photo.jpg" alt="Photo" width="300">')
+
+        when:
+        processor().process(outputDir)
+
+        then:
+        page.text.contains('width="300" height="150" ')
+        page.text.contains('sizes="(max-width: 300px) 100vw, 300px"')
+    }
+
+    void 'Remote, external and already responsive images are left alone'() {
+        given:
+        image('images/diagram.png', 1200, 600)
+        def html = '<img src="https://example.com/diagram.png">' +
+                '<img src="../diagram.png">' +
+                '<img src="images/missing.png">' +
+                '<img src="images/diagram.png" srcset="images/diagram.png 1200w">'
+        def page = page('index.html', html)
+
+        when:
+        def rewritten = processor().process(outputDir)
+
+        then:
+        rewritten == 0
+        page.text == "<p>${html}</p>"
+    }
+
+    void 'Variants are taken from the cache'() {
+        given:
+        image('images/diagram.png', 1200, 600)
+        page('index.html', '<img src="images/diagram.png">')
+        processor().process(outputDir)
+        def cached = cacheDir.listFiles()*.listFiles().flatten()
+        cached.each { File it -> it.bytes = [1, 2, 3] as byte[] }
+        def rebuilt = new File(tmpDir, 'rebuilt')
+        image('images/diagram.png', 1200, 600, rebuilt)
+        page('index.html', '<img src="images/diagram.png">', rebuilt)
+
+        when:
+        processor().process(rebuilt)
+
+        then:
+        cached.size() == 2
+        new File(rebuilt, 'images/diagram-480w.png').bytes == [1, 2, 3] as byte[]
+    }
+
+    @IgnoreIf({ !ImageIO.getImageWritersByFormatName('webp').hasNext() })
+    void 'WebP variants are offered through a picture element'() {
+        given:
+        image('images/diagram.png', 1200, 600)
+        def page = page('index.html', '<img src="images/diagram.png">')
+
+        when:
+        new ResponsiveImages(cacheDir, [480], '100vw', 0.85f, true).process(outputDir)
+
+        then:
+        page.text.startsWith('<p><picture><source type="image/webp" ' +
+                'srcset="images/diagram-480w.webp 480w, images/diagram-1200w.webp 1200w" sizes="100vw"><img ')
+        page.text.endsWith('></picture></p>')
+    }
+
+    void 'Formats without a writer are skipped'() {
+        given:
+        image('images/diagram.png', 1200, 600)
+        def page = page('index.html', '<img src="images/diagram.png">')
+
+        when:
+        new ResponsiveImages(cacheDir, [480], '100vw', 0.85f, true).process(outputDir)
+
+        then:
+        page.text.contains('srcset="images/diagram-480w.png 480w, images/diagram.png 1200w"')
+        ImageIO.getImageWritersByFormatName('webp').hasNext() || !page.text.contains('<picture>')
+    }
+
+    void 'Images which cannot be decoded keep their tags'() {
+        given:
+        def raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, 1200, 600, 4, null)
+        def file = new File(outputDir, 'images/cmyk.jpg')
+        file.parentFile.mkdirs()
+        def writer = ImageIO.getImageWritersByFormatName('jpeg').next()
+        def output = ImageIO.createImageOutputStream(file)
+        writer.output = output
+        writer.write(null, new IIOImage(raster, null, null), null)
+        output.close()
+        writer.dispose()
+        def html = '<img src="images/cmyk.jpg">'
+        def page = page('index.html', html)
+
+        when:
+        processor().process(outputDir)
+
+        then:
+        page.text == "<p>${html}</p>"
+    }
+
+    void 'Images with an EXIF orientation keep their tags'() {
+        given:
+        def file = image('images/photo.jpg', 1200, 600)
+        def original = file.bytes
+        def exif = new ByteArrayOutputStream()
+        new DataOutputStream(exif).with {
+            write('Exif'.bytes)
+            writeShort(0)
+            write('II'.bytes)
+            write([0x2A, 0, 8, 0, 0, 0, 1, 0, 0x12, 0x01, 3, 0, 1, 0, 0, 0, 6, 0, 0, 0, 0, 0, 0, 0] as byte[])
+        }
+        def rotated = new ByteArrayOutputStream()
+        new DataOutputStream(rotated).with {
+            write(original, 0, 2)
+            writeShort(0xFFE1)
+            writeShort(exif.size() + 2)
+            write(exif.toByteArray())
+            write(original, 2, original.length - 2)
+        }
+        file.bytes = rotated.toByteArray()
+        def html = '<img src="images/photo.jpg">'
+        def page = page('index.html', html)
+
+        when:
+        processor().process(outputDir)
+
+        then:
+        page.text == "<p>${html}</p>"
+        !new File(outputDir, 'images/photo-480w.jpg').exists()
+    }
+
+    private ResponsiveImages processor() {
+        new ResponsiveImages(cacheDir, [960, 480, 1440], '100vw', 0.85f, false)
+    }
+
+    private File page(String name, String content, File dir = outputDir) {
+        def file = new File(dir, name)
+        file.parentFile.mkdirs()
+        file.text = "<p>${content}</p>"
+        file
+    }
+
+    private File image(String name, int width, int height, File dir = outputDir) {
+        def image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+        def graphics = image.createGraphics()
+        graphics.fillRect(0, height.intdiv(4), width.intdiv(2), height.intdiv(2))
+        graphics.dispose()
+        def file = new File(dir, name)
+        file.parentFile.mkdirs()
+        ImageIO.write(image, name.endsWith('.png') ? 'png' : 'jpeg', file)
+        file
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class RuntimePrewarmSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    File dataFile
+
+    void setup() {
+        dataFile = new File(tmpDir, 'asciidoctor.javaexec-data')
+    }
+
+    void 'Waiting ends once the data file is ready'() {
+        given:
+        RuntimePrewarm.ready(dataFile)
+
+        expect:
+        RuntimePrewarm.await(dataFile, 1000)
+    }
+
+    void 'Waiting ends without work if the task gave up'() {
+        given:
+        RuntimePrewarm.abort(dataFile)
+
+        expect:
+        !RuntimePrewarm.await(dataFile, 1000)
+    }
+
+    void 'Waiting times out if the task does not signal'() {
+        expect:
+        !RuntimePrewarm.await(dataFile, 50)
+    }
+
+    void 'Markers of a previous run are removed'() {
+        given:
+        RuntimePrewarm.ready(dataFile)
+        RuntimePrewarm.abort(dataFile)
+
+        when:
+        RuntimePrewarm.reset(dataFile)
+
+        then:
+        !RuntimePrewarm.await(dataFile, 50)
+        tmpDir.listFiles().length == 0
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.internal
+
+import spock.lang.Specification
+
+class WorkManifestSpec extends Specification {
+
+    void 'Configurations survive a round trip through a container'() {
+        given:
+        File srcDir = new File('/src/docs')
+        Set<File> tree = (1..50).collect { new File(srcDir, "chapter-${it}.adoc") }.toSet()
+        def configs = ['html5', 'docbook'].collect { backend ->
+            new ExecutorConfiguration(
+                sourceDir: srcDir,
+                outputDir: new File("/build/${backend}"),
+                sourceTree: new LinkedHashSet<File>(tree),
+                backendName: backend,
+                requires: ['asciidoctor-diagram'],
+                options: [doctype: 'book'],
+                attributes: [toc: 'left'],
+                asciidoctorExtensions: []
+            )
+        }
+
+        when:
+        def result = roundTrip(new ExecutorConfigurationContainer(configs)).configurations
+
+        then:
+        result*.backendName == ['html5', 'docbook']
+        result*.outputDir == [new File('/build/html5'), new File('/build/docbook')]
+        result.every { it.sourceTree == tree }
+        result.every { it.options == [doctype: 'book'] && it.attributes == [toc: 'left'] }
+        result.every { it.requires == ['asciidoctor-diagram'] && it.asciidoctorExtensions.empty }
+
+        and: 'shared source trees are only read once'
+        result[0].sourceTree.is(result[1].sourceTree)
+
+        and: 'options can be changed per configuration'
+        !result[0].options.is(result[1].options)
+    }
+
+    void 'Duplicated content is written only once'() {
+        given:
+        Set<File> tree = (1..1000).collect { new File("/src/docs/section/part-${it}.adoc") }.toSet()
+        def single = [config(tree)]
+        def triple = (1..3).collect { config(new LinkedHashSet<File>(tree)) }
+
+        expect:
+        serialise(new ExecutorConfigurationContainer(triple)).length <
+            serialise(new ExecutorConfigurationContainer(single)).length * 1.5
+    }
+
+    void 'Worker parameters keep their language grouping'() {
+        given:
+        Set<File> tree = [new File('/src/index.adoc')] as Set
+        def params = new AsciidoctorWorkerParameters(
+            asciidoctorConfigurations: [en: [config(tree)], de: [config(tree)]]
+        )
+
+        when:
+        def result = roundTrip(params)
+
+        then:
+        result.asciidoctorConfigurations.keySet() == ['en', 'de'] as Set
+        result.asciidoctorConfigurations.en[0].sourceTree == tree
+    }
+
+    private ExecutorConfiguration config(Set<File> tree) {
+        new ExecutorConfiguration(
+            sourceDir: new File('/src/docs'),
+            sourceTree: tree,
+            backendName: 'html5',
+            options: [:],
+            attributes: [a: 'b']
+        )
+    }
+
+    private static byte[] serialise(Object obj) {
+        def bytes = new ByteArrayOutputStream()
+        new ObjectOutputStream(bytes).withCloseable { it.writeObject(obj) }
+        bytes.toByteArray()
+    }
+
+    private static <T> T roundTrip(T obj) {
+        new ObjectInputStream(new ByteArrayInputStream(serialise(obj))).withCloseable { (T) it.readObject() }
+    }
+}
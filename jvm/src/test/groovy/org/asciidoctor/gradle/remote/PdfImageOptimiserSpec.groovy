@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import javax.imageio.ImageIO
+import java.awt.image.BufferedImage
+
+class PdfImageOptimiserSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    File cacheDir
+
+    void setup() {
+        cacheDir = new File(tmpDir, 'cache')
+    }
+
+    void 'Large images are reduced to the size of the page at the target resolution'() {
+        given:
+        def original = image('screenshot.png', 4000, 1000)
+        def optimiser = new PdfImageOptimiser(cacheDir, 100, 0.85f)
+
+        when:
+        def optimised = optimiser.optimise(original, 8, 11)
+        def result = ImageIO.read(optimised)
+
+        then:
+        optimised != original
+        optimised.absolutePath.startsWith(cacheDir.absolutePath)
+        result.width == 800
+        result.height == 200
+        optimised.length() < original.length()
+    }
+
+    void 'Optimised images are served from the cache by later runtimes'() {
+        given:
+        def original = image('screenshot.jpg', 3000, 2000)
+        def first = new PdfImageOptimiser(cacheDir, 150, 0.8f).optimise(original, 8, 11)
+        first.bytes = [1, 2, 3] as byte[]
+
+        when:
+        def second = new PdfImageOptimiser(cacheDir, 150, 0.8f).optimise(original, 8, 11)
+
+        then:
+        second == first
+        second.bytes == [1, 2, 3] as byte[]
+    }
+
+    void 'Different parameters lead to different cache entries'() {
+        given:
+        def original = image('screenshot.png', 4000, 1000)
+
+        expect:
+        new PdfImageOptimiser(cacheDir, 100, 0.85f).optimise(original, 8, 11) !=
+                new PdfImageOptimiser(cacheDir, 150, 0.85f).optimise(original, 8, 11)
+    }
+
+    void 'Small PNG images are used as they are'() {
+        given:
+        def original = image('icon.png', 64, 64)
+
+        expect:
+        new PdfImageOptimiser(cacheDir, 150, 0.85f).optimise(original, 8, 11) == original
+        new PdfImageOptimiser(cacheDir, 150, 0.85f).optimise(original, 8, 11) == original
+    }
+
+    void 'Rotated JPEG images are used as they are'() {
+        given:
+        def original = withExifOrientation(image('photo.jpg', 3000, 2000), 6)
+
+        when:
+        def first = new PdfImageOptimiser(cacheDir, 150, 0.8f).optimise(original, 8, 11)
+        def second = new PdfImageOptimiser(cacheDir, 150, 0.8f).optimise(original, 8, 11)
+
+        then:
+        first == original
+        second == original
+        cacheDir.listFiles()*.listFiles().flatten().any { File it -> it.name.endsWith('.original') }
+    }
+
+    void 'Images which cannot be decoded are used as they are'() {
+        given:
+        def original = new File(tmpDir, 'broken.jpg')
+        original.bytes = [0xFF, 0xD8, 0xFF, 0xDA, 0, 2, 1, 2, 3, 4] as byte[]
+
+        expect:
+        new PdfImageOptimiser(cacheDir, 150, 0.8f).optimise(original, 8, 11) == original
+    }
+
+    private File image(String name, int width, int height) {
+        def image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+        def random = new Random(width * height)
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF))
+            }
+        }
+        def file = new File(tmpDir, name)
+        ImageIO.write(image, name.endsWith('.png') ? 'png' : 'jpeg', file)
+        file
+    }
+
+    private static File withExifOrientation(File jpeg, int orientation) {
+        def exif = new ByteArrayOutputStream()
+        new DataOutputStream(exif).with {
+            write('Exif'.bytes)
+            writeShort(0)
+            write('MM'.bytes)
+            writeShort(0x2A)
+            writeInt(8)
+            writeShort(1)
+            writeShort(0x0112)
+            writeShort(3)
+            writeInt(1)
+            writeShort(orientation)
+            writeShort(0)
+            writeInt(0)
+        }
+        def original = jpeg.bytes
+        def result = new ByteArrayOutputStream()
+        new DataOutputStream(result).with {
+            write(original, 0, 2)
+            writeShort(0xFFE1)
+            writeShort(exif.size() + 2)
+            write(exif.toByteArray())
+            write(original, 2, original.length - 2)
+        }
+        jpeg.bytes = result.toByteArray()
+        jpeg
+    }
+}
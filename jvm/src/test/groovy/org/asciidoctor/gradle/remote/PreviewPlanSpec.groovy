@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import org.asciidoctor.gradle.internal.ExecutorConfiguration
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class PreviewPlanSpec extends Specification {
+
+    @TempDir
+    File sourceDir
+
+    ExecutorConfiguration html
+    ExecutorConfiguration pdf
+
+    void setup() {
+        html = new ExecutorConfiguration(sourceDir: sourceDir, backendName: 'html5', sourceTree: [
+                new File(sourceDir, 'index.adoc'),
+                new File(sourceDir, 'guide/setup.adoc')
+        ] as Set)
+        pdf = new ExecutorConfiguration(sourceDir: sourceDir, backendName: 'pdf', sourceTree: [
+                new File(sourceDir, 'index.adoc')
+        ] as Set)
+    }
+
+    void 'A changed document is only converted by the configurations which convert it'() {
+        when:
+        def plan = new PreviewPlan([html, pdf], ['guide/setup.adoc'])
+
+        then:
+        plan.documents.keySet() == [html] as Set
+        plan.documents[html] == [new File(sourceDir, 'guide/setup.adoc')] as Set
+        plan.resources.empty
+    }
+
+    void 'A changed partial or docinfo file converts all documents'() {
+        when:
+        def plan = new PreviewPlan([html, pdf], [path])
+
+        then:
+        plan.documents[html] == html.sourceTree
+        plan.documents[pdf] == pdf.sourceTree
+        plan.resources.empty
+
+        where:
+        path << ['_partials/intro.adoc', 'docinfo.html']
+    }
+
+    void 'Other files are treated as resources'() {
+        when:
+        def plan = new PreviewPlan([html, pdf], ['images/logo.png'])
+
+        then:
+        plan.documents.isEmpty()
+        plan.resources == ['images/logo.png'] as Set
+        !plan.empty
+    }
+
+    void 'No changes need no work'() {
+        expect:
+        new PreviewPlan([html], []).empty
+    }
+}
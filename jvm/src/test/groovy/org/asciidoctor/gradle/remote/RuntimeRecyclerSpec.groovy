@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.remote
+
+import spock.lang.Specification
+
+class RuntimeRecyclerSpec extends Specification {
+
+    void 'Runtime is recycled after the maximum number of documents'() {
+        given:
+        def recycler = new RuntimeRecycler(2, 0)
+
+        when:
+        recycler.converted()
+
+        then:
+        !recycler.recycleRequired
+
+        when:
+        recycler.converted()
+
+        then:
+        recycler.recycleRequired
+
+        when:
+        recycler.reset()
+
+        then:
+        !recycler.recycleRequired
+        recycler.documents == 0
+    }
+
+    void 'Runtime is recycled once the heap occupancy exceeds the threshold'() {
+        given:
+        double occupancy = 0.5
+        def recycler = new RuntimeRecycler(0, 0.8) {
+            @Override
+            protected double getHeapOccupancy() {
+                occupancy
+            }
+        }
+        recycler.converted()
+
+        expect:
+        !recycler.recycleRequired
+
+        when:
+        occupancy = 0.9
+
+        then:
+        recycler.recycleRequired
+    }
+
+    void 'Heap occupancy is ignored after a restart until garbage has been collected again'() {
+        given:
+        double occupancy = 0.9
+        long collections = 3
+        def recycler = new RuntimeRecycler(0, 0.8) {
+            @Override
+            protected double getHeapOccupancy() {
+                occupancy
+            }
+
+            @Override
+            protected long getCollectionCount() {
+                collections
+            }
+        }
+        recycler.reset()
+        recycler.converted()
+
+        expect:
+        !recycler.recycleRequired
+
+        when:
+        collections = 4
+
+        then:
+        recycler.recycleRequired
+
+        when:
+        occupancy = 0.5
+
+        then:
+        !recycler.recycleRequired
+    }
+
+    void 'A fresh runtime is never recycled'() {
+        given:
+        def recycler = new RuntimeRecycler(1, 0.0001)
+
+        expect:
+        !recycler.recycleRequired
+    }
+
+    void 'Heap occupancy is reported as a fraction'() {
+        expect:
+        new RuntimeRecycler(0, 0).heapOccupancy in (0d..1d)
+        new RuntimeRecycler(0, 0).collectionCount >= 0
+    }
+}
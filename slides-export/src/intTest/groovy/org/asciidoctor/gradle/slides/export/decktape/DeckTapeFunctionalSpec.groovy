@@ -202,6 +202,43 @@ class DeckTapeFunctionalSpec extends FunctionalSpecification {
         new File(projectDir, 'build/docs/asciidocRevealJsExport/index.pdf').exists()
     }
 
+    @IgnoreIf({ OperatingSystem.current().windows })
+    @Timeout(240)
+    void 'All decks of a task are exported in a single shared browser'() {
+        setup:
+        createTestProject('generic')
+        final File sourceDir = new File(projectDir, 'src/docs/asciidoc')
+        new File(sourceDir, 'second.adoc').text = new File(sourceDir, 'index.adoc').text
+        getBuildFile("""
+        import org.asciidoctor.gradle.slides.export.decktape.DeckTapeTask
+
+        asciidoctorRevealJs {
+            sourceDir 'src/docs/asciidoc'
+            sources {
+                include 'index.adoc', 'second.adoc'
+            }
+        }
+
+        task standalonePdfConverter(type: DeckTapeTask) {
+            outputDir "\${buildDir}/generic"
+            slides asciidoctorRevealJs
+            profile 'reveal_js'
+            ${chromeSandbox}
+        }
+        """, BASE_ONLY)
+
+        when:
+        BuildResult result = getGradleRunner(['standalonePdfConverter', '-i']).build()
+
+        then:
+        verifyAll {
+            result.output.count('Launched the shared browser at ') == 1
+            result.output.count('Connected to the shared browser at ') == 2
+            new File(projectDir, 'build/generic/index.pdf').exists()
+            new File(projectDir, 'build/generic/second.pdf').exists()
+        }
+    }
+
     private File getBuildFile(String extraContent, boolean baseOnly = false) {
         File buildFile = new File(projectDir, 'build.gradle')
         buildFile << """
@@ -28,6 +28,7 @@ import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputFiles
 import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.Optional
 import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.PathSensitive
 import org.gradle.api.tasks.SkipWhenEmpty
@@ -45,8 +46,10 @@ import static org.gradle.api.tasks.PathSensitivity.RELATIVE
 @CompileStatic
 abstract class AbstractExportBaseTask extends DefaultTask {
     private final static String HTML_EXT = '.html'
-    private final List<Object> slideInputFiles = []
+    // Can contain tasks, which are not kept in the configuration cache. Use the slides provider at execution time.
+    private final transient List<Object> slideInputFiles = []
     private final ProjectOperations projectOperations
+    private final Provider<Set<File>> slidesProvider
     private Object outputDir
     private Callable<Profile> profileProvider
     private Integer height
@@ -126,7 +129,7 @@ abstract class AbstractExportBaseTask extends DefaultTask {
      */
     @OutputDirectory
     File getOutputDir() {
-        project.file(this.outputDir)
+        projectOperations.fsOperations.file(this.outputDir)
     }
 
     /** Set the slides that needs converting.
@@ -168,34 +171,7 @@ abstract class AbstractExportBaseTask extends DefaultTask {
     @SkipWhenEmpty
     @PathSensitive(RELATIVE)
     Provider<Set<File>> getSlides() {
-        if (slideInputFiles.empty) {
-            project.providers.provider { [] as Set<File> }
-        } else {
-            project.providers.provider {
-                List<Object> resolvedInputs = Transform.toList(slideInputFiles) { input ->
-                    input instanceof Provider ? ((Provider) input).get() : input
-                }
-
-                List asciidoctorTasks = resolvedInputs.findAll { input ->
-                    input instanceof AbstractAsciidoctorBaseTask
-                } as List<AbstractAsciidoctorBaseTask>
-
-                List<File> taskFiles = asciidoctorTasks.collectMany { inputTask ->
-                    File taskOutputDir = inputTask.outputDir
-                    File sourceDir = inputTask.sourceDir
-                    (Collection) Transform.toList(inputTask.sourceFileTree.files) { File input ->
-                        String path = AsciidoctorUtils.getRelativePath(input, sourceDir)
-                        String outputPath = path.lastIndexOf('.').with { it == -1 ? path : path[0..<it]  } + HTML_EXT
-                        new File(taskOutputDir, outputPath)
-                    }
-                }
-                FileCollection otherFc = project.files(resolvedInputs - asciidoctorTasks).filter { File target ->
-                    target.name.toLowerCase(Locale.US).endsWith(HTML_EXT)
-                }
-
-                taskFiles.toSet() + otherFc.files
-            }
-        }
+        this.slidesProvider
     }
 
     /** Set the slide profile to be used.
@@ -243,7 +219,11 @@ abstract class AbstractExportBaseTask extends DefaultTask {
     }
 
     protected AbstractExportBaseTask() {
+        notCompatibleWithConfigurationCache(
+                'Slide export tasks have not been verified with the configuration cache yet'
+        )
         this.projectOperations = ProjectOperations.find(project)
+        this.slidesProvider = projectOperations.provider({ -> owner.resolveSlides() } as Callable<Set<File>>)
     }
 
     /** The list of profiles supported by this conversion task.
@@ -272,6 +252,37 @@ abstract class AbstractExportBaseTask extends DefaultTask {
         this.projectOperations
     }
 
+    @SuppressWarnings('Instanceof')
+    private Set<File> resolveSlides() {
+        if (slideInputFiles.empty) {
+            [] as Set<File>
+        } else {
+            List<Object> resolvedInputs = Transform.toList(slideInputFiles) { input ->
+                input instanceof Provider ? ((Provider) input).get() : input
+            }
+
+            List asciidoctorTasks = resolvedInputs.findAll { input ->
+                input instanceof AbstractAsciidoctorBaseTask
+            } as List<AbstractAsciidoctorBaseTask>
+
+            List<File> taskFiles = asciidoctorTasks.collectMany { inputTask ->
+                File taskOutputDir = inputTask.outputDir
+                File sourceDir = inputTask.sourceDir
+                (Collection) Transform.toList(inputTask.sourceFileTree.files) { File input ->
+                    String path = AsciidoctorUtils.getRelativePath(input, sourceDir)
+                    String outputPath = path.lastIndexOf('.').with { it == -1 ? path : path[0..<it] } + HTML_EXT
+                    new File(taskOutputDir, outputPath)
+                }
+            }
+            FileCollection otherFc = projectOperations.fsOperations.files(resolvedInputs - asciidoctorTasks)
+                    .filter { File target ->
+                        target.name.toLowerCase(Locale.US).endsWith(HTML_EXT)
+                    }
+
+            taskFiles.toSet() + otherFc.files
+        }
+    }
+
     private void checkTaskDependencies(Iterable<Object> tasks) {
         dependsOn tasks.findAll {
             it instanceof Task || it instanceof TaskProvider
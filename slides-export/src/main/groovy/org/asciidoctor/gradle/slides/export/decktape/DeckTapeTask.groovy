@@ -19,23 +19,42 @@ import groovy.transform.CompileStatic
 import org.asciidoctor.gradle.base.AsciidoctorUtils
 import org.asciidoctor.gradle.base.Transform
 import org.asciidoctor.gradle.base.slides.Profile
-import org.asciidoctor.gradle.js.nodejs.AsciidoctorJSNodeExtension
-import org.asciidoctor.gradle.js.nodejs.AsciidoctorJSNpmExtension
+import org.asciidoctor.gradle.js.nodejs.core.AsciidoctorJSNodeExtension
+import org.asciidoctor.gradle.js.nodejs.core.AsciidoctorJSNpmExtension
 import org.asciidoctor.gradle.slides.export.base.AbstractExportBaseTask
+import org.asciidoctor.gradle.slides.export.decktape.internal.DeckFingerprints
+import org.asciidoctor.gradle.slides.export.decktape.internal.DeckOutputCommit
+import org.asciidoctor.gradle.slides.export.decktape.internal.SharedBrowser
 import org.gradle.api.Action
+import org.gradle.api.GradleException
+import org.gradle.api.InvalidUserDataException
+import org.gradle.api.file.FileCollection
 import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.CacheableTask
 import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
 import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.Nested
 import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.PathSensitive
 import org.gradle.api.tasks.TaskAction
 import org.gradle.api.tasks.options.Option
+import org.gradle.process.ExecResult
 import org.gradle.process.ExecSpec
 import org.ysb33r.gradle.nodejs.utils.NodeJSExecutor
 import org.ysb33r.gradle.nodejs.utils.npm.NpmExecutor
 import org.ysb33r.grolifant.api.core.ProjectOperations
 
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
 import static org.asciidoctor.gradle.base.slides.Profile.BESPOKE
 import static org.asciidoctor.gradle.base.slides.Profile.DECK_JS
 import static org.asciidoctor.gradle.base.slides.Profile.DZ
@@ -44,7 +63,8 @@ import static org.asciidoctor.gradle.base.slides.Profile.GENERIC
 import static org.asciidoctor.gradle.base.slides.Profile.IMPRESS_JS
 import static org.asciidoctor.gradle.base.slides.Profile.REMARK_JS
 import static org.asciidoctor.gradle.base.slides.Profile.REVEAL_JS
-import static org.ysb33r.grolifant.api.v4.ClosureUtils.configureItem
+import static org.gradle.api.tasks.PathSensitivity.RELATIVE
+import static org.ysb33r.grolifant.api.core.ClosureUtils.configureItem
 
 /** Conversion task that will convert from a set of
  * HTML slides to PDF using <a href="https://github.com/astefanutti/decktape">decktape</a>.
@@ -71,12 +91,25 @@ class DeckTapeTask extends AbstractExportBaseTask {
 
     private String genericKeyStroke = 'ArrowRight'
     private final List<String> chromeArgs = []
-    private final DeckTapeExtension decktape
     private String range
     private Integer interSlidePause
     private Integer loadPause
-    private final NpmExecutor npmExecutor
-    private final Provider<String> versionProvider
+    private final FileCollection decktapeDependencies
+    private final FileCollection slideAssets
+    private final Provider<File> npmHome
+    private final Provider<File> nodeExecutable
+    private final File projectDir
+    private final Provider<File> fingerprintManifest
+    private int maxParallelExports
+
+    private static class BatchState {
+        final AtomicBoolean failed = new AtomicBoolean(false)
+        final AtomicInteger skipped = new AtomicInteger(0)
+        final Queue<String> failures = new ConcurrentLinkedQueue<>()
+        final Map<File, String> fingerprints = [:]
+        final Map<File, String> keys = [:]
+        DeckFingerprints manifest
+    }
 
     static class ScreenShots {
 
@@ -162,14 +195,30 @@ class DeckTapeTask extends AbstractExportBaseTask {
 
     DeckTapeTask() {
         super()
-        ProjectOperations po = ProjectOperations.find(project)
-        decktape = project.extensions.getByType(DeckTapeExtension)
-        npmExecutor = new NpmExecutor(
-                po,
-                project.extensions.getByType(AsciidoctorJSNodeExtension),
-                project.extensions.getByType(AsciidoctorJSNpmExtension)
+        final ProjectOperations po = ProjectOperations.find(project)
+        final DeckTapeExtension decktape = project.extensions.getByType(DeckTapeExtension)
+        final AsciidoctorJSNodeExtension nodejs = project.extensions.getByType(AsciidoctorJSNodeExtension)
+        final AsciidoctorJSNpmExtension npm = project.extensions.getByType(AsciidoctorJSNpmExtension)
+        final NpmExecutor npmExecutor = new NpmExecutor(po, nodejs, npm)
+        final Provider<String> versionProvider = po.projectTools.versionProvider
+        final String projectAlias = "${project.name}-${name}"
+
+        this.npmHome = npm.homeDirectoryProvider
+        this.nodeExecutable = nodejs.executable
+        this.projectDir = project.projectDir
+        this.fingerprintManifest = po.buildDirDescendant(
+                "/asciidoctor-manifests/${po.fsOperations.toSafeFileName(path)}.decktape.properties"
         )
-        this.versionProvider = po.projectTools.versionProvider
+        this.maxParallelExports = project.gradle.startParameter.maxWorkerCount
+        this.decktapeDependencies = po.fsOperations.files({ ->
+            npmExecutor.initPkgJson(projectAlias, versionProvider)
+            decktape.configuration
+        } as Callable<FileCollection>)
+        this.slideAssets = po.fsOperations.files({ ->
+            owner.slides.get().collectMany { File deck ->
+                deck.exists() ? DeckFingerprints.referencedAssets(deck) : []
+            }
+        } as Callable<List<File>>)
     }
 
     /** Use a generic profile.
@@ -316,6 +365,45 @@ class DeckTapeTask extends AbstractExportBaseTask {
         this.chromeArgs
     }
 
+    /** The maximum number of decks which are exported at the same time.
+     *
+     * All decks are rendered in separate tabs of a single shared browser.
+     * Defaults to the maximum number of Gradle workers.
+     *
+     * @return Maximum number of concurrent exports.
+     *
+     * @since 4.0
+     */
+    @Internal
+    int getMaxParallelExports() {
+        this.maxParallelExports
+    }
+
+    /** Sets the maximum number of decks which are exported at the same time.
+     *
+     * @param max Maximum number of concurrent exports. Use {@code 1} to export one deck at a time.
+     *
+     * @since 4.0
+     */
+    void setMaxParallelExports(int max) {
+        if (max < 1) {
+            throw new InvalidUserDataException('maxParallelExports must be at least 1')
+        }
+        this.maxParallelExports = max
+    }
+
+    /** Local files which are referenced by the slides, such as the template, theme and images.
+     *
+     * @return Referenced files.
+     *
+     * @since 4.0
+     */
+    @InputFiles
+    @PathSensitive(RELATIVE)
+    FileCollection getSlideAssets() {
+        this.slideAssets
+    }
+
     @SuppressWarnings('UnnecessaryGetter')
     @TaskAction
     void exec() {
@@ -327,30 +415,101 @@ class DeckTapeTask extends AbstractExportBaseTask {
             profileToUse.addAll('--key', genericKeyStroke)
         }
 
-        File home = project.extensions.getByType(AsciidoctorJSNpmExtension).homeDirectory
+        File home = npmHome.get()
         File decktapeExecutable = new File(home, 'node_modules/decktape/decktape.js')
-        File nodejs = project.extensions.getByType(AsciidoctorJSNodeExtension).executable.get()
+        File nodejs = nodeExecutable.get()
+
+        // Resolving the dependencies initialises the package and installs decktape
+        decktapeDependencies.files
+
+        final BatchState state = new BatchState()
+        state.manifest = new DeckFingerprints(fingerprintManifest.get())
+        final String options = (resolvedArgs + profileToUse).join('\n')
+        Set<File> convertibles = slides.get().findAll { File source ->
+            final String fingerprint = DeckFingerprints.fingerprint(source, options)
+            final String key = DeckFingerprints.keyOf(source, projectDir)
+            state.fingerprints[source] = fingerprint
+            state.keys[source] = key
+            !(state.manifest.isUnchanged(key, fingerprint) &&
+                    new File(outputDirCached, outputFileNameFromInput(source)).exists())
+        }
+        final int unchanged = state.fingerprints.size() - convertibles.size()
+        if (unchanged) {
+            logger.info("Skipping ${unchanged} deck(s) which have not changed since they were last exported")
+        }
+
+        if (!convertibles.empty) {
+            try {
+                exportAll(convertibles, state, nodejs, home, decktapeExecutable, resolvedArgs, profileToUse)
+            } finally {
+                state.manifest.save()
+            }
+        }
+    }
 
-        Closure configurator = { File sourceFile, File destFile, ExecSpec spec ->
+    @SuppressWarnings('ParameterCount')
+    private void exportAll(
+            Set<File> convertibles,
+            BatchState state,
+            File nodejs,
+            File home,
+            File decktapeExecutable,
+            List<String> resolvedArgs,
+            List<String> profileToUse
+    ) {
+        final SharedBrowser browser = new SharedBrowser(nodejs, home, decktapeExecutable, chromeArgs)
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxParallelExports, convertibles.size()))
+        final File stagingRoot = new File(temporaryDir, 'staging')
+
+        Closure configurator = { File sourceFile, File destFile, OutputStream output, ExecSpec spec ->
             spec.with {
                 environment = NodeJSExecutor.defaultEnvironment
+                environment(SharedBrowser.ENDPOINT_ENV_VAR, browser.endpoint)
                 workingDir = home
                 executable nodejs
+                args('--require', browser.preloadScript.absolutePath)
                 args(decktapeExecutable.absolutePath)
                 args(resolvedArgs)
                 args(profileToUse)
                 args(sourceFile.absoluteFile.toURI())
                 args(destFile.absolutePath)
+                standardOutput = output
+                errorOutput = output
+                ignoreExitValue = true
             }
         }
 
-        npmExecutor.initPkgJson("${project.name}-${name}", versionProvider)
+        // Every deck is exported by its own Node.js process. Only the browser is shared between them.
+        final DeckTapeTask task = this
+        try {
+            final Map<File, Future<?>> exports = [:]
+            for (File source : convertibles) {
+                final File deck = source
+                final File staging = new File(stagingRoot, state.keys[deck])
+                final Closure deckConfigurator = configurator.curry(
+                        deck,
+                        new File(staging, outputFileNameFromInput(deck))
+                )
+                exports[deck] = executor.submit({ ->
+                    task.exportDeck(deck, staging, state, deckConfigurator)
+                } as Runnable)
+            }
+            for (Map.Entry<File, Future<?>> export : exports.entrySet()) {
+                awaitExport(export.key, export.value)
+            }
+        } finally {
+            executor.shutdownNow()
+            browser.close()
+        }
 
-        decktape.configuration.resolve()
-        Set<File> convertibles = slides.get()
-        convertibles.each { File source ->
-            File destination = new File(outputDirCached, outputFileNameFromInput(source))
-            project.exec((Closure) configurator.curry(source, destination))
+        if (!state.failures.empty) {
+            final String notExported = state.skipped.get() ?
+                    "\n${state.skipped.get()} remaining deck(s) were not exported." : ''
+            throw new GradleException(
+                    "DeckTape failed to export ${state.failures.size()} deck(s):\n" +
+                            state.failures.join('\n') +
+                            notExported
+            )
         }
     }
 
@@ -370,13 +529,48 @@ class DeckTapeTask extends AbstractExportBaseTask {
         "${input.name.replaceFirst(~/\.html$/, '')}.pdf"
     }
 
+    private static void awaitExport(File deck, Future<?> export) {
+        try {
+            export.get()
+        } catch (ExecutionException e) {
+            throw new GradleException("Exporting ${deck.name} failed", e.cause)
+        }
+    }
+
+    private void exportDeck(File source, File staging, BatchState state, Closure configurator) {
+        if (state.failed.get()) {
+            state.skipped.incrementAndGet()
+        } else {
+            state.manifest.forget(state.keys[source])
+            if (staging.exists()) {
+                staging.deleteDir()
+            }
+            staging.mkdirs()
+            final ByteArrayOutputStream output = new ByteArrayOutputStream()
+            final ExecResult result = projectOperations.exec((Closure) configurator.curry(output))
+            final String text = output.toString(StandardCharsets.UTF_8.name()).trim()
+            if (result.exitValue == 0) {
+                if (text) {
+                    logger.info("${source.name}:\n${text}")
+                }
+                final String baseName = outputFileNameFromInput(source).replaceFirst(~/\.pdf$/, '')
+                final int written = DeckOutputCommit.commit(staging, outputDir, baseName)
+                logger.info("${source.name}: ${written} exported file(s) changed")
+                state.manifest.record(state.keys[source], state.fingerprints[source])
+            } else {
+                state.failed.set(true)
+                state.failures.add("${source.name} (exit code ${result.exitValue}):\n${text}".toString())
+            }
+        }
+    }
+
     /** Build decktape command-line options excluding profile, source and destination file
      *
      * @return List of option
      */
     @SuppressWarnings('DuplicateStringLiteral')
     private List<String> buildOptions() {
-        File wd = project.extensions.getByType(AsciidoctorJSNpmExtension).homeDirectory
+        File wd = npmHome.get()
         if (height && !width || !height && width) {
             throw new IllegalArgumentException('Must specify both height and width, not just one.')
         }
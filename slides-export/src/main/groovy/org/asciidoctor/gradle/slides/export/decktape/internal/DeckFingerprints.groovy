@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.slides.export.decktape.internal
+
+import groovy.transform.CompileStatic
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Path
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+/** Fingerprints of exported decks.
+ *
+ * <p>
+ *   A fingerprint covers the HTML of a deck, every local file that the deck references via {@code src} or
+ *   {@code href} attributes, every local file that referenced stylesheets refer to via {@code url()} or
+ *   {@code @import}, as well as the export options. This includes the reveal.js template and theme files.
+ * </p>
+ * <p>
+ *   The fingerprints are kept in a manifest below the build directory, so that no internal file ends up among
+ *   the exports. As the output directory can be changed without the manifest, a deck is only considered
+ *   unchanged if its export still exists. Decks are identified by their path relative to the project directory,
+ *   so that decks with the same name in different directories do not share a fingerprint.
+ * </p>
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class DeckFingerprints {
+
+    private static final Pattern HTML_REFERENCE = ~/(?i)(?:src|href)\s*=\s*["']([^"']+)["']/
+    private static final Pattern CSS_REFERENCE = ~/(?i)(?:url\(\s*["']?([^"')]+)["']?\s*\)|@import\s+["']([^"']+)["'])/
+    private static final int BUFFER_SIZE = 65536
+
+    private final File manifest
+    private final Map<String, String> recorded = new ConcurrentHashMap<>()
+
+    /** Loads fingerprints from a manifest.
+     *
+     * @param manifest Manifest file. It does not need to exist.
+     */
+    DeckFingerprints(File manifest) {
+        this.manifest = manifest
+        if (manifest.exists()) {
+            final Properties props = new Properties()
+            manifest.withInputStream { InputStream input -> props.load(input) }
+            props.each { Object k, Object v -> recorded[k.toString()] = v.toString() }
+        }
+    }
+
+    /** Calculates the fingerprint of a deck.
+     *
+     * @param deck HTML file of the deck.
+     * @param options Export options which influence the rendering.
+     * @return Fingerprint
+     */
+    static String fingerprint(File deck, String options) {
+        final MessageDigest md = MessageDigest.getInstance('SHA-256')
+        md.update(options.getBytes(StandardCharsets.UTF_8))
+        update(md, deck)
+        final File root = deck.parentFile
+        for (File asset : referencedAssets(deck)) {
+            md.update(root.toPath().relativize(asset.toPath()).toString().getBytes(StandardCharsets.UTF_8))
+            update(md, asset)
+        }
+        md.digest().encodeHex().toString()
+    }
+
+    /** Finds all local files which are referenced by a deck.
+     *
+     * @param deck HTML file of the deck.
+     * @return Referenced files in a stable order.
+     */
+    static SortedSet<File> referencedAssets(File deck) {
+        final SortedSet<File> found = new TreeSet<File>()
+        collectReferences(deck, HTML_REFERENCE, found)
+        found
+    }
+
+    /** Calculates the key by which a deck is identified.
+     *
+     * @param deck HTML file of the deck.
+     * @param root Directory against which the key is calculated.
+     * @return Path relative to {@code root} using forward slashes. If the deck is not below {@code root}, the
+     *   path is relative to the filesystem root instead.
+     */
+    static String keyOf(File deck, File root) {
+        final Path absolute = deck.toPath().toAbsolutePath().normalize()
+        final Path relative = root.toPath().toAbsolutePath().normalize().relativize(absolute)
+        (relative.startsWith('..') ? absolute.root.relativize(absolute) : relative).toString()
+                .replace(File.separatorChar, '/' as char)
+    }
+
+    /** Whether a deck was exported with the same fingerprint before.
+     *
+     * @param key Key of the deck as calculated by {@link #keyOf}.
+     * @param fingerprint Current fingerprint.
+     * @return {@code true} if the fingerprint is unchanged.
+     */
+    boolean isUnchanged(String key, String fingerprint) {
+        recorded[key] == fingerprint
+    }
+
+    /** Records the fingerprint of a successfully exported deck.
+     *
+     * @param key Key of the deck as calculated by {@link #keyOf}.
+     * @param fingerprint Fingerprint.
+     */
+    void record(String key, String fingerprint) {
+        recorded[key] = fingerprint
+    }
+
+    /** Removes the fingerprint of a deck so that it will be exported on the next run.
+     *
+     * @param key Key of the deck as calculated by {@link #keyOf}.
+     */
+    void forget(String key) {
+        recorded.remove(key)
+    }
+
+    /** Writes the manifest.
+     *
+     */
+    void save() {
+        final Properties props = new Properties()
+        props.putAll(recorded)
+        manifest.parentFile.mkdirs()
+        manifest.withOutputStream { OutputStream output -> props.store(output, null) }
+    }
+
+    private static void collectReferences(File file, Pattern pattern, SortedSet<File> found) {
+        final Matcher matcher = pattern.matcher(file.getText(StandardCharsets.UTF_8.name()))
+        while (matcher.find()) {
+            final String reference = matcher.group(1) ?: (matcher.groupCount() > 1 ? matcher.group(2) : null)
+            final File asset = resolveLocal(file.parentFile, reference)
+            if (asset != null && found.add(asset) && asset.name.toLowerCase(Locale.US).endsWith('.css')) {
+                collectReferences(asset, CSS_REFERENCE, found)
+            }
+        }
+    }
+
+    private static File resolveLocal(File dir, String reference) {
+        if (reference == null || reference.startsWith('//') || reference =~ /^[A-Za-z][A-Za-z0-9+.-]*:/) {
+            null
+        } else {
+            final String path = reference.replaceFirst(~/[?#].*$/, '')
+            final File candidate = path ? new File(dir, URLDecoder.decode(path, 'UTF-8')).canonicalFile : null
+            candidate?.file ? candidate : null
+        }
+    }
+
+    private static void update(MessageDigest md, File file) {
+        final byte[] buffer = new byte[BUFFER_SIZE]
+        file.withInputStream { InputStream input ->
+            int read
+            while ((read = input.read(buffer)) > 0) {
+                md.update(buffer, 0, read)
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.slides.export.decktape.internal
+
+import groovy.transform.CompileStatic
+import org.asciidoctor.gradle.base.internal.OutputCommit
+
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.regex.Pattern
+
+/** Moves the files of a deck that was exported to a staging directory into the output directory.
+ *
+ * Only files of which the content differs are replaced, which means that unchanged screenshots keep their
+ * timestamps. Screenshots of slides which no longer exist are removed.
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+class DeckOutputCommit {
+
+    /** Commits a staged export.
+     *
+     * @param stagingDir Directory to which DeckTape exported a single deck.
+     * @param outputDir Output directory of the task.
+     * @param deckBaseName Name of the deck without extension.
+     * @return Number of files that were written to the output directory.
+     */
+    static int commit(File stagingDir, File outputDir, String deckBaseName) {
+        final List<File> staged = (stagingDir.listFiles() ?: new File[0]).findAll { File it -> it.file }
+        final Set<String> stagedNames = staged*.name.toSet()
+        int written = 0
+        outputDir.mkdirs()
+
+        for (File file : staged) {
+            final File target = new File(outputDir, file.name)
+            if (target.exists() && OutputCommit.sameContent(file, target)) {
+                file.delete()
+            } else {
+                Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+                written++
+            }
+        }
+
+        final Pattern screenshot = ~/^${Pattern.quote(deckBaseName)}_\d+_\d+x\d+\.(png|jpg)$/
+        outputDir.listFiles().findAll { File it ->
+            it.file && !stagedNames.contains(it.name) && it.name.matches(screenshot)
+        }*.delete()
+
+        stagingDir.deleteDir()
+        written
+    }
+}
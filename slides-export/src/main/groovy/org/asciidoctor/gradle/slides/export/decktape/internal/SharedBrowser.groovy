@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.slides.export.decktape.internal
+
+import groovy.json.JsonOutput
+import groovy.transform.CompileStatic
+import groovy.util.logging.Slf4j
+import org.gradle.api.GradleException
+import org.ysb33r.gradle.nodejs.utils.NodeJSExecutor
+
+import java.nio.charset.StandardCharsets
+
+/** A headless browser that is shared by all DeckTape processes of a task.
+ *
+ * DeckTape processes connect to the browser by preloading {@link #getPreloadScript} and setting
+ * {@link #ENDPOINT_ENV_VAR} to {@link #getEndpoint}. Each deck is then rendered in its own tab.
+ * The preload script registers ES module loader hooks, so that it also reaches the instance of puppeteer which
+ * is imported by DeckTape 3 and later.
+ *
+ * @author Schalk W. Cronjé
+ *
+ * @since 4.0
+ */
+@CompileStatic
+@Slf4j
+class SharedBrowser implements Closeable {
+
+    public static final String ENDPOINT_ENV_VAR = 'ASCIIDOCTOR_GRADLE_DECKTAPE_BROWSER'
+
+    private static final String REPLY_PREFIX = '@@asciidoctor-gradle@@ '
+
+    final String endpoint
+    final File preloadScript
+
+    private final Process process
+    private final Thread errorPump
+
+    /** Launches a browser.
+     *
+     * @param nodejs Location of the {@code node} executable.
+     * @param npmHome NPM home directory in which DeckTape has been installed.
+     * @param decktape Location of {@code decktape.js}.
+     * @param chromeArgs Additional arguments for Chrome/Chromium.
+     */
+    SharedBrowser(File nodejs, File npmHome, File decktape, List<String> chromeArgs) {
+        final File hostScript = writeScript(npmHome, 'browser-host.js')
+        this.preloadScript = writeScript(npmHome, 'shared-browser.js')
+        writeScript(npmHome, 'shared-browser-hooks.mjs')
+
+        final ProcessBuilder pb = new ProcessBuilder(
+                nodejs.absolutePath,
+                hostScript.absolutePath,
+                decktape.absolutePath,
+                JsonOutput.toJson(chromeArgs)
+        ).directory(npmHome)
+        pb.environment().putAll(NodeJSExecutor.defaultEnvironment)
+
+        this.process = pb.start()
+        this.errorPump = Thread.start('decktape-browser-stderr') { ->
+            process.errorStream.withReader(StandardCharsets.UTF_8.name()) { Reader reader ->
+                reader.eachLine { String line -> log.info(line) }
+            }
+        }
+        this.endpoint = readEndpoint()
+    }
+
+    /** Closes the browser and waits for it to terminate.
+     *
+     */
+    @Override
+    void close() {
+        process.outputStream.close()
+        process.waitFor()
+        errorPump.join()
+    }
+
+    private String readEndpoint() {
+        final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.inputStream, StandardCharsets.UTF_8)
+        )
+        String line = reader.readLine()
+        while (line != null && !line.startsWith(REPLY_PREFIX)) {
+            log.info(line)
+            line = reader.readLine()
+        }
+
+        if (line == null) {
+            process.waitFor()
+            errorPump.join()
+            throw new GradleException(
+                    "Could not launch a shared browser for DeckTape (exit code ${process.exitValue()})"
+            )
+        }
+
+        line.substring(REPLY_PREFIX.length()).trim()
+    }
+
+    private static File writeScript(File npmHome, String name) {
+        final File script = new File(npmHome, "asciidoctor-gradle-decktape-${name}")
+        script.bytes = SharedBrowser.getResourceAsStream(name).bytes
+        script
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Launches a single headless browser which is shared by all DeckTape processes of a task.
+//
+// Usage: node browser-host.js <path to decktape.js> <JSON array of Chrome arguments>
+//
+// The WebSocket endpoint of the browser is written to stdout as a single prefixed line. The browser is closed
+// once stdin is closed.
+'use strict'
+
+const fs = require('fs')
+const path = require('path')
+
+const REPLY_PREFIX = '@@asciidoctor-gradle@@ '
+const decktape = fs.realpathSync(process.argv[2])
+const puppeteer = require(require.resolve('puppeteer', { paths: [path.dirname(decktape)] }))
+
+puppeteer.launch({ headless: true, args: JSON.parse(process.argv[3]) }).then((browser) => {
+  console.error('Launched the shared browser at ' + browser.wsEndpoint())
+  process.stdout.write(REPLY_PREFIX + browser.wsEndpoint() + '\n')
+  process.stdin.on('end', () => {
+    browser.close().then(() => process.exit(0))
+  })
+  process.stdin.resume()
+}).catch((e) => {
+  console.error(e.message)
+  process.exit(1)
+})
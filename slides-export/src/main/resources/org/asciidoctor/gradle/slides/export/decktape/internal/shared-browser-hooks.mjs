@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// ES module loader hooks which are registered by shared-browser.js.
+//
+// Every import of 'puppeteer' from an ES module is redirected to a wrapper module. The wrapper imports the real
+// module, passes its default export through share() from shared-browser.js and re-exports everything else. As
+// share() patches the instance in place, DeckTape connects to the shared browser no matter whether it calls
+// launch() on the default export or uses the named export.
+
+const WRAPPER = 'asciidoctor-gradle-shared-browser'
+let preload
+
+export function initialize (data) {
+  preload = data.preload
+}
+
+export async function resolve (specifier, context, nextResolve) {
+  const resolved = await nextResolve(specifier, context)
+  if (specifier === 'puppeteer' && context.conditions.includes('import')) {
+    const wrapper = new URL(resolved.url)
+    wrapper.searchParams.set(WRAPPER, '')
+    return { url: wrapper.href, shortCircuit: true }
+  }
+  return resolved
+}
+
+export async function load (url, context, nextLoad) {
+  const wrapper = new URL(url)
+  if (wrapper.searchParams.has(WRAPPER)) {
+    wrapper.searchParams.delete(WRAPPER)
+    const target = JSON.stringify(wrapper.href)
+    return {
+      format: 'module',
+      shortCircuit: true,
+      source: [
+        `import puppeteer from ${target}`,
+        `import preload from ${JSON.stringify(preload)}`,
+        `export * from ${target}`,
+        'export default preload.share(puppeteer)',
+        'export const launch = (...args) => puppeteer.launch(...args)'
+      ].join('\n')
+    }
+  }
+  return nextLoad(url, context)
+}
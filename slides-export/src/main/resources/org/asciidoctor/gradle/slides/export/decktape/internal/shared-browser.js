@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Preloaded into DeckTape via --require. Instead of launching its own browser, DeckTape connects to the
+// browser at the endpoint in ASCIIDOCTOR_GRADLE_DECKTAPE_BROWSER and renders the deck in a new tab.
+// Closing the browser only closes the tabs that were opened by this process.
+//
+// DeckTape 3 is an ES module and imports its own instance of puppeteer, which a patch of the CommonJS instance
+// does not reach. The loader hooks in shared-browser-hooks.mjs therefore wrap the ES module of puppeteer and
+// patch its default export. The CommonJS instance, which is resolved from the location of DeckTape, is patched
+// as well for versions of DeckTape that load puppeteer via require.
+'use strict'
+
+const fs = require('fs')
+const path = require('path')
+const nodeModule = require('module')
+const { pathToFileURL } = require('url')
+const { isMainThread } = require('worker_threads')
+
+const endpoint = process.env.ASCIIDOCTOR_GRADLE_DECKTAPE_BROWSER
+const SHARED = Symbol.for('asciidoctor-gradle.shared-browser')
+
+function share (puppeteer) {
+  if (puppeteer && !puppeteer[SHARED]) {
+    puppeteer[SHARED] = true
+    puppeteer.launch = async function () {
+      const browser = await puppeteer.connect({ browserWSEndpoint: endpoint })
+      const pages = []
+      const newPage = browser.newPage.bind(browser)
+
+      browser.newPage = async function () {
+        const page = await newPage()
+        pages.push(page)
+        return page
+      }
+
+      browser.close = async function () {
+        await Promise.all(pages.map((page) => page.close().catch(() => {})))
+        browser.disconnect()
+      }
+
+      console.error('Connected to the shared browser at ' + endpoint)
+      return browser
+    }
+  }
+  return puppeteer
+}
+
+module.exports = { share }
+
+// Node.js also preloads this script into the thread which runs the loader hooks. Only the main thread is patched.
+if (endpoint && isMainThread) {
+  if (typeof nodeModule.register === 'function') {
+    const hooks = path.join(__dirname, path.basename(__filename).replace(/\.js$/, '-hooks.mjs'))
+    nodeModule.register(pathToFileURL(hooks).href, {
+      data: { preload: pathToFileURL(__filename).href }
+    })
+  }
+
+  const decktape = fs.realpathSync(process.argv[1])
+  share(require(require.resolve('puppeteer', { paths: [path.dirname(decktape)] })))
+}
@@ -17,6 +17,7 @@ package org.asciidoctor.gradle.slides.export.decktape
 
 import org.asciidoctor.gradle.slides.export.base.ProfileNotSupportedException
 import org.gradle.api.Action
+import org.gradle.api.InvalidUserDataException
 import org.gradle.api.Project
 import org.gradle.testfixtures.ProjectBuilder
 import spock.lang.Specification
@@ -75,6 +76,22 @@ class DeckTapeTaskSpec extends Specification {
         deckTapeTask.width == 456
     }
 
+    void 'Maximum number of parallel exports can be set'() {
+        when:
+        deckTapeTask.maxParallelExports = 4
+
+        then:
+        deckTapeTask.maxParallelExports == 4
+    }
+
+    void 'Maximum number of parallel exports must be positive'() {
+        when:
+        deckTapeTask.maxParallelExports = 0
+
+        then:
+        thrown(InvalidUserDataException)
+    }
+
     void 'Profile is not set by default'() {
         expect:
         deckTapeTask.profile == null
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asciidoctor.gradle.slides.export.decktape.internal
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class DeckFingerprintsSpec extends Specification {
+
+    @TempDir
+    File tmpDir
+
+    File deck
+    File theme
+    File font
+
+    void setup() {
+        new File(tmpDir, 'reveal.js/css/theme').mkdirs()
+        new File(tmpDir, 'reveal.js/js').mkdirs()
+        theme = new File(tmpDir, 'reveal.js/css/theme/black.css')
+        font = new File(tmpDir, 'reveal.js/css/theme/font.woff')
+        theme.text = "@font-face { src: url('font.woff'); }"
+        font.text = 'font'
+        new File(tmpDir, 'reveal.js/js/reveal.js').text = 'reveal'
+        deck = new File(tmpDir, 'index.html')
+        deck.text = '''<html><head>
+            <link rel="stylesheet" href="reveal.js/css/theme/black.css" id="theme">
+            <link rel="stylesheet" href="https://cdn.example.com/remote.css">
+            </head><body><a href="#/2">next</a>
+            <script src="reveal.js/js/reveal.js?v=1"></script>
+            </body></html>'''
+    }
+
+    void 'Referenced local files include the template, the theme and what the theme refers to'() {
+        expect:
+        DeckFingerprints.referencedAssets(deck)*.name.toSet() == ['black.css', 'font.woff', 'reveal.js'].toSet()
+    }
+
+    void 'A fingerprint changes when a referenced asset or the options change'() {
+        given:
+        final String original = DeckFingerprints.fingerprint(deck, 'pdf')
+
+        expect:
+        DeckFingerprints.fingerprint(deck, 'pdf') == original
+        DeckFingerprints.fingerprint(deck, 'png') != original
+
+        when:
+        font.text = 'another font'
+
+        then:
+        DeckFingerprints.fingerprint(deck, 'pdf') != original
+    }
+
+    void 'Recorded fingerprints survive in the manifest'() {
+        given:
+        final File manifest = new File(tmpDir, 'manifests/decktape.properties')
+        final String fingerprint = DeckFingerprints.fingerprint(deck, 'pdf')
+        final DeckFingerprints first = new DeckFingerprints(manifest)
+        final String key = DeckFingerprints.keyOf(deck, tmpDir)
+
+        when:
+        first.record(key, fingerprint)
+        first.save()
+        final DeckFingerprints second = new DeckFingerprints(manifest)
+
+        then:
+        second.isUnchanged(key, fingerprint)
+        !second.isUnchanged(key, 'other')
+
+        when:
+        second.forget(key)
+
+        then:
+        !second.isUnchanged(key, fingerprint)
+    }
+
+    void 'Decks with the same name in different directories have different keys'() {
+        given:
+        final File other = new File(tmpDir, 'other/index.html')
+
+        expect:
+        DeckFingerprints.keyOf(deck, tmpDir) == 'index.html'
+        DeckFingerprints.keyOf(other, tmpDir) == 'other/index.html'
+        DeckFingerprints.keyOf(deck, new File(tmpDir, 'other')).endsWith("${tmpDir.name}/index.html")
+        !DeckFingerprints.keyOf(deck, new File(tmpDir, 'other')).startsWith('.')
+    }
+
+    void 'Only changed screenshots are written and stale ones are removed'() {
+        given:
+        final File staging = new File(tmpDir, 'staging')
+        final File output = new File(tmpDir, 'output')
+        staging.mkdirs()
+        output.mkdirs()
+        new File(staging, 'index.pdf').text = 'pdf'
+        new File(staging, 'index_1_1024x768.png').text = 'same'
+        new File(staging, 'index_2_1024x768.png').text = 'changed'
+        new File(output, 'index_1_1024x768.png').text = 'same'
+        new File(output, 'index_2_1024x768.png').text = 'old'
+        new File(output, 'index_3_1024x768.png').text = 'removed slide'
+        new File(output, 'other_3_1024x768.png').text = 'other deck'
+
+        when:
+        final int written = DeckOutputCommit.commit(staging, output, 'index')
+
+        then:
+        written == 2
+        new File(output, 'index.pdf').text == 'pdf'
+        new File(output, 'index_2_1024x768.png').text == 'changed'
+        !new File(output, 'index_3_1024x768.png').exists()
+        new File(output, 'other_3_1024x768.png').exists()
+        !staging.exists()
+    }
+}